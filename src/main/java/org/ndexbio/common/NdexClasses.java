@@ -100,6 +100,11 @@ public interface NdexClasses {
     public static final String Network_P_source_format = "sourceFormat";  // Used internally. Will be convert to properties in the network model.
     public static final String Network_P_readOnlyCommitId = "ROId";
     public static final String Network_P_cacheId 	= "cacheId";
+
+    // progress of the cleanup of a deleted network, so that an interrupted cleanup can be resumed.
+    public static final String Network_P_cleanupField  = "cleanupField";
+    public static final String Network_P_cleanupOffset = "cleanupOffset";
+    public static final String Network_P_cleanupCount  = "cleanupCount";
     
     public static final String Network_E_Namespace = "networkNS";
     public static final String Network_E_BaseTerms = "BaseTerms";
@@ -112,6 +117,15 @@ public interface NdexClasses {
     // element 
     public static final String Element_ID  = "id";
     
+    // element id indexes, one per element class.
+    public static final String Index_namespace_id   = "index-namespace-id";
+    public static final String Index_BTerm_id       = "index-baseterm-id";
+    public static final String Index_citation_id    = "index-citation-id";
+    public static final String Index_support_id     = "index-support-id";
+    public static final String Index_edge_id        = "index-edge-id";
+    public static final String Index_function_id    = "index-function-id";
+    public static final String Index_reifiedEdge_id = "index-reifiedEdge-id";
+    
     public static final String Index_network_name_desc = "idx_network-name-desc";
     
     // propertiedObject
@@ -0,0 +1,223 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.access;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded, fair gate in front of the database connection pool. Callers wait in FIFO order in one
+ * of two lanes. Interactive requests are always served before background tasks, and background 
+ * tasks can't take the connections reserved for interactive requests. A released connection is 
+ * handed to the head waiter directly, so new callers can't barge ahead of the ones already waiting.
+ */
+public class ConnectionPoolGate {
+
+	public enum Lane { INTERACTIVE, BACKGROUND }
+	
+	private static class Waiter {
+		final Lane lane;
+		final Condition condition;
+		boolean granted;
+		
+		Waiter(Lane lane, Condition condition) {
+			this.lane = lane;
+			this.condition = condition;
+		}
+	}
+	
+	private final int capacity;
+	private final int backgroundCapacity;
+	
+	private final ReentrantLock lock = new ReentrantLock();
+	private final ArrayDeque<Waiter> interactiveWaiters = new ArrayDeque<>();
+	private final ArrayDeque<Waiter> backgroundWaiters = new ArrayDeque<>();
+	
+	private int inUse;
+	private int backgroundInUse;
+	
+	// metrics
+	private int  peakInUse;
+	private long acquireCount;
+	private long waitCount;
+	private long timeoutCount;
+	private long totalWaitNanos;
+	private long maxWaitNanos;
+	
+	/**
+	 * @param capacity  total number of connections that can be held at the same time.
+	 * @param backgroundCapacity  number of connections background tasks can hold at the same time. 
+	 */
+	public ConnectionPoolGate(int capacity, int backgroundCapacity) {
+		if ( capacity < 1 || backgroundCapacity < 1 || backgroundCapacity > capacity)
+			throw new IllegalArgumentException("Invalid connection pool capacity " + capacity + "/" + backgroundCapacity);
+		this.capacity = capacity;
+		this.backgroundCapacity = backgroundCapacity;
+	}
+	
+	/**
+	 * Wait for a connection slot in the given lane.
+	 * @return true if a slot was granted, false if the timeout elapsed first.
+	 * @throws InterruptedException
+	 */
+	public boolean acquire(Lane lane, long timeout, TimeUnit unit) throws InterruptedException {
+		long start = System.nanoTime();
+		lock.lock();
+		try {
+			if ( !hasWaitersAhead(lane) && canGrant(lane)) {
+				grant(lane);
+				recordAcquire(0);
+				return true;
+			}
+			
+			Waiter w = new Waiter(lane, lock.newCondition());
+			waitersOf(lane).addLast(w);
+			long remaining = unit.toNanos(timeout);
+			try {
+				while ( !w.granted) {
+					if ( remaining <= 0) {
+						waitersOf(lane).remove(w);
+						timeoutCount++;
+						dispatch();
+						return false;
+					}
+					remaining = w.condition.awaitNanos(remaining);
+				}
+			} catch (InterruptedException e) {
+				if ( w.granted) 
+					releaseSlot(lane);
+				else 
+					waitersOf(lane).remove(w);
+				dispatch();
+				throw e;
+			}
+			recordAcquire(System.nanoTime() - start);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	public void release(Lane lane) {
+		lock.lock();
+		try {
+			releaseSlot(lane);
+			dispatch();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * A snapshot of the wait time and utilization metrics of this gate.
+	 */
+	public Map<String, Number> getMetrics() {
+		lock.lock();
+		try {
+			Map<String, Number> m = new LinkedHashMap<>();
+			m.put("capacity", capacity);
+			m.put("backgroundCapacity", backgroundCapacity);
+			m.put("inUse", inUse);
+			m.put("backgroundInUse", backgroundInUse);
+			m.put("peakInUse", peakInUse);
+			m.put("utilization", (double)inUse / capacity);
+			m.put("interactiveWaiting", interactiveWaiters.size());
+			m.put("backgroundWaiting", backgroundWaiters.size());
+			m.put("acquireCount", acquireCount);
+			m.put("waitCount", waitCount);
+			m.put("timeoutCount", timeoutCount);
+			m.put("averageWaitMillis", 
+					acquireCount == 0 ? 0.0 : TimeUnit.NANOSECONDS.toMicros(totalWaitNanos) / 1000.0 / acquireCount);
+			m.put("maxWaitMillis", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+			return m;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	private boolean hasWaitersAhead(Lane lane) {
+		if ( !interactiveWaiters.isEmpty()) 
+			return true;
+		return lane == Lane.BACKGROUND && !backgroundWaiters.isEmpty();
+	}
+	
+	private boolean canGrant(Lane lane) {
+		return inUse < capacity && (lane == Lane.INTERACTIVE || backgroundInUse < backgroundCapacity);
+	}
+	
+	private ArrayDeque<Waiter> waitersOf(Lane lane) {
+		return lane == Lane.INTERACTIVE ? interactiveWaiters : backgroundWaiters;
+	}
+	
+	private void grant(Lane lane) {
+		inUse++;
+		if ( lane == Lane.BACKGROUND)
+			backgroundInUse++;
+		if ( inUse > peakInUse)
+			peakInUse = inUse;
+	}
+	
+	private void releaseSlot(Lane lane) {
+		inUse--;
+		if ( lane == Lane.BACKGROUND)
+			backgroundInUse--;
+	}
+	
+	// hand free slots to the waiters, interactive lane first.
+	private void dispatch() {
+		while ( true) {
+			Waiter w;
+			if ( !interactiveWaiters.isEmpty() && canGrant(Lane.INTERACTIVE)) {
+				w = interactiveWaiters.pollFirst();
+			} else if ( !backgroundWaiters.isEmpty() && canGrant(Lane.BACKGROUND)) {
+				w = backgroundWaiters.pollFirst();
+			} else 
+				return;
+			grant(w.lane);
+			w.granted = true;
+			w.condition.signal();
+		}
+	}
+	
+	private void recordAcquire(long waitNanos) {
+		acquireCount++;
+		if ( waitNanos > 0) {
+			waitCount++;
+			totalWaitNanos += waitNanos;
+			if ( waitNanos > maxWaitNanos)
+				maxWaitNanos = waitNanos;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.access;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Hands out element ids without a global lock. Each thread takes ids from its own block of 
+ * consecutive ids. When half of a block is used, the next block is reserved from the persistent 
+ * sequence by a background thread, so a caller only waits for the database when it runs 
+ * through a whole block before the prefetch finishes.
+ */
+public class ElementIdAllocator {
+
+	/**
+	 * The persistent sequence that id blocks are reserved from.
+	 */
+	public interface IdBlockSource {
+		/**
+		 * Reserve blockSize consecutive ids.
+		 * @param blockSize
+		 * @return the first id of the reserved block.
+		 * @throws Exception
+		 */
+		long reserveBlock(int blockSize) throws Exception;
+	}
+	
+	private static final Logger logger = Logger.getLogger(ElementIdAllocator.class.getName());
+	
+	private final IdBlockSource source;
+	
+	private final int blockSize;
+	
+	// all reservations are done on this thread, so they never run in a caller's db transaction.
+	private final ExecutorService refiller;
+	
+	private final ThreadLocal<IdBlock> currentBlock = new ThreadLocal<IdBlock>() {
+		@Override
+		protected IdBlock initialValue() {
+			return new IdBlock();
+		}
+	};
+	
+	private static class IdBlock {
+		long next;
+		long end;   // exclusive
+		Future<Long> nextBlock;
+	}
+	
+	public ElementIdAllocator(IdBlockSource source, int blockSize) {
+		if ( blockSize < 2)
+			throw new IllegalArgumentException("Id block size has to be greater than 1.");
+		this.source = source;
+		this.blockSize = blockSize;
+		this.refiller = Executors.newSingleThreadExecutor(
+				new ThreadFactoryBuilder().setNameFormat("ndex-id-allocator-%d").setDaemon(true).build());
+	}
+	
+	public long nextId() {
+		IdBlock b = currentBlock.get();
+		
+		if ( b.next == b.end) {
+			if ( b.nextBlock == null) 
+				b.nextBlock = requestBlock();
+			b.next = waitForBlock(b.nextBlock);
+			b.end = b.next + blockSize;
+			b.nextBlock = null;
+		}
+		
+		long id = b.next++;
+		
+		if ( b.nextBlock == null && b.end - b.next <= blockSize / 2) 
+			b.nextBlock = requestBlock();
+		
+		return id;
+	}
+	
+	public int getBlockSize() {
+		return blockSize;
+	}
+	
+	public void shutdown() {
+		refiller.shutdown();
+		try {
+			if ( !refiller.awaitTermination(30, TimeUnit.SECONDS))
+				logger.warning("Id allocator didn't finish pending block reservations.");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private Future<Long> requestBlock() {
+		return refiller.submit(new Callable<Long>() {
+			@Override
+			public Long call() throws Exception {
+				return source.reserveBlock(blockSize);
+			}
+		});
+	}
+	
+	private static long waitForBlock(Future<Long> f) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return f.get().longValue();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					throw new IllegalStateException("Failed to reserve a block of element ids: " + 
+							e.getCause().getMessage(), e.getCause());
+				}
+			}
+		} finally {
+			if ( interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -31,14 +31,23 @@
 package org.ndexbio.common.access;
 
 
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
+import org.ndexbio.common.models.dao.orientdb.NetworkCacheWarmer;
+import org.ndexbio.common.models.dao.orientdb.NetworkCatalog;
+import org.ndexbio.common.models.dao.orientdb.OrientdbDAO;
 import org.ndexbio.model.exceptions.NdexException;
 import org.ndexbio.orientdb.NdexSchemaManager;
 
+import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.ODatabaseListener;
 import com.orientechnologies.orient.core.db.OPartitionedDatabasePool;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.dictionary.ODictionary;
+import com.orientechnologies.orient.core.exception.OConcurrentModificationException;
+import com.orientechnologies.orient.core.hook.ORecordHook;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 
 public class NdexDatabase {
@@ -55,11 +64,9 @@ public class NdexDatabase {
 
 	private static final String seqField= "f1";
 	
-	private int batchCounter;
+	private static final int defaultIdBlockSize = 5000;
 	
-	private long internalCounterBase;
-
-	private static final int blockSize = 80;  
+	private ElementIdAllocator idAllocator;
 	
 	private ODocument vdoc;
 	
@@ -70,8 +77,62 @@ public class NdexDatabase {
 	
 	private static long currentId = System.currentTimeMillis(); 
 	
+	// pooled connections this class uses outside of the gate: the id allocator connection.
+	private static final int internalConnections = 1;
+	
+	private static final long defaultConnectionTimeout = 120000;  // in milliseconds
+	
+	private ConnectionPoolGate gate;
+	
+	// lane used by getAConnection() in the current thread. 
+	private static final ThreadLocal<ConnectionPoolGate.Lane> connectionLane = new ThreadLocal<ConnectionPoolGate.Lane>() {
+		@Override
+		protected ConnectionPoolGate.Lane initialValue() {
+			return ConnectionPoolGate.Lane.INTERACTIVE;
+		}
+	};
+	
+	// gate slot the current thread holds and the pooled connection it was taken for, null if it doesn't hold one.
+	private static class GateSlot {
+		final ConnectionPoolGate.Lane lane;
+		final ODatabaseDocumentTx connection;
+		
+		GateSlot(ConnectionPoolGate.Lane lane, ODatabaseDocumentTx connection) {
+			this.lane = lane;
+			this.connection = connection;
+		}
+	}
+	
+	private final ThreadLocal<GateSlot> heldSlot = new ThreadLocal<>();
+	
+	// releases the gate slot when the connection it was taken for is returned to the pool. Closes of 
+	// connections the gate didn't hand out are ignored.
+	private final ODatabaseListener releaseListener = new ODatabaseListener() {
+		@Override
+		public void onClose(ODatabase iDatabase) {
+			GateSlot slot = heldSlot.get();
+			if ( slot != null && slot.connection == iDatabase) {
+				heldSlot.remove();
+				gate.release(slot.lane);
+			}
+		}
+
+		@Override public void onCreate(ODatabase iDatabase) { /* not used */ }
+		@Override public void onDelete(ODatabase iDatabase) { /* not used */ }
+		@Override public void onOpen(ODatabase iDatabase) { /* not used */ }
+		@Override public void onBeforeTxBegin(ODatabase iDatabase) { /* not used */ }
+		@Override public void onBeforeTxRollback(ODatabase iDatabase) { /* not used */ }
+		@Override public void onAfterTxRollback(ODatabase iDatabase) { /* not used */ }
+		@Override public void onBeforeTxCommit(ODatabase iDatabase) { /* not used */ }
+		@Override public void onAfterTxCommit(ODatabase iDatabase) { /* not used */ }
+		@Override
+		public boolean onCorruptionRepairDatabase(ODatabase iDatabase, String iReason, String iWhatWillbeFixed) {
+			return false;
+		}
+	};
+	
 	private NdexDatabase(String HostURI, String dbURL, String dbUserName,
-			String dbPassword, int size) throws NdexException {
+			String dbPassword, int size, int idBlockSize) throws NdexException {
 		
 		// check if the db exists, if not create it.
 		try ( ODatabaseDocumentTx odb = new ODatabaseDocumentTx(dbURL)) {
@@ -79,11 +140,16 @@ public class NdexDatabase {
 				odb.create();
 		}
 		
-		pool = new OPartitionedDatabasePool(dbURL, dbUserName, dbPassword,size);
+		// the gate keeps the number of connections below the partition size of the underlying pool, so 
+		// the pool never rejects an acquire.
+		pool = new OPartitionedDatabasePool(dbURL, dbUserName, dbPassword,size + internalConnections);
+		gate = new ConnectionPoolGate(size, size > 1 ? size - Math.max(1, size/4) : 1);
 	    
 	    logger.info("Connection pool to " + dbUserName + "@" + dbURL + " ("+ size + ") created.");
 
-	    ndexDatabase = pool.acquire();
+	    // not taken from the pool: this connection stays open for the life of this object, and the pool 
+	    // would hand it back to any getAConnection() call in this thread with no way to release the slot. 
+	    ndexDatabase = new ODatabaseDocumentTx(dbURL).open(dbUserName, dbPassword);
 	    
 		dictionary = ndexDatabase.getDictionary();
 		
@@ -91,18 +157,47 @@ public class NdexDatabase {
 		vdoc = (ODocument) dictionary.get(sequenceKey);
 		if (vdoc == null ) {
 			ndexDatabase.commit();
-			internalCounterBase = 1;
-			vdoc = new ODocument(seqField, internalCounterBase);  // + blockSize); // ids start with 1.
+			vdoc = new ODocument(seqField, 1L);  // ids start with 1.
 			vdoc = vdoc.save();
 			dictionary.put(sequenceKey, vdoc);
 			ndexDatabase.commit();	
 		} 
-		batchCounter=blockSize;
+		
+		idAllocator = new ElementIdAllocator(new ElementIdAllocator.IdBlockSource () {
+			@Override
+			public long reserveBlock(int blockSize) {
+				return reserveIdBlock(blockSize);
+			}
+		}, idBlockSize);
 		
 		URIPrefix = HostURI;
 		
 	}
 	
+	/**
+	 * Reserve a block of ids from the sequence record. It runs on the id allocator thread in its own 
+	 * connection, so it doesn't touch any caller's transaction.
+	 * @param blockSize
+	 * @return the first id in the block.
+	 */
+	private long reserveIdBlock(int blockSize) {
+		try (ODatabaseDocumentTx conn = pool.acquire()) {
+			for	(int retry = 0;	; ++retry)	{
+				try {
+					ODocument seq = conn.load(vdoc.getIdentity(), null, true);
+					long base = seq.field(seqField);
+					seq.field(seqField, base + blockSize).save();
+					conn.commit();
+					return base;
+				} catch (OConcurrentModificationException e) {
+					if ( retry >= OrientdbDAO.maxRetries)
+						throw e;
+					logger.warning("Retry reserving id block: " + e.getMessage());
+				}
+			}
+		}
+	}
+	
 	public static synchronized long getCommitId () {
 		return currentId++;
 	}
@@ -119,8 +214,18 @@ public class NdexDatabase {
 	 */
 	public static synchronized NdexDatabase createNdexDatabase (String HostURI, String dbURL, String dbUserName,
 			String dbPassword, int size) throws NdexException {
+		return createNdexDatabase(HostURI, dbURL, dbUserName, dbPassword, size, defaultIdBlockSize);
+	}
+
+	/**
+	 * Same as above, with the number of element ids each thread reserves from the id sequence at a time.
+	 */
+	public static synchronized NdexDatabase createNdexDatabase (String HostURI, String dbURL, String dbUserName,
+			String dbPassword, int size, int idBlockSize) throws NdexException {
 		if(INSTANCE == null) {
-	         INSTANCE = new NdexDatabase(HostURI, dbURL, dbUserName, dbPassword, size);
+	         INSTANCE = new NdexDatabase(HostURI, dbURL, dbUserName, dbPassword, size, idBlockSize);
+	         // loads the most used read-only networks in the background.
+	         NetworkCacheWarmer.start();
 	         return INSTANCE;
 		} 
 		
@@ -143,21 +248,8 @@ public class NdexDatabase {
 
 	}
 	
-    public synchronized long  getNextId() {
-    	
-    	if ( batchCounter == blockSize) {
-    		vdoc.reload();
-        	internalCounterBase = vdoc.field(seqField);
-    	    batchCounter = 0 ;
-            vdoc = vdoc.field(seqField, internalCounterBase + blockSize).save();
-            dictionary.put(sequenceKey, vdoc);
-        	commit();
-       // 	System.out.println("New batch in id sequence:" + internalCounterBase );
-    	}
-    	long rvalue = internalCounterBase + batchCounter;
-    	batchCounter++;
-        
-    	return rvalue;
+    public long getNextId() {
+    	return idAllocator.nextId();
     }
     
     public synchronized void resetIdCounter() {
@@ -167,11 +259,14 @@ public class NdexDatabase {
     public static synchronized void close () {
     	if ( INSTANCE != null ) {
     		logger.info("Closing database.");
+    		NetworkCacheWarmer.stop();
+    		INSTANCE.idAllocator.shutdown();
     		INSTANCE.ndexDatabase.commit();
     		INSTANCE.ndexDatabase.close();
     		INSTANCE.pool.close();
     		INSTANCE.pool = null;
     		INSTANCE = null;
+    		NetworkCatalog.getInstance().clear();
     		logger.info("Database closed.");
     	} else 
     		logger.info("Database is already closed.");
@@ -184,16 +279,66 @@ public class NdexDatabase {
     	ndexDatabase.commit();
     }
     
+    /**
+     * Get a connection from the pool in the lane of the current thread. It waits in FIFO order for up to 
+     * 2 minutes if all connections are in use.
+     */
     public ODatabaseDocumentTx getAConnection() throws NdexException {
-  
-    	for ( int i = 0 ; i < 3000; i ++) {
+    	return getAConnection(connectionLane.get(), defaultConnectionTimeout);
+    }
+    
+    public ODatabaseDocumentTx getAConnection(ConnectionPoolGate.Lane lane, long timeoutInMillis) throws NdexException {
+    	
+    	// OrientDB pool gives the connection a thread already holds back to it, so it doesn't need another slot.
+    	// The slot is released when that connection is closed for the last time.
+    	GateSlot slot = heldSlot.get();
+    	if ( slot != null) {
+    		if ( !slot.connection.isClosed())
+    			return registerHooks(pool.acquire());
+    		// the connection was closed without notifying the listener. 
+    		heldSlot.remove();
+    		gate.release(slot.lane);
+    	}
+    	
+    	try {
+    		if ( !gate.acquire(lane, timeoutInMillis, TimeUnit.MILLISECONDS)) {
+    			logger.warning("Timeout in getting db connection from pool. Pool status: " + gate.getMetrics());
+    			throw new NdexException ("Timeout in getting db connection from pool.");
+    		}
+    	} catch (InterruptedException e) {
+    		throw new NdexException ("Interrupted in getAConnection.");
+    	}
+    	
+    	ODatabaseDocumentTx conn;
+    	try {
+    		conn = acquireFromPool();
+    	} catch (RuntimeException | NdexException e) {
+    		gate.release(lane);
+    		throw e;
+    	}
+    	heldSlot.set(new GateSlot(lane, conn));
+    	conn.registerListener(releaseListener);
+    	return registerHooks(conn);
+    }
+    
+    // pooled connections keep their hooks, so a hook is only registered the first time a connection is handed out.
+    private static ODatabaseDocumentTx registerHooks(ODatabaseDocumentTx conn) {
+    	ORecordHook catalogHook = NetworkCatalog.getInstance().getHook();
+    	if ( !conn.getHooks().containsKey(catalogHook))
+    		conn.registerHook(catalogHook);
+    	return conn;
+    }
+    
+    // A released slot is handed over before the pool puts the connection back to its partition, so 
+    // the partition can still look full for a very short time.
+    private ODatabaseDocumentTx acquireFromPool() throws NdexException {
+    	for ( int i = 0 ; i < 100; i ++) {
     		try { 
     			return pool.acquire();
     		} catch (java.lang.IllegalStateException e) {
     			if ( e.getMessage().equals("You have reached maximum pool size for given partition")) {
-					logger.warning("DB connection pool is full, wait and retry " + i);
     				try {
-						Thread.sleep(150);
+						Thread.sleep(5);
 					} catch (InterruptedException e1) {
 						throw new NdexException ("Interrupted in getAConnection.");
 					}
@@ -203,7 +348,25 @@ public class NdexDatabase {
     	}
     	throw new NdexException ("Timeout in getting db connection from pool.");
     }
+    
+    /**
+     * Set the connection pool lane getAConnection() uses in the current thread. Task processors use 
+     * the background lane so that they don't take the connections reserved for user requests.
+     * @param lane
+     */
+    public static void setConnectionLane(ConnectionPoolGate.Lane lane) {
+    	connectionLane.set(lane);
+    }
+    
+    public static ConnectionPoolGate.Lane getConnectionLane() {
+    	return connectionLane.get();
+    }
+    
+    /**
+     * Wait time and utilization metrics of the connection pool.
+     */
+    public Map<String, Number> getConnectionPoolMetrics() {
+    	return gate.getMetrics();
+    }
 
-
- 
 }
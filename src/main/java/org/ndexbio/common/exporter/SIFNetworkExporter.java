@@ -32,51 +32,180 @@ package org.ndexbio.common.exporter;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
+import org.ndexbio.common.persistence.orientdb.NetworkElementHandler;
 import org.ndexbio.model.exceptions.NdexException;
 import org.ndexbio.model.object.network.BaseTerm;
+import org.ndexbio.model.object.network.Citation;
 import org.ndexbio.model.object.network.Edge;
 import org.ndexbio.model.object.network.FunctionTerm;
 import org.ndexbio.model.object.network.Namespace;
 import org.ndexbio.model.object.network.Network;
+import org.ndexbio.model.object.network.NetworkSummary;
 import org.ndexbio.model.object.network.Node;
 import org.ndexbio.model.object.network.ReifiedEdgeTerm;
+import org.ndexbio.model.object.network.Support;
 import org.ndexbio.model.object.network.Term;
 
-
-public class SIFNetworkExporter {
+/**
+ * Writes a network in SIF format, one line per edge. 
+ * 
+ * The exporter can also be passed to NetworkDocDAO.readNetworkById as a NetworkElementHandler. In that case 
+ * the terms and nodes are kept in memory, but each edge is written as soon as it is read. Only the edges that 
+ * reified edge terms point to are kept; an edge whose line needs one of them that hasn't been read yet is 
+ * written at the end.
+ */
+public class SIFNetworkExporter implements NetworkElementHandler {
+	
+	private Writer writer;
+	
+	private Map<Long, Namespace> namespaces;
+	private Map<Long, BaseTerm> baseTerms;
+	private Map<Long, FunctionTerm> functionTerms;
+	private Map<Long, ReifiedEdgeTerm> reifiedEdgeTerms;
+	private Map<Long, Node> nodes;
+	private Map<Long, Edge> edges;
 	
-	private Network network;
+	// edges that reified edge terms point to, and the edges waiting for them. Only used when streaming.
+	private Set<Long> reifiedEdgeIds;
+	private List<Edge> pendingEdges;
 	
 	private Set<String> uniqueNodeNames;
 	private Map<Long, String> nodeNameMap;
  	
 	
 	public SIFNetworkExporter (Network network) {
-		this.network = network;
+		this.namespaces = network.getNamespaces();
+		this.baseTerms = network.getBaseTerms();
+		this.functionTerms = network.getFunctionTerms();
+		this.reifiedEdgeTerms = network.getReifiedEdgeTerms();
+		this.nodes = network.getNodes();
+		this.edges = network.getEdges();
+		this.nodeNameMap = new TreeMap<>();
+		uniqueNodeNames = new TreeSet<>();
+	}
+	
+	/**
+	 * Create an exporter that writes the edges passed to it as a NetworkElementHandler. 
+	 */
+	public SIFNetworkExporter (Writer writer) {
+		this.writer = writer;
+		this.namespaces = new HashMap<>();
+		this.baseTerms = new HashMap<>();
+		this.functionTerms = new HashMap<>();
+		this.reifiedEdgeTerms = new HashMap<>();
+		this.nodes = new HashMap<>();
+		this.edges = new HashMap<>();
+		this.reifiedEdgeIds = new HashSet<>();
+		this.pendingEdges = new ArrayList<>();
 		this.nodeNameMap = new TreeMap<>();
 		uniqueNodeNames = new TreeSet<>();
 	}
 
-	public void exportNetwork(Writer writer) throws NdexException, IOException {
-			for ( Edge edge: network.getEdges().values()) {
-				writer.write(getNodeSIFId(edge.getSubjectId()).replace('\t', ' ').replace('\n', ' '));
-				writer.write("\t");
-				writer.write(getBaseTermName(edge.getPredicateId(),true));
-				writer.write("\t");
-				writer.write(getNodeSIFId(edge.getObjectId()));
-				writer.write("\n");
+	public void exportNetwork(Writer out) throws NdexException, IOException {
+			for ( Edge edge: edges.values()) {
+				String line = getEdgeLine(edge);
+				if ( line == null)
+					throw new NdexException ("Edge of a reified edge term in edge " + edge.getId() + " is not found in network.");
+				out.write(line);
 			}
-			writer.flush();
+			out.flush();
+	}
+	
+	@Override
+	public void handleNamespace(Namespace namespace) {
+		namespaces.put(namespace.getId(), namespace);
+	}
+
+	@Override
+	public void handleBaseTerm(BaseTerm baseTerm) {
+		baseTerms.put(baseTerm.getId(), baseTerm);
+	}
+
+	@Override
+	public void handleCitation(Citation citation) {
+		// not used in SIF.
+	}
+
+	@Override
+	public void handleSupport(Support support) {
+		// not used in SIF.
 	}
 
+	@Override
+	public void handleReifiedEdgeTerm(ReifiedEdgeTerm reifiedEdgeTerm) {
+		reifiedEdgeTerms.put(reifiedEdgeTerm.getId(), reifiedEdgeTerm);
+		reifiedEdgeIds.add(reifiedEdgeTerm.getEdgeId());
+	}
+
+	@Override
+	public void handleFunctionTerm(FunctionTerm functionTerm) {
+		functionTerms.put(functionTerm.getId(), functionTerm);
+	}
+
+	@Override
+	public void handleNode(Node node) {
+		nodes.put(node.getId(), node);
+	}
+
+	@Override
+	public void handleEdge(Edge edge) throws NdexException {
+		if ( reifiedEdgeIds.contains(edge.getId())) 
+			edges.put(edge.getId(), edge);
+		
+		String line = getEdgeLine(edge);
+		if ( line == null) 
+			pendingEdges.add(edge);
+		else 
+			write(line);
+	}
+
+	@Override
+	public void handleNetworkSummary(NetworkSummary summary) throws NdexException {
+		for ( Edge edge : pendingEdges) {
+			String line = getEdgeLine(edge);
+			if ( line == null)
+				throw new NdexException ("Edge of a reified edge term in edge " + edge.getId() + " is not found in network.");
+			write(line);
+		}
+		pendingEdges.clear();
+		try {
+			writer.flush();
+		} catch (IOException e) {
+			throw new NdexException("Failed to write SIF file: " + e.getMessage());
+		}
+	}
+	
+	private void write(String line) throws NdexException {
+		try {
+			writer.write(line);
+		} catch (IOException e) {
+			throw new NdexException("Failed to write SIF file: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Returns the SIF line of an edge, or null if it refers to the edge of a reified edge term that isn't known yet.
+	 */
+	private String getEdgeLine(Edge edge) throws NdexException {
+		String subject = getNodeSIFId(edge.getSubjectId());
+		String object = getNodeSIFId(edge.getObjectId());
+		if ( subject == null || object == null)
+			return null;
+		return subject.replace('\t', ' ').replace('\n', ' ') + "\t" + 
+				getBaseTermName(edge.getPredicateId(),true) + "\t" + object + "\n";
+	}
 
 	private String getNodeSIFId(long nodeId) throws NdexException {
-	    Node node = network.getNodes().get(nodeId);
+	    Node node = nodes.get(nodeId);
 	    Long termId = node.getRepresents();
 	    if ( termId != null ) {
 	    	return getSIFIdFromTerm(termId);
@@ -114,17 +243,17 @@ public class SIFNetworkExporter {
 	
 	
 	private String getSIFIdFromTerm(Long termId) throws NdexException {
-    	Term termObj = network.getBaseTerms().get(termId);
+    	Term termObj = baseTerms.get(termId);
     	if ( termObj !=null) {  // is base term.
     		return  getBaseTermName(termObj.getId() , true) ;
     	}
     	
-    	termObj = network.getFunctionTerms().get(termId);
+    	termObj = functionTerms.get(termId);
     	if ( termObj !=null ) {
     		return generateFunctionTermSIFId ((FunctionTerm)termObj);
     	}
     	
-    	termObj = network.getReifiedEdgeTerms().get(termId);
+    	termObj = reifiedEdgeTerms.get(termId);
     	if ( termObj !=null) {
     		return generateReifiedEdgeSIFId((ReifiedEdgeTerm)termObj);
     	}
@@ -141,7 +270,10 @@ public class SIFNetworkExporter {
 			if ( i >0 ) 
 				sb.append(",");
 			i++;
-			sb.append(getSIFIdFromTerm(termId));
+			String argId = getSIFIdFromTerm(termId);
+			if ( argId == null)
+				return null;
+			sb.append(argId);
 		}
 		sb.append(")");
 		return sb.toString();
@@ -150,22 +282,28 @@ public class SIFNetworkExporter {
 	private String generateReifiedEdgeSIFId(ReifiedEdgeTerm reTerm) throws NdexException {
 		StringBuffer sb = new StringBuffer("EDGE:");
 		
-		Edge e = network.getEdges().get(reTerm.getEdgeId());
+		Edge e = edges.get(reTerm.getEdgeId());
+		if ( e == null)
+			return null;
+		String subject = getNodeSIFId(e.getSubjectId());
+		String object = getNodeSIFId(e.getObjectId());
+		if ( subject == null || object == null)
+			return null;
 		sb.append("<");
-		sb.append(getNodeSIFId(e.getSubjectId()));
+		sb.append(subject);
 		sb.append("><");
 		sb.append(getBaseTermName(e.getPredicateId(), true));
 		sb.append("><");
-		sb.append(getNodeSIFId(e.getObjectId()));
+		sb.append(object);
 		sb.append(">");
 		
 		return sb.toString();
 	}
 	
 	private  String getBaseTermName(long bTermId, boolean includeNameSpace) {
-		BaseTerm bterm = network.getBaseTerms().get(bTermId);
+		BaseTerm bterm = baseTerms.get(bTermId);
 		if ( includeNameSpace && bterm.getNamespaceId()  > 0) {
-			Namespace ns = network.getNamespaces().get(bterm.getNamespaceId());
+			Namespace ns = namespaces.get(bterm.getNamespaceId());
 			if (ns.getPrefix()!=null)
 				return ns.getPrefix() + ":" + bterm.getName().replace('\t', ' ').replace('\n', ' ');
 			return ns.getUri() + ":" + bterm.getName().replace('\t', ' ').replace('\n', ' ');
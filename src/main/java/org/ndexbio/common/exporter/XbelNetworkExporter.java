@@ -31,7 +31,8 @@
 package org.ndexbio.common.exporter;
 
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
@@ -51,6 +52,7 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 
 import org.ndexbio.common.persistence.orientdb.NdexPersistenceService;
+import org.ndexbio.common.util.ParallelGZIPOutputStream;
 import org.ndexbio.model.exceptions.NdexException;
 import org.ndexbio.model.object.NdexPropertyValuePair;
 import org.ndexbio.model.object.network.Edge;
@@ -963,6 +965,7 @@ public class XbelNetworkExporter {
 		private final String exportedFilename;
 		
 		private JAXBContext context;
+		private OutputStream out;
 		private XMLStreamWriter writer;
 		private Class type;
 		private Marshaller marshaller;
@@ -996,9 +999,10 @@ public class XbelNetworkExporter {
 				xmlFactory.setProperty(
 						"javax.xml.stream.isRepairingNamespaces", Boolean.TRUE);
 				
+				// a file name ending with .gz is written gzipped.
+				this.out = ParallelGZIPOutputStream.openFile(this.exportedFilename);
 				this.writer = xmlFactory
-						.createXMLStreamWriter(new FileOutputStream(
-								this.exportedFilename));
+						.createXMLStreamWriter(this.out);
 				 this.writer.setDefaultNamespace("http://belframework.org/schema/1.0/xbel");
 				this.writer.setPrefix("bel",
 						"http://belframework.org/schema/1.0/xbel");
@@ -1066,7 +1070,9 @@ public class XbelNetworkExporter {
 			} finally {
 				try {
 					this.writer.close();
-				} catch (XMLStreamException e) {
+					// closing the XMLStreamWriter doesn't close the stream.
+					this.out.close();
+				} catch (XMLStreamException | IOException e) {
 					// TODO Auto-generated catch block
 					e.printStackTrace();
 				}
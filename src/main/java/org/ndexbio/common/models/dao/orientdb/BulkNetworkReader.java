@@ -0,0 +1,592 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.models.dao.orientdb;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import org.ndexbio.common.NdexClasses;
+import org.ndexbio.common.persistence.orientdb.NetworkElementHandler;
+import org.ndexbio.common.util.LongLongHashMap;
+import org.ndexbio.model.exceptions.NdexException;
+import org.ndexbio.model.object.NdexPropertyValuePair;
+import org.ndexbio.model.object.PropertiedObject;
+import org.ndexbio.model.object.network.BaseTerm;
+import org.ndexbio.model.object.network.Citation;
+import org.ndexbio.model.object.network.Edge;
+import org.ndexbio.model.object.network.FunctionTerm;
+import org.ndexbio.model.object.network.Namespace;
+import org.ndexbio.model.object.network.Network;
+import org.ndexbio.model.object.network.NetworkSummary;
+import org.ndexbio.model.object.network.Node;
+import org.ndexbio.model.object.network.ReifiedEdgeTerm;
+import org.ndexbio.model.object.network.Support;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.db.record.ridbag.ORidBag;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Reads a complete network in bulk and passes its elements to a NetworkElementHandler as they are decoded. 
+ * 
+ * The elements are read one class at a time: the record ids are taken from the ridbag of the network vertex 
+ * without loading the records, then the records are loaded batchSize at a time with a single query, together 
+ * with the property vertices of the batch. Links between elements are not followed, the record id of the 
+ * linked vertex is looked up in the record id to element id map built while reading. The classes are read in the 
+ * order expected by NetworkElementHandler, so links point to elements that were already read, except for the 
+ * arguments of function terms, which are resolved after all the function terms are read, and the edges of 
+ * reified edge terms, which are looked up one by one. 
+ * 
+ * Citations, supports, reified edge terms and function terms are only passed when a node or edge refers to them, 
+ * directly or through a support or function term, so every handler gets the same elements getNetworkById returns. 
+ * Whether a citation, support or term is referenced is read from its incoming links, before any node is read. 
+ * 
+ * Only the map from record ids to element ids, the names of the property predicates, the reified edge terms and 
+ * the function terms are kept until the end, so the memory used doesn't grow with the size of the nodes and edges 
+ * passed to the handler.
+ */
+class BulkNetworkReader {
+	
+	private static final int batchSize = 1000;
+	
+	private ODatabaseDocumentTx db;
+	private NetworkElementHandler handler;
+	
+	// element ids of the records read so far, keyed by the packed record id.
+	private LongLongHashMap elementIds;
+	
+	// the few base terms used as property names, with the prefix of their namespace.
+	private Map<Long, String> predicateStrings;
+	
+	private Set<Long> reifiedEdgeTermIds;
+	private Set<Long> functionTermIds;
+	
+	// terms that nodes represent. Reified edge terms are kept until the function terms that can refer to them are read.
+	private Set<Long> representedTermIds;
+	private List<ReifiedEdgeTerm> reifiedEdgeTerms;
+	
+	// function terms are passed after all of them are read, their arguments can be other function terms.
+	private Map<FunctionTerm, List<ORID>> functionTermArguments;
+
+	BulkNetworkReader(ODatabaseDocumentTx db) {
+		this.db = db;
+	}
+	
+	/**
+	 * Read a complete network into memory. Citations, supports, function terms and reified edge terms are only 
+	 * added to the network when they are referenced, the same as the traversal based reader did.
+	 */
+	Network readNetwork(ODocument networkDoc) throws NdexException {
+		NetworkCollector collector = new NetworkCollector();
+		try {
+			readNetwork(networkDoc, collector.network, collector);
+		} catch (ExecutionException e) {
+			throw new NdexException("Failed to read network: " + e.getMessage());
+		}
+		return collector.network;
+	}
+	
+	/**
+	 * Pass the elements of a network to a handler.
+	 * @param summary the network attributes are set in this object before it is passed to handleNetworkSummary.
+	 */
+	void readNetwork(ODocument networkDoc, NetworkSummary summary, NetworkElementHandler elementHandler) 
+			throws NdexException, ExecutionException {
+		handler = elementHandler;
+		elementIds = new LongLongHashMap();
+		predicateStrings = new HashMap<>();
+		reifiedEdgeTermIds = new HashSet<>();
+		functionTermIds = new HashSet<>();
+		representedTermIds = new HashSet<>();
+		reifiedEdgeTerms = new ArrayList<>();
+		functionTermArguments = new HashMap<>();
+		
+		readElements(networkDoc, NdexClasses.Network_E_Namespace);
+		readElements(networkDoc, NdexClasses.Network_E_BaseTerms);
+		readElements(networkDoc, NdexClasses.Network_E_Citations);
+		readElements(networkDoc, NdexClasses.Network_E_Supports);
+		readElements(networkDoc, NdexClasses.Network_E_ReifiedEdgeTerms);
+		readElements(networkDoc, NdexClasses.Network_E_FunctionTerms);
+		
+		Map<Long, FunctionTerm> functionTerms = new HashMap<>(functionTermArguments.size());
+		for ( Map.Entry<FunctionTerm, List<ORID>> e : functionTermArguments.entrySet()) {
+			for ( ORID rid : e.getValue()) 
+				e.getKey().getParameterIds().add(resolve(rid));
+			functionTerms.put(e.getKey().getId(), e.getKey());
+		}
+		functionTermArguments.clear();
+		
+		Set<Long> referencedTerms = getReferencedTerms(functionTerms);
+		for ( ReifiedEdgeTerm t : reifiedEdgeTerms) {
+			if ( referencedTerms.contains(t.getId()))
+				handler.handleReifiedEdgeTerm(t);
+		}
+		reifiedEdgeTerms.clear();
+		for ( FunctionTerm t : functionTerms.values()) {
+			if ( referencedTerms.contains(t.getId()))
+				handler.handleFunctionTerm(t);
+		}
+		
+		readElements(networkDoc, NdexClasses.Network_E_Nodes);
+		readElements(networkDoc, NdexClasses.Network_E_Edges);
+
+		NetworkDocDAO.setNetworkSummary(networkDoc, summary);
+		handler.handleNetworkSummary(summary);
+	}
+	
+	private void readElements(ODocument networkDoc, String edgeType) throws NdexException, ExecutionException {
+		List<ORID> batch = new ArrayList<>(batchSize);
+		for ( ORID rid : getLinkedRIDs(networkDoc, "out_" + edgeType)) {
+			batch.add(rid);
+			if ( batch.size() == batchSize) {
+				readBatch(batch);
+				batch.clear();
+			}
+		}
+		if ( !batch.isEmpty())
+			readBatch(batch);
+	}
+	
+	/**
+	 * Load a batch of element records and their property records, then pass the network objects created from 
+	 * them to the handler. 
+	 */
+	private void readBatch(List<ORID> rids) throws NdexException, ExecutionException {
+		List<ODocument> docs = loadDocuments(rids);
+		
+		List<ORID> propertyRIDs = new ArrayList<>();
+		for ( ODocument doc : docs) {
+			elementIds.put(pack(doc.getIdentity()), (long)doc.field(NdexClasses.Element_ID));
+			propertyRIDs.addAll(getLinkedRIDs(doc, "out_" + NdexClasses.E_ndexProperties));
+			propertyRIDs.addAll(getLinkedRIDs(doc, "out_" + NdexClasses.E_ndexPresentationProps));
+		}
+		
+		Map<ORID, ODocument> propertyDocs = new HashMap<>(propertyRIDs.size());
+		for ( int i = 0 ; i < propertyRIDs.size(); i += batchSize) {
+			for ( ODocument propDoc : loadDocuments(propertyRIDs.subList(i, Math.min(i + batchSize, propertyRIDs.size())))) 
+				propertyDocs.put(propDoc.getIdentity(), propDoc);
+		}
+
+		for ( ODocument doc : docs) {
+			String className = doc.getClassName();
+			if ( className.equals(NdexClasses.Namespace)) {
+				Namespace ns = TermInterner.getNamespace(doc);
+				if ( ns == null) {
+					ns = new Namespace();
+					ns.setId((long)doc.field(NdexClasses.Element_ID));
+					ns.setPrefix((String)doc.field(NdexClasses.ns_P_prefix));
+					ns.setUri((String)doc.field(NdexClasses.ns_P_uri));
+					getProperties(ns, doc, propertyDocs);
+					TermInterner.putNamespace(doc, ns);
+				}
+				handler.handleNamespace(ns);
+			} else if ( className.equals(NdexClasses.BaseTerm)) {
+				handler.handleBaseTerm(getBaseTerm(doc));
+			} else if ( className.equals(NdexClasses.Citation)) {
+				if ( isReferencedCitation(doc))
+					handler.handleCitation(getCitation(doc, propertyDocs));
+			} else if ( className.equals(NdexClasses.Support)) {
+				if ( isReferencedSupport(doc))
+					handler.handleSupport(getSupport(doc, propertyDocs));
+			} else if ( className.equals(NdexClasses.ReifiedEdgeTerm)) {
+				ReifiedEdgeTerm t = new ReifiedEdgeTerm();
+				t.setId((long)doc.field(NdexClasses.Element_ID));
+				ODocument edgeDoc = db.load(getLinkedRID(doc, "out_" + NdexClasses.ReifiedEdge_E_edge));
+				t.setEdgeId((long)edgeDoc.field(NdexClasses.Element_ID));
+				reifiedEdgeTermIds.add(t.getId());
+				if ( hasLinks(doc, "in_" + NdexClasses.Node_E_represents))
+					representedTermIds.add(t.getId());
+				reifiedEdgeTerms.add(t);
+			} else if ( className.equals(NdexClasses.FunctionTerm)) {
+				FunctionTerm t = new FunctionTerm();
+				t.setId((long)doc.field(NdexClasses.Element_ID));
+				if ( hasLinks(doc, "in_" + NdexClasses.Node_E_represents))
+					representedTermIds.add(t.getId());
+				t.setFunctionTermId(resolve(getLinkedRID(doc, "out_" + NdexClasses.FunctionTerm_E_baseTerm)));
+				functionTermIds.add(t.getId());
+				functionTermArguments.put(t, getLinkedRIDs(doc, "out_" + NdexClasses.FunctionTerm_E_paramter));
+			} else if ( className.equals(NdexClasses.Node)) {
+				handler.handleNode(getNode(doc, propertyDocs));
+			} else if ( className.equals(NdexClasses.Edge)) {
+				handler.handleEdge(getEdge(doc, propertyDocs));
+			} else 
+				throw new NdexException("Unsupported network element type '" + className + "' found in record " + doc.getIdentity());
+		}
+	}
+	
+	/**
+	 * Returns the ids of the terms nodes represent and of the arguments of those terms, recursively.
+	 */
+	private Set<Long> getReferencedTerms(Map<Long, FunctionTerm> functionTerms) {
+		Set<Long> result = new HashSet<>(representedTermIds);
+		List<Long> stack = new ArrayList<>(representedTermIds);
+		while ( !stack.isEmpty()) {
+			FunctionTerm t = functionTerms.get(stack.remove(stack.size() - 1));
+			if ( t == null)
+				continue;
+			for ( Long argId : t.getParameterIds()) {
+				if ( result.add(argId))
+					stack.add(argId);
+			}
+		}
+		return result;
+	}
+	
+	private static boolean isReferencedSupport(ODocument doc) {
+		return hasLinks(doc, "in_" + NdexClasses.Node_E_supports) || hasLinks(doc, "in_" + NdexClasses.Edge_E_supports);
+	}
+	
+	/**
+	 * A citation is referenced when a node, an edge or a referenced support cites it. 
+	 */
+	private boolean isReferencedCitation(ODocument doc) {
+		if ( hasLinks(doc, "in_" + NdexClasses.Node_E_citations) || hasLinks(doc, "in_" + NdexClasses.Edge_E_citations))
+			return true;
+		for ( ORID supportRID : getLinkedRIDs(doc, "in_" + NdexClasses.Support_E_citation)) {
+			ODocument supportDoc = db.load(supportRID);
+			if ( supportDoc != null && isReferencedSupport(supportDoc))
+				return true;
+		}
+		return false;
+	}
+	
+	private static boolean hasLinks(ODocument doc, String fieldName) {
+		Object f = doc.rawField(fieldName);
+		return f != null && ( !(f instanceof ORidBag) || !((ORidBag)f).isEmpty());
+	}
+	
+	private BaseTerm getBaseTerm(ODocument doc) throws NdexException, ExecutionException {
+		BaseTerm t = TermInterner.getBaseTerm(doc);
+		if ( t != null)
+			return t;
+		
+		t = new BaseTerm();
+		t.setId((long)doc.field(NdexClasses.Element_ID));
+		t.setName((String)doc.field(NdexClasses.BTerm_P_name));
+		
+		ORID nsRID = getLinkedRID(doc, "out_" + NdexClasses.BTerm_E_Namespace);
+		if ( nsRID != null) 
+			t.setNamespaceId(resolve(nsRID));
+		else
+			t.setNamespaceId(-1);
+		TermInterner.putBaseTerm(doc, t);
+		return t;
+	}
+	
+	private Citation getCitation(ODocument doc, Map<ORID, ODocument> propertyDocs) throws NdexException, ExecutionException {
+		Citation result = new Citation();
+		result.setId((long)doc.field(NdexClasses.Element_ID));
+		result.setTitle((String)doc.field(NdexClasses.Citation_P_title));
+		result.setIdType((String)doc.field(NdexClasses.Citation_p_idType));
+		result.setIdentifier((String)doc.field(NdexClasses.Citation_P_identifier));
+		
+		List<String> o = doc.field(NdexClasses.Citation_P_contributors);
+		if ( o!=null && !o.isEmpty())
+			result.setContributors(o);
+		
+		getProperties(result, doc, propertyDocs);
+		return result;
+	}
+	
+	private Support getSupport(ODocument doc, Map<ORID, ODocument> propertyDocs) throws NdexException, ExecutionException {
+		Support s = new Support();
+		s.setText((String)doc.field(NdexClasses.Support_P_text));
+		s.setId((long)doc.field(NdexClasses.Element_ID));
+		ORID citationRID = getLinkedRID(doc, "out_" + NdexClasses.Support_E_citation);
+		if ( citationRID != null) 
+			s.setCitationId(resolve(citationRID));
+		
+		getProperties(s, doc, propertyDocs);
+		return s;
+	}
+	
+	private Node getNode(ODocument doc, Map<ORID, ODocument> propertyDocs) throws NdexException, ExecutionException {
+		Node n = new Node();
+		n.setId((long)doc.field(NdexClasses.Element_ID));
+		n.setName((String)doc.field(NdexClasses.Node_P_name));
+		
+		getProperties(n, doc, propertyDocs);
+		
+		ORID termRID = getLinkedRID(doc, "out_" + NdexClasses.Node_E_represents);
+		if ( termRID != null) {
+			Long termId = resolve(termRID);
+			n.setRepresents(termId);
+			if ( reifiedEdgeTermIds.contains(termId)) 
+				n.setRepresentsTermType(NdexClasses.ReifiedEdgeTerm);
+			else if ( functionTermIds.contains(termId)) 
+				n.setRepresentsTermType(NdexClasses.FunctionTerm);
+			else
+				n.setRepresentsTermType(NdexClasses.BaseTerm);
+		}
+		
+		for ( ORID rid : getLinkedRIDs(doc, "out_" + NdexClasses.Node_E_alias)) 
+			n.getAliases().add(resolve(rid));
+		for ( ORID rid : getLinkedRIDs(doc, "out_" + NdexClasses.Node_E_relateTo)) 
+			n.getRelatedTerms().add(resolve(rid));
+		for ( ORID rid : getLinkedRIDs(doc, "out_" + NdexClasses.Node_E_citations)) 
+			n.getCitationIds().add(resolve(rid));
+		for ( ORID rid : getLinkedRIDs(doc, "out_" + NdexClasses.Node_E_supports)) 
+			n.getSupportIds().add(resolve(rid));
+		
+		return n;
+	}
+
+	private Edge getEdge(ODocument doc, Map<ORID, ODocument> propertyDocs) throws NdexException, ExecutionException {
+		Edge e = new Edge();
+		e.setId((long)doc.field(NdexClasses.Element_ID));
+		e.setSubjectId(resolve(getLinkedRID(doc, "in_" + NdexClasses.Edge_E_subject)));
+		e.setPredicateId(resolve(getLinkedRID(doc, "out_" + NdexClasses.Edge_E_predicate)));
+		e.setObjectId(resolve(getLinkedRID(doc, "out_" + NdexClasses.Edge_E_object)));
+		
+		getProperties(e, doc, propertyDocs);
+		
+		for ( ORID rid : getLinkedRIDs(doc, "out_" + NdexClasses.Edge_E_citations)) 
+			e.getCitationIds().add(resolve(rid));
+		for ( ORID rid : getLinkedRIDs(doc, "out_" + NdexClasses.Edge_E_supports)) 
+			e.getSupportIds().add(resolve(rid));
+		
+		return e;
+	}
+	
+	private void getProperties(PropertiedObject obj, ODocument doc, Map<ORID, ODocument> propertyDocs) 
+			throws NdexException, ExecutionException {
+		for ( ORID rid : getLinkedRIDs(doc, "out_" + NdexClasses.E_ndexProperties)) {
+			ODocument propDoc = propertyDocs.get(rid);
+			if ( propDoc == null || !propDoc.getClassName().equals(NdexClasses.NdexProperty)) 
+				continue;
+			
+			NdexPropertyValuePair p = new NdexPropertyValuePair();
+			ORID predicateRID = getLinkedRID(propDoc, "out_" + NdexClasses.ndexProp_E_predicate);
+			if ( predicateRID == null) {
+				p.setPredicateString((String)propDoc.field(NdexClasses.ndexProp_P_predicateStr));
+			} else {
+				Long predicateId = resolve(predicateRID);
+				String predicate = predicateStrings.get(predicateId);
+				if ( predicate == null) {
+					predicate = getBaseTermString((ODocument)db.load(predicateRID));
+					predicateStrings.put(predicateId, predicate);
+				}
+				p.setPredicateString(predicate);
+				p.setPredicateId(predicateId);
+			}
+			p.setValue((String)propDoc.field(NdexClasses.ndexProp_P_value)) ;
+			String dType = (String)propDoc.field(NdexClasses.ndexProp_P_datatype);
+			if ( dType !=null)
+				p.setDataType(dType);
+			obj.getProperties().add(p);
+		}
+		
+		for ( ORID rid : getLinkedRIDs(doc, "out_" + NdexClasses.E_ndexPresentationProps)) {
+			ODocument propDoc = propertyDocs.get(rid);
+			if ( propDoc != null && propDoc.getClassName().equals(NdexClasses.SimpleProperty)) 
+				obj.getPresentationProperties().add(Helper.getSimplePropertyFromDoc(propDoc));
+		}
+	}
+	
+	/**
+	 * Returns the name of a base term with the prefix or URI of its namespace. 
+	 */
+	private static String getBaseTermString(ODocument bTermDoc) {
+		String localName = bTermDoc.field(NdexClasses.BTerm_P_name);
+		ODocument nsDoc = bTermDoc.field("out_" + NdexClasses.BTerm_E_Namespace);
+		if ( nsDoc == null) 
+			return localName;
+		String prefix = nsDoc.field(NdexClasses.ns_P_prefix);
+		if ( prefix != null)
+			return prefix + ":" + localName;
+		return (String)nsDoc.field(NdexClasses.ns_P_uri) + localName;
+	}
+	
+	/**
+	 * Returns the element id of a record. Records that are not linked from the network vertex are read on demand.
+	 */
+	private Long resolve(ORID rid) throws NdexException, ExecutionException {
+		long id = elementIds.get(pack(rid));
+		if ( id == LongLongHashMap.NO_VALUE) {
+			readBatch(Collections.singletonList(rid));
+			id = elementIds.get(pack(rid));
+			if ( id == LongLongHashMap.NO_VALUE)
+				throw new NdexException("Network element record " + rid + " not found.");
+		}
+		return Long.valueOf(id);
+	}
+	
+	private List<ODocument> loadDocuments(Collection<ORID> rids) {
+		StringBuilder query = new StringBuilder("select from [");
+		Iterator<ORID> it = rids.iterator();
+		while ( it.hasNext()) {
+			query.append(it.next().toString());
+			if ( it.hasNext()) 
+				query.append(',');
+		}
+		query.append(']');
+		return db.query(new OSQLSynchQuery<ODocument>(query.toString()));
+	}
+	
+	/**
+	 * Returns the record ids in a link field without loading the linked records. The field holds a single link 
+	 * until a second edge of the same type is added.
+	 */
+	private static List<ORID> getLinkedRIDs(ODocument doc, String fieldName) {
+		Object f = doc.rawField(fieldName);
+		if ( f == null ) 
+			return Collections.emptyList();
+		if ( f instanceof ORidBag) {
+			List<ORID> result = new ArrayList<>(((ORidBag)f).size());
+			Iterator<OIdentifiable> it = ((ORidBag)f).rawIterator();
+			while ( it.hasNext()) 
+				result.add(it.next().getIdentity());
+			return result;
+		}
+		return Collections.singletonList(((OIdentifiable)f).getIdentity());
+	}
+
+	private static ORID getLinkedRID(ODocument doc, String fieldName) {
+		List<ORID> rids = getLinkedRIDs(doc, fieldName);
+		return rids.isEmpty() ? null : rids.get(0);
+	}
+	
+	// cluster ids are 16 bit, cluster positions are far below 2^48.
+	private static long pack(ORID rid) {
+		return ((long) rid.getClusterId() << 48) | rid.getClusterPosition();
+	}
+	
+	/**
+	 * Puts the elements in a Network. Citations, supports and terms are kept aside until a node or edge refers 
+	 * to them.
+	 */
+	private static class NetworkCollector implements NetworkElementHandler {
+		final Network network = new Network();
+		
+		private final Map<Long, Citation> citations = new HashMap<>();
+		private final Map<Long, Support> supports = new HashMap<>();
+		private final Map<Long, ReifiedEdgeTerm> reifiedEdgeTerms = new HashMap<>();
+		private final Map<Long, FunctionTerm> functionTerms = new HashMap<>();
+
+		@Override
+		public void handleNamespace(Namespace namespace) {
+			network.getNamespaces().put(namespace.getId(), namespace);
+		}
+
+		@Override
+		public void handleBaseTerm(BaseTerm baseTerm) {
+			network.getBaseTerms().put(baseTerm.getId(), baseTerm);
+		}
+
+		@Override
+		public void handleCitation(Citation citation) {
+			citations.put(citation.getId(), citation);
+		}
+
+		@Override
+		public void handleSupport(Support support) {
+			supports.put(support.getId(), support);
+		}
+
+		@Override
+		public void handleReifiedEdgeTerm(ReifiedEdgeTerm reifiedEdgeTerm) {
+			reifiedEdgeTerms.put(reifiedEdgeTerm.getId(), reifiedEdgeTerm);
+		}
+
+		@Override
+		public void handleFunctionTerm(FunctionTerm functionTerm) {
+			functionTerms.put(functionTerm.getId(), functionTerm);
+		}
+
+		@Override
+		public void handleNode(Node node) {
+			network.getNodes().put(node.getId(), node);
+			if ( node.getRepresents() != null) 
+				addTerm(node.getRepresents());
+			addCitations(node.getCitationIds());
+			addSupports(node.getSupportIds());
+		}
+
+		@Override
+		public void handleEdge(Edge edge) {
+			network.getEdges().put(edge.getId(), edge);
+			addCitations(edge.getCitationIds());
+			addSupports(edge.getSupportIds());
+		}
+
+		@Override
+		public void handleNetworkSummary(NetworkSummary summary) {
+			// the summary is the network itself.
+		}
+		
+		private void addCitations(Collection<Long> citationIds) {
+			for ( Long citationId : citationIds) {
+				Citation c = citations.get(citationId);
+				if ( c != null)
+					network.getCitations().put(citationId, c);
+			}
+		}
+		
+		private void addSupports(Collection<Long> supportIds) {
+			for ( Long supportId : supportIds) {
+				Support s = supports.get(supportId);
+				if ( s != null) {
+					network.getSupports().put(supportId, s);
+					if ( s.getCitationId() > 0 )
+						addCitations(Collections.singleton(s.getCitationId()));
+				}
+			}
+		}
+		
+		/**
+		 * Add a function term or reified edge term and the terms in its arguments to the network.
+		 */
+		private void addTerm(Long termId) {
+			ReifiedEdgeTerm reifiedEdgeTerm = reifiedEdgeTerms.get(termId);
+			if ( reifiedEdgeTerm != null ) {
+				network.getReifiedEdgeTerms().put(termId, reifiedEdgeTerm);
+				return;
+			}
+			FunctionTerm functionTerm = functionTerms.get(termId);
+			if ( functionTerm != null && !network.getFunctionTerms().containsKey(termId)) {
+				network.getFunctionTerms().put(termId, functionTerm);
+				for ( Long argId : functionTerm.getParameterIds()) 
+					addTerm(argId);
+			}
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.models.dao.orientdb;
+
+import java.nio.charset.StandardCharsets;
+
+import org.ndexbio.model.exceptions.NdexException;
+
+import com.google.common.io.BaseEncoding;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+/**
+ * Position of a page in the edges of a network: the record id and element id of the last edge returned. 
+ * Pages are in record id order, so the next page starts right after that record id in the out_networkEdges 
+ * ridbag. The element id is used to check that the record is still the same edge before the cursor is used. 
+ * The token handed out to clients is opaque. 
+ */
+final class EdgeCursor {
+
+	private static final BaseEncoding encoding = BaseEncoding.base64Url().omitPadding();
+	private static final String separator = ":";
+	
+	private final ORID lastEdge;
+	private final long lastEdgeId;
+	
+	EdgeCursor(ORID lastEdge, long lastEdgeId) {
+		this.lastEdge = lastEdge;
+		this.lastEdgeId = lastEdgeId;
+	}
+	
+	ORID getLastEdge() { return lastEdge;}
+	
+	long getLastEdgeId() { return lastEdgeId;}
+	
+	String encode() {
+		String str = lastEdge.getClusterId() + separator + lastEdge.getClusterPosition() + separator + lastEdgeId;
+		return encoding.encode(str.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	static EdgeCursor decode(String token) throws NdexException {
+		try {
+			String[] parts = new String(encoding.decode(token), StandardCharsets.UTF_8).split(separator);
+			if ( parts.length == 3) {
+				ORID rid = new ORecordId(Integer.parseInt(parts[0]), Long.parseLong(parts[1]));
+				if ( rid.isPersistent())
+					return new EdgeCursor(rid, Long.parseLong(parts[2]));
+			}
+		} catch (IllegalArgumentException e) {
+			// falls through to the error below. NumberFormatException is an IllegalArgumentException too.
+		}
+		throw new NdexException("Invalid network page cursor: " + token);
+	}
+}
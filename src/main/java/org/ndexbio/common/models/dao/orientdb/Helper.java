@@ -33,9 +33,12 @@ package org.ndexbio.common.models.dao.orientdb;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -47,7 +50,16 @@ import org.ndexbio.model.object.*;
 import org.ndexbio.model.object.network.NetworkSummary;
 import org.ndexbio.model.object.network.VisibilityType;
 
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.db.record.ridbag.ORidBag;
+import com.orientechnologies.orient.core.db.record.ridbag.sbtree.OBonsaiCollectionPointer;
+import com.orientechnologies.orient.core.db.record.ridbag.sbtree.OSBTreeCollectionManager;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OIndexManagerProxy;
+import com.orientechnologies.orient.core.index.sbtree.OTreeInternal.RangeResultListener;
+import com.orientechnologies.orient.core.index.sbtreebonsai.local.OSBTreeBonsai;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
 
@@ -136,26 +148,20 @@ public class Helper {
     	return false;
     }
 
+    /**
+     * Check if an account has the expected permission on a network, directly or through the groups it belongs to. 
+     * The permissions of the account are looked up in NetworkACLCache.
+     */
     public static boolean checkPermissionOnNetworkByAccountName(ODatabaseDocumentTx db, String networkUUID, 
 			String accountName, Permissions expectedPermission) {
-    	String query = "select $path from (traverse out_admin,out_member,out_groupadmin,out_write,out_read from (select * from " + NdexClasses.Account + 
-    			" where accountName='"+ accountName + "') while $depth < 3 ) where UUID = '"+ networkUUID + "'";
-
-    	final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query));
-
-    	for ( ODocument d : result ) { 
-    		String s = d.field("$path");
-    		Pattern pattern = Pattern.compile("(out_admin|out_write|out_read)");
-    		Matcher matcher = pattern.matcher(s);
-    		if (matcher.find())
-    		{
-    			Permissions p = Permissions.valueOf(matcher.group(1).substring(4).toUpperCase());
-    			if ( permissionSatisfied( expectedPermission, p))
-    				return true;
-    		}  
-    	}
-
-    	return false;
+    	OIndexManagerProxy indexManager = db.getMetadata().getIndexManager();
+    	OIdentifiable account = (OIdentifiable) indexManager.getIndex(NdexClasses.Index_accountName).get(accountName);
+    	OIdentifiable network = (OIdentifiable) indexManager.getIndex(NdexClasses.Index_externalID).get(networkUUID);
+    	if ( account == null || network == null)
+    		return false;
+
+    	return NetworkACLCache.getInstance().hasPermission(db, account.getIdentity(), network.getIdentity(), 
+    			expectedPermission);
     }
     
     public static VisibilityType getNetworkVisibility(ODatabaseDocumentTx db, String networkUUID) {
@@ -421,4 +427,82 @@ public class Helper {
     	     
     }
 
+    /**
+     * Returns an iterator over the record ids of a link field, positioned at offset. The records are not loaded. 
+     * Positioning walks the links before offset, so it takes time proportional to offset.
+     * @param f the raw value of a link field, a ridbag or a single link.
+     */
+    public static Iterator<OIdentifiable> getLinkIterator(Object f, int offset) {
+    	Iterator<OIdentifiable> it;
+    	if ( f == null)
+    		it = Collections.<OIdentifiable>emptyIterator();
+    	else if ( f instanceof ORidBag)
+    		it = ((ORidBag)f).rawIterator();
+    	else 
+    		it = Collections.singletonList((OIdentifiable)f).iterator();
+    	
+    	for ( int i = 0 ; i < offset && it.hasNext(); i++) 
+    		it.next();
+    	return it;
+    }
+    
+    /**
+     * Returns up to limit record ids from a link field, starting at position offset. The records are not loaded.
+     */
+    public static List<ORID> getRIDs(Object f, int offset, int limit) {
+    	if ( f == null || limit <= 0) 
+    		return Collections.emptyList();
+    	
+    	Iterator<OIdentifiable> it = getLinkIterator(f, offset);
+    	List<ORID> result = new ArrayList<>(f instanceof ORidBag ? Math.min(limit, ((ORidBag)f).size()) : 1);
+    	while ( it.hasNext() && result.size() < limit) 
+    		result.add(it.next().getIdentity().copy());
+    	return result;
+    }
+
+    /**
+     * Returns up to limit record ids from a link field that come after a record id, in record id order. The records 
+     * are not loaded. A ridbag stored as a tree is searched in its tree, which takes time proportional to limit 
+     * and not to the position of the record id in the ridbag. Other link fields are sorted, they are small.
+     * Changes to the ridbag that are not saved yet are not seen.
+     * @param after the record id to start after, or null to start from the first link.
+     */
+    public static List<ORID> getRIDsAfter(Object f, ORID after, final int limit) {
+    	final List<ORID> result = new ArrayList<>();
+    	if ( f == null || limit <= 0) 
+    		return result;
+    	
+    	OBonsaiCollectionPointer pointer = f instanceof ORidBag && !((ORidBag)f).isEmbedded() ? 
+    			((ORidBag)f).getPointer() : null;
+    	if ( pointer == null || !pointer.isValid()) {
+    		List<ORID> rids = getRIDs(f, 0, Integer.MAX_VALUE);
+    		Collections.sort(rids);
+    		for ( ORID rid : rids) {
+    			if ( result.size() == limit) 
+    				break;
+    			if ( after == null || rid.compareTo(after) > 0)
+    				result.add(rid);
+    		}
+    		return result;
+    	}
+    	
+    	OSBTreeCollectionManager manager = ODatabaseRecordThreadLocal.INSTANCE.get().getSbTreeCollectionManager();
+    	OSBTreeBonsai<OIdentifiable, Integer> tree = manager.loadSBTree(pointer);
+    	try {
+    		OIdentifiable from = after == null ? tree.firstKey() : after;
+    		if ( from != null) {
+    			tree.loadEntriesMajor(from, after == null, true, new RangeResultListener<OIdentifiable, Integer>() {
+    				@Override
+    				public boolean addResult(Map.Entry<OIdentifiable, Integer> entry) {
+    					result.add(entry.getKey().getIdentity().copy());
+    					return result.size() < limit;
+    				}
+    			});
+    		}
+    	} finally {
+    		manager.releaseSBTree(pointer);
+    	}
+    	return result;
+    }
+
 }
@@ -0,0 +1,194 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.models.dao.orientdb;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.ndexbio.common.NdexClasses;
+import org.ndexbio.model.object.Permissions;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Cache of the networks each account can read, write or administer, directly or through the groups it is an 
+ * admin or member of. Networks are stored as bits at their NetworkCatalog ordinals, so a search can check a 
+ * candidate network without traversing its permission edges.
+ * 
+ * An entry records the versions of the account document and of its group documents. Permission edges are 
+ * lightweight edges stored on both vertices, so granting or revoking a privilege, or changing a group membership, 
+ * changes one of these versions and only the entries of the accounts involved are rebuilt on their next use.
+ * Entries are only cached when they are built from committed records, outside of a transaction, so that changes 
+ * that are rolled back never get into the cache.
+ */
+public class NetworkACLCache {
+
+	private static final int maxAccounts = 10000;
+
+	private static final NetworkACLCache INSTANCE = new NetworkACLCache();
+	
+	private final Cache<ORID, AccountNetworks> cache = 
+			CacheBuilder.newBuilder().maximumSize(maxAccounts).recordStats().build();
+	
+	private NetworkACLCache() {}
+	
+	public static NetworkACLCache getInstance() {
+		return INSTANCE;
+	}
+	
+	/**
+	 * Returns the networks an account has permissions on. 
+	 * @param db
+	 * @param accountRID record id of a user or a group.
+	 * @return null if the account doesn't exist.
+	 */
+	public AccountNetworks getNetworks(ODatabaseDocument db, ORID accountRID) {
+		AccountNetworks a = cache.getIfPresent(accountRID);
+		if ( a != null && a.isCurrent(db))
+			return a;
+		
+		ODocument accountDoc = db.load(accountRID);
+		if ( accountDoc == null) {
+			cache.invalidate(accountRID);
+			return null;
+		}
+		a = new AccountNetworks(db, accountDoc);
+		if ( a.isCommitted() && !db.getTransaction().isActive())
+			cache.put(accountRID.copy(), a);
+		return a;
+	}
+	
+	/**
+	 * Returns true if an account has at least the given permission on a network, directly or through its groups.
+	 */
+	public boolean hasPermission(ODatabaseDocument db, ORID accountRID, ORID networkRID, Permissions permission) {
+		AccountNetworks a = getNetworks(db, accountRID);
+		return a != null && a.hasPermission(NetworkCatalog.getInstance().getOrdinal(networkRID), permission);
+	}
+	
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+	
+	/**
+	 * @return hit, miss and eviction counts of the cache.
+	 */
+	public CacheStats getStats() {
+		return cache.stats();
+	}
+	
+	/**
+	 * Network ordinals an account can read, write and administer. Each set contains the ones after it.
+	 * The sets are not modified after the object is built.
+	 */
+	public static final class AccountNetworks {
+		private final BitSet readable = new BitSet();
+		private final BitSet writable = new BitSet();
+		private final BitSet administrable = new BitSet();
+		
+		// documents the sets were built from, and their versions.
+		private final List<ORID> sources = new ArrayList<>();
+		private final List<Integer> versions = new ArrayList<>();
+		// false if one of the documents has changes that are not committed.
+		private boolean committed = true;
+		
+		AccountNetworks(ODatabaseDocument db, ODocument accountDoc) {
+			addNetworks(accountDoc);
+			for ( String groupEdge : new String[] {NdexClasses.GRP_E_admin, NdexClasses.GRP_E_member}) {
+				for ( ORID groupRID : Helper.getRIDs(accountDoc.rawField("out_" + groupEdge), 0, Integer.MAX_VALUE)) {
+					ODocument groupDoc = db.load(groupRID);
+					if ( groupDoc != null) 
+						addNetworks(groupDoc);
+				}
+			}
+			writable.or(administrable);
+			readable.or(writable);
+		}
+		
+		private void addNetworks(ODocument doc) {
+			if ( !doc.getIdentity().isPersistent() || doc.isDirty())
+				committed = false;
+			sources.add(doc.getIdentity().copy());
+			versions.add(doc.getVersion());
+			
+			NetworkCatalog catalog = NetworkCatalog.getInstance();
+			for ( ORID rid : Helper.getRIDs(doc.rawField("out_" + NdexClasses.E_admin), 0, Integer.MAX_VALUE)) 
+				administrable.set(catalog.getOrdinal(rid));
+			for ( ORID rid : Helper.getRIDs(doc.rawField("out_" + NdexClasses.account_E_canEdit), 0, Integer.MAX_VALUE)) 
+				writable.set(catalog.getOrdinal(rid));
+			for ( ORID rid : Helper.getRIDs(doc.rawField("out_" + NdexClasses.account_E_canRead), 0, Integer.MAX_VALUE)) 
+				readable.set(catalog.getOrdinal(rid));
+		}
+		
+		boolean isCurrent(ODatabaseDocument db) {
+			for ( int i = 0 ; i < sources.size(); i++) {
+				ODocument doc = db.load(sources.get(i));
+				if ( doc == null || doc.isDirty() || doc.getVersion() != versions.get(i).intValue())
+					return false;
+			}
+			return true;
+		}
+		
+		boolean isCommitted() {
+			return committed;
+		}
+		
+		public boolean hasPermission(int networkOrdinal, Permissions permission) {
+			switch (permission) {
+			case ADMIN: 
+				return administrable.get(networkOrdinal);
+			case WRITE:
+				return writable.get(networkOrdinal);
+			case READ:
+				return readable.get(networkOrdinal);
+			default:
+				return false;
+			}
+		}
+		
+		public boolean canRead(int networkOrdinal) {
+			return readable.get(networkOrdinal);
+		}
+		
+		/**
+		 * @return a copy of the ordinals of the networks the account can read.
+		 */
+		public BitSet getReadable() {
+			return (BitSet) readable.clone();
+		}
+	}
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.models.dao.orientdb;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import org.ndexbio.model.exceptions.NdexException;
+import org.ndexbio.task.Configuration;
+
+/**
+ * Counts how often each read-only network is read, so that the most used ones can be loaded into the 
+ * network cache when the server starts. The counts are kept in a file in the network cache directory. 
+ * Counts loaded from the file are halved, so networks that are no longer used fall out of the top over 
+ * a few restarts.
+ */
+public class NetworkAccessLog {
+
+	private static final Logger logger = Logger.getLogger(NetworkAccessLog.class.getName());
+	
+	private static final String logFileName = "network-access.log";
+	
+	// number of networks kept in the file.
+	private static final int maxSavedEntries = 10000;
+	
+	private static NetworkAccessLog INSTANCE = null;
+	
+	private final File file;
+	private final ConcurrentHashMap<UUID, AtomicLong> counts;
+	
+	NetworkAccessLog(File file) {
+		this.file = file;
+		this.counts = new ConcurrentHashMap<>();
+	}
+	
+	/**
+	 * @return the log of this server. Its file is in the network cache directory, the log is not saved if 
+	 * there is no configuration.
+	 */
+	public static synchronized NetworkAccessLog getInstance() {
+		if ( INSTANCE == null) {
+			File f = null;
+			try {
+				f = new File(Configuration.getInstance().getNdexNetworkCachePath(), logFileName);
+			} catch (NdexException e) {
+				logger.warning("Failed to read configuration, network access log will not be saved: " + e.getMessage());
+			}
+			INSTANCE = new NetworkAccessLog(f);
+			INSTANCE.load();
+		}
+		return INSTANCE;
+	}
+	
+	public void recordAccess(UUID networkId) {
+		AtomicLong c = counts.get(networkId);
+		if ( c == null) {
+			AtomicLong n = new AtomicLong();
+			c = counts.putIfAbsent(networkId, n);
+			if ( c == null) 
+				c = n;
+		}
+		c.incrementAndGet();
+	}
+	
+	public long getAccessCount(UUID networkId) {
+		AtomicLong c = counts.get(networkId);
+		return c == null ? 0 : c.get();
+	}
+	
+	/**
+	 * @return up to n network ids, the most accessed first.
+	 */
+	public List<UUID> getMostAccessed(int n) {
+		List<UUID> result = new ArrayList<>(n);
+		for ( Map.Entry<UUID, Long> e : sortedCounts()) {
+			if ( result.size() >= n) 
+				break;
+			result.add(e.getKey());
+		}
+		return result;
+	}
+	
+	/**
+	 * Write the counts to the log file. The file is replaced when the new one is complete.
+	 */
+	public synchronized void save() {
+		if ( file == null) 
+			return;
+		File tmp = new File(file.getPath() + ".tmp");
+		try {
+			try (BufferedWriter w = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+				int written = 0;
+				for ( Map.Entry<UUID, Long> e : sortedCounts()) {
+					if ( written++ >= maxSavedEntries) 
+						break;
+					w.write(e.getKey() + "\t" + e.getValue());
+					w.newLine();
+				}
+			}
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			logger.warning("Failed to save network access log " + file + ": " + e.getMessage());
+		}
+	}
+	
+	synchronized void load() {
+		if ( file == null || !file.exists()) 
+			return;
+		try (BufferedReader r = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while ( (line = r.readLine()) != null) {
+				String[] fields = line.split("\t");
+				if ( fields.length != 2) 
+					continue;
+				try {
+					long count = Long.parseLong(fields[1]) / 2;
+					if ( count > 0) 
+						counts.put(UUID.fromString(fields[0]), new AtomicLong(count));
+				} catch (IllegalArgumentException e) {
+					logger.warning("Invalid line in network access log: " + line);
+				}
+			}
+		} catch (IOException e) {
+			logger.warning("Failed to read network access log " + file + ": " + e.getMessage());
+		}
+	}
+	
+	private List<Map.Entry<UUID, Long>> sortedCounts() {
+		List<Map.Entry<UUID, Long>> entries = new ArrayList<>(counts.size());
+		for ( Map.Entry<UUID, AtomicLong> e : counts.entrySet()) 
+			entries.add(new AbstractMap.SimpleImmutableEntry<>(e.getKey(), Long.valueOf(e.getValue().get())));
+		Collections.sort(entries, new Comparator<Map.Entry<UUID, Long>>() {
+			@Override
+			public int compare(Map.Entry<UUID, Long> a, Map.Entry<UUID, Long> b) {
+				return b.getValue().compareTo(a.getValue());
+			}
+		});
+		return entries;
+	}
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.models.dao.orientdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import org.ndexbio.common.NdexClasses;
+import org.ndexbio.common.access.ConnectionPoolGate;
+import org.ndexbio.common.access.NdexDatabase;
+import org.ndexbio.common.persistence.orientdb.NetworkSnapshotFormat;
+import org.ndexbio.common.persistence.orientdb.NetworkSnapshotReader;
+import org.ndexbio.model.exceptions.NdexException;
+import org.ndexbio.model.object.network.Network;
+import org.ndexbio.task.Configuration;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Loads the most accessed read-only networks into the NetworkObjectCache when the database is opened, and saves 
+ * the NetworkAccessLog periodically. The networks are loaded by background threads, from their snapshot files 
+ * when they exist and from the database otherwise, so the server is ready before the warm-up is done. Both give 
+ * the same Network as getNetworkById. The threads use the background lane of the connection pool. 
+ * 
+ * The warm-up stops when the networks it loaded have Cache-Warmup-Max-Elements nodes, edges and terms.
+ */
+public class NetworkCacheWarmer {
+
+	private static final Logger logger = Logger.getLogger(NetworkCacheWarmer.class.getName());
+	
+	private static final int warmupThreads = 2;
+	private static final long logSaveIntervalMinutes = 10;
+	
+	private static ExecutorService warmupPool = null;
+	private static ScheduledExecutorService logSaver = null;
+	
+	// warm-up threads are not interrupted, they can be in the middle of a database read. They check this flag.
+	private static volatile boolean stopped = false;
+	
+	/**
+	 * Start the warm-up and the periodic saving of the access log. Called when the NdexDatabase is created. 
+	 */
+	public static synchronized void start() {
+		if ( warmupPool != null) 
+			return;
+		stopped = false;
+		
+		int networkCount;
+		long maxElements;
+		String cachePath;
+		try {
+			Configuration config = Configuration.getInstance();
+			networkCount = config.getCacheWarmupNetworkCount();
+			maxElements = Math.min(config.getCacheWarmupMaxElements(), config.getNetworkCacheMaxElements());
+			cachePath = config.getNdexNetworkCachePath();
+		} catch (NdexException e) {
+			logger.warning("Failed to read configuration, network cache warm-up disabled: " + e.getMessage());
+			return;
+		}
+		
+		warmupPool = Executors.newFixedThreadPool(warmupThreads, 
+				new ThreadFactoryBuilder().setNameFormat("ndex-cache-warmup-%d").setDaemon(true)
+					.setPriority(Thread.MIN_PRIORITY).build());
+		logSaver = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactoryBuilder().setNameFormat("ndex-access-log").setDaemon(true).build());
+		
+		final NetworkAccessLog accessLog = NetworkAccessLog.getInstance();
+		logSaver.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				accessLog.save();
+			}
+		}, logSaveIntervalMinutes, logSaveIntervalMinutes, TimeUnit.MINUTES);
+		
+		List<UUID> networks = accessLog.getMostAccessed(networkCount);
+		if ( networks.isEmpty() || maxElements <= 0) {
+			warmupPool.shutdown();
+			return;
+		}
+		
+		logger.info("Warming up network cache with up to " + networks.size() + " networks.");
+		final AtomicLong budget = new AtomicLong(maxElements);
+		for ( final UUID networkId : networks) {
+			final String path = cachePath;
+			warmupPool.submit(new Runnable() {
+				@Override
+				public void run() {
+					NdexDatabase.setConnectionLane(ConnectionPoolGate.Lane.BACKGROUND);
+					try {
+						warmUp(networkId, path, budget);
+					} catch (Exception e) {
+						logger.warning("Failed to load network " + networkId + " into cache: " + e.getMessage());
+					}
+				}
+			});
+		}
+		warmupPool.shutdown();
+	}
+	
+	/**
+	 * Stop the warm-up and save the access log. Called when the NdexDatabase is closed.
+	 */
+	public static synchronized void stop() {
+		if ( warmupPool == null) 
+			return;
+		stopped = true;
+		warmupPool.shutdown();
+		logSaver.shutdownNow();
+		try {
+			warmupPool.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		NetworkAccessLog.getInstance().save();
+		warmupPool = null;
+		logSaver = null;
+	}
+	
+	private static void warmUp(UUID networkId, String cachePath, AtomicLong budget) throws NdexException, IOException {
+		if ( stopped) 
+			return;
+		
+		try (NetworkDocDAO dao = new NetworkDocDAO(NdexDatabase.getInstance().getAConnection())) {
+			ODocument nDoc = dao.getNetworkDocByUUIDString(networkId.toString());
+			if ( nDoc == null) 
+				return;
+			long commitId = NetworkDocDAO.getReadOnlyCommitId(nDoc);
+			if ( commitId < 0 || NetworkObjectCache.getInstance().getNetwork(networkId, commitId) != null) 
+				return;
+			
+			// nodes and edges are most of the elements of a network, the budget is checked before it is read.
+			Integer nodeCount = nDoc.field(NdexClasses.Network_P_nodeCount);
+			Integer edgeCount = nDoc.field(NdexClasses.Network_P_edgeCount);
+			long size = (nodeCount == null ? 0 : nodeCount.longValue()) + (edgeCount == null ? 0 : edgeCount.longValue());
+			long left;
+			do {
+				left = budget.get();
+				if ( left < size) {
+					logger.info("Network " + networkId + " not loaded into cache, the warm-up budget is used up.");
+					return;
+				}
+			} while ( !budget.compareAndSet(left, left - size));
+			
+			Long cacheId = nDoc.field(NdexClasses.Network_P_cacheId);
+			File snapshot = new File(cachePath, commitId + NetworkSnapshotFormat.FILE_EXTENSION);
+			Network network = null;
+			if ( cacheId != null && cacheId.longValue() == commitId && snapshot.exists()) {
+				try {
+					network = NetworkSnapshotReader.open(snapshot.getPath()).readNetwork();
+				} catch (NdexException e) {
+					// snapshots written by an older version have a different format.
+					logger.info("Snapshot of network " + networkId + " not used: " + e.getMessage());
+				}
+			}
+			if ( network == null)
+				network = new BulkNetworkReader(dao.db).readNetwork(nDoc);
+			NetworkObjectCache.getInstance().putNetwork(networkId, commitId, network);
+			logger.info("Network " + networkId + " loaded into cache.");
+		}
+	}
+}
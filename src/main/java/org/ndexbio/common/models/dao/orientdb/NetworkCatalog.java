@@ -0,0 +1,313 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.models.dao.orientdb;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.ndexbio.common.NdexClasses;
+import org.ndexbio.model.object.network.VisibilityType;
+
+import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabaseListener;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.hook.ODocumentHookAbstract;
+import com.orientechnologies.orient.core.hook.ORecordHook;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * In-memory catalog of all the networks in the database, with the fields network listings filter on. It is 
+ * loaded from the network class on first use and then kept current by a record hook that NdexDatabase registers 
+ * on every connection, so that listings don't need to scan the network class. The hook also tells 
+ * NetworkPropertyIndex which networks changed.
+ * 
+ * OrientDB calls the hook when a document is saved or deleted, which inside a transaction is before the commit. 
+ * Changes made in a transaction are kept by connection and applied when the transaction is committed, or 
+ * dropped when it is rolled back, so the catalog only shows committed documents.
+ * 
+ * Entries are ordered by record id, which is the order networks are created in. The catalog is only used to 
+ * select candidates; callers still load the network documents of the entries they return.
+ */
+public class NetworkCatalog {
+
+	private static final Logger logger = Logger.getLogger(NetworkCatalog.class.getName());
+	
+	private static final NetworkCatalog INSTANCE = new NetworkCatalog();
+	
+	private final ConcurrentSkipListMap<ORID, Entry> entries = new ConcurrentSkipListMap<>();
+	
+	// small integer ids of networks, used as bit positions in NetworkACLCache. An ordinal is never reused.
+	private final ConcurrentHashMap<ORID, Integer> ordinals = new ConcurrentHashMap<>();
+	private final AtomicInteger nextOrdinal = new AtomicInteger(0);
+	
+	private volatile boolean loaded = false;
+	
+	// changes made in the open transaction of each connection. Only the thread that uses a connection touches 
+	// its list.
+	private final ConcurrentHashMap<ODatabase<?>, List<Change>> pending = new ConcurrentHashMap<>();
+	
+	private final ORecordHook hook = new ODocumentHookAbstract() {
+		{
+			setIncludeClasses(NdexClasses.Network);
+		}
+		
+		@Override
+		public void onRecordAfterCreate(ODocument doc) {
+			changed(doc, false);
+		}
+		
+		@Override
+		public void onRecordAfterUpdate(ODocument doc) {
+			changed(doc, false);
+		}
+		
+		@Override
+		public void onRecordAfterDelete(ODocument doc) {
+			changed(doc, true);
+		}
+		
+		@Override
+		public DISTRIBUTED_EXECUTION_MODE getDistributedExecutionMode() {
+			return DISTRIBUTED_EXECUTION_MODE.TARGET_NODE;
+		}
+	};
+	
+	// registered on a connection the first time it changes a network in a transaction.
+	private final ODatabaseListener txListener = new ODatabaseListener() {
+		@Override
+		public void onAfterTxCommit(ODatabase iDatabase) {
+			List<Change> changes = pending.remove(iDatabase);
+			if ( changes != null) {
+				// records created in the transaction have their final record ids now.
+				for ( Change c : changes)
+					apply(c.doc, c.deleted);
+			}
+		}
+
+		@Override
+		public void onAfterTxRollback(ODatabase iDatabase) {
+			pending.remove(iDatabase);
+		}
+
+		@Override
+		public void onClose(ODatabase iDatabase) {
+			pending.remove(iDatabase);
+		}
+
+		@Override public void onCreate(ODatabase iDatabase) { /* not used */ }
+		@Override public void onDelete(ODatabase iDatabase) { /* not used */ }
+		@Override public void onOpen(ODatabase iDatabase) { /* not used */ }
+		@Override public void onBeforeTxBegin(ODatabase iDatabase) { /* not used */ }
+		@Override public void onBeforeTxRollback(ODatabase iDatabase) { /* not used */ }
+		@Override public void onBeforeTxCommit(ODatabase iDatabase) { /* not used */ }
+		@Override
+		public boolean onCorruptionRepairDatabase(ODatabase iDatabase, String iReason, String iWhatWillbeFixed) {
+			return false;
+		}
+	};
+	
+	private NetworkCatalog() {}
+	
+	public static NetworkCatalog getInstance() {
+		return INSTANCE;
+	}
+	
+	/**
+	 * The record hook that keeps the catalog current. It has to be registered on every connection that 
+	 * writes network documents. It registers the listener that applies the changes of a transaction on the 
+	 * connection itself.
+	 */
+	public ORecordHook getHook() {
+		return hook;
+	}
+	
+	/**
+	 * Returns the entries of all the networks, newest first. Deleted and incomplete networks are included. 
+	 * @param db connection used to load the catalog on first use.
+	 */
+	public Collection<Entry> getNetworks(ODatabaseDocumentTx db) {
+		load(db);
+		return entries.descendingMap().values();
+	}
+	
+	public Entry getNetwork(ODatabaseDocumentTx db, ORID rid) {
+		load(db);
+		return entries.get(rid);
+	}
+	
+	/**
+	 * Returns the ordinal of a network record, assigning the next one if the record doesn't have one yet.
+	 */
+	public int getOrdinal(ORID rid) {
+		Integer o = ordinals.get(rid);
+		if ( o != null)
+			return o.intValue();
+		Integer n = Integer.valueOf(nextOrdinal.getAndIncrement());
+		o = ordinals.putIfAbsent(rid.copy(), n);
+		return o == null ? n.intValue() : o.intValue();
+	}
+	
+	/**
+	 * Drop all the entries and ordinals. The catalog is loaded again on next use.
+	 */
+	public synchronized void clear() {
+		loaded = false;
+		entries.clear();
+		ordinals.clear();
+		nextOrdinal.set(0);
+		NetworkACLCache.getInstance().invalidateAll();
+		NetworkPropertyIndex.getInstance().clear();
+	}
+	
+	private void load(ODatabaseDocumentTx db) {
+		if ( loaded)
+			return;
+		synchronized (this) {
+			if ( loaded) 
+				return;
+			long t = System.currentTimeMillis();
+			for ( ODocument doc : db.browseClass(NdexClasses.Network)) 
+				update(doc);
+			loaded = true;
+			logger.info("Network catalog loaded with " + entries.size() + " networks in " 
+					+ (System.currentTimeMillis() - t) + " ms.");
+		}
+	}
+	
+	private void changed(ODocument doc, boolean deleted) {
+		ODatabaseDocumentInternal db = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+		if ( db == null || !db.getTransaction().isActive()) {
+			apply(doc, deleted);
+			return;
+		}
+		List<Change> changes = pending.get(db);
+		if ( changes == null) {
+			changes = new ArrayList<>();
+			pending.put(db, changes);
+			db.registerListener(txListener);
+		}
+		changes.add(new Change(doc, deleted));
+	}
+	
+	private void apply(ODocument doc, boolean deleted) {
+		if ( deleted)
+			entries.remove(doc.getIdentity());
+		else
+			update(doc);
+		NetworkPropertyIndex.getInstance().markChanged(doc.getIdentity());
+	}
+	
+	private static final class Change {
+		final ODocument doc;
+		final boolean deleted;
+		
+		Change(ODocument doc, boolean deleted) {
+			this.doc = doc;
+			this.deleted = deleted;
+		}
+	}
+	
+	/**
+	 * Store the entry of a network document, unless the catalog has an entry of a newer version of the document.
+	 */
+	void update(ODocument doc) {
+		if ( !doc.getIdentity().isPersistent())
+			return;
+		Entry e = new Entry(doc, getOrdinal(doc.getIdentity()));
+		for (;;) {
+			Entry old = entries.putIfAbsent(e.rid, e);
+			if ( old == null || old.version > e.version || entries.replace(e.rid, old, e))
+				return;
+		}
+	}
+	
+	/**
+	 * Fields of a network document used in network listings. 
+	 */
+	public static final class Entry {
+		private final ORID rid;
+		private final int ordinal;
+		private final int version;
+		private final UUID externalId;
+		private final VisibilityType visibility;
+		private final boolean isComplete;
+		private final boolean isDeleted;
+		private final long modificationTime;
+		private final List<ORID> admins;
+		
+		Entry(ODocument doc, int ordinal) {
+			rid = doc.getIdentity().copy();
+			this.ordinal = ordinal;
+			version = doc.getVersion();
+			String uuidStr = doc.field(NdexClasses.Network_P_UUID);
+			externalId = uuidStr == null ? null : UUID.fromString(uuidStr);
+			String v = doc.field(NdexClasses.Network_P_visibility);
+			visibility = v == null ? VisibilityType.PRIVATE : VisibilityType.valueOf(v);
+			Boolean b = doc.field(NdexClasses.Network_P_isComplete);
+			isComplete = b != null && b.booleanValue();
+			b = doc.field(NdexClasses.ExternalObj_isDeleted);
+			isDeleted = b != null && b.booleanValue();
+			Date mTime = doc.field(NdexClasses.ExternalObj_mTime);
+			modificationTime = mTime == null ? 0 : mTime.getTime();
+			admins = Helper.getRIDs(doc.rawField("in_" + NdexClasses.E_admin), 0, Integer.MAX_VALUE);
+		}
+		
+		public ORID getRID() { return rid; }
+		public int getOrdinal() { return ordinal; }
+		public UUID getExternalId() { return externalId; }
+		public VisibilityType getVisibility() { return visibility; }
+		public boolean getIsComplete() { return isComplete; }
+		public boolean getIsDeleted() { return isDeleted; }
+		public long getModificationTime() { return modificationTime; }
+		
+		/**
+		 * @return record ids of the accounts that administer the network.
+		 */
+		public List<ORID> getAdmins() { return admins; }
+		
+		/**
+		 * @return true if the network is complete and not deleted.
+		 */
+		public boolean isListed() {
+			return isComplete && !isDeleted;
+		}
+	}
+}
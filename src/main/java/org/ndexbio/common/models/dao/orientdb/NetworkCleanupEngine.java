@@ -0,0 +1,304 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.models.dao.orientdb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.ndexbio.common.NdexClasses;
+import org.ndexbio.common.access.ConnectionPoolGate;
+import org.ndexbio.common.access.NdexDatabase;
+import org.ndexbio.model.exceptions.NdexException;
+import org.ndexbio.model.exceptions.ObjectNotFoundException;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.orientechnologies.common.concur.ONeedRetryException;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+
+/**
+ * Deletes the elements of a logically deleted network with a pool of workers. 
+ * 
+ * The links of the network vertex are processed one edge type at a time. Each round takes the next block of 
+ * record ids from the ridbag and spreads it over the workers, every worker deletes its share with its own 
+ * connection. Since all the vertices reachable from the network vertex belong to the network, the workers remove 
+ * the element documents directly and leave the ridbags of the network vertex untouched until an edge type is 
+ * finished. This keeps the workers off the network vertex and keeps the positions in the ridbags stable, so 
+ * the position reached is saved on the network vertex after each round. A cleanup that is interrupted resumes 
+ * from there instead of walking the links that were already deleted.
+ * 
+ * Deletes are throttled by a shared rate limiter so that a cleanup doesn't compete with user traffic.
+ */
+public class NetworkCleanupEngine implements AutoCloseable {
+	
+	private static final int workerBatchSize = 500;
+	
+	// number of batches each worker gets in a round, the cursor is saved after each round.
+	private static final int batchesPerRound = 4;
+	
+	static Logger logger = Logger.getLogger(NetworkCleanupEngine.class.getName());
+	
+	private NdexDatabase database;
+	private ODatabaseDocumentTx db;
+	private int workerCount;
+	private RateLimiter rateLimiter;  // null if deletes are not throttled.
+	private ExecutorService executor;
+	
+	/**
+	 * @param database
+	 * @param workerCount number of threads that delete vertices.
+	 * @param verticesPerSecond maximum number of vertices deleted per second by all the workers together. 
+	 * 		  0 or less means no limit.
+	 * @throws NdexException
+	 */
+	public NetworkCleanupEngine (NdexDatabase database, int workerCount, double verticesPerSecond) throws NdexException {
+		this.database = database;
+		this.db = database.getAConnection();
+		this.workerCount = Math.max(1, workerCount);
+		this.rateLimiter = verticesPerSecond > 0 ? RateLimiter.create(verticesPerSecond) : null;
+		this.executor = Executors.newFixedThreadPool(this.workerCount);
+	}
+	
+	/**
+	 * Delete up to maxVertices vertices of a logically deleted network. The network vertex is removed when all its 
+	 * elements are deleted.
+	 * @param uuid
+	 * @param maxVertices
+	 * @return Number of vertices being deleted. If the returned number is negative, it means the elements
+	 * of the network are not completely deleted yet, and the number of vertices deleted are abs(returned number).
+	 * @throws ObjectNotFoundException
+	 * @throws NdexException
+	 */
+	public int cleanupDeleteNetwork(String uuid, int maxVertices) throws ObjectNotFoundException, NdexException {
+		ODocument networkDoc = new NetworkDocDAO(db).getRecordByUUIDStr(uuid, NdexClasses.Network);
+		
+		Boolean isDeleted = networkDoc.field(NdexClasses.ExternalObj_isDeleted);
+		if ( isDeleted == null || !isDeleted.booleanValue())
+			throw new NdexException("Network " + uuid + " is not deleted. It can't be cleaned up.");
+		
+		int fieldIdx = getCursorValue(networkDoc, NdexClasses.Network_P_cleanupField);
+		int offset = getCursorValue(networkDoc, NdexClasses.Network_P_cleanupOffset);
+		if ( fieldIdx > 0 || offset > 0 ) 
+			logger.info("Resuming cleanup of network " + uuid + " from " + 
+					(fieldIdx < NetworkDAO.networkElementType.length ? NetworkDAO.networkElementType[fieldIdx] : "network vertex")
+					+ " at position " + offset + ".");
+		
+		int counter = 0;
+		// the ridbag isn't modified until an edge type is finished, so one iterator serves all the rounds of a type.
+		Object linkField = null;
+		Iterator<OIdentifiable> links = null;
+		while ( fieldIdx < NetworkDAO.networkElementType.length) {
+			String fieldName = "out_" + NetworkDAO.networkElementType[fieldIdx];
+			Object f = networkDoc.field(fieldName);
+			if ( links == null || f != linkField) {
+				linkField = f;
+				links = Helper.getLinkIterator(f, offset);
+			}
+			List<ORID> rids = nextRIDs(links, 
+					Math.min(workerCount * workerBatchSize * batchesPerRound, maxVertices - counter));
+			
+			int deleted = 0;
+			if ( rids.isEmpty()) {   // all the elements of this type are gone, drop the links.
+				networkDoc.removeField(fieldName);
+				fieldIdx ++;
+				offset = 0;
+				links = null;
+			} else {
+				deleted = deleteVertices(rids);
+				counter += deleted;
+				offset += rids.size();
+			}
+			networkDoc = saveCursor(networkDoc, fieldIdx, offset, deleted);
+			
+			if ( counter >= maxVertices)
+				return (-1) * counter;
+		}
+		
+		// remove the network node.
+		OrientGraph graph = new OrientGraph(db,false);
+		graph.setAutoScaleEdgeType(true);
+		graph.setEdgeContainerEmbedded2TreeThreshold(40);
+		graph.setUseLightweightEdges(true);
+		
+		for	(int retry = 0;	retry <	NetworkDAO.maxRetries;	++retry)	{
+			try	{
+				graph.removeVertex(graph.getVertex(networkDoc));
+				break;
+			} catch(ONeedRetryException	e)	{
+				logger.warning("Retry: "+ e.getMessage());
+				networkDoc.reload();
+			}
+		}
+		
+		return counter + 1;
+	}
+	
+	private static int getCursorValue(ODocument networkDoc, String fieldName) {
+		Integer v = networkDoc.field(fieldName);
+		return v == null ? 0 : v.intValue();
+	}
+	
+	/**
+	 * Save the position reached on the network vertex and add the vertices deleted in this round to the count. 
+	 */
+	private ODocument saveCursor(ODocument networkDoc, int fieldIdx, int offset, int deletedInRound) {
+		ODocument doc = networkDoc;
+		for	(int retry = 0;	retry <	NetworkDAO.maxRetries;	++retry)	{
+			try	{
+				Long total = doc.field(NdexClasses.Network_P_cleanupCount);
+				doc.fields(NdexClasses.Network_P_cleanupField, fieldIdx,
+						NdexClasses.Network_P_cleanupOffset, offset,
+						NdexClasses.Network_P_cleanupCount, (total == null ? 0 : total.longValue()) + deletedInRound).save();
+				break;
+			} catch(ONeedRetryException	e)	{
+				logger.warning("Retry: "+ e.getMessage());
+				doc.reload();
+				if ( fieldIdx > 0 ) 
+					doc.removeField("out_" + NetworkDAO.networkElementType[fieldIdx-1]);
+			}
+		}
+		return doc;
+	}
+	
+	private static List<ORID> nextRIDs(Iterator<OIdentifiable> it, int limit) {
+		List<ORID> result = new ArrayList<>();
+		while ( result.size() < limit && it.hasNext()) 
+			result.add(it.next().getIdentity().copy());
+		return result;
+	}
+	
+	/**
+	 * Delete the vertices and their property vertices with the workers and wait until they are done. 
+	 * @return the number of vertices deleted.
+	 */
+	private int deleteVertices(final List<ORID> rids) throws NdexException {
+		final AtomicInteger next = new AtomicInteger(0);
+		final ConnectionPoolGate.Lane lane = NdexDatabase.getConnectionLane();
+		
+		List<Future<Integer>> futures = new ArrayList<>(workerCount);
+		for ( int i = 0 ; i < Math.min(workerCount, (rids.size() + workerBatchSize - 1) / workerBatchSize); i++) {
+			futures.add(executor.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					NdexDatabase.setConnectionLane(lane);
+					ODatabaseDocumentTx conn = database.getAConnection();
+					int counter = 0;
+					try {
+						int start;
+						while ( (start = next.getAndAdd(workerBatchSize)) < rids.size()) 
+							counter += deleteBatch(conn, rids.subList(start, Math.min(start + workerBatchSize, rids.size())));
+					} finally {
+						conn.close();
+					}
+					return counter;
+				}
+			}));
+		}
+		
+		int counter = 0;
+		for ( Future<Integer> f : futures) {
+			try {
+				counter += f.get().intValue();
+			} catch (InterruptedException e) {
+				throw new NdexException("Interrupted while cleaning up network.");
+			} catch (ExecutionException e) {
+				// stop the other workers before reporting the error.
+				next.set(rids.size());
+				if ( e.getCause() instanceof NdexException) 
+					throw (NdexException) e.getCause();
+				throw new NdexException("Failed to cleanup network: " + e.getCause().getMessage());
+			}
+		}
+		
+		// the documents deleted by the workers might still be in the local cache of this connection.
+		db.getLocalCache().invalidate();
+		return counter;
+	}
+
+	private int deleteBatch(ODatabaseDocumentTx conn, List<ORID> rids) throws NdexException {
+		for	(int retry = 0;	retry <	NetworkDAO.maxRetries;	++retry)	{
+			try	{
+				conn.begin();
+				int counter = 0;
+				for ( ORID rid : rids) 
+					counter += deleteElement(conn, rid);
+				conn.commit();
+				return counter;
+			} catch(ONeedRetryException	e)	{
+				logger.warning("Retry: "+ e.getMessage());
+				conn.rollback();
+				conn.getLocalCache().invalidate();
+			}
+		}
+		throw new NdexException("Failed to delete a batch of network elements after " + NetworkDAO.maxRetries + " retries.");
+	}
+	
+	/**
+	 * Delete a network element and its property vertices.
+	 * @return the number of vertices being deleted. 
+	 */
+	private int deleteElement(ODatabaseDocumentTx conn, ORID rid) {
+		ODocument doc = conn.load(rid);
+		if ( doc == null) 
+			return 0;     // deleted by an earlier run that was interrupted. 
+		
+		int counter = 0;
+		if (!doc.getClassName().equals(NdexClasses.NdexProperty) && 
+				!doc.getClassName().equals(NdexClasses.SimpleProperty)) { // not NdexProperty or SimpleProperty Vertex
+			for ( String fieldName : new String[] {NdexClasses.E_ndexProperties, NdexClasses.E_ndexPresentationProps}) {
+				for ( ORID propRID : Helper.getRIDs(doc.field("out_" + fieldName), 0, Integer.MAX_VALUE)) 
+					counter += deleteElement(conn, propRID);
+			}
+		}
+		
+		if ( rateLimiter != null) 
+			rateLimiter.acquire();
+		conn.delete(doc);
+		return counter + 1;
+	}
+	
+	@Override
+	public void close() {
+		executor.shutdownNow();
+		db.close();
+	}
+}
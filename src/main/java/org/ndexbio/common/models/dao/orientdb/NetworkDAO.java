@@ -81,9 +81,9 @@ public class NetworkDAO extends NetworkDocDAO {
 		
 	private OrientGraph graph;	
 	
-	private static final int CLEANUP_BATCH_SIZE = 50000;
+	public static final int CLEANUP_BATCH_SIZE = 50000;
 	
-    private static final String[] networkElementType = {NdexClasses.Network_E_BaseTerms, NdexClasses.Network_E_Nodes, NdexClasses.Network_E_Citations,
+    static final String[] networkElementType = {NdexClasses.Network_E_BaseTerms, NdexClasses.Network_E_Nodes, NdexClasses.Network_E_Citations,
     		NdexClasses.Network_E_Edges, NdexClasses.Network_E_FunctionTerms, NdexClasses.Network_E_Namespace,
     		NdexClasses.Network_E_ReifiedEdgeTerms, NdexClasses.Network_E_Supports,
     		NdexClasses.E_ndexPresentationProps, NdexClasses.E_ndexProperties
@@ -114,6 +114,7 @@ public class NetworkDAO extends NetworkDocDAO {
 	 *     citations, and namespaces referenced by the edges. 
 	 *     The query selects a number of edges specified by the 'blockSize' parameter, 
 	 *     starting at an offset specified by the 'skipBlocks' parameter. 
+	 *     Use {@link #getNetwork(UUID, String, int)} to page through a whole network. 
 	 * @param networkID
 	 * @param skipBlocks
 	 * @param blockSize
@@ -125,46 +126,91 @@ public class NetworkDAO extends NetworkDocDAO {
 		
 	    if (nDoc == null) return null;
 
+	    List<ORID> edgeRIDs = Helper.getRIDs(nDoc.rawField("out_"+ NdexClasses.Network_E_Edges),
+	    		skipBlocks * blockSize, blockSize);
 	    
-	    int startPosition = skipBlocks * blockSize;
-	    int counter = 0;
-	    int endPosition = skipBlocks * blockSize + blockSize;
+	    return getNetworkFromEdges(nDoc, edgeRIDs, blockSize);
+	}
+	
+	/**
+	 * Returns the next page of a network by edges. Pages are in edge record id order and the cursor holds the 
+	 *    last edge of the previous page, so the page is read by searching the out_networkEdges ridbag for the 
+	 *    edges after it. The cost of a page depends on blockSize, not on how deep the page is. Each page is a 
+	 *    'self-sufficient' subnetwork like the ones returned by {@link #getNetwork(UUID, int, int)}.
+	 * @param networkID
+	 * @param cursor the continuation token returned with the previous page, or null to get the first page.
+	 * @param blockSize maximum number of edges in the page.
+	 * @return the page, or null if the network is not found.
+	 * @throws NdexException if the cursor is invalid, or the last edge of the previous page has been deleted.
+	 */
+	public NetworkPage<Network> getNetwork (UUID networkID, String cursor, int blockSize) throws NdexException {
+		Preconditions.checkArgument(blockSize > 0, "Block size must be a positive number.");
+		
+		ODocument nDoc = getNetworkDocByUUID(networkID);
+		
+	    if (nDoc == null) return null;
 
+	    List<ORID> edgeRIDs = getEdgePage(nDoc, cursor, blockSize);
+	    String nextCursor = nextEdgeCursor(edgeRIDs, blockSize);
+	    
+	    return new NetworkPage<>(getNetworkFromEdges(nDoc, edgeRIDs, blockSize), nextCursor);
+	}
+	
+	private Network getNetworkFromEdges(ODocument nDoc, List<ORID> edgeRIDs, int blockSize) throws NdexException {
 	    Network network = new Network(blockSize);  //result holder
 
         NetworkDAO.setNetworkSummary(nDoc, network);
 
-         for (OIdentifiable nodeDoc : new OTraverse()
-      	              	.field("out_"+ NdexClasses.Network_E_Edges )
-      	              	.target(nDoc)
-                      	.predicate( new OSQLPredicate("$depth <= 1"))) {
-  
-
-            ODocument doc = (ODocument) nodeDoc;
-         
-            if ( doc.getClassName().equals(NdexClasses.Edge) ) {
-
-            	if ( counter >= endPosition) break;
-
-                counter ++;
-            	
-            	if ( counter >= startPosition )  {
-              	   Edge e = getEdgeFromDocument(doc,network);
-              	   network.getEdges().put(e.getId(), e);
-            	               
-                }
-            }
-            
+        for ( ORID rid : edgeRIDs) {
+        	ODocument doc = db.load(rid);
+        	if ( doc != null && doc.getClassName().equals(NdexClasses.Edge) ) {
+        		Edge e = getEdgeFromDocument(doc,network);
+        		network.getEdges().put(e.getId(), e);
+        	}
         }
         
         network.setEdgeCount(network.getEdges().size());
         network.setNodeCount(network.getNodes().size());
         
-		 return network; 
+		return network; 
 	}
 	
-
+	/**
+	 * Returns the record ids of the edges in the page that the cursor points to. One more edge than blockSize 
+	 *    is returned when there are edges after the page. The records are not loaded. 
+	 */
+	private List<ORID> getEdgePage(ODocument nDoc, String cursor, int blockSize) throws NdexException {
+		Object edges = nDoc.rawField("out_"+ NdexClasses.Network_E_Edges);
+		
+		if ( cursor == null) 
+			return Helper.getRIDsAfter(edges, null, blockSize+1);
+		
+		EdgeCursor c = EdgeCursor.decode(cursor);
+		
+		// the page starts after the last edge of the previous page, which has to be the same edge still.
+		ODocument lastEdge = db.load(c.getLastEdge());
+		if ( lastEdge == null || !NdexClasses.Edge.equals(lastEdge.getClassName()) ||
+			 !Long.valueOf(c.getLastEdgeId()).equals(lastEdge.field(NdexClasses.Element_ID)))
+			throw new NdexException("Network page cursor is no longer valid. Edges of network " + 
+					nDoc.field(NdexClasses.Network_P_UUID) + " have been modified.");
+		
+		return Helper.getRIDsAfter(edges, c.getLastEdge(), blockSize+1);
+	}
 	
+	/**
+	 * Returns the cursor of the page after the edges returned by getEdgePage, or null if they are the last edges of 
+	 *    the network. The extra edge is removed from the list. 
+	 */
+	private String nextEdgeCursor(List<ORID> edgeRIDs, int blockSize) {
+		if ( edgeRIDs.size() <= blockSize) 
+			return null;
+		
+		edgeRIDs.remove(blockSize);
+		ORID last = edgeRIDs.get(blockSize-1);
+		ODocument lastEdge = db.load(last);
+		return new EdgeCursor(last, (Long)lastEdge.field(NdexClasses.Element_ID)).encode();
+	}
+
 	public int deleteNetwork (String UUID) throws ObjectNotFoundException, NdexException {
 		int counter = 0, cnt = 0;
 		
@@ -359,47 +405,75 @@ public class NetworkDAO extends NetworkDocDAO {
 		
 	    if (nDoc == null) return null;
 	    
-	    PropertyGraphNetwork network = new PropertyGraphNetwork();
+	    List<ORID> edgeRIDs = Helper.getRIDs(nDoc.rawField("out_"+ NdexClasses.Network_E_Edges),
+	    		skipBlocks * blockSize, blockSize);
 	    
-		populatePropetyGraphNetworkFromDoc(network, nDoc);
+   	    return getPropertyGraphNetworkFromEdges(nDoc, edgeRIDs); 
+	}
+
+	/**
+	 * Property graph version of {@link #getNetwork(UUID, String, int)}.
+	 * @param networkID
+	 * @param cursor the continuation token returned with the previous page, or null to get the first page.
+	 * @param blockSize maximum number of edges in the page.
+	 * @return the page, or null if the network is not found.
+	 * @throws NdexException if the cursor is invalid, or the last edge of the previous page has been deleted.
+	 */
+	public NetworkPage<PropertyGraphNetwork> getProperytGraphNetworkById (UUID networkID, String cursor, int blockSize) throws NdexException {
+		Preconditions.checkArgument(blockSize > 0, "Block size must be a positive number.");
+
+		ODocument nDoc = getNetworkDocByUUID(networkID);
+		
+	    if (nDoc == null) return null;
+
+	    List<ORID> edgeRIDs = getEdgePage(nDoc, cursor, blockSize);
+	    String nextCursor = nextEdgeCursor(edgeRIDs, blockSize);
 	    
-	    int startPosition = skipBlocks * blockSize;
-	    int counter = 0;
-	    int endPosition = skipBlocks * blockSize + blockSize;
+	    return new NetworkPage<>(getPropertyGraphNetworkFromEdges(nDoc, edgeRIDs), nextCursor);
+	}
+	
+	private PropertyGraphNetwork getPropertyGraphNetworkFromEdges(ODocument nDoc, List<ORID> edgeRIDs) throws NdexException {
+	    PropertyGraphNetwork network = new PropertyGraphNetwork();
 	    
+		populatePropetyGraphNetworkFromDoc(network, nDoc);
         
         TreeMap <ORID, String> termStringMap = new TreeMap<> ();
 
-        for (OIdentifiable nodeDoc : new OTraverse()
-      	              	.field("out_"+ NdexClasses.Network_E_Edges )
-      	              	.target(nDoc)
-                      	.predicate( new OSQLPredicate("$depth <= 1"))) {
-  
-
-            ODocument doc = (ODocument) nodeDoc;
-         
-            if ( doc.getClassName().equals(NdexClasses.Edge) ) {
-
-            	if ( counter >= endPosition) break;
-
-                counter ++;
-            	
-            	if ( counter >= startPosition )  {
-            	  fetchPropertyGraphEdgeToNetwork(doc,network, termStringMap);
-                }
-            } 	
+        for ( ORID rid : edgeRIDs) {
+        	ODocument doc = db.load(rid);
+        	if ( doc != null && doc.getClassName().equals(NdexClasses.Edge) ) 
+        		fetchPropertyGraphEdgeToNetwork(doc,network, termStringMap);
         }
+        
    	    return network; 
 	}
-
-    
     
+	/**
+	 * Read a complete network as a property graph. Read-only networks are served from the NetworkObjectCache 
+	 * when they are in it, the returned object must not be modified in that case.
+	 */
 	public PropertyGraphNetwork getProperytGraphNetworkById(UUID id) throws NdexException {
 		
 		ODocument networkDoc = getNetworkDocByUUID(id);
 		
 		if (networkDoc == null) return null;
 
+		long commitId = getReadOnlyCommitId(networkDoc);
+		if ( commitId < 0)
+			return readPropertyGraphNetwork(networkDoc);
+		
+		NetworkAccessLog.getInstance().recordAccess(id);
+		NetworkObjectCache cache = NetworkObjectCache.getInstance();
+		PropertyGraphNetwork network = cache.getPropertyGraphNetwork(id, commitId);
+		if ( network == null) {
+			network = readPropertyGraphNetwork(networkDoc);
+			cache.putPropertyGraphNetwork(id, commitId, network);
+		}
+		return network;
+	}
+	
+	private PropertyGraphNetwork readPropertyGraphNetwork(ODocument networkDoc) throws NdexException {
+
 		PropertyGraphNetwork network = new PropertyGraphNetwork();
 
 		NetworkDAO.populatePropetyGraphNetworkFromDoc(network, networkDoc);
@@ -750,7 +824,7 @@ public class NetworkDAO extends NetworkDocDAO {
     }
 
  
-    private static NetworkSummary setNetworkSummary(ODocument doc, NetworkSummary nSummary) {
+    static NetworkSummary setNetworkSummary(ODocument doc, NetworkSummary nSummary) {
     	
 		Helper.populateExternalObjectFromDoc (nSummary, doc);
 
@@ -31,6 +31,7 @@
 package org.ndexbio.common.models.dao.orientdb;
 
 import java.io.IOException;
+import java.util.UUID;
 
 import org.ndexbio.common.NdexClasses;
 import org.ndexbio.common.access.NdexDatabase;
@@ -91,6 +92,7 @@ public class NetworkDAOTx extends OrientdbDAO {
 			networkDoc.fields(NdexClasses.Network_P_readOnlyCommitId, Long.valueOf(-1),
 					          NdexClasses.Network_P_cacheId, Long.valueOf(-1)).save();
 			db.commit();
+			NetworkObjectCache.getInstance().invalidate(UUID.fromString(UUIDstr), commitId.longValue());
 			Task deleteCache = new Task();
 			deleteCache.setTaskType(TaskType.DELETE_NETWORK_CACHE);
 			deleteCache.setResource(UUIDstr); 
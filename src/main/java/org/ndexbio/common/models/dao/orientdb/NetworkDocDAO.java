@@ -33,13 +33,19 @@ package org.ndexbio.common.models.dao.orientdb;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Logger;
 
 import org.ndexbio.common.NdexClasses;
 import org.ndexbio.common.NetworkSourceFormat;
 import org.ndexbio.common.access.NdexDatabase;
+import org.ndexbio.common.persistence.orientdb.NetworkElementHandler;
 import org.ndexbio.model.exceptions.NdexException;
 import org.ndexbio.model.exceptions.ObjectNotFoundException;
 import org.ndexbio.model.object.NdexPropertyValuePair;
@@ -65,6 +71,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.orientechnologies.orient.core.command.traverse.OTraverse;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.index.OIndexCursor;
+import com.orientechnologies.orient.core.index.OIndexManagerProxy;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.filter.OSQLPredicate;
 import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
@@ -73,6 +81,13 @@ public class NetworkDocDAO extends OrientdbDAO {
 
 	private static Logger logger = Logger.getLogger(NetworkDocDAO.class.getName());
 	
+	// element id indexes of all network element classes, most frequently looked up classes first.
+	private static final String[] elementIdIndexes = {
+		NdexClasses.Index_node_id, NdexClasses.Index_edge_id, NdexClasses.Index_BTerm_id,
+		NdexClasses.Index_citation_id, NdexClasses.Index_function_id, NdexClasses.Index_namespace_id,
+		NdexClasses.Index_reifiedEdge_id, NdexClasses.Index_support_id
+	};
+	
 	
 	public NetworkDocDAO (ODatabaseDocumentTx db) {
 	    super(db);
@@ -583,49 +598,84 @@ public class NetworkDocDAO extends OrientdbDAO {
 
 
 	private static BaseTerm getBaseTerm(ODocument o, Network network) {
-		BaseTerm t = new BaseTerm();
-		t.setId((long)o.field(NdexClasses.Element_ID));
-		t.setName((String)o.field(NdexClasses.BTerm_P_name));
+		BaseTerm t = TermInterner.getBaseTerm(o);
+		if ( t == null) {
+			t = new BaseTerm();
+			t.setId((long)o.field(NdexClasses.Element_ID));
+			t.setName((String)o.field(NdexClasses.BTerm_P_name));
 		
-		ODocument nsDoc = o.field("out_"+NdexClasses.BTerm_E_Namespace);
-		if ( nsDoc != null) {
-			Long nsId = nsDoc.field(NdexClasses.Element_ID);
-			t.setNamespaceId(nsId);
-			
-			if ( network != null &&
-				 ! network.getNamespaces().containsKey(nsId)) {
-				Namespace ns = getNamespace(nsDoc,network);
-				network.getNamespaces().put(nsId, ns);
-			}
-		} else
-			t.setNamespaceId(-1);
+			ODocument nsDoc = o.field("out_"+NdexClasses.BTerm_E_Namespace);
+			if ( nsDoc != null) 
+				t.setNamespaceId((long)nsDoc.field(NdexClasses.Element_ID));
+			else
+				t.setNamespaceId(-1);
+			TermInterner.putBaseTerm(o, t);
+		}
+		
+		if ( network != null && t.getNamespaceId() != -1 &&
+			 ! network.getNamespaces().containsKey(t.getNamespaceId())) {
+			ODocument nsDoc = o.field("out_"+NdexClasses.BTerm_E_Namespace);
+			Namespace ns = getNamespace(nsDoc,network);
+			network.getNamespaces().put(t.getNamespaceId(), ns);
+		}
 		
 		return t;
 	}
 	
-	//TODO: make a better implementation for this function.
+	/**
+	 * Find the document of a network element by its element id. Element ids are unique across all 
+	 * element classes, so the element id indexes are probed directly (no SQL parsing) in the order of 
+	 * how often each class is looked up.
+	 * @param elementID
+	 * @return
+	 * @throws NdexException if the element id is not found in any element class.
+	 */
 	public ODocument getDocumentByElementId(long elementID) throws NdexException {
-		ODocument result = getDocumentByElementId(NdexClasses.Node, elementID);
-		if ( result != null) return result;
+		OIndexManagerProxy indexManager = db.getMetadata().getIndexManager();
+		for ( String indexName : elementIdIndexes) {
+			Object r = indexManager.getIndex(indexName).get(elementID);
+			if ( r instanceof Collection<?>) {   // NOTUNIQUE indexes return a set of records.
+				Collection<?> rids = (Collection<?>) r;
+				r = rids.isEmpty() ? null : rids.iterator().next();
+			}
+			if ( r != null) 
+				return ((OIdentifiable)r).getRecord();
+		}
 		
-		result = getDocumentByElementId(NdexClasses.Edge, elementID);
-		if ( result != null) return result;
+		throw new NdexException ("ElementId " + elementID + " was not found in database.");
+	}
+
+	/**
+	 * Batch version of getDocumentByElementId. Each element id index is probed once with all the 
+	 * ids that have not been resolved yet, so resolving thousands of ids costs at most one index 
+	 * scan per element class.
+	 * @param elementIDs
+	 * @return a map from element id to its document.
+	 * @throws NdexException if any of the element ids is not found in the database.
+	 */
+	public Map<Long, ODocument> getDocumentsByElementIds(long[] elementIDs) throws NdexException {
+		Map<Long, ODocument> result = new HashMap<>(elementIDs.length);
+		Set<Long> remaining = new HashSet<>(elementIDs.length);
+		for ( long id : elementIDs) 
+			remaining.add(id);
 		
-		result = getDocumentByElementId(NdexClasses.BaseTerm, elementID);
-		if ( result != null) return result;
-
-		result = getDocumentByElementId(NdexClasses.Citation, elementID);
-		if ( result != null) return result;
-		result = getDocumentByElementId(NdexClasses.FunctionTerm, elementID);
-		if ( result != null) return result;
-		result = getDocumentByElementId(NdexClasses.Namespace, elementID);
-		if ( result != null) return result;
-		result = getDocumentByElementId(NdexClasses.ReifiedEdgeTerm, elementID);
-		if ( result != null) return result;
-		result = getDocumentByElementId(NdexClasses.Support, elementID);
-		if ( result != null) return result;
+		OIndexManagerProxy indexManager = db.getMetadata().getIndexManager();
+		for ( String indexName : elementIdIndexes) {
+			if ( remaining.isEmpty()) break;
+			
+			OIndexCursor cursor = indexManager.getIndex(indexName).iterateEntries(remaining, false);
+			Map.Entry<Object, OIdentifiable> entry;
+			while ( (entry = cursor.nextEntry()) != null) {
+				Long id = (Long)entry.getKey();
+				if ( !result.containsKey(id)) 
+					result.put(id, (ODocument)entry.getValue().getRecord());
+			}
+			remaining.removeAll(result.keySet());
+		}
 		
-		throw new NdexException ("ElementId " + elementID + " was not found in database.");
+		if ( !remaining.isEmpty())
+			throw new NdexException ("ElementId " + remaining.iterator().next() + " was not found in database.");
+		return result;
 	}
 
     /**
@@ -683,7 +733,17 @@ public class NetworkDocDAO extends OrientdbDAO {
 				if ( ! n.getBaseTerms().containsKey(bterm.getId()))
 					n.getBaseTerms().put(bterm.getId(), bterm);
 			}
-			p.setPredicateString(getBaseTermStrForBaseTerm(bterm,n));
+			if ( n != null) {
+				// the qualified name is only computed when the namespace of the term is in the network.
+				ODocument nsDoc = baseTermDoc.field("out_"+NdexClasses.BTerm_E_Namespace);
+				String predicate = TermInterner.getTermString(baseTermDoc, nsDoc);
+				if ( predicate == null) {
+					predicate = getBaseTermStrForBaseTerm(bterm,n);
+					TermInterner.putTermString(baseTermDoc, nsDoc, predicate);
+				}
+				p.setPredicateString(predicate);
+			} else 
+				p.setPredicateString(getBaseTermStrForBaseTerm(bterm,n));
 			p.setPredicateId(bterm.getId());
 		}
 		
@@ -709,12 +769,17 @@ public class NetworkDocDAO extends OrientdbDAO {
 	}
 
     private static Namespace getNamespace(ODocument ns, Network network) {
-        Namespace rns = new Namespace();
+        Namespace rns = TermInterner.getNamespace(ns);
+        if ( rns != null)
+        	return rns;
+        
+        rns = new Namespace();
         rns.setId((long)ns.field("id"));
         rns.setPrefix((String)ns.field(NdexClasses.ns_P_prefix));
         rns.setUri((String)ns.field(NdexClasses.ns_P_uri));
         
         getPropertiesFromDocument(rns, ns,network);
+        TermInterner.putNamespace(ns, rns);
         return rns;
      } 
      
@@ -750,64 +815,61 @@ public class NetworkDocDAO extends OrientdbDAO {
     	}
     }
     
+	/**
+	 * Read a complete network. The elements are read in bulk by a BulkNetworkReader. Read-only networks are 
+	 * served from the NetworkObjectCache when they are in it, the returned object must not be modified in that case.
+	 * @param id
+	 * @return the network, or null if there is no network with this id.
+	 * @throws NdexException
+	 */
 	public Network getNetworkById(UUID id) throws NdexException {
 		ODocument nDoc = getNetworkDocByUUIDString(id.toString());
 
         if (nDoc==null) return null;
-   
-        Network network = new Network(); 
-
-        setNetworkSummary(nDoc, network);
         
-        for ( Namespace ns : NetworkDAO.getNamespacesFromNetworkDoc(nDoc, network)) {
-        	network.getNamespaces().put(ns.getId(),ns);
-        }
-
-        // get all baseTerms
-        for (OIdentifiable bTermDoc : new OTraverse()
-    			.field("out_"+ NdexClasses.Network_E_BaseTerms )
-    			.target(nDoc)
-    			.predicate( new OSQLPredicate("$depth <= 1"))) {
-
-        	ODocument doc = (ODocument) bTermDoc;
-
-        	if ( doc.getClassName().equals(NdexClasses.BaseTerm) ) {
-        		BaseTerm term = getBaseTerm(doc,network);
-        		network.getBaseTerms().put(term.getId(), term);
-
-        	}
-        }
-
+        long commitId = getReadOnlyCommitId(nDoc);
+        if ( commitId < 0)
+        	return new BulkNetworkReader(db).readNetwork(nDoc);
         
-        for (OIdentifiable nodeDoc : new OTraverse()
-        	.field("out_"+ NdexClasses.Network_E_Nodes )
-        	.target(nDoc)
-        	.predicate( new OSQLPredicate("$depth <= 1"))) {
-
-        	ODocument doc = (ODocument) nodeDoc;
-
-        	if ( doc.getClassName().equals(NdexClasses.Node) ) {
-        		Node node = getNode(doc,network);
-        		network.getNodes().put(node.getId(), node);
- 
-        	}
+        NetworkAccessLog.getInstance().recordAccess(id);
+        NetworkObjectCache cache = NetworkObjectCache.getInstance();
+        Network network = cache.getNetwork(id, commitId);
+        if ( network == null) {
+        	network = new BulkNetworkReader(db).readNetwork(nDoc);
+        	cache.putNetwork(id, commitId, network);
         }
+        return network;
+	}
+	
+	/**
+	 * @return the readOnlyCommitId of a network, or -1 if the network is not read-only.
+	 */
+	static long getReadOnlyCommitId(ODocument networkDoc) {
+		Long commitId = networkDoc.field(NdexClasses.Network_P_readOnlyCommitId);
+		return commitId == null ? -1 : commitId.longValue();
+	}
+	
+	/**
+	 * Pass the elements of a network to a handler as they are read, without holding the whole network in memory. 
+	 * The elements are passed in the order described in NetworkElementHandler, handleNetworkSummary is called last.
+	 * Like getNetworkById, only the citations, supports and terms that nodes or edges refer to are passed.
+	 * @param id
+	 * @param handler
+	 * @return the network summary that was passed to the handler.
+	 * @throws ObjectNotFoundException if there is no network with this id.
+	 * @throws NdexException
+	 * @throws ExecutionException if the handler failed.
+	 */
+	public NetworkSummary readNetworkById(UUID id, NetworkElementHandler handler) 
+			throws ObjectNotFoundException, NdexException, ExecutionException {
+		ODocument nDoc = getNetworkDocByUUIDString(id.toString());
 
-        for (OIdentifiable nodeDoc : new OTraverse()
-      	              	.field("out_"+ NdexClasses.Network_E_Edges )
-      	              	.target(nDoc)
-                      	.predicate( new OSQLPredicate("$depth <= 1"))) {
-
-            ODocument doc = (ODocument) nodeDoc;
-         
-            if ( doc.getClassName().equals(NdexClasses.Edge) ) {
-              	   Edge e = getEdgeFromDocument(doc,network);
-              	   network.getEdges().put(e.getId(), e);
-            	 
-            }
-        }
+        if (nDoc==null) 
+        	throw new ObjectNotFoundException("Network", id.toString());
         
-        return network;
+        NetworkSummary summary = new NetworkSummary();
+        new BulkNetworkReader(db).readNetwork(nDoc, summary, handler);
+        return summary;
 	}
 	
 	
@@ -896,7 +958,40 @@ public class NetworkDocDAO extends OrientdbDAO {
 
 	public NetworkSummary getNetworkSummaryById (String networkUUIDStr) {
 		ODocument doc = getNetworkDocByUUIDString(networkUUIDStr);
-		return getNetworkSummary(doc);
+		return NetworkSummaryCache.getInstance().getNetworkSummary(doc);
+	}
+	
+	/**
+	 * Returns the summaries of a set of networks in one pass over the external id index. Ids that are not found, 
+	 * or that belong to deleted networks or to other kinds of objects, are skipped. 
+	 * @param networkIds
+	 * @return the summaries, in the order of the ids.
+	 */
+	public List<NetworkSummary> getNetworkSummaries(Collection<UUID> networkIds) {
+		List<String> keys = new ArrayList<>(networkIds.size());
+		for ( UUID id : networkIds)
+			keys.add(id.toString());
+		
+		Map<String, ODocument> docs = new HashMap<>(keys.size());
+		OIndexCursor cursor = db.getMetadata().getIndexManager().getIndex(NdexClasses.Index_externalID)
+				.iterateEntries(keys, true);
+		for ( Map.Entry<Object, OIdentifiable> entry = cursor.nextEntry(); entry != null; entry = cursor.nextEntry()) {
+			ODocument doc = entry.getValue().getRecord();
+			if ( doc == null || !doc.getClassName().equals(NdexClasses.Network))
+				continue;
+			Boolean isDeleted = doc.field(NdexClasses.ExternalObj_isDeleted);
+			if ( isDeleted == null || !isDeleted.booleanValue())
+				docs.put(entry.getKey().toString(), doc);
+		}
+		
+		NetworkSummaryCache cache = NetworkSummaryCache.getInstance();
+		List<NetworkSummary> result = new ArrayList<>(docs.size());
+		for ( String key : keys) {
+			ODocument doc = docs.get(key);
+			if ( doc != null)
+				result.add(cache.getNetworkSummary(doc));
+		}
+		return result;
 	}
  
 	
@@ -1023,7 +1118,7 @@ public class NetworkDocDAO extends OrientdbDAO {
     	return term;
     }
     
-    private static NetworkSummary setNetworkSummary(ODocument doc, NetworkSummary nSummary) {
+    static NetworkSummary setNetworkSummary(ODocument doc, NetworkSummary nSummary) {
     	
 		Helper.populateExternalObjectFromDoc (nSummary, doc);
 
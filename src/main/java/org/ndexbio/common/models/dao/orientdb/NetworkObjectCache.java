@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.models.dao.orientdb;
+
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.ndexbio.model.exceptions.NdexException;
+import org.ndexbio.model.object.network.Network;
+import org.ndexbio.model.object.network.PropertyGraphNetwork;
+import org.ndexbio.task.Configuration;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+
+/**
+ * In-memory cache of read-only networks. Networks are keyed by their UUID and readOnlyCommitId, so a network 
+ * that is made read-only again gets a new entry. The cache is bounded by the total number of network elements 
+ * it holds, configured by Network-Cache-Max-Elements.
+ * 
+ * The cached objects are shared between callers and must not be modified.
+ */
+public class NetworkObjectCache {
+
+	private static final Logger logger = Logger.getLogger(NetworkObjectCache.class.getName());
+	
+	private static NetworkObjectCache INSTANCE = null;
+	
+	private final Cache<Key, Object> cache;
+	
+	private NetworkObjectCache(long maxElements) {
+		cache = CacheBuilder.newBuilder()
+				.maximumWeight(maxElements)
+				.weigher(new Weigher<Key,Object>() {
+					@Override
+					public int weigh(Key key, Object value) {
+						return weight(value);
+					}
+				})
+				.recordStats()
+				.build();
+	}
+	
+	public static synchronized NetworkObjectCache getInstance() {
+		if ( INSTANCE == null) {
+			long maxElements;
+			try {
+				maxElements = Configuration.getInstance().getNetworkCacheMaxElements();
+			} catch (NdexException e) {
+				maxElements = 0;
+				logger.warning("Failed to read configuration, network cache is disabled: " + e.getMessage());
+			}
+			INSTANCE = new NetworkObjectCache(maxElements);
+		}
+		return INSTANCE;
+	}
+	
+	public Network getNetwork(UUID networkId, long readOnlyCommitId) {
+		return (Network) cache.getIfPresent(new Key(networkId, readOnlyCommitId, Network.class));
+	}
+	
+	public void putNetwork(UUID networkId, long readOnlyCommitId, Network network) {
+		cache.put(new Key(networkId, readOnlyCommitId, Network.class), network);
+	}
+	
+	public PropertyGraphNetwork getPropertyGraphNetwork(UUID networkId, long readOnlyCommitId) {
+		return (PropertyGraphNetwork) cache.getIfPresent(new Key(networkId, readOnlyCommitId, PropertyGraphNetwork.class));
+	}
+	
+	public void putPropertyGraphNetwork(UUID networkId, long readOnlyCommitId, PropertyGraphNetwork network) {
+		cache.put(new Key(networkId, readOnlyCommitId, PropertyGraphNetwork.class), network);
+	}
+	
+	/**
+	 * Remove all the cached objects of a read-only commit of a network. 
+	 */
+	public void invalidate(UUID networkId, long readOnlyCommitId) {
+		cache.invalidate(new Key(networkId, readOnlyCommitId, Network.class));
+		cache.invalidate(new Key(networkId, readOnlyCommitId, PropertyGraphNetwork.class));
+	}
+	
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+	
+	/**
+	 * @return hit, miss and eviction counts of the cache.
+	 */
+	public CacheStats getStats() {
+		return cache.stats();
+	}
+	
+	public long size() {
+		return cache.size();
+	}
+	
+	private static int weight(Object value) {
+		long w = 1;
+		if ( value instanceof Network) {
+			Network n = (Network) value;
+			w += n.getNamespaces().size() + n.getBaseTerms().size() + n.getFunctionTerms().size() 
+					+ n.getReifiedEdgeTerms().size() + n.getCitations().size() + n.getSupports().size() 
+					+ n.getNodes().size() + n.getEdges().size();
+		} else if ( value instanceof PropertyGraphNetwork) {
+			PropertyGraphNetwork n = (PropertyGraphNetwork) value;
+			w += n.getNodes().size() + n.getEdges().size();
+		}
+		return (int) Math.min(w, Integer.MAX_VALUE);
+	}
+	
+	private static final class Key {
+		private final UUID networkId;
+		private final long commitId;
+		private final Class<?> type;
+		
+		Key(UUID networkId, long commitId, Class<?> type) {
+			this.networkId = networkId;
+			this.commitId = commitId;
+			this.type = type;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if ( !(o instanceof Key)) return false;
+			Key k = (Key) o;
+			return commitId == k.commitId && networkId.equals(k.networkId) && type == k.type;
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(networkId, commitId, type);
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.models.dao.orientdb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import org.ndexbio.common.NdexClasses;
+import org.ndexbio.model.object.NdexPropertyValuePair;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Inverted index from the (name, value) pairs of network properties to the networks that have them. Names and 
+ * values are compared case-insensitively. 
+ * 
+ * The index is built from all the networks on first use. After that NetworkCatalog marks a network as changed 
+ * whenever a save of its document is committed, which happens when a network is uploaded or cloned and when its 
+ * properties are set, and changed networks are indexed again before the next lookup. A lookup that runs before 
+ * the commit indexes the committed properties and the mark made at the commit indexes the network again.
+ */
+public class NetworkPropertyIndex {
+
+	private static final Logger logger = Logger.getLogger(NetworkPropertyIndex.class.getName());
+	
+	private static final NetworkPropertyIndex INSTANCE = new NetworkPropertyIndex();
+	
+	private final Map<String, Set<ORID>> postings = new HashMap<>();
+	
+	// keys of each indexed network, so its postings can be removed when it changes.
+	private final Map<ORID, List<String>> networkKeys = new HashMap<>();
+	
+	private final Set<ORID> changed = Collections.newSetFromMap(new ConcurrentHashMap<ORID, Boolean>());
+	
+	private boolean loaded = false;
+	
+	private NetworkPropertyIndex() {}
+	
+	public static NetworkPropertyIndex getInstance() {
+		return INSTANCE;
+	}
+	
+	/**
+	 * Returns the networks that have a property with the given name and value, including deleted and incomplete ones.
+	 * @param db connection used to index the networks that changed since the last lookup.
+	 */
+	public synchronized Set<ORID> getNetworks(ODatabaseDocumentTx db, String propertyName, String value) {
+		refresh(db);
+		Set<ORID> networks = postings.get(getKey(propertyName, value));
+		return networks == null ? Collections.<ORID>emptySet() : new HashSet<>(networks);
+	}
+	
+	/**
+	 * Mark a network as changed. It is indexed again on the next lookup. Only called once the change is committed.
+	 */
+	void markChanged(ORID networkRID) {
+		changed.add(networkRID.copy());
+	}
+	
+	public synchronized void clear() {
+		loaded = false;
+		postings.clear();
+		networkKeys.clear();
+		changed.clear();
+	}
+	
+	private void refresh(ODatabaseDocumentTx db) {
+		if ( !loaded) {
+			long t = System.currentTimeMillis();
+			changed.clear();
+			for ( ODocument doc : db.browseClass(NdexClasses.Network))
+				index(doc);
+			loaded = true;
+			logger.info("Network property index built for " + networkKeys.size() + " networks in " 
+					+ (System.currentTimeMillis() - t) + " ms.");
+			return;
+		}
+		
+		for ( Iterator<ORID> it = changed.iterator(); it.hasNext(); ) {
+			ORID rid = it.next();
+			it.remove();
+			remove(rid);
+			// the connection may have cached the document before the commit.
+			ODocument doc = db.load(rid, null, true);
+			if ( doc != null)
+				index(doc);
+		}
+	}
+	
+	private void index(ODocument networkDoc) {
+		ORID rid = networkDoc.getIdentity().copy();
+		List<String> keys = new ArrayList<>();
+		for ( ODocument propDoc : Helper.getDocumentLinks(networkDoc, "out_", NdexClasses.E_ndexProperties)) {
+			NdexPropertyValuePair prop = Helper.getNdexPropertyFromDoc(propDoc);
+			if ( prop.getPredicateString() == null || prop.getValue() == null)
+				continue;
+			String key = getKey(prop.getPredicateString(), prop.getValue());
+			Set<ORID> networks = postings.get(key);
+			if ( networks == null) {
+				networks = new HashSet<>();
+				postings.put(key, networks);
+			}
+			if ( networks.add(rid))
+				keys.add(key);
+		}
+		if ( !keys.isEmpty())
+			networkKeys.put(rid, keys);
+	}
+	
+	private void remove(ORID networkRID) {
+		List<String> keys = networkKeys.remove(networkRID);
+		if ( keys == null)
+			return;
+		for ( String key : keys) {
+			Set<ORID> networks = postings.get(key);
+			networks.remove(networkRID);
+			if ( networks.isEmpty())
+				postings.remove(key);
+		}
+	}
+	
+	private static String getKey(String propertyName, String value) {
+		return normalize(propertyName) + '\u0000' + normalize(value);
+	}
+	
+	/**
+	 * The form in which property names and values are compared. Filters on the networks found by this index have 
+	 * to compare with it too, String.equalsIgnoreCase matches pairs like the dotted capital I
+	 * (U+0130) and 'i' that this index doesn't.
+	 */
+	public static String normalize(String s) {
+		return s.toLowerCase(Locale.ROOT);
+	}
+}
@@ -33,13 +33,21 @@ package org.ndexbio.common.models.dao.orientdb;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.LinkedList;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
-import java.util.TreeSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 import org.ndexbio.common.NdexClasses;
-import org.ndexbio.common.models.dao.orientdb.NetworkDAO;
+import org.ndexbio.common.access.ConnectionPoolGate;
+import org.ndexbio.common.access.NdexDatabase;
 import org.ndexbio.model.exceptions.NdexException;
 import org.ndexbio.model.object.network.NetworkSummary;
 import org.ndexbio.model.object.network.VisibilityType;
@@ -49,6 +57,7 @@ import org.ndexbio.model.object.User;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.orientechnologies.orient.core.command.traverse.OTraverse;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
@@ -62,6 +71,15 @@ public class NetworkSearchDAO extends OrientdbDAO{
 	
 	private static final Logger logger = Logger.getLogger(NetworkSearchDAO.class.getName());
 	
+	private static final int phaseCount = 3;
+	
+	// how long a search phase waits for a connection before the search thread runs it instead.
+	private static final long phaseConnectionTimeout = 100;  // in milliseconds
+	
+	private static final ExecutorService searchExecutor = Executors.newFixedThreadPool(
+			2 * Runtime.getRuntime().availableProcessors(),
+			new ThreadFactoryBuilder().setNameFormat("network-search-%d").setDaemon(true).build());
+	
 	/**************************************************************************
 	    * NetworkSearchDAO
 	    * 
@@ -139,80 +157,67 @@ public class NetworkSearchDAO extends OrientdbDAO{
 				  traverser = traverser.predicate( new OSQLPredicate("$depth <= 1"));
 
 			
-			final TreeSet<NetworkSummary> foundNetworks = new TreeSet<>(new NetworkResultComparator());
+			// only (rid, modification time) pairs are ranked; summaries are built for the returned page.
+			TopNetworks foundNetworks = new TopNetworks(offset + top);
 			
 			if ( userORID != null && userORID.equals(nAccount)) {   // same account
 		   		for (OIdentifiable reifiedTRec : traverser) {
 			    	  ODocument networkDoc = (ODocument)reifiedTRec;
-			    	  if ( networkDoc.getClassName().equals(NdexClasses.Network)) {
-						NetworkSummary network =NetworkDAO.getNetworkSummary(networkDoc); 
-						if ( network.getIsComplete() && !network.getIsDeleted())
-							foundNetworks .add(network);
-			    	  }
+			    	  if ( networkDoc.getClassName().equals(NdexClasses.Network) && isListed(networkDoc)) 
+			    		  foundNetworks.offer(networkDoc.getIdentity(), getModificationTime(networkDoc));
 			    }
 			} else {     // different account 
 		    
 				for (OIdentifiable reifiedTRec : traverser) {
 					ODocument networkDoc = (ODocument)reifiedTRec;
-					if ( networkDoc.getClassName().equals(NdexClasses.Network) &&
+					if ( networkDoc.getClassName().equals(NdexClasses.Network) && isListed(networkDoc) &&
 		    			  (  (simpleNetworkQuery.getCanRead() ? 
 		    					  VisibilityType.valueOf((String)networkDoc.field(NdexClasses.Network_P_visibility))== VisibilityType.PUBLIC :
 		    					  VisibilityType.valueOf((String)networkDoc.field(NdexClasses.Network_P_visibility))!= VisibilityType.PRIVATE)
     					   || networkIsReadableByAccount(networkDoc, userORID))) {
-							NetworkSummary network =NetworkDAO.getNetworkSummary(networkDoc); 
-							if ( network.getIsComplete() && !network.getIsDeleted())
-								foundNetworks .add(network);
+						foundNetworks.offer(networkDoc.getIdentity(), getModificationTime(networkDoc));
 					}
 				}
 			}   
 
-			int i = 0; 
-			for( NetworkSummary s: foundNetworks ) {
-				if ( i >= offset) 
-					finalResult.add(s);
-				i++;
-				if( finalResult.size()>=top)
-					break;
+			for ( ORID rid : foundNetworks.getPage(offset)) {
+				ODocument networkDoc = db.load(rid);
+				if ( networkDoc != null)
+					finalResult.add(NetworkSummaryCache.getInstance().getNetworkSummary(networkDoc));
 			}
 			return finalResult;
 		} 
 
-		// doesn't have accountName
-		LinkedList<NetworkSummary> resultHolder = new LinkedList<>(); 
-		
-		for (final ODocument networkDoc : db.browseClass(NdexClasses.Network)) {
-			Boolean isComplete = networkDoc.field(NdexClasses.Network_P_isComplete);
-			Boolean isDeleted = networkDoc.field(NdexClasses.ExternalObj_isDeleted);
-			if ( isComplete !=null && isComplete.booleanValue() && !isDeleted.booleanValue()) {
-				VisibilityType visibility = 
-							  VisibilityType.valueOf((String)networkDoc.field(NdexClasses.Network_P_visibility));
-				if ((simpleNetworkQuery.getCanRead()? 
-						visibility == VisibilityType.PUBLIC: 
-						visibility != VisibilityType.PRIVATE )
-					|| networkIsReadableByAccount(networkDoc, userORID) )	{	
-						resultHolder.addFirst(NetworkDAO.getNetworkSummary(networkDoc));
-				}
+		// doesn't have accountName. The catalog lists networks newest first, so the scan stops at top+offset.
+		NetworkACLCache.AccountNetworks userNetworks = 
+				userORID == null ? null : NetworkACLCache.getInstance().getNetworks(db, userORID);
+		int i = 0;
+		for ( NetworkCatalog.Entry entry : NetworkCatalog.getInstance().getNetworks(db)) {
+			if ( i >= top + offset)
+				break;
+			if ( !entry.isListed())
+				continue;
+			VisibilityType visibility = entry.getVisibility();
+			if ( !(simpleNetworkQuery.getCanRead()? 
+					visibility == VisibilityType.PUBLIC: 
+					visibility != VisibilityType.PRIVATE ) &&
+				 (userNetworks == null || !userNetworks.canRead(entry.getOrdinal())))
+				continue;
+			if ( i >= offset) {
+				ODocument networkDoc = db.load(entry.getRID());
+				if ( networkDoc == null) 
+					continue;
+				finalResult.add(NetworkSummaryCache.getInstance().getNetworkSummary(networkDoc));
 			}
+			i++;
 		} 
-		
-		for( int i = 0 ; i <top+offset && !resultHolder.isEmpty() ; i++ ) {
-			NetworkSummary s = resultHolder.remove();
-			if ( i >= offset) 
-				finalResult.add(s);
-			
-		}
 		return finalResult;
 			
 	}
 
-	private Collection<NetworkSummary> findNetworksV2(SimpleNetworkQuery simpleNetworkQuery, int skipBlocks, int top, ORID userRID) 
-			throws IllegalArgumentException, NdexException {
+	private Collection<NetworkSummary> findNetworksV2(final SimpleNetworkQuery simpleNetworkQuery, int skipBlocks, int top, 
+			final ORID userRID) throws IllegalArgumentException, NdexException {
 		
-		Collection<NetworkSummary> resultList =  new ArrayList<>(top);
-		
-		TreeSet<ORID> resultIDSet = new TreeSet<> ();
-		
-		int counter = 0;
 		int offset = skipBlocks * top;
 		
 		ORID adminUserRID = null;
@@ -226,120 +231,153 @@ public class NetworkSearchDAO extends OrientdbDAO{
 				adminUserRID = user.getIdentity();
 		}
 		
-//	    Permissions p = simpleNetworkQuery.getPermission();
-
-	  try {
-	
-		
-		// search network first.
-		OIndex<?> networkIdx = db.getMetadata().getIndexManager().getIndex(NdexClasses.Index_network_name_desc);
-		
-		String searchStr = simpleNetworkQuery.getSearchString();
-        
-		Collection<OIdentifiable> networkIds =  (Collection<OIdentifiable>) networkIdx.get( searchStr); 
-
-		for ( OIdentifiable dId : networkIds) {
-			ODocument doc = dId.getRecord();
-			Boolean isDeleted = doc.field(NdexClasses.ExternalObj_isDeleted);
-			Boolean isComplete = doc.field(NdexClasses.Network_P_isComplete);
-			if ( isComplete != null && isComplete.booleanValue() &&
-					 (	isDeleted == null || !isDeleted.booleanValue() )) {
-				if (isSearchable(doc, userRID, adminUserRID, simpleNetworkQuery.getCanRead(), 
-						simpleNetworkQuery.getIncludeGroups(), simpleNetworkQuery.getPermission())) {
-					resultIDSet.add(dId.getIdentity());
-					if ( counter >= offset) {
-						NetworkSummary network =NetworkDAO.getNetworkSummary(doc); 
-						if ( network.getIsComplete() && !network.getIsDeleted())
-							resultList .add(network);
+		// matches are ranked by how they are found: network name and description first, then base terms, then 
+		// node names. The base term and node name phases run on other connections while this thread runs the 
+		// network phase, and their matches are merged in phase order. No phase needs more than offset+top matches 
+		// unless its matches overlap with the ones of the phases before it.
+		// A search holds up to 3 gate slots of its lane at the same time: the connection of this DAO and one for 
+		// each of the other phases. A phase that can't get a slot within phaseConnectionTimeout is run by this 
+		// thread on its own connection instead, so a busy lane slows the search down but doesn't block it.
+		final int limit = offset + top;
+		// set when this search returns. Phases that are still running stop at their next candidate. They are not 
+		// interrupted, an interrupt in the middle of an OrientDB read can leave the pooled connection unusable.
+		final AtomicBoolean stopped = new AtomicBoolean(false);
+		final ORID adminRID = adminUserRID;
+		final ConnectionPoolGate.Lane lane = NdexDatabase.getConnectionLane();
+		List<Future<PhaseResult>> futures = new ArrayList<>(phaseCount);
+		futures.add(null);
+		for ( int i = 1; i < phaseCount; i++) {
+			final int phase = i;
+			futures.add(searchExecutor.submit(new Callable<PhaseResult>() {
+				@Override
+				public PhaseResult call() throws Exception {
+					ODatabaseDocumentTx conn;
+					try {
+						conn = NdexDatabase.getInstance().getAConnection(lane, phaseConnectionTimeout);
+					} catch (NdexException e) {
+						return null;     // the search thread runs this phase itself.
+					}
+					try {
+						return findMatches(conn, phase, simpleNetworkQuery, userRID, adminRID, limit, stopped);
+					} finally {
+						conn.close();
 					}
-					counter ++;
-					if ( resultList.size()>= top)
-						return resultList;
 				}
+			}));
+		}
+
+		try {
+			SearchPage page = new SearchPage(offset, top);
+			for ( int i = 0; i < phaseCount; i++) {
+				PhaseResult r = getPhaseResult(futures.get(i), i, simpleNetworkQuery, userRID, adminRID, limit, stopped);
+				addMatches(page, r.matches);
+				if ( !page.isFull() && r.truncated) 
+					addMatches(page, findMatches(db, i, simpleNetworkQuery, userRID, adminRID, Integer.MAX_VALUE, 
+							stopped).matches);
+				if ( page.isFull())
+					break;
+			}
+			return getSummaries(page);
+		} finally {
+			stopped.set(true);
+			for ( Future<PhaseResult> f : futures) {
+				if ( f != null)
+					f.cancel(false);
 			}
 		}
+	}
+	
+	private static void addMatches(SearchPage page, List<ORID> matches) {
+		for ( ORID rid : matches) {
+			page.add(rid);
+			if ( page.isFull())
+				return;
+		}
+	}
+	
+	/**
+	 * Wait for the result of a search phase. A phase that hasn't started yet, or couldn't get a connection, 
+	 * is run in this thread. 
+	 */
+	private PhaseResult getPhaseResult(Future<PhaseResult> future, int phase, SimpleNetworkQuery simpleNetworkQuery, 
+			ORID userRID, ORID adminUserRID, int limit, AtomicBoolean stopped) throws NdexException {
+		PhaseResult r = null;
+		if ( future != null && !future.cancel(false)) {
+			try {
+				r = future.get();
+			} catch (InterruptedException e) {
+				throw new NdexException("Interrupted in network search.");
+			} catch (ExecutionException e) {
+				if ( e.getCause() instanceof NdexException) 
+					throw (NdexException) e.getCause();
+				throw new NdexException("Network search failed: " + e.getCause().getMessage());
+			}
+		}
+		if ( r == null)
+			r = findMatches(db, phase, simpleNetworkQuery, userRID, adminUserRID, limit, stopped);
+		return r;
+	}
+	
+	/**
+	 * Run one phase of a search. 
+	 * @param conn connection of the current thread.
+	 * @param phase 0: network name and description, 1: base term names, 2: node names.
+	 * @param limit maximum number of matches to return.
+	 * @param stopped set when the search doesn't need this phase any more.
+	 * @return the matching networks in the order they are found.
+	 */
+	@SuppressWarnings("unchecked")
+	private static PhaseResult findMatches(ODatabaseDocumentTx conn, int phase, SimpleNetworkQuery simpleNetworkQuery, 
+			ORID userRID, ORID adminUserRID, int limit, AtomicBoolean stopped) throws NdexException {
 		
+		PhaseResult result = new PhaseResult();
+		String searchStr = simpleNetworkQuery.getSearchString();
 		
-		// search baseterms
-		OIndex<?> basetermIdx = db.getMetadata().getIndexManager().getIndex(NdexClasses.Index_BTerm_name);
-		
-		Collection<OIdentifiable> bTermIds =  (Collection<OIdentifiable>) basetermIdx.get( searchStr); 
-
-		
-		  for (OIdentifiable networkRec : new OTraverse()
-		  				.field(	"in_" + NdexClasses.Network_E_BaseTerms)
-						.target(bTermIds)
-						.predicate( new OSQLPredicate("$depth <= 1"))) {
-			   
-			  ORID id = networkRec.getIdentity();
-			  if ( ! resultIDSet.contains(id)) {
-				
-				  ODocument doc = (ODocument) networkRec;
-			    
-				   if ( doc.getClassName().equals(NdexClasses.Network)) {
-					Boolean isComplete = doc.field(NdexClasses.Network_P_isComplete);
-					Boolean isDeleted = doc.field(NdexClasses.ExternalObj_isDeleted);
-		            if ( isComplete !=null && isComplete.booleanValue() && 
-		            	 (	isDeleted == null || !isDeleted.booleanValue() ) && 
-		            	  isSearchable(doc, userRID, adminUserRID,simpleNetworkQuery.getCanRead(), 
-		  						simpleNetworkQuery.getIncludeGroups(), simpleNetworkQuery.getPermission())) {
-							resultIDSet.add(id);
-							if ( counter >= offset) {
-								NetworkSummary network =NetworkDAO.getNetworkSummary(doc); 
-								if ( network.getIsComplete())
-									resultList .add(network);
-							}
-							counter ++;
-							if ( resultList.size()>= top)
-								return resultList;
-					}
-				   }
-			   }
-		  }
-
-		  // search node.name
- 		  OIndex<?> nodeNameIdx = db.getMetadata().getIndexManager().getIndex(NdexClasses.Index_node_name);
+		try {
+			Iterable<? extends OIdentifiable> candidates;
+			if ( phase == 0) {
+				OIndex<?> networkIdx = conn.getMetadata().getIndexManager().getIndex(NdexClasses.Index_network_name_desc);
+				candidates = (Collection<OIdentifiable>) networkIdx.get( searchStr); 
+			} else {
+				OIndex<?> idx = conn.getMetadata().getIndexManager().getIndex(
+						phase == 1 ? NdexClasses.Index_BTerm_name : NdexClasses.Index_node_name);
+				Collection<OIdentifiable> elementIds =  (Collection<OIdentifiable>) idx.get( searchStr); 
+				candidates = new OTraverse()
+						.field(	"in_" + (phase == 1 ? NdexClasses.Network_E_BaseTerms : NdexClasses.Network_E_Nodes))
+						.target(elementIds)
+						.predicate( new OSQLPredicate("$depth <= 1"));
+			}
 			
- 		  Collection<OIdentifiable> nodeIds =  (Collection<OIdentifiable>) nodeNameIdx.get( searchStr); 
-
-		  for (OIdentifiable networkRec : new OTraverse()
-			  				.field(	"in_" + NdexClasses.Network_E_Nodes)
-							.target(nodeIds)
-							.predicate( new OSQLPredicate("$depth <= 1"))) {
-				   
-			  ORID id = networkRec.getIdentity();
-			  if ( ! resultIDSet.contains(id)) {
-					
-			  ODocument doc = (ODocument) networkRec;
-				    
-				   if ( doc.getClassName().equals(NdexClasses.Network)) {
-					    Boolean isComplete = doc.field(NdexClasses.Network_P_isComplete);
-						Boolean isDeleted = doc.field(NdexClasses.ExternalObj_isDeleted);
-			            if( isComplete !=null && isComplete.booleanValue() &&
-			                (isDeleted == null || !isDeleted.booleanValue() ) &&		
-			               (isSearchable(doc, userRID,adminUserRID,simpleNetworkQuery.getCanRead(), 
-									simpleNetworkQuery.getIncludeGroups(), simpleNetworkQuery.getPermission())) ) {
-								resultIDSet.add(id);
-								if ( counter >= offset) {
-									NetworkSummary network =NetworkDAO.getNetworkSummary(doc); 
-									if ( network.getIsComplete())
-										resultList .add(network);
-								}
-								counter ++;
-								if ( resultList.size()>= top)
-									return resultList;
-						}
-				   }
-			   }
+			Set<ORID> found = new HashSet<>();
+			for ( OIdentifiable rec : candidates) {
+				if ( stopped.get())
+					break;
+				ORID id = rec.getIdentity();
+				if ( found.contains(id))
+					continue;
+				ODocument doc = rec.getRecord();
+				if ( doc.getClassName().equals(NdexClasses.Network) && isListed(doc) && 
+					 isSearchable(doc, userRID, adminUserRID, simpleNetworkQuery.getCanRead(), 
+							simpleNetworkQuery.getIncludeGroups(), simpleNetworkQuery.getPermission())) {
+					found.add(id.copy());
+					if ( result.matches.size() >= limit) {
+						result.truncated = true;
+						break;
+					}
+					result.matches.add(id.copy());
+				}
 			}
-  
-		
-		return resultList;
-	  } catch (OIndexException e1) {
-		  throw new NdexException ("Invalid search string. " + e1.getCause().getMessage());
-	  }
+			return result;
+		} catch (OIndexException e1) {
+			throw new NdexException ("Invalid search string. " + e1.getCause().getMessage());
+		}
 	}
 	
+	private static final class PhaseResult {
+		final List<ORID> matches = new ArrayList<>();
+		// true if the phase stopped at its limit.
+		boolean truncated = false;
+	}
 	
 	public static boolean isSearchable(ODocument networkDoc, ORID userRID, ORID adminUserRID, boolean canRead, boolean includeGroups, Permissions permission)
 			throws NdexException {
@@ -361,21 +399,10 @@ public class NetworkSearchDAO extends OrientdbDAO{
 	
 	  public static boolean networkIsReadableByAccount(ODocument networkDoc, 
 				ORID userORID) {
-	
-		  for (OIdentifiable reifiedTRec : new OTraverse()
-					.fields(	"in_" + NdexClasses.account_E_canEdit,
-							"in_" + NdexClasses.account_E_canRead,
-							"in_" + NdexClasses.E_admin,
-							"in_" + NdexClasses.GRP_E_admin, 
-							"in_" + NdexClasses.GRP_E_member)
-					.target(networkDoc)
-					.predicate( new OSQLPredicate("$depth <= 2"))) {
-
-			  if ( reifiedTRec.getIdentity().equals(userORID)) 
-				  return true;
-		  }
-		  return false;
-		  
+		  if ( userORID == null) 
+			  return false;
+		  return NetworkACLCache.getInstance().hasPermission(networkDoc.getDatabase(), userORID, 
+				  networkDoc.getIdentity(), Permissions.READ);
 	   }
 
 
@@ -441,6 +468,57 @@ public class NetworkSearchDAO extends OrientdbDAO{
 	   }
 
 
+	  private List<NetworkSummary> getSummaries(SearchPage page) {
+		  List<NetworkSummary> result = new ArrayList<>(page.getRIDs().size());
+		  for ( ORID rid : page.getRIDs()) {
+			  ODocument networkDoc = db.load(rid);
+			  if ( networkDoc != null)
+				  result.add(NetworkSummaryCache.getInstance().getNetworkSummary(networkDoc));
+		  }
+		  return result;
+	  }
+	  
+	  /**
+	   * Matches of a search in the order they are found. It only keeps the record ids of the requested page.
+	   */
+	  private static final class SearchPage {
+		  private final Set<ORID> found = new HashSet<>();
+		  private final List<ORID> page;
+		  private final int offset;
+		  private final int top;
+		  
+		  SearchPage(int offset, int top) {
+			  this.offset = offset;
+			  this.top = top;
+			  page = new ArrayList<>(top);
+		  }
+		  
+		  void add(ORID rid) {
+			  if ( found.add(rid.copy()) && found.size() > offset) 
+				  page.add(rid.copy());
+		  }
+		  
+		  boolean isFull() {
+			  return page.size() >= top;
+		  }
+		  
+		  List<ORID> getRIDs() {
+			  return page;
+		  }
+	  }
+	  
+	  private static boolean isListed(ODocument networkDoc) {
+		  Boolean isComplete = networkDoc.field(NdexClasses.Network_P_isComplete);
+		  Boolean isDeleted = networkDoc.field(NdexClasses.ExternalObj_isDeleted);
+		  return isComplete != null && isComplete.booleanValue() && 
+				  (isDeleted == null || !isDeleted.booleanValue());
+	  }
+	  
+	  private static long getModificationTime(ODocument networkDoc) {
+		  Date mTime = networkDoc.field(NdexClasses.ExternalObj_mTime);
+		  return mTime == null ? 0 : mTime.getTime();
+	  }
+
 	  public class NetworkResultComparator implements Comparator<NetworkSummary> {
 
 		@Override
@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.models.dao.orientdb;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.ndexbio.common.NdexClasses;
+import org.ndexbio.model.exceptions.NdexException;
+import org.ndexbio.model.object.network.NetworkSummary;
+import org.ndexbio.task.Configuration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * In-memory cache of network summaries, keyed by network UUID. An entry is only used while the modification time 
+ * and the record version of the network document are the ones it was built from, so any update of the network 
+ * replaces it on the next read. Updates that don't touch the modification time, such as setting the read-only 
+ * flag, still change the record version. The cache size is configured by Network-Summary-Cache-Size.
+ * 
+ * Summaries are kept serialized and every read returns a new object, so callers can modify what they get back.
+ */
+public class NetworkSummaryCache {
+
+	private static final Logger logger = Logger.getLogger(NetworkSummaryCache.class.getName());
+	
+	private static NetworkSummaryCache INSTANCE = null;
+	
+	private static final ObjectMapper mapper = new ObjectMapper();
+	
+	private final Cache<UUID, Entry> cache;
+	
+	private NetworkSummaryCache(int maxSize) {
+		cache = CacheBuilder.newBuilder()
+				.maximumSize(maxSize)
+				.recordStats()
+				.build();
+	}
+	
+	public static synchronized NetworkSummaryCache getInstance() {
+		if ( INSTANCE == null) {
+			int maxSize;
+			try {
+				maxSize = Configuration.getInstance().getNetworkSummaryCacheSize();
+			} catch (NdexException e) {
+				maxSize = 0;
+				logger.warning("Failed to read configuration, network summary cache is disabled: " + e.getMessage());
+			}
+			INSTANCE = new NetworkSummaryCache(maxSize);
+		}
+		return INSTANCE;
+	}
+	
+	/**
+	 * Returns the summary of a network document, from the cache when the document hasn't changed since the 
+	 * summary was built. The returned summary is not shared with other callers.
+	 */
+	public NetworkSummary getNetworkSummary(ODocument networkDoc) {
+		String uuidStr = networkDoc.field(NdexClasses.Network_P_UUID);
+		UUID networkId = UUID.fromString(uuidStr);
+		Date mTime = networkDoc.field(NdexClasses.ExternalObj_mTime);
+		int version = networkDoc.getVersion();
+		
+		Entry e = cache.getIfPresent(networkId);
+		if ( e != null && e.isCurrent(mTime, version)) {
+			try {
+				return mapper.readValue(e.summary, NetworkSummary.class);
+			} catch (IOException ex) {
+				logger.warning("Failed to read cached summary of network " + networkId + ", rebuilding it: " + ex.getMessage());
+				cache.invalidate(networkId);
+			}
+		}
+		
+		NetworkSummary summary = NetworkDocDAO.getNetworkSummary(networkDoc);
+		if ( !networkDoc.isDirty()) {
+			try {
+				cache.put(networkId, new Entry(mapper.writeValueAsBytes(summary), mTime, version));
+			} catch (JsonProcessingException ex) {
+				logger.warning("Failed to cache summary of network " + networkId + ": " + ex.getMessage());
+			}
+		}
+		return summary;
+	}
+	
+	public void invalidate(UUID networkId) {
+		cache.invalidate(networkId);
+	}
+	
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+	
+	/**
+	 * @return hit, miss and eviction counts of the cache.
+	 */
+	public CacheStats getStats() {
+		return cache.stats();
+	}
+	
+	public long size() {
+		return cache.size();
+	}
+	
+	private static final class Entry {
+		final byte[] summary;
+		final long mTime;
+		final int version;
+		
+		Entry(byte[] summary, Date mTime, int version) {
+			this.summary = summary;
+			this.mTime = mTime == null ? Long.MIN_VALUE : mTime.getTime();
+			this.version = version;
+		}
+		
+		boolean isCurrent(Date modificationTime, int recordVersion) {
+			return version == recordVersion && 
+					mTime == (modificationTime == null ? Long.MIN_VALUE : modificationTime.getTime());
+		}
+	}
+}
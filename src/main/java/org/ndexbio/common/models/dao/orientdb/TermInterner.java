@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.models.dao.orientdb;
+
+import org.ndexbio.model.object.network.BaseTerm;
+import org.ndexbio.model.object.network.Namespace;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Shares the BaseTerm and Namespace objects decoded from database records between network reads. Entries are 
+ * keyed by the record id and record version, so an updated record is decoded again and the stale entry ages out 
+ * of the bounded caches. Adding a property to a namespace changes its record version. Only records that have been saved are interned, and namespaces with properties are never 
+ * interned because decoding them also adds the property predicates to the network being read.
+ * 
+ * The interned objects are shared between callers and must not be modified.
+ */
+final class TermInterner {
+
+	private static final int maxBaseTerms  = 500000;
+	private static final int maxNamespaces = 10000;
+
+	private static final Cache<RecordKey, BaseTerm>  baseTerms = 
+			CacheBuilder.newBuilder().maximumSize(maxBaseTerms).build();
+	private static final Cache<RecordKey, Namespace> namespaces = 
+			CacheBuilder.newBuilder().maximumSize(maxNamespaces).build();
+	
+	// qualified names of base terms ("prefix:name" or "uri" + name). The key also carries the version of the 
+	// namespace record, since the string changes when the namespace is updated.
+	private static final Cache<RecordKey, String> termStrings = 
+			CacheBuilder.newBuilder().maximumSize(maxBaseTerms).build();
+	
+	private TermInterner() {}
+	
+	static BaseTerm getBaseTerm(ODocument doc) {
+		RecordKey key = RecordKey.of(doc, 0);
+		return key == null ? null : baseTerms.getIfPresent(key);
+	}
+	
+	static void putBaseTerm(ODocument doc, BaseTerm term) {
+		RecordKey key = RecordKey.of(doc, 0);
+		if ( key != null)
+			baseTerms.put(key, term);
+	}
+	
+	static Namespace getNamespace(ODocument doc) {
+		RecordKey key = RecordKey.of(doc, 0);
+		return key == null ? null : namespaces.getIfPresent(key);
+	}
+	
+	static void putNamespace(ODocument doc, Namespace ns) {
+		if ( !ns.getProperties().isEmpty() || !ns.getPresentationProperties().isEmpty())
+			return;
+		RecordKey key = RecordKey.of(doc, 0);
+		if ( key != null)
+			namespaces.put(key, ns);
+	}
+	
+	static String getTermString(ODocument bTermDoc, ODocument nsDoc) {
+		RecordKey key = RecordKey.of(bTermDoc, nsDoc == null ? 0 : nsDoc.getVersion());
+		return key == null ? null : termStrings.getIfPresent(key);
+	}
+	
+	static void putTermString(ODocument bTermDoc, ODocument nsDoc, String termString) {
+		RecordKey key = RecordKey.of(bTermDoc, nsDoc == null ? 0 : nsDoc.getVersion());
+		if ( key != null)
+			termStrings.put(key, termString.intern());
+	}
+	
+	private static final class RecordKey {
+		private final int clusterId;
+		private final long clusterPosition;
+		private final int version;
+		private final int linkedVersion;
+		
+		private RecordKey(int clusterId, long clusterPosition, int version, int linkedVersion) {
+			this.clusterId = clusterId;
+			this.clusterPosition = clusterPosition;
+			this.version = version;
+			this.linkedVersion = linkedVersion;
+		}
+		
+		static RecordKey of(ODocument doc, int linkedVersion) {
+			ORID rid = doc.getIdentity();
+			if ( !rid.isPersistent() || doc.isDirty())
+				return null;
+			return new RecordKey(rid.getClusterId(), rid.getClusterPosition(), doc.getVersion(), linkedVersion);
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if ( !(o instanceof RecordKey))
+				return false;
+			RecordKey k = (RecordKey) o;
+			return clusterId == k.clusterId && clusterPosition == k.clusterPosition && 
+					version == k.version && linkedVersion == k.linkedVersion;
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(clusterId, clusterPosition, version, linkedVersion);
+		}
+	}
+}
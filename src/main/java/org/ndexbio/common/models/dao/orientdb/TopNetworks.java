@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.models.dao.orientdb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.orientechnologies.orient.core.id.ORID;
+
+/**
+ * Keeps the K networks with the largest sort keys offered to it, as (record id, sort key) pairs, so a search can 
+ * rank any number of matches in O(n log K) and only build summaries for the page it returns. Networks with equal 
+ * keys are ranked by record id, newest first.
+ */
+final class TopNetworks {
+
+	private static final Comparator<Candidate> ascending = new Comparator<Candidate>() {
+		@Override
+		public int compare(Candidate o1, Candidate o2) {
+			int c = Long.compare(o1.key, o2.key);
+			return c != 0 ? c : o1.rid.compareTo(o2.rid);
+		}
+	};
+	
+	private final int k;
+	
+	// the smallest of the kept candidates is at the head.
+	private final PriorityQueue<Candidate> heap;
+	
+	TopNetworks(int k) {
+		this.k = k;
+		heap = new PriorityQueue<>(Math.max(1, Math.min(k, 1024)), ascending);
+	}
+	
+	/**
+	 * @return true if the network is among the top K so far.
+	 */
+	boolean offer(ORID rid, long key) {
+		if ( k <= 0)
+			return false;
+		if ( heap.size() < k) {
+			heap.add(new Candidate(rid.copy(), key));
+			return true;
+		}
+		Candidate head = heap.peek();
+		if ( key < head.key || (key == head.key && rid.compareTo(head.rid) <= 0))
+			return false;
+		heap.poll();
+		heap.add(new Candidate(rid.copy(), key));
+		return true;
+	}
+	
+	int size() {
+		return heap.size();
+	}
+	
+	/**
+	 * Returns the record ids of the kept networks ranked from the largest key, skipping the first offset ones.
+	 */
+	List<ORID> getPage(int offset) {
+		List<Candidate> sorted = new ArrayList<>(heap);
+		Collections.sort(sorted, Collections.reverseOrder(ascending));
+		List<ORID> result = new ArrayList<>(Math.max(0, sorted.size() - offset));
+		for ( int i = offset; i < sorted.size(); i++)
+			result.add(sorted.get(i).rid);
+		return result;
+	}
+	
+	private static final class Candidate {
+		final ORID rid;
+		final long key;
+		
+		Candidate(ORID rid, long key) {
+			this.rid = rid;
+			this.key = key;
+		}
+	}
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.persistence.orientdb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+/**
+ * The name fields a bulk load writes when it is finished. Entries are kept in memory until there are more 
+ * than spillThreshold of them, after that they are appended to a temporary file every time a batch is 
+ * committed, so the heap used by a bulk load doesn't grow with the number of nodes and base terms.
+ */
+final class DeferredNameLog {
+	
+	private static final Logger logger = Logger.getLogger(DeferredNameLog.class.getName());
+	
+	/**
+	 * Receives the entries of the log in the order they were added.
+	 */
+	interface Handler {
+		void handle(ORID rid, String field, String name);
+	}
+	
+	private final File spillDirectory;
+	private final int spillThreshold;
+	
+	// record ids of documents that are not committed yet are temporary, they are updated in place on commit.
+	private List<ORID>   rids = new ArrayList<>();
+	private List<String> fields = new ArrayList<>();
+	private List<String> names = new ArrayList<>();
+	
+	private File spillFile;
+	private DataOutputStream out;
+	private int spilledCount = 0;
+	
+	/**
+	 * @param spillDirectory directory for the temporary file, null to keep all the entries in memory.
+	 */
+	DeferredNameLog(File spillDirectory, int spillThreshold) {
+		this.spillDirectory = spillDirectory;
+		this.spillThreshold = spillThreshold;
+	}
+	
+	void add(ORID rid, String field, String name) {
+		rids.add(rid);
+		fields.add(field);
+		names.add(name);
+	}
+	
+	int size() {
+		return spilledCount + rids.size();
+	}
+	
+	/**
+	 * Called after the documents of all the entries have been committed. Moves the entries to disk when there 
+	 * are too many of them.
+	 */
+	void committed() {
+		if ( spillDirectory == null || rids.size() <= spillThreshold) return;
+		
+		try {
+			if ( out == null) {
+				logger.info("Deferred name list has " + rids.size() + " entries, moving it to disk.");
+				if ( !spillDirectory.exists() && !spillDirectory.mkdirs())
+					throw new IOException("Failed to create directory " + spillDirectory.getAbsolutePath());
+				spillFile = File.createTempFile("ndex-names", ".tmp", spillDirectory);
+				spillFile.deleteOnExit();
+				out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile)));
+			}
+			for ( int i = 0 ; i < rids.size(); i++) {
+				ORID rid = rids.get(i);
+				out.writeInt(rid.getClusterId());
+				out.writeLong(rid.getClusterPosition());
+				writeString(fields.get(i));
+				writeString(names.get(i));
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to write deferred names: " + e.getMessage(), e);
+		}
+		spilledCount += rids.size();
+		rids.clear();
+		fields.clear();
+		names.clear();
+	}
+	
+	/**
+	 * Pass all the entries to the handler, the ones on disk first.
+	 */
+	void replay(Handler handler) {
+		if ( out != null) {
+			try {
+				out.close();
+				out = null;
+				try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile)))) {
+					for ( int i = 0 ; i < spilledCount; i++) {
+						ORID rid = new ORecordId(in.readInt(), in.readLong());
+						String field = readString(in);
+						handler.handle(rid, field, readString(in));
+					}
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException("Failed to read deferred names: " + e.getMessage(), e);
+			}
+		}
+		for ( int i = 0 ; i < rids.size(); i++)
+			handler.handle(rids.get(i), fields.get(i), names.get(i));
+	}
+	
+	/**
+	 * Drop the entries and delete the temporary file.
+	 */
+	void close() {
+		rids = null;
+		fields = null;
+		names = null;
+		if ( out != null) {
+			try {
+				out.close();
+			} catch (IOException e) {
+				logger.warning("Failed to close " + spillFile.getAbsolutePath() + ": " + e.getMessage());
+			}
+			out = null;
+		}
+		if ( spillFile != null) {
+			if ( !spillFile.delete())
+				logger.warning("Failed to delete temporary file " + spillFile.getAbsolutePath());
+			spillFile = null;
+		}
+	}
+	
+	// names can be longer than writeUTF allows.
+	private void writeString(String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
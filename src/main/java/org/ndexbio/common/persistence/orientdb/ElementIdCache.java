@@ -0,0 +1,236 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.persistence.orientdb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import org.ndexbio.common.models.dao.orientdb.NetworkDocDAO;
+import org.ndexbio.common.util.LongLongHashMap;
+import org.ndexbio.model.exceptions.NdexException;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Maps element ids to the record ids of their documents. Only the cluster id and cluster position of each record  
+ * are kept, packed in one long, so the cache doesn't pin any record on the heap. The documents are loaded through 
+ * the database connection, which serves them from its local cache when they are still there. Element ids that are 
+ * not in the cache are looked up in the element id indexes.
+ * 
+ * The record ids are kept in two generations of maximumSize/2 entries each. When the young generation is full the 
+ * old one is dropped and the young one takes its place, so at most half of the cache is evicted at a time, and 
+ * entries found in the old generation move back to the young one.
+ * 
+ * Records created in an open transaction only have temporary ids, those documents are held as they are until the 
+ * transaction is committed. At most maxPendingSize of them are held, the oldest ones are dropped and looked up 
+ * again through the indexes when they are needed.
+ */
+public class ElementIdCache {
+
+	// records that still have a temporary id are promoted once there are this many of them.
+	private static final int pendingPromoteThreshold = 10000;
+	
+	private static final int maxPendingSize = 100000;
+	
+	private final ODatabaseDocumentTx db;
+	private final NetworkDocDAO dao;
+	private final int generationSize;
+	
+	private LongLongHashMap youngRids;
+	private LongLongHashMap oldRids;
+	private final Map<Long, ODocument> pending;
+	private long pendingPuts;
+	
+	private long hitCount;
+	private long missCount;
+	
+	public ElementIdCache(ODatabaseDocumentTx db, NetworkDocDAO dao, int maximumSize) {
+		this.db = db;
+		this.dao = dao;
+		this.generationSize = Math.max(1, maximumSize / 2);
+		this.youngRids = new LongLongHashMap(Math.min(generationSize, 1 << 19));
+		this.oldRids = new LongLongHashMap(Math.min(generationSize, 1 << 19));
+		this.pending = new LinkedHashMap<Long, ODocument>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, ODocument> eldest) {
+				return size() > maxPendingSize;
+			}
+		};
+	}
+	
+	/**
+	 * Get the document of an element. 
+	 * @throws ExecutionException wraps the NdexException thrown when the element is not found. 
+	 */
+	public ODocument get(long elementId) throws ExecutionException {
+		ODocument doc = getIfPresent(elementId);
+		if ( doc != null) {
+			hitCount++;
+			return doc;
+		}
+		
+		missCount++;
+		try {
+			doc = dao.getDocumentByElementId(elementId);
+		} catch (NdexException e) {
+			throw new ExecutionException(e);
+		}
+		put(elementId, doc);
+		return doc;
+	}
+	
+	/**
+	 * Get the documents of a group of elements. The elements that are not in the cache are looked up in one batch. 
+	 */
+	public Map<Long, ODocument> getAll(Iterable<Long> elementIds) throws ExecutionException {
+		Map<Long, ODocument> result = new LinkedHashMap<>();
+		List<Long> missing = new ArrayList<>();
+		for ( Long id : elementIds) {
+			ODocument doc = getIfPresent(id);
+			if ( doc != null) {
+				hitCount++;
+				result.put(id, doc);
+			} else
+				missing.add(id);
+		}
+		
+		if ( !missing.isEmpty()) {
+			missCount += missing.size();
+			long[] ids = new long[missing.size()];
+			for ( int i = 0 ; i < ids.length; i++)
+				ids[i] = missing.get(i);
+			try {
+				Map<Long, ODocument> loaded = dao.getDocumentsByElementIds(ids);
+				for ( Map.Entry<Long, ODocument> e : loaded.entrySet())
+					put(e.getKey(), e.getValue());
+				result.putAll(loaded);
+			} catch (NdexException e) {
+				throw new ExecutionException(e);
+			}
+		}
+		return result;
+	}
+	
+	public void put(long elementId, ODocument doc) {
+		ORID rid = doc.getIdentity();
+		if ( rid.isPersistent()) {
+			putRid(elementId, pack(rid));
+			if ( !pending.isEmpty())
+				pending.remove(elementId);
+		} else {
+			pending.put(elementId, doc);
+			if ( ++pendingPuts % pendingPromoteThreshold == 0)
+				promotePending();
+		}
+	}
+	
+	/**
+	 * Move the documents whose transaction was committed from the pending map to the record id map.
+	 */
+	public void promotePending() {
+		Iterator<Map.Entry<Long, ODocument>> it = pending.entrySet().iterator();
+		while ( it.hasNext()) {
+			Map.Entry<Long, ODocument> e = it.next();
+			ORID rid = e.getValue().getIdentity();
+			if ( rid.isPersistent()) {
+				putRid(e.getKey(), pack(rid));
+				it.remove();
+			}
+		}
+	}
+	
+	public long size() {
+		return youngRids.size() + oldRids.size() + pending.size();
+	}
+	
+	public double hitRate() {
+		long total = hitCount + missCount;
+		return total == 0 ? 1.0 : (double) hitCount / total;
+	}
+	
+	/**
+	 * Approximate heap used by this cache in bytes.
+	 */
+	public long weight() {
+		// 16 bytes per slot in the primitive maps, and a rough estimate for each pending document.
+		return ((long) youngRids.capacity() + oldRids.capacity()) * 16 + pending.size() * 512L;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("ElementIdCache{size=%d, pending=%d, hitRate=%.3f, hits=%d, misses=%d, weight=%dKB}", 
+				size(), pending.size(), hitRate(), hitCount, missCount, weight() / 1024);
+	}
+	
+	private ODocument getIfPresent(long elementId) {
+		if ( !pending.isEmpty()) {
+			ODocument doc = pending.get(elementId);
+			if ( doc != null)
+				return doc;
+		}
+		long packed = youngRids.get(elementId);
+		if ( packed == LongLongHashMap.NO_VALUE) {
+			packed = oldRids.get(elementId);
+			if ( packed == LongLongHashMap.NO_VALUE)
+				return null;
+			putRid(elementId, packed);
+		}
+		return db.load(unpack(packed));
+	}
+	
+	private void putRid(long elementId, long packed) {
+		if ( youngRids.size() >= generationSize) {
+			LongLongHashMap dropped = oldRids;
+			dropped.clear();
+			oldRids = youngRids;
+			youngRids = dropped;
+		}
+		youngRids.put(elementId, packed);
+	}
+	
+	// cluster ids are 16 bit, cluster positions are far below 2^48.
+	private static long pack(ORID rid) {
+		return ((long) rid.getClusterId() << 48) | rid.getClusterPosition();
+	}
+	
+	private static ORID unpack(long packed) {
+		return new ORecordId((int) (packed >>> 48), packed & 0xFFFFFFFFFFFFL);
+	}
+}
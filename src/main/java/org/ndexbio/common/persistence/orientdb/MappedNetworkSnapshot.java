@@ -0,0 +1,357 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.persistence.orientdb;
+
+import static org.ndexbio.common.persistence.orientdb.NetworkSnapshotFormat.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.ndexbio.model.exceptions.NdexException;
+import org.ndexbio.task.Configuration;
+
+/**
+ * A network snapshot file mapped into memory. Nodes, edges and terms are accessed through flyweight views that 
+ * read their values from the mapped file when they are asked for, one view object per section instead of one 
+ * object per element. Ranges of the file can be sent to a channel by the operating system, without being copied 
+ * into the heap.
+ * 
+ * A view is positioned on one element at a time, with next() or moveTo(). Views are not thread safe, each thread 
+ * should create its own.
+ */
+public class MappedNetworkSnapshot implements AutoCloseable {
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final NetworkSnapshotReader reader;
+	
+	public MappedNetworkSnapshot(String fileName) throws IOException, NdexException {
+		file = new RandomAccessFile(fileName, "r");
+		try {
+			channel = file.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			reader = new NetworkSnapshotReader(buffer);
+		} catch (IOException | NdexException e) {
+			file.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Open the snapshot of a read-only network from the network cache directory. 
+	 * @param cacheId the cacheId of the network.
+	 */
+	public static MappedNetworkSnapshot openCache(long cacheId) throws IOException, NdexException {
+		return new MappedNetworkSnapshot(Configuration.getInstance().getNdexNetworkCachePath() + 
+				cacheId + FILE_EXTENSION);
+	}
+	
+	/**
+	 * @return a reader over the mapped file, to decode sections into model objects.
+	 */
+	public NetworkSnapshotReader getReader() {
+		return reader;
+	}
+	
+	public EdgeView edges() throws NdexException {
+		return new EdgeView();
+	}
+	
+	public NodeView nodes() throws NdexException {
+		return new NodeView();
+	}
+	
+	public BaseTermView baseTerms() throws NdexException {
+		return new BaseTermView();
+	}
+	
+	public FunctionTermView functionTerms() throws NdexException {
+		return new FunctionTermView();
+	}
+	
+	public ReifiedEdgeTermView reifiedEdgeTerms() throws NdexException {
+		return new ReifiedEdgeTermView();
+	}
+	
+	/**
+	 * Send a range of the snapshot file to a channel.
+	 * @return the number of bytes sent.
+	 */
+	public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+		return transfer(channel, position, count, target);
+	}
+	
+	/**
+	 * Send the whole snapshot file to a channel.
+	 */
+	public long transferTo(WritableByteChannel target) throws IOException {
+		return transfer(channel, 0, channel.size(), target);
+	}
+	
+	/**
+	 * Send one section of the snapshot to a channel, nothing if the section is not in the snapshot.
+	 */
+	public long transferSection(int sectionType, WritableByteChannel target) throws IOException {
+		long offset = reader.getSectionOffset(sectionType);
+		if ( offset < 0) 
+			return 0;
+		return transfer(channel, offset, reader.getSectionLength(sectionType), target);
+	}
+	
+	/**
+	 * Send a whole file to a channel, such as the gzipped JSON file of a cached network. 
+	 */
+	public static long transferFile(String fileName, WritableByteChannel target) throws IOException {
+		try (RandomAccessFile f = new RandomAccessFile(fileName, "r");
+			 FileChannel c = f.getChannel()) {
+			return transfer(c, 0, c.size(), target);
+		}
+	}
+	
+	private static long transfer(FileChannel source, long position, long count, WritableByteChannel target) 
+			throws IOException {
+		long sent = 0;
+		while ( sent < count) {
+			long n = source.transferTo(position + sent, count - sent, target);
+			if ( n <= 0) 
+				break;
+			sent += n;
+		}
+		return sent;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+	
+	/**
+	 * Position of a view on the elements of one section.
+	 */
+	public abstract class ElementView {
+		private final int size;
+		private final LongBuffer ids;
+		protected int index;
+		
+		ElementView(int sectionType) throws NdexException {
+			size = reader.getElementCount(sectionType);
+			ids = size == 0 ? null : longs(sectionType, 0);
+			index = -1;
+		}
+		
+		public int size() {
+			return size;
+		}
+		
+		/**
+		 * Move to the next element. 
+		 * @return false if there are no more elements.
+		 */
+		public boolean next() {
+			if ( index < size) 
+				index++;
+			return index < size;
+		}
+		
+		/**
+		 * Move to the element at position i of the section. 
+		 */
+		public void moveTo(int i) {
+			if ( i < 0 || i >= size) 
+				throw new IndexOutOfBoundsException("Element " + i + " of " + size);
+			index = i;
+		}
+		
+		public long getId() {
+			return ids.get(index);
+		}
+	}
+	
+	public class EdgeView extends ElementView {
+		private LongBuffer subjects;
+		private LongBuffer predicates;
+		private LongBuffer objects;
+		private IdLists citations;
+		private IdLists supports;
+		
+		EdgeView() throws NdexException {
+			super(EDGES);
+			if ( size() > 0) {
+				subjects = longs(EDGES, 1);
+				predicates = longs(EDGES, 2);
+				objects = longs(EDGES, 3);
+				citations = new IdLists(EDGES, 4);
+				supports = new IdLists(EDGES, 6);
+			}
+		}
+		
+		public long getSubjectId() { return subjects.get(index); }
+		
+		/**
+		 * @return the predicate id, -1 if the edge has no predicate.
+		 */
+		public long getPredicateId() { return predicates.get(index); }
+		
+		public long getObjectId() { return objects.get(index); }
+		
+		public int getCitationCount() { return citations.size(index); }
+		
+		public long getCitationId(int i) { return citations.get(index, i); }
+		
+		public int getSupportCount() { return supports.size(index); }
+		
+		public long getSupportId(int i) { return supports.get(index, i); }
+	}
+	
+	public class NodeView extends ElementView {
+		private IntBuffer names;
+		private LongBuffer represents;
+		private IntBuffer termTypes;
+		private IdLists aliases;
+		private IdLists relatedTerms;
+		
+		NodeView() throws NdexException {
+			super(NODES);
+			if ( size() > 0) {
+				names = ints(NODES, 1);
+				represents = longs(NODES, 2);
+				termTypes = ints(NODES, 3);
+				aliases = new IdLists(NODES, 4);
+				relatedTerms = new IdLists(NODES, 6);
+			}
+		}
+		
+		public String getName() throws NdexException { return reader.getString(names.get(index)); }
+		
+		/**
+		 * @return the id of the term the node represents, -1 if it doesn't represent a term.
+		 */
+		public long getRepresents() { return represents.get(index); }
+		
+		public String getRepresentsTermType() throws NdexException { return reader.getString(termTypes.get(index)); }
+		
+		public int getAliasCount() { return aliases.size(index); }
+		
+		public long getAlias(int i) { return aliases.get(index, i); }
+		
+		public int getRelatedTermCount() { return relatedTerms.size(index); }
+		
+		public long getRelatedTerm(int i) { return relatedTerms.get(index, i); }
+	}
+	
+	public class BaseTermView extends ElementView {
+		private IntBuffer names;
+		private LongBuffer namespaceIds;
+		
+		BaseTermView() throws NdexException {
+			super(BASE_TERMS);
+			if ( size() > 0) {
+				names = ints(BASE_TERMS, 1);
+				namespaceIds = longs(BASE_TERMS, 2);
+			}
+		}
+		
+		public String getName() throws NdexException { return reader.getString(names.get(index)); }
+		
+		public long getNamespaceId() { return namespaceIds.get(index); }
+	}
+	
+	public class FunctionTermView extends ElementView {
+		private LongBuffer functionIds;
+		private IdLists parameters;
+		
+		FunctionTermView() throws NdexException {
+			super(FUNCTION_TERMS);
+			if ( size() > 0) {
+				functionIds = longs(FUNCTION_TERMS, 1);
+				parameters = new IdLists(FUNCTION_TERMS, 2);
+			}
+		}
+		
+		public long getFunctionTermId() { return functionIds.get(index); }
+		
+		public int getParameterCount() { return parameters.size(index); }
+		
+		public long getParameterId(int i) { return parameters.get(index, i); }
+	}
+	
+	public class ReifiedEdgeTermView extends ElementView {
+		private LongBuffer edgeIds;
+		
+		ReifiedEdgeTermView() throws NdexException {
+			super(REIFIED_EDGE_TERMS);
+			if ( size() > 0) 
+				edgeIds = longs(REIFIED_EDGE_TERMS, 1);
+		}
+		
+		public long getEdgeId() { return edgeIds.get(index); }
+	}
+	
+	private IntBuffer ints(int sectionType, int column) throws NdexException {
+		return reader.getColumn(sectionType, column).asIntBuffer();
+	}
+	
+	private LongBuffer longs(int sectionType, int column) throws NdexException {
+		return reader.getColumn(sectionType, column).asLongBuffer();
+	}
+	
+	/**
+	 * Random access to the id collections of a section. The start of the ids of each element is computed 
+	 * from the size column when the view is created. 
+	 */
+	private class IdLists {
+		private final int[] starts;
+		private final LongBuffer values;
+		
+		IdLists(int sectionType, int column) throws NdexException {
+			IntBuffer sizes = ints(sectionType, column);
+			starts = new int[sizes.limit() + 1];
+			for ( int i = 0; i < sizes.limit(); i++) 
+				starts[i+1] = starts[i] + sizes.get(i);
+			values = longs(sectionType, column + 1);
+		}
+		
+		int size(int element) {
+			return starts[element+1] - starts[element];
+		}
+		
+		long get(int element, int i) {
+			if ( i < 0 || i >= size(element)) 
+				throw new IndexOutOfBoundsException("Id " + i + " of " + size(element));
+			return values.get(starts[element] + i);
+		}
+	}
+}
@@ -30,6 +30,8 @@
  */
 package org.ndexbio.common.persistence.orientdb;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -38,15 +40,24 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import org.ndexbio.common.NdexClasses;
 import org.ndexbio.common.NetworkSourceFormat;
+import org.ndexbio.common.access.ConnectionPoolGate;
 import org.ndexbio.common.access.NdexDatabase;
 import org.ndexbio.common.models.dao.orientdb.Helper;
+import org.ndexbio.common.models.dao.orientdb.NetworkDocDAO;
 import org.ndexbio.common.models.dao.orientdb.UserDAO;
 import org.ndexbio.common.models.object.network.RawNamespace;
 import org.ndexbio.common.util.NdexUUIDFactory;
@@ -67,17 +78,26 @@ import org.ndexbio.model.object.network.Node;
 import org.ndexbio.model.object.network.ReifiedEdgeTerm;
 import org.ndexbio.model.object.network.Support;
 import org.ndexbio.model.object.network.VisibilityType;
+import org.ndexbio.task.Configuration;
 import org.ndexbio.task.NdexServerQueue;
 
 import com.google.common.base.Preconditions;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
 import com.tinkerpop.blueprints.impls.orient.OrientVertex;
 
 public class NdexNetworkCloneService extends PersistenceService {
 
 	private Network   srcNetwork;
+	
+	// attributes of the source network. When the network is read from srcStream, they are only known at the end.
+	private NetworkSummary srcSummary;
+	private InputStream srcStream;
 
 //	private NetworkSummary networkSummary;
 
@@ -97,6 +117,28 @@ public class NdexNetworkCloneService extends PersistenceService {
     private Map<Long, Long>  supportIdMap;
     private Map<Long, Long>  edgeIdMap;
     
+    // number of threads that write nodes and edges, including the calling thread. Networks are cloned in the 
+    // calling thread only if it is 1.
+    private int workerCount;
+    private CloneSession mainSession;
+    
+    // record ids of the cloned elements, keyed by their new element ids. Only used in parallel clones.
+    private ConcurrentHashMap<Long, ORID> clonedRIDs;
+    
+    // number of elements a worker writes in one transaction.
+    private static final int workerBatchSize = 1000;
+    
+    // how long a worker waits for a connection before it leaves the phase to the other workers, in milliseconds.
+    private static final long workerConnectionTimeout = 1000;
+    
+    // networks with fewer nodes and edges than this are always cloned in the calling thread.
+    private static final int parallelCloneThreshold = 5000;
+    
+    // number of nodes or edges of a streamed network that are collected before they are passed to the workers.
+    private static final int streamChunkSize = 50000;
+    
+    private ExecutorService executor;
+    
     /*
      * Currently, the procces flow of this class is:
      * 
@@ -105,11 +147,34 @@ public class NdexNetworkCloneService extends PersistenceService {
      */
     
 	public NdexNetworkCloneService(NdexDatabase db, final Network sourceNetwork, String ownerAccountName) throws NdexException {
-        super(db);
+		this(db, sourceNetwork, ownerAccountName, getDefaultWorkerCount());
+	}
+	
+	/**
+	 * @param workerCount number of threads that write the nodes and edges of large networks. Each worker uses a 
+	 *        connection from the pool. 
+	 */
+	public NdexNetworkCloneService(NdexDatabase db, final Network sourceNetwork, String ownerAccountName, 
+			int workerCount) throws NdexException {
+		this(db, ownerAccountName, workerCount);
 		
 		Preconditions.checkNotNull(sourceNetwork.getName(),"A network title is required");
 		
 		this.srcNetwork = sourceNetwork;
+		this.srcSummary = sourceNetwork;
+	}
+	
+	/**
+	 * Create a service that reads the source network from a JSON stream, in cloneNetwork(InputStream) or 
+	 * updateNetwork(InputStream). 
+	 */
+	public NdexNetworkCloneService(NdexDatabase db, String ownerAccountName) throws NdexException {
+		this(db, ownerAccountName, getDefaultWorkerCount());
+	}
+	
+	public NdexNetworkCloneService(NdexDatabase db, String ownerAccountName, int workerCount) throws NdexException {
+        super(db);
+		
 		this.network = new NetworkSummary();
 
 		this.ownerAccount = ownerAccountName;
@@ -117,14 +182,26 @@ public class NdexNetworkCloneService extends PersistenceService {
 		this.namespaceIdMap   = new HashMap <>(1000);
 		this.citationIdMap    = new HashMap <> (1000);
 		this.reifiedEdgeTermIdMap = new HashMap<>(1000);
-		this.nodeIdMap      = new HashMap<>(1000);
-		this.edgeIdMap      = new HashMap<> ();
+		this.nodeIdMap      = new ConcurrentHashMap<>(1000);
+		this.edgeIdMap      = new ConcurrentHashMap<> ();
 		this.supportIdMap   = new HashMap<> (1000);
 		this.functionTermIdMap = new HashMap<>(1000);
+		this.workerCount = Math.max(1, workerCount);
+		this.mainSession = new CloneSession();
 		// intialize caches.
 	    logger = Logger.getLogger(NdexPersistenceService.class.getName());
 
 	}
+	
+	private static int getDefaultWorkerCount() {
+		try {
+			return Configuration.getInstance().getCloneWorkerCount();
+		} catch (NdexException e) {
+			Logger.getLogger(NdexNetworkCloneService.class.getName()).warning(
+					"Configuration is not available, network is cloned in one thread: " + e.getMessage());
+			return 1;
+		}
+	}
 
 
 	/**
@@ -139,12 +216,12 @@ public class NdexNetworkCloneService extends PersistenceService {
 			// create new network and set the isComplete flag to false 
 			cloneNetworkCore();
 			
-			this.network.setExternalId(this.srcNetwork.getExternalId());
+			this.network.setExternalId(this.srcSummary.getExternalId());
 			
 			// get the old network head node
-			ODocument srcNetworkDoc = networkDAO.getNetworkDocByUUID(this.srcNetwork.getExternalId());
+			ODocument srcNetworkDoc = networkDAO.getNetworkDocByUUID(this.srcSummary.getExternalId());
 			if (srcNetworkDoc == null)
-				throw new NdexException("Network with UUID " + this.srcNetwork.getExternalId()
+				throw new NdexException("Network with UUID " + this.srcSummary.getExternalId()
 						+ " is not found in this server");
 			
 			// copy the permission from source to target.
@@ -162,7 +239,7 @@ public class NdexNetworkCloneService extends PersistenceService {
 			
 			this.networkDoc.reload();
 			// copy the creationTime and visibility
-			networkDoc.fields(NdexClasses.ExternalObj_ID, this.srcNetwork.getExternalId(),
+			networkDoc.fields(NdexClasses.ExternalObj_ID, this.srcSummary.getExternalId(),
 					NdexClasses.ExternalObj_cTime, srcNetworkDoc.field(NdexClasses.ExternalObj_cTime),
 					NdexClasses.Network_P_visibility, srcNetworkDoc.field(NdexClasses.Network_P_visibility),
 					NdexClasses.Network_P_isLocked,false,
@@ -187,6 +264,15 @@ public class NdexNetworkCloneService extends PersistenceService {
 	}
 	
 	
+	/**
+	 * Replace a network with the network read from a JSON stream. The UUID of the network to replace is 
+	 * the externalId in the stream.
+	 */
+	public NetworkSummary updateNetwork(InputStream in) throws NdexException, ExecutionException {
+		this.srcStream = in;
+		return updateNetwork();
+	}
+	
 	private void copyNetworkPermissions(ODocument srcNetworkDoc, OrientVertex targetNetworkVertex) {
 		
 		copyNetworkPermissionAux(srcNetworkDoc, targetNetworkVertex, NdexClasses.E_admin);
@@ -214,12 +300,24 @@ public class NdexNetworkCloneService extends PersistenceService {
 			cloneSupports();
 			cloneReifiedEdgeTermNodes(); // only clone the vertex itself.
 			cloneFunctionTermVertex();
-            cloneNodes(); 			
-            cloneEdges();
+			
+			if ( workerCount > 1 && 
+					srcNetwork.getNodes().size() + srcNetwork.getEdges().size() >= parallelCloneThreshold) {
+				startParallelClone();
+				try {
+					cloneNodesInParallel(new ArrayList<>(srcNetwork.getNodes().values()));
+					cloneEdgesInParallel(new ArrayList<>(srcNetwork.getEdges().values()));
+				} finally {
+					endParallelClone();
+				}
+			} else {
+				cloneNodes(); 			
+				cloneEdges();
+			}
             
 			// process reifiedEdgeTerm and FunctionTerm
-            createLinksforRefiedEdgeTerm();
-            createLinksFunctionTerm();
+			createLinksforRefiedEdgeTerm();
+			createLinksFunctionTerm();
 		
 			network.setIsLocked(false);
 			network.setIsComplete(true);
@@ -254,22 +352,76 @@ public class NdexNetworkCloneService extends PersistenceService {
 	}
 	
 	
+	/**
+	 * Create a new network from a JSON stream. The nodes and edges are written as they are read, so the network 
+	 * doesn't have to fit in memory.
+	 */
+	public NetworkSummary cloneNetwork(InputStream in) throws NdexException, ExecutionException {
+		this.srcStream = in;
+		return cloneNetwork();
+	}
+	
 	/**
 	 * clone the network without the permission links and isComplete flag.
 	 * @throws NdexException
 	 * @throws ExecutionException
 	 */
 	private void cloneNetworkCore() throws NdexException, ExecutionException {
-			cloneNetworkNode ();
+			if ( srcStream == null && srcNetwork == null)
+				throw new NdexException ("No source network is given to clone.");
+			
+			if ( srcStream != null) {
+				streamNetworkElements();
+			} else {
+				cloneNetworkNode ();
 
-			cloneNetworkElements();
+				cloneNetworkElements();
+			}
 			
 			cloneNetworkProperties();
 			this.localConnection.commit();
 	}
 	
+	/**
+	 * Clone the network from srcStream. The network node is created first, its attributes are set when the 
+	 * whole stream is read.
+	 */
+	private void streamNetworkElements() throws NdexException, ExecutionException {
+		createNetworkNode();
+		
+		StreamingCloneHandler handler = new StreamingCloneHandler();
+		try {
+			new NetworkStreamReader(srcStream, handler).read();
+		} catch (IOException e) {
+			throw new NdexException ("Failed to read network from stream: " + e.getMessage());
+		} finally {
+			handler.close();
+		}
+		
+		Preconditions.checkNotNull(srcSummary.getName(),"A network title is required");
+		setNetworkAttributes(handler.nodeCount, handler.edgeCount);
+		networkDoc.save();
+		
+		network.setIsLocked(false);
+		network.setIsComplete(true);
+		this.localConnection.commit();
+		logger.info("Network " + network.getName() + " with " + handler.nodeCount + " nodes and " + 
+				handler.edgeCount + " edges has been read from stream.");
+	}
+	
 	
 	private void cloneNetworkNode() throws NdexException, ExecutionException  {
+		createNetworkNode();
+		setNetworkAttributes(srcNetwork.getNodes().size(), srcNetwork.getEdges().size());
+		networkDoc = networkDoc.save();
+		
+		logger.info("A new NDex network titled: " +srcNetwork.getName() +" has been created");
+	}
+	
+	/**
+	 * Create the network node with a new UUID. The attributes from the source network are set in setNetworkAttributes.
+	 */
+	private void createNetworkNode() {
 
 		this.network.setExternalId( NdexUUIDFactory.INSTANCE.getNDExUUID());	
 		
@@ -278,9 +430,6 @@ public class NdexNetworkCloneService extends PersistenceService {
 		
 		this.network.setURI(NdexDatabase.getURIPrefix() + "/network/"
 					+ this.network.getExternalId().toString());
-		this.network.setName(srcNetwork.getName());
-		this.network.setEdgeCount(srcNetwork.getEdges().size());
-		this.network.setNodeCount(srcNetwork.getNodes().size());
 
         Timestamp now = new Timestamp(Calendar.getInstance().getTimeInMillis());
 		networkDoc = new ODocument (NdexClasses.Network)
@@ -288,37 +437,42 @@ public class NdexNetworkCloneService extends PersistenceService {
 		          NdexClasses.ExternalObj_cTime, now,
 		          NdexClasses.ExternalObj_mTime, now,
 		          NdexClasses.ExternalObj_isDeleted, false,
-		          NdexClasses.Network_P_name, srcNetwork.getName(),
-		          NdexClasses.Network_P_edgeCount, network.getEdgeCount(),
-		          NdexClasses.Network_P_nodeCount, network.getNodeCount(),
 		          NdexClasses.Network_P_isLocked, false,
 		          NdexClasses.Network_P_isComplete, false,
 		          NdexClasses.Network_P_cacheId, Long.valueOf(-1),
-		          NdexClasses.Network_P_readOnlyCommitId, Long.valueOf(-1),
+		          NdexClasses.Network_P_readOnlyCommitId, Long.valueOf(-1));
+		
+		networkDoc = networkDoc.save();
+		
+		networkVertex = graph.getVertex(networkDoc);
+	}
+	
+	private void setNetworkAttributes(int nodeCount, int edgeCount) {
+		this.network.setName(srcSummary.getName());
+		this.network.setEdgeCount(edgeCount);
+		this.network.setNodeCount(nodeCount);
+
+		networkDoc.fields(NdexClasses.Network_P_name, srcSummary.getName(),
+		          NdexClasses.Network_P_edgeCount, network.getEdgeCount(),
+		          NdexClasses.Network_P_nodeCount, network.getNodeCount(),
 		          NdexClasses.Network_P_visibility, 
-		          ( srcNetwork.getVisibility() == null ? 
+		          ( srcSummary.getVisibility() == null ? 
 		        		  VisibilityType.PRIVATE.toString()  : 
-		        		  srcNetwork.getVisibility().toString()));
+		        		  srcSummary.getVisibility().toString()));
 		
-		if ( srcNetwork.getDescription() != null) {
-			networkDoc.field(NdexClasses.Network_P_desc,srcNetwork.getDescription());
-			network.setDescription(srcNetwork.getDescription());
+		if ( srcSummary.getDescription() != null) {
+			networkDoc.field(NdexClasses.Network_P_desc,srcSummary.getDescription());
+			network.setDescription(srcSummary.getDescription());
 		}
 
-		if ( srcNetwork.getVersion() != null) {
-			networkDoc.field(NdexClasses.Network_P_version,srcNetwork.getVersion());
-			network.setVersion(srcNetwork.getVersion());
+		if ( srcSummary.getVersion() != null) {
+			networkDoc.field(NdexClasses.Network_P_version,srcSummary.getVersion());
+			network.setVersion(srcSummary.getVersion());
 		}
 		
-		NetworkSourceFormat fmt = removeNetworkSourceFormat(srcNetwork);
+		NetworkSourceFormat fmt = removeNetworkSourceFormat(srcSummary);
 		if ( fmt!=null)
 			networkDoc.field(NdexClasses.Network_P_source_format, fmt.toString());
-		
-		networkDoc = networkDoc.save();
-		
-		networkVertex = graph.getVertex(networkDoc);
-		
-		logger.info("A new NDex network titled: " +srcNetwork.getName() +" has been created");
 	}
 
 	
@@ -326,10 +480,10 @@ public class NdexNetworkCloneService extends PersistenceService {
 
 
 		Collection<NdexPropertyValuePair> newProps = 
-				addPropertiesToVertex(networkVertex, srcNetwork.getProperties(), srcNetwork.getPresentationProperties(), true);
+				mainSession.addPropertiesToVertex(networkVertex, srcSummary.getProperties(), srcSummary.getPresentationProperties(), true);
 		
 		this.network.getProperties().addAll(newProps);
-		this.network.getPresentationProperties().addAll(srcNetwork.getPresentationProperties());
+		this.network.getPresentationProperties().addAll(srcSummary.getPresentationProperties());
 
 		
 	}
@@ -339,360 +493,816 @@ public class NdexNetworkCloneService extends PersistenceService {
 		TreeSet<String> prefixSet = new TreeSet<>();
 
 		if ( srcNetwork.getNamespaces() != null) {
-			for ( Namespace ns : srcNetwork.getNamespaces().values() ) {
-				if ( ns.getPrefix() !=null && prefixSet.contains(ns.getPrefix()))
-					throw new NdexException("Duplicated Prefix " + ns.getPrefix() + " found." );
-				Long nsId = getNamespace( new RawNamespace(ns.getPrefix(), ns.getUri())).getId();
-
-				ODocument nsDoc = this.elementIdCache.get(nsId);
-				OrientVertex nsV = graph.getVertex(nsDoc);
-				
-				addPropertiesToVertex(nsV, ns.getProperties(), ns.getPresentationProperties(), false);
-	
-				this.namespaceIdMap.put(ns.getId(), nsId);
-			}
+			for ( Namespace ns : srcNetwork.getNamespaces().values() ) 
+				cloneNamespace(ns, prefixSet);
 		}
 	}
 	
+	private void cloneNamespace(Namespace ns, Set<String> prefixSet) throws NdexException, ExecutionException {
+		if ( ns.getPrefix() !=null && prefixSet.contains(ns.getPrefix()))
+			throw new NdexException("Duplicated Prefix " + ns.getPrefix() + " found." );
+		Long nsId = getNamespace( new RawNamespace(ns.getPrefix(), ns.getUri())).getId();
+
+		ODocument nsDoc = this.elementIdCache.get(nsId);
+		OrientVertex nsV = graph.getVertex(nsDoc);
+		
+		mainSession.addPropertiesToVertex(nsV, ns.getProperties(), ns.getPresentationProperties(), false);
+
+		this.namespaceIdMap.put(ns.getId(), nsId);
+	}
+	
 	private void cloneBaseTerms() throws ExecutionException, NdexException {
 		if ( srcNetwork.getBaseTerms()!= null) {
-			for ( BaseTerm term : srcNetwork.getBaseTerms().values() ) {
-				Long nsId = (long)-1 ;
-				if ( term.getNamespaceId() >0 ) {
-					nsId = namespaceIdMap.get(term.getNamespaceId());
-					if ( nsId == null)  
-						throw new NdexException ("Namespece Id " + term.getNamespaceId() + " is not found in name space list.");
-				}
-				Long baseTermId = createBaseTerm(term.getName(), nsId);
-				this.baseTermIdMap.put(term.getId(), baseTermId);
-			}
+			for ( BaseTerm term : srcNetwork.getBaseTerms().values() ) 
+				cloneBaseTerm(term);
 		}
 	}
+	
+	private void cloneBaseTerm(BaseTerm term) throws ExecutionException, NdexException {
+		Long nsId = (long)-1 ;
+		if ( term.getNamespaceId() >0 ) {
+			nsId = namespaceIdMap.get(term.getNamespaceId());
+			if ( nsId == null)  
+				throw new NdexException ("Namespece Id " + term.getNamespaceId() + " is not found in name space list.");
+		}
+		Long baseTermId = createBaseTerm(term.getName(), nsId);
+		this.baseTermIdMap.put(term.getId(), baseTermId);
+	}
 
 	private void cloneCitations() throws NdexException, ExecutionException {
 		if ( srcNetwork.getCitations()!= null) {
-			for ( Citation citation : srcNetwork.getCitations().values() ) {
-				Long citationId = this.createCitation(citation.getTitle(),
-						citation.getIdType(), citation.getIdentifier(), 
-						citation.getContributors(), citation.getProperties(), citation.getPresentationProperties());
-				
-				this.citationIdMap.put(citation.getId(), citationId);
-			}
+			for ( Citation citation : srcNetwork.getCitations().values() ) 
+				cloneCitation(citation);
 		}
 	}
+	
+	private void cloneCitation(Citation citation) throws NdexException, ExecutionException {
+		Long citationId = this.createCitation(citation.getTitle(),
+				citation.getIdType(), citation.getIdentifier(), 
+				citation.getContributors(), citation.getProperties(), citation.getPresentationProperties());
+		
+		this.citationIdMap.put(citation.getId(), citationId);
+	}
 
 	private void cloneSupports() throws NdexException, ExecutionException {
 		if ( srcNetwork.getSupports()!= null) {
-			for ( Support support : srcNetwork.getSupports().values() ) {
-				Long citationId = -1l;
-				long srcCitationId = support.getCitationId();
-				if ( srcCitationId != -1)
-				    citationId = citationIdMap.get(srcCitationId);
-				if ( citationId == null )
-					throw new NdexException ("Citation Id " + support.getCitationId() + " is not found in citation list.");
-				Long supportId = createSupport(support.getText(),citationId);
-				this.supportIdMap.put(support.getId(), supportId);
-			}
+			for ( Support support : srcNetwork.getSupports().values() ) 
+				cloneSupport(support);
 		}
 	}
+	
+	private void cloneSupport(Support support) throws NdexException, ExecutionException {
+		Long citationId = -1l;
+		long srcCitationId = support.getCitationId();
+		if ( srcCitationId != -1)
+		    citationId = citationIdMap.get(srcCitationId);
+		if ( citationId == null )
+			throw new NdexException ("Citation Id " + support.getCitationId() + " is not found in citation list.");
+		Long supportId = createSupport(support.getText(),citationId);
+		this.supportIdMap.put(support.getId(), supportId);
+	}
 
 	// we only clone the nodes itself. We added the edges in the second rournd
 	private void cloneReifiedEdgeTermNodes() {
 		if ( srcNetwork.getReifiedEdgeTerms()!= null) {
-			for ( ReifiedEdgeTerm reifiedTerm : srcNetwork.getReifiedEdgeTerms().values() ) {
-				Long reifiedEdgeTermId = this.database.getNextId();
-				
-				ODocument eTermdoc = new ODocument (NdexClasses.ReifiedEdgeTerm);
-				eTermdoc = eTermdoc.field(NdexClasses.Element_ID, reifiedEdgeTermId)
-						.save();
-
-				elementIdCache.put(reifiedEdgeTermId, eTermdoc);
-				this.reifiedEdgeTermIdMap.put(reifiedTerm.getId(), reifiedEdgeTermId);
-			}
+			for ( ReifiedEdgeTerm reifiedTerm : srcNetwork.getReifiedEdgeTerms().values() ) 
+				cloneReifiedEdgeTermNode(reifiedTerm);
 		}
 	}
+	
+	private void cloneReifiedEdgeTermNode(ReifiedEdgeTerm reifiedTerm) {
+		Long reifiedEdgeTermId = this.database.getNextId();
+		
+		ODocument eTermdoc = new ODocument (NdexClasses.ReifiedEdgeTerm);
+		eTermdoc = eTermdoc.field(NdexClasses.Element_ID, reifiedEdgeTermId)
+				.save();
+
+		elementIdCache.put(reifiedEdgeTermId, eTermdoc);
+		this.reifiedEdgeTermIdMap.put(reifiedTerm.getId(), reifiedEdgeTermId);
+	}
 
 
 	private void cloneFunctionTermVertex() {
 		if ( srcNetwork.getFunctionTerms()!= null) {
-			for ( FunctionTerm functionTerm : srcNetwork.getFunctionTerms().values() ) {
-				Long newFunctionTermId = this.database.getNextId();
-				
-				ODocument eTermdoc = new ODocument (NdexClasses.FunctionTerm)
-				        .field(NdexClasses.Element_ID, newFunctionTermId)
-						.save();
-
-				elementIdCache.put(newFunctionTermId, eTermdoc);
-				this.functionTermIdMap.put(functionTerm.getId(), newFunctionTermId);
-					
-			}
+			for ( FunctionTerm functionTerm : srcNetwork.getFunctionTerms().values() ) 
+				cloneFunctionTermVertex(functionTerm);
 		}
 	}
+	
+	private void cloneFunctionTermVertex(FunctionTerm functionTerm) {
+		Long newFunctionTermId = this.database.getNextId();
+		
+		ODocument eTermdoc = new ODocument (NdexClasses.FunctionTerm)
+		        .field(NdexClasses.Element_ID, newFunctionTermId)
+				.save();
+
+		elementIdCache.put(newFunctionTermId, eTermdoc);
+		this.functionTermIdMap.put(functionTerm.getId(), newFunctionTermId);
+	}
 
 	private void cloneNodes() throws NdexException, ExecutionException {
 		if ( srcNetwork.getNodes()!= null) {
 			for ( Node node : srcNetwork.getNodes().values() ) {
-				Long newNodeId = createNode(node);
-				this.nodeIdMap.put(node.getId(), newNodeId);
+				ODocument nodeDoc = mainSession.createNode(node);
+				this.nodeIdMap.put(node.getId(), (Long)nodeDoc.field(NdexClasses.Element_ID));
 			}
 		}
 	}
 
-	private Long createNode (Node node) throws NdexException, ExecutionException {
-		Long nodeId = database.getNextId();
+	private void cloneEdges() throws NdexException, ExecutionException {
+		if ( srcNetwork.getEdges() != null) {
+			for ( Edge edge : srcNetwork.getEdges().values()) {
+				ODocument edgeDoc = mainSession.createEdge(edge);
+				edgeIdMap.put(edge.getId(), (Long)edgeDoc.field(NdexClasses.Element_ID));
+			}
+		}
+	}
+	
+	private void createLinksforRefiedEdgeTerm() throws NdexException, ExecutionException {
+		if ( srcNetwork.getReifiedEdgeTerms()!= null) {
+			for ( ReifiedEdgeTerm reifiedTerm : srcNetwork.getReifiedEdgeTerms().values() ) 
+				mainSession.linkReifiedEdgeTerm(reifiedTerm);
+		}
+	}
+
+	private void createLinksFunctionTerm() throws NdexException, ExecutionException {
+		if ( srcNetwork.getFunctionTerms()!= null) {
+			for ( FunctionTerm functionTerm : srcNetwork.getFunctionTerms().values() ) 
+				mainSession.linkFunctionTerm(functionTerm);
+		}
+	}
+	
+	/**
+	 * Start cloning the nodes and edges with a pool of workers. The edge phase has to start after all the 
+	 * nodes are written, because edges link to nodes. 
+	 * 
+	 * Workers write on their own connections, in transactions of workerBatchSize elements. A worker only 
+	 * creates the vertices of its own elements and their properties. The links to vertices that many elements 
+	 * link to (the network, base terms, function terms, reified edge terms, citations, supports and, for 
+	 * edges, nodes) would make batches of different workers update the same vertex, so workers only record 
+	 * them and they are added in this thread in one pass after the phase. The calling thread writes batches 
+	 * too, so a phase finishes even when no other connection is free. 
+	 */
+	private void startParallelClone() throws NdexException, ExecutionException {
+		commit();
 		
-		ODocument nodeDoc = new ODocument(NdexClasses.Node)
-		   .field(NdexClasses.Element_ID, nodeId);
+		clonedRIDs = new ConcurrentHashMap<>();
+		collectRIDs(baseTermIdMap.values());
+		collectRIDs(functionTermIdMap.values());
+		collectRIDs(reifiedEdgeTermIdMap.values());
+		collectRIDs(citationIdMap.values());
+		collectRIDs(supportIdMap.values());
+		// a streamed network can have written a few nodes in this thread before the workers started.
+		collectRIDs(nodeIdMap.values());
 		
-		if ( node.getName()!= null) {
-			nodeDoc = nodeDoc.field(NdexClasses.Node_P_name,node.getName());
-		}
-		nodeDoc= nodeDoc.save();
+		executor = Executors.newFixedThreadPool(workerCount - 1);
+	}
+	
+	private void endParallelClone() {
+		executor.shutdownNow();
+		executor = null;
+	}
+	
+	private void cloneNodesInParallel(List<Node> nodes) throws NdexException, ExecutionException {
+		List<Long> newTermIds = new ArrayList<>();
+		for ( Node node : nodes) 
+			resolvePropertyPredicates(node.getProperties(), newTermIds);
+		collectRIDs(newTermIds);
 		
-		OrientVertex nodeV = graph.getVertex(nodeDoc);
+		logger.info("Cloning " + nodes.size() + " nodes with " + workerCount + " workers.");
+		runPhase(nodes, 
+			new ElementWriter<Node>() {
+				@Override
+				public ODocument write(CloneSession session, Node node) throws NdexException, ExecutionException {
+					return session.createNode(node);
+				}
+				@Override
+				public void committed(Node node, ODocument nodeDoc) {
+					Long nodeId = nodeDoc.field(NdexClasses.Element_ID);
+					clonedRIDs.put(nodeId, nodeDoc.getIdentity().copy());
+					nodeIdMap.put(node.getId(), nodeId);
+				}
+			});
+	}
+	
+	private void cloneEdgesInParallel(List<Edge> edges) throws NdexException, ExecutionException {
+		List<Long> newTermIds = new ArrayList<>();
+		for ( Edge edge : edges) 
+			resolvePropertyPredicates(edge.getProperties(), newTermIds);
+		collectRIDs(newTermIds);
 		
-		if ( node.getRepresents() != null ) {
-		   Long newRepId = null;	
-		   String repType = node.getRepresentsTermType();
-		   if ( repType.equals(NdexClasses.BaseTerm)) {
-			 newRepId = baseTermIdMap.get(node.getRepresents()); 
-		   } else if (repType.equals(NdexClasses.FunctionTerm)) {
-			 newRepId = functionTermIdMap.get(node.getRepresents());  
-		   } else 
-			   newRepId = reifiedEdgeTermIdMap.get(node.getRepresents());
-		   
-		   if ( newRepId == null)
-			   throw new NdexException ("Term id " + node.getRepresents() + "not found.");
-		   
-   		   ODocument termDoc = elementIdCache.get(newRepId); 
-     	   nodeV.addEdge(NdexClasses.Node_E_represents, graph.getVertex(termDoc));
-		   
+		logger.info("Cloning " + edges.size() + " edges with " + workerCount + " workers.");
+		runPhase(edges, 
+			new ElementWriter<Edge>() {
+				@Override
+				public ODocument write(CloneSession session, Edge edge) throws NdexException, ExecutionException {
+					return session.createEdge(edge);
+				}
+				@Override
+				public void committed(Edge edge, ODocument edgeDoc) {
+					Long edgeId = edgeDoc.field(NdexClasses.Element_ID);
+					clonedRIDs.put(edgeId, edgeDoc.getIdentity().copy());
+					edgeIdMap.put(edge.getId(), edgeId);
+				}
+			});
+	}
+	
+	/**
+	 * Create the base terms of the property names that are not in the base term table of the source network. 
+	 * Workers only look up base terms, creating them has to be done in this thread.
+	 * @param newTermIds the ids of the created base terms are added to this list.
+	 */
+	private void resolvePropertyPredicates(Collection<NdexPropertyValuePair> properties, List<Long> newTermIds) 
+			throws NdexException, ExecutionException {
+		if ( properties == null) return;
+		for ( NdexPropertyValuePair e : properties) {
+			if ( !baseTermIdMap.containsKey(e.getPredicateId())) {
+				logger.warning("Baseterm id " + e.getPredicateId() + " not defined in baseTerm table. Creating new basterm for property name.");
+				Long baseTermId = getBaseTermId(e.getPredicateString());
+				baseTermIdMap.put(e.getPredicateId(), baseTermId);
+				newTermIds.add(baseTermId);
+			}
 		}
-		
-		if ( node.getAliases() != null) {
-			for ( Long aliasId : node.getAliases()) {
-				Long newAliasId = baseTermIdMap.get(aliasId);
-				if ( newAliasId == null)
-					throw new NdexException ("Base term id " + aliasId + " not found.");
-
-				ODocument termDoc = elementIdCache.get(newAliasId); 
-				nodeV.addEdge(NdexClasses.Node_E_alias,	graph.getVertex(termDoc));
+	}
+	
+	private void collectRIDs(Collection<Long> elementIds) throws ExecutionException {
+		for ( Long id : elementIds) 
+			clonedRIDs.put(id, elementIdCache.get(id).getIdentity().copy());
+	}
+	
+	private void linkSharedVertices(List<SharedLink> links) {
+		logger.info("Adding " + links.size() + " links to shared vertices.");
+		localConnection.begin();
+		for ( int i = 0 ; i < links.size(); i++) {
+			SharedLink link = links.get(i);
+			graph.getVertex(link.out).addEdge(link.label, graph.getVertex(link.in));
+			if ( (i + 1) % workerBatchSize == 0) {
+				localConnection.commit();
+				localConnection.begin();
 			}
 		}
+		localConnection.commit();
+	}
+	
+	/**
+	 * Write all the elements with the workers and wait until they are done, then add the links to shared 
+	 * vertices the workers recorded. 
+	 */
+	private <T> void runPhase(final List<T> elements, final ElementWriter<T> writer) 
+			throws NdexException, ExecutionException {
+		final AtomicInteger next = new AtomicInteger(0);
+		final ConnectionPoolGate.Lane lane = NdexDatabase.getConnectionLane();
 		
-		if ( node.getRelatedTerms() != null) {
-			for ( Long relateToId : node.getRelatedTerms()) {
-				Long newRelateToId = baseTermIdMap.get(relateToId);
-				if ( newRelateToId == null)
-					throw new NdexException ("Base term id " + relateToId + " not found.");
-
-				ODocument termDoc = elementIdCache.get(newRelateToId); 
-				nodeV.addEdge(NdexClasses.Node_E_relateTo,	graph.getVertex(termDoc));
-			}
+		int batchCount = (elements.size() + workerBatchSize - 1) / workerBatchSize;
+		List<Future<CloneSession>> futures = new ArrayList<>(workerCount - 1);
+		for ( int i = 0 ; i < Math.min(workerCount, batchCount) - 1; i++) {
+			futures.add(executor.submit(new Callable<CloneSession>() {
+				@Override
+				public CloneSession call() throws Exception {
+					// the calling thread holds a connection already, so a worker doesn't wait for one 
+					// that is only freed when the clone is done.
+					ODatabaseDocumentTx conn;
+					try {
+						conn = database.getAConnection(lane, workerConnectionTimeout);
+					} catch (NdexException e) {
+						logger.info("No connection for a clone worker, the other workers write its batches.");
+						return null;
+					}
+					CloneSession session = new CloneSession(conn);
+					try {
+						writeBatches(session, elements, next, writer);
+					} finally {
+						session.close();
+					}
+					return session;
+				}
+			}));
 		}
 		
-		if ( node.getCitationIds() != null) {
-			for ( Long citationId : node.getCitationIds()) {
-				Long newCitationId = citationIdMap.get(citationId);
-				if ( newCitationId == null)
-					throw new NdexException ("Citation id " + citationId + " not found.");
-
-				ODocument citationDoc = elementIdCache.get(newCitationId); 
-				nodeV.addEdge(NdexClasses.Node_E_citations,	graph.getVertex(citationDoc));
-			}
+		// the calling thread works like the other workers, so it doesn't update shared vertices either.
+		CloneSession callerSession = new CloneSession(localConnection, graph, networkDAO, true);
+		try {
+			writeBatches(callerSession, elements, next, writer);
+		} catch (NdexException | ExecutionException | RuntimeException e) {
+			// stop the other workers before reporting the error.
+			next.set(elements.size());
+			throw e;
 		}
 		
-		if ( node.getSupportIds() != null) {
-			for ( Long supportId : node.getSupportIds()) {
-				Long newSupportId = supportIdMap.get(supportId);
-				if ( newSupportId == null)
-					throw new NdexException ("Support id " + supportId + " not found.");
-
-				ODocument supportDoc = elementIdCache.get(newSupportId); 
-				nodeV.addEdge(NdexClasses.Node_E_supports,	graph.getVertex(supportDoc));
+		List<SharedLink> links = new ArrayList<>(callerSession.sharedLinks);
+		for ( Future<CloneSession> f : futures) {
+			try {
+				CloneSession session = f.get();
+				if ( session != null)
+					links.addAll(session.sharedLinks);
+			} catch (InterruptedException e) {
+				throw new NdexException("Interrupted while cloning network " + network.getName());
+			} catch (ExecutionException e) {
+				// stop the other workers before reporting the error.
+				next.set(elements.size());
+				if ( e.getCause() instanceof NdexException) 
+					throw (NdexException) e.getCause();
+				throw e;
 			}
-			
 		}
-		
-		networkVertex.addEdge(NdexClasses.Network_E_Nodes,nodeV);
-		
-		this.addPropertiesToVertex(nodeV, node.getProperties(), node.getPresentationProperties(),false);
-		elementIdCache.put(nodeId, nodeDoc);
-        return nodeId;		
+		linkSharedVertices(links);
 	}
 	
+	private static <T> void writeBatches(CloneSession session, List<T> elements, AtomicInteger next, 
+			ElementWriter<T> writer) throws NdexException, ExecutionException {
+		int start;
+		while ( (start = next.getAndAdd(workerBatchSize)) < elements.size()) 
+			session.writeBatch(elements.subList(start, Math.min(start + workerBatchSize, elements.size())), 
+					writer);
+	}
 	
-	private Collection<NdexPropertyValuePair> addPropertiesToVertex(OrientVertex vertex, Collection<NdexPropertyValuePair> properties, 
-			Collection<SimplePropertyValuePair> presentationProperties, boolean cloneNewProperty ) throws NdexException, ExecutionException {
-		
-		 
-		Collection<NdexPropertyValuePair> addedProperties = cloneNewProperty ? new ArrayList<NdexPropertyValuePair>() : null;
+	/**
+	 * Clones the elements passed by a NetworkStreamReader. In parallel clones, nodes and edges are collected in 
+	 * chunks of streamChunkSize elements that are written by the workers. Reified edge terms and function terms are 
+	 * kept until the end, they are linked to their edges and arguments after all the edges are written.
+	 */
+	private class StreamingCloneHandler implements NetworkElementHandler {
+		private final TreeSet<String> prefixSet = new TreeSet<>();
+		private final List<ReifiedEdgeTerm> reifiedEdgeTerms = new ArrayList<>();
+		private final List<FunctionTerm> functionTerms = new ArrayList<>();
+		private List<Node> nodeChunk = new ArrayList<>();
+		private List<Edge> edgeChunk = new ArrayList<>();
 		
-		if ( properties != null) {
-			for (NdexPropertyValuePair e : properties) {
-				OrientVertex pV = null;
-				
-				Long baseTermId = baseTermIdMap.get(e.getPredicateId());
-				
-				if ( baseTermId == null ) {
-				   logger.warning("Baseterm id " + e.getPredicateId() + " not defined in baseTerm table. Creating new basterm for property name.");
+		int nodeCount = 0;
+		int edgeCount = 0;
 
-				   baseTermId = this.getBaseTermId(e.getPredicateString());
-				   baseTermIdMap.put(e.getPredicateId(),baseTermId);
+		@Override
+		public void handleNamespace(Namespace namespace) throws NdexException, ExecutionException {
+			cloneNamespace(namespace, prefixSet);
+		}
 
-				   pV = this.createNdexPropertyVertex(e);
+		@Override
+		public void handleBaseTerm(BaseTerm baseTerm) throws NdexException, ExecutionException {
+			cloneBaseTerm(baseTerm);
+		}
 
-				} else {
-					ODocument bTermDoc = this.elementIdCache.get(baseTermId);
+		@Override
+		public void handleCitation(Citation citation) throws NdexException, ExecutionException {
+			cloneCitation(citation);
+		}
 
-					String name = bTermDoc.field(NdexClasses.BTerm_P_name);
-					
-					String[] qnames = TermUtilities.getNdexQName(e.getPredicateString());
-					
-					if ( ( qnames == null && !name.equals(e.getPredicateString())) || 
-						 ( qnames != null && !name.equals(qnames[1]) ) ) {
-						if ( !name.equals(e.getPredicateString())) {
-							throw new NdexException ("Baseterm name of " + e.getPredicateId() +
-									" doesn't match with property name " + e.getPredicateString());
-						}
-					}
-					pV = this.createNdexPropertyVertex(e, baseTermId, bTermDoc);
+		@Override
+		public void handleSupport(Support support) throws NdexException, ExecutionException {
+			cloneSupport(support);
+		}
+
+		@Override
+		public void handleReifiedEdgeTerm(ReifiedEdgeTerm reifiedEdgeTerm) {
+			cloneReifiedEdgeTermNode(reifiedEdgeTerm);
+			reifiedEdgeTerms.add(reifiedEdgeTerm);
+		}
+
+		@Override
+		public void handleFunctionTerm(FunctionTerm functionTerm) {
+			cloneFunctionTermVertex(functionTerm);
+			functionTerms.add(functionTerm);
+		}
+
+		@Override
+		public void handleNode(Node node) throws NdexException, ExecutionException {
+			nodeCount++;
+			nodeChunk.add(node);
+			if ( nodeChunk.size() >= streamChunkSize)
+				flushNodes();
+		}
+
+		@Override
+		public void handleEdge(Edge edge) throws NdexException, ExecutionException {
+			flushNodes();
+			edgeCount++;
+			edgeChunk.add(edge);
+			if ( edgeChunk.size() >= streamChunkSize)
+				flushEdges();
+		}
+
+		@Override
+		public void handleNetworkSummary(NetworkSummary summary) throws NdexException, ExecutionException {
+			flushNodes();
+			flushEdges();
+			
+			for ( ReifiedEdgeTerm term : reifiedEdgeTerms)
+				mainSession.linkReifiedEdgeTerm(term);
+			for ( FunctionTerm term : functionTerms)
+				mainSession.linkFunctionTerm(term);
+			srcSummary = summary;
+		}
+		
+		// workers are only started for a chunk of parallelCloneThreshold or more elements.
+		private boolean useWorkers(List<?> chunk) throws NdexException, ExecutionException {
+			if ( executor == null && workerCount > 1 && chunk.size() >= parallelCloneThreshold) 
+				startParallelClone();
+			return executor != null;
+		}
+		
+		private void flushNodes() throws NdexException, ExecutionException {
+			if ( nodeChunk.isEmpty()) return;
+			if ( useWorkers(nodeChunk)) {
+				cloneNodesInParallel(nodeChunk);
+			} else {
+				for ( Node node : nodeChunk) {
+					ODocument nodeDoc = mainSession.createNode(node);
+					nodeIdMap.put(node.getId(), (Long)nodeDoc.field(NdexClasses.Element_ID));
 				}
-               vertex.addEdge(NdexClasses.E_ndexProperties, pV);
-               
-               if ( cloneNewProperty) {
-            	   NdexPropertyValuePair r = new NdexPropertyValuePair (e.getPredicateString(), e.getValue());
-            	   r.setPredicateId(baseTermId);
-            	   r.setDataType(e.getDataType());
-            	   addedProperties.add(r);
-               }
 			}
+			nodeChunk = new ArrayList<>();
+		}
 		
+		private void flushEdges() throws NdexException, ExecutionException {
+			if ( edgeChunk.isEmpty()) return;
+			if ( useWorkers(edgeChunk)) {
+				cloneEdgesInParallel(edgeChunk);
+			} else {
+				for ( Edge edge : edgeChunk) {
+					ODocument edgeDoc = mainSession.createEdge(edge);
+					edgeIdMap.put(edge.getId(), (Long)edgeDoc.field(NdexClasses.Element_ID));
+				}
+			}
+			edgeChunk = new ArrayList<>();
 		}
 		
-		addPresentationPropertiesToVertex ( vertex, presentationProperties);
-		return addedProperties;
+		void close() {
+			if ( executor != null)
+				endParallelClone();
+		}
 	}
 	
+	/**
+	 * Writes one kind of element in a parallel clone phase. 
+	 */
+	private interface ElementWriter<T> {
+		/**
+		 * Write an element in the transaction of the worker.  
+		 * @return the document created for the element. 
+		 */
+		ODocument write(CloneSession session, T element) throws NdexException, ExecutionException;
+		
+		/**
+		 * Called after the transaction that wrote the element is committed.
+		 */
+		void committed(T element, ODocument doc);
+	}
 	
-	
-	private void cloneEdges() throws NdexException, ExecutionException {
-		if ( srcNetwork.getEdges() != null) {
-			for ( Edge edge : srcNetwork.getEdges().values()) {
-				Long newEdgeId = createEdge(edge);
-				edgeIdMap.put(edge.getId(), newEdgeId);
-			}
+	/**
+	 * A link between two vertices that is added after the workers of a phase are done.
+	 */
+	private static class SharedLink {
+		final OIdentifiable out;
+		final String label;
+		final OIdentifiable in;
+		
+		SharedLink(OIdentifiable out, String label, OIdentifiable in) {
+			this.out = out;
+			this.label = label;
+			this.in = in;
+		}
+		
+		// the records created in a transaction only get their final ids when it is committed.
+		SharedLink persistent() {
+			return new SharedLink(out.getIdentity().copy(), label, in.getIdentity().copy());
 		}
 	}
 	
-	
-	private Long createEdge(Edge edge) throws NdexException, ExecutionException {
+	/**
+	 * Creates the vertices of nodes and edges and the links between elements on one connection. The session 
+	 * of this service uses its connection and element id cache. Worker sessions find the records of cloned 
+	 * elements in clonedRIDs and don't update vertices other elements link to: those links are collected in 
+	 * sharedLinks.
+	 */
+	private class CloneSession {
+		private final ODatabaseDocumentTx db;
+		private final OrientGraph sessionGraph;
+		private final NetworkDocDAO dao;
+		private final boolean isWorker;
 		
-		Long edgeId = database.getNextId();
+		// links to shared vertices of the committed batches, and of the open transaction.
+		final List<SharedLink> sharedLinks = new ArrayList<>();
+		private final List<SharedLink> pendingLinks = new ArrayList<>();
 		
-		ODocument edgeDoc = new ODocument(NdexClasses.Edge)
-		   .field(NdexClasses.Element_ID, edgeId)
-           .save();
+		CloneSession() {
+			this(localConnection, graph, networkDAO, false);
+		}
 		
-		OrientVertex edgeV = graph.getVertex(edgeDoc);
+		CloneSession(ODatabaseDocumentTx connection) {
+			this(connection, new OrientGraph(connection, false), new NetworkDocDAO(connection), true);
+			sessionGraph.setAutoScaleEdgeType(true);
+			sessionGraph.setEdgeContainerEmbedded2TreeThreshold(40);
+			sessionGraph.setUseLightweightEdges(true);
+		}
+		
+		CloneSession(ODatabaseDocumentTx connection, OrientGraph sessionGraph, NetworkDocDAO dao, boolean isWorker) {
+			this.db = connection;
+			this.sessionGraph = sessionGraph;
+			this.dao = dao;
+			this.isWorker = isWorker;
+		}
+		
+		void close() {
+			sessionGraph.shutdown();
+		}
+		
+		/**
+		 * Link two vertices when one of them can have links from other elements. Workers only record the link.
+		 */
+		private void link(OIdentifiable out, String label, OIdentifiable in) {
+			if ( isWorker)
+				pendingLinks.add(new SharedLink(out, label, in));
+			else
+				sessionGraph.getVertex(out).addEdge(label, sessionGraph.getVertex(in));
+		}
+		
+		private OIdentifiable getRecord(Long elementId) throws NdexException, ExecutionException {
+			if ( isWorker) {
+				ORID rid = clonedRIDs.get(elementId);
+				if ( rid != null)
+					return rid;
+			}
+			return getDocument(elementId);
+		}
+		
+		private ODocument getDocument(Long elementId) throws NdexException, ExecutionException {
+			if ( !isWorker)
+				return elementIdCache.get(elementId);
+			
+			ORID rid = clonedRIDs.get(elementId);
+			if ( rid != null) {
+				ODocument doc = db.load(rid);
+				if ( doc != null)
+					return doc;
+			}
+			return dao.getDocumentByElementId(elementId);
+		}
 		
-		{
-        Long newSubjectId = nodeIdMap.get(edge.getSubjectId());
-        if ( newSubjectId == null)
-        	   throw new NdexException ("Node id " + edge.getSubjectId() + "not found.");
-	   ODocument subjectDoc = elementIdCache.get(newSubjectId); 
-	   graph.getVertex(subjectDoc).addEdge(NdexClasses.Edge_E_subject, edgeV);
+		<T> void writeBatch(List<T> batch, ElementWriter<T> writer) throws NdexException, ExecutionException {
+			List<ODocument> docs = new ArrayList<>(batch.size());
+			db.begin();
+			try {
+				for ( T element : batch)
+					docs.add(writer.write(this, element));
+				db.commit();
+			} catch (NdexException | ExecutionException | RuntimeException e) {
+				db.rollback();
+				pendingLinks.clear();
+				throw e;
+			}
+			
+			for ( int i = 0 ; i < batch.size(); i++) 
+				writer.committed(batch.get(i), docs.get(i));
+			for ( SharedLink link : pendingLinks)
+				sharedLinks.add(link.persistent());
+			pendingLinks.clear();
 		}
-	   {
-	   Long newObjectId = nodeIdMap.get(edge.getObjectId());
-       if ( newObjectId == null)
-    	   throw new NdexException ("Node id " + edge.getObjectId() + "not found.");
-       ODocument objectDoc = elementIdCache.get(newObjectId); 
-       edgeV.addEdge(NdexClasses.Edge_E_object, graph.getVertex(objectDoc));
-	   }
-	   
-	   Long newPredicateId = baseTermIdMap.get(edge.getPredicateId());
- 	   if ( newPredicateId == null)
-			throw new NdexException ("Base term id " + edge.getPredicateId() + " not found.");
-	   ODocument termDoc = elementIdCache.get(newPredicateId); 
-       edgeV.addEdge(NdexClasses.Edge_E_predicate, graph.getVertex(termDoc));
-	   
-		if ( edge.getCitationIds() != null) {
-			for ( Long citationId : edge.getCitationIds()) {
-				Long newCitationId = citationIdMap.get(citationId);
-				if ( newCitationId == null)
-					throw new NdexException ("Citation id " + citationId + " not found.");
 
-				ODocument citationDoc = elementIdCache.get(newCitationId); 
-				edgeV.addEdge(NdexClasses.Edge_E_citations,	graph.getVertex(citationDoc));
+		ODocument createNode (Node node) throws NdexException, ExecutionException {
+			Long nodeId = database.getNextId();
+			
+			ODocument nodeDoc = new ODocument(NdexClasses.Node)
+			   .field(NdexClasses.Element_ID, nodeId);
+			
+			if ( node.getName()!= null) {
+				nodeDoc = nodeDoc.field(NdexClasses.Node_P_name,node.getName());
+			}
+			nodeDoc= nodeDoc.save();
+			
+			OrientVertex nodeV = sessionGraph.getVertex(nodeDoc);
+			
+			if ( node.getRepresents() != null ) {
+			   Long newRepId = null;	
+			   String repType = node.getRepresentsTermType();
+			   if ( repType.equals(NdexClasses.BaseTerm)) {
+				 newRepId = baseTermIdMap.get(node.getRepresents()); 
+			   } else if (repType.equals(NdexClasses.FunctionTerm)) {
+				 newRepId = functionTermIdMap.get(node.getRepresents());  
+			   } else 
+				   newRepId = reifiedEdgeTermIdMap.get(node.getRepresents());
+			   
+			   if ( newRepId == null)
+				   throw new NdexException ("Term id " + node.getRepresents() + "not found.");
+			   
+	     	   link(nodeDoc, NdexClasses.Node_E_represents, getRecord(newRepId));
+			   
+			}
+			
+			if ( node.getAliases() != null) {
+				for ( Long aliasId : node.getAliases()) {
+					Long newAliasId = baseTermIdMap.get(aliasId);
+					if ( newAliasId == null)
+						throw new NdexException ("Base term id " + aliasId + " not found.");
+
+					link(nodeDoc, NdexClasses.Node_E_alias, getRecord(newAliasId));
+				}
+			}
+			
+			if ( node.getRelatedTerms() != null) {
+				for ( Long relateToId : node.getRelatedTerms()) {
+					Long newRelateToId = baseTermIdMap.get(relateToId);
+					if ( newRelateToId == null)
+						throw new NdexException ("Base term id " + relateToId + " not found.");
+
+					link(nodeDoc, NdexClasses.Node_E_relateTo, getRecord(newRelateToId));
+				}
 			}
+			
+			if ( node.getCitationIds() != null) {
+				for ( Long citationId : node.getCitationIds()) {
+					Long newCitationId = citationIdMap.get(citationId);
+					if ( newCitationId == null)
+						throw new NdexException ("Citation id " + citationId + " not found.");
+
+					link(nodeDoc, NdexClasses.Node_E_citations, getRecord(newCitationId));
+				}
+			}
+			
+			if ( node.getSupportIds() != null) {
+				for ( Long supportId : node.getSupportIds()) {
+					Long newSupportId = supportIdMap.get(supportId);
+					if ( newSupportId == null)
+						throw new NdexException ("Support id " + supportId + " not found.");
+
+					link(nodeDoc, NdexClasses.Node_E_supports, getRecord(newSupportId));
+				}
+				
+			}
+			
+			link(networkVertex, NdexClasses.Network_E_Nodes, nodeDoc);
+			
+			addPropertiesToVertex(nodeV, node.getProperties(), node.getPresentationProperties(),false);
+			if ( !isWorker)
+				elementIdCache.put(nodeId, nodeDoc);
+	        return nodeDoc;		
 		}
 		
-		if ( edge.getSupportIds() != null) {
-			for ( Long supportId : edge.getSupportIds()) {
-				Long newSupportId = supportIdMap.get(supportId);
-				if ( newSupportId == null)
-					throw new NdexException ("Support id " + supportId + " not found.");
+		ODocument createEdge(Edge edge) throws NdexException, ExecutionException {
+			
+			Long edgeId = database.getNextId();
+			
+			ODocument edgeDoc = new ODocument(NdexClasses.Edge)
+			   .field(NdexClasses.Element_ID, edgeId)
+	           .save();
+			
+			OrientVertex edgeV = sessionGraph.getVertex(edgeDoc);
+			
+			{
+	        Long newSubjectId = nodeIdMap.get(edge.getSubjectId());
+	        if ( newSubjectId == null)
+	        	   throw new NdexException ("Node id " + edge.getSubjectId() + "not found.");
+		   link(getRecord(newSubjectId), NdexClasses.Edge_E_subject, edgeDoc);
+			}
+		   {
+		   Long newObjectId = nodeIdMap.get(edge.getObjectId());
+	       if ( newObjectId == null)
+	    	   throw new NdexException ("Node id " + edge.getObjectId() + "not found.");
+	       link(edgeDoc, NdexClasses.Edge_E_object, getRecord(newObjectId));
+		   }
+		   
+		   Long newPredicateId = baseTermIdMap.get(edge.getPredicateId());
+	 	   if ( newPredicateId == null)
+				throw new NdexException ("Base term id " + edge.getPredicateId() + " not found.");
+	       link(edgeDoc, NdexClasses.Edge_E_predicate, getRecord(newPredicateId));
+		   
+			if ( edge.getCitationIds() != null) {
+				for ( Long citationId : edge.getCitationIds()) {
+					Long newCitationId = citationIdMap.get(citationId);
+					if ( newCitationId == null)
+						throw new NdexException ("Citation id " + citationId + " not found.");
 
-				ODocument supportDoc = elementIdCache.get(newSupportId); 
-				edgeV.addEdge(NdexClasses.Edge_E_supports,	graph.getVertex(supportDoc));
+					link(edgeDoc, NdexClasses.Edge_E_citations, getRecord(newCitationId));
+				}
 			}
 			
+			if ( edge.getSupportIds() != null) {
+				for ( Long supportId : edge.getSupportIds()) {
+					Long newSupportId = supportIdMap.get(supportId);
+					if ( newSupportId == null)
+						throw new NdexException ("Support id " + supportId + " not found.");
+
+					link(edgeDoc, NdexClasses.Edge_E_supports, getRecord(newSupportId));
+				}
+				
+			}
+			
+			link(networkVertex, NdexClasses.Network_E_Edges, edgeDoc);
+			addPropertiesToVertex(edgeV, edge.getProperties(), edge.getPresentationProperties(),false);
+			if ( !isWorker)
+				elementIdCache.put(edgeId, edgeDoc);
+	        return edgeDoc;		
+			
 		}
 		
-		networkVertex.addEdge(NdexClasses.Network_E_Edges,edgeV);
-		this.addPropertiesToVertex(edgeV, edge.getProperties(), edge.getPresentationProperties(),false);
-		elementIdCache.put(edgeId, edgeDoc);
-        return edgeId;		
+		void linkReifiedEdgeTerm(ReifiedEdgeTerm reifiedTerm) throws NdexException, ExecutionException {
+			Long newReifiedEdgeId = reifiedEdgeTermIdMap.get(reifiedTerm.getId());
+			if ( newReifiedEdgeId == null) 
+				throw new NdexException("ReifiedEdgeTerm Id " + reifiedTerm.getId() + " not found.");
+			
+			Long newEdgeId = edgeIdMap.get(reifiedTerm.getEdgeId());
+			if ( newEdgeId == null) 
+				throw new NdexException ("Edge Id " + reifiedTerm.getEdgeId() + " not found in the system.");
+			
+			ODocument edgeDoc = getDocument(newEdgeId); 
+			ODocument reifiedEdgeTermDoc = getDocument(newReifiedEdgeId);
+			sessionGraph.getVertex(reifiedEdgeTermDoc).addEdge(
+					NdexClasses.ReifiedEdge_E_edge, sessionGraph.getVertex(edgeDoc));
+		}
 		
-	}
-	
-	
-	private void createLinksforRefiedEdgeTerm() throws NdexException, ExecutionException {
-		if ( srcNetwork.getReifiedEdgeTerms()!= null) {
-			for ( ReifiedEdgeTerm reifiedTerm : srcNetwork.getReifiedEdgeTerms().values() ) {
-				Long newReifiedEdgeId = this.reifiedEdgeTermIdMap.get(reifiedTerm.getId());
-				if ( newReifiedEdgeId == null) 
-					throw new NdexException("ReifiedEdgeTerm Id " + reifiedTerm.getId() + " not found.");
-				
-				Long newEdgeId = edgeIdMap.get(reifiedTerm.getEdgeId());
-				if ( newEdgeId == null) 
-					throw new NdexException ("Edge Id " + reifiedTerm.getEdgeId() + " not found in the system.");
-				
-				ODocument edgeDoc = elementIdCache.get(newEdgeId); 
-				ODocument reifiedEdgeTermDoc = elementIdCache.get(newReifiedEdgeId);
-				graph.getVertex(reifiedEdgeTermDoc).addEdge(
-						NdexClasses.ReifiedEdge_E_edge, graph.getVertex(edgeDoc));
+		void linkFunctionTerm(FunctionTerm functionTerm) throws NdexException, ExecutionException {
+			Long newFunctionId = functionTermIdMap.get(functionTerm.getId());
+			if ( newFunctionId == null )
+				throw new NdexException ("Function term Id " + functionTerm.getId() + " is not found in Term list.");
+			ODocument functionTermDoc = getDocument(newFunctionId);
+			OrientVertex functionTermV = sessionGraph.getVertex(functionTermDoc);
+			
+			Long newFunctionNameId = baseTermIdMap.get(functionTerm.getFunctionTermId());
+			ODocument newFunctionNameDoc = getDocument(newFunctionNameId);
+			functionTermV.addEdge(NdexClasses.FunctionTerm_E_baseTerm, sessionGraph.getVertex(newFunctionNameDoc));
+			
+			for ( Long argId : functionTerm.getParameterIds()) {
+				Long newId = findTermId(argId);
+				if ( newId == null)
+					throw new NdexException ("Term Id " + argId + " is not found in any term list.");
+			    ODocument argumentDoc = getDocument(newId);
+			    functionTermV.addEdge(NdexClasses.FunctionTerm_E_paramter, sessionGraph.getVertex(argumentDoc));
 			}
 		}
-	}
+		
+		Collection<NdexPropertyValuePair> addPropertiesToVertex(OrientVertex vertex, Collection<NdexPropertyValuePair> properties, 
+				Collection<SimplePropertyValuePair> presentationProperties, boolean cloneNewProperty ) throws NdexException, ExecutionException {
+			
+			 
+			Collection<NdexPropertyValuePair> addedProperties = cloneNewProperty ? new ArrayList<NdexPropertyValuePair>() : null;
+			
+			if ( properties != null) {
+				for (NdexPropertyValuePair e : properties) {
+					OrientVertex pV = null;
+					
+					Long baseTermId = baseTermIdMap.get(e.getPredicateId());
+					
+					if ( baseTermId == null ) {
+					   // workers can't create base terms, these are created in resolvePropertyPredicates.
+					   if ( isWorker)
+						   throw new NdexException ("Baseterm id " + e.getPredicateId() + " not defined in baseTerm table.");
+					   logger.warning("Baseterm id " + e.getPredicateId() + " not defined in baseTerm table. Creating new basterm for property name.");
 
-	private void createLinksFunctionTerm() throws NdexException, ExecutionException {
-		if ( srcNetwork.getFunctionTerms()!= null) {
-			for ( FunctionTerm functionTerm : srcNetwork.getFunctionTerms().values() ) {
-				Long newFunctionId = this.functionTermIdMap.get(functionTerm.getId());
-				if ( newFunctionId == null )
-					throw new NdexException ("Function term Id " + functionTerm.getId() + " is not found in Term list.");
-				ODocument functionTermDoc = elementIdCache.get(newFunctionId);
-				OrientVertex functionTermV = graph.getVertex(functionTermDoc);
-				
-				Long newFunctionNameId = this.baseTermIdMap.get(functionTerm.getFunctionTermId());
-				ODocument newFunctionNameDoc = elementIdCache.get(newFunctionNameId);
-				functionTermV.addEdge(NdexClasses.FunctionTerm_E_baseTerm, graph.getVertex(newFunctionNameDoc));
-				
-				for ( Long argId : functionTerm.getParameterIds()) {
-					Long newId = findTermId(argId);
-					if ( newId == null)
-						throw new NdexException ("Term Id " + argId + " is not found in any term list.");
-				    ODocument argumentDoc = elementIdCache.get(newId);
-				    functionTermV.addEdge(NdexClasses.FunctionTerm_E_paramter, graph.getVertex(argumentDoc));
+					   baseTermId = getBaseTermId(e.getPredicateString());
+					   baseTermIdMap.put(e.getPredicateId(),baseTermId);
+
+					   pV = createNdexPropertyVertex(e);
+
+					} else {
+						ODocument bTermDoc = getDocument(baseTermId);
+
+						String name = bTermDoc.field(NdexClasses.BTerm_P_name);
+						
+						String[] qnames = TermUtilities.getNdexQName(e.getPredicateString());
+						
+						if ( ( qnames == null && !name.equals(e.getPredicateString())) || 
+							 ( qnames != null && !name.equals(qnames[1]) ) ) {
+							if ( !name.equals(e.getPredicateString())) {
+								throw new NdexException ("Baseterm name of " + e.getPredicateId() +
+										" doesn't match with property name " + e.getPredicateString());
+							}
+						}
+						pV = createPropertyVertex(e, baseTermId, bTermDoc);
+					}
+	               vertex.addEdge(NdexClasses.E_ndexProperties, pV);
+	               
+	               if ( cloneNewProperty) {
+	            	   NdexPropertyValuePair r = new NdexPropertyValuePair (e.getPredicateString(), e.getValue());
+	            	   r.setPredicateId(baseTermId);
+	            	   r.setDataType(e.getDataType());
+	            	   addedProperties.add(r);
+	               }
+				}
+			
+			}
+			
+			if ( presentationProperties !=null ) {
+				for (SimplePropertyValuePair e : presentationProperties) {
+					ODocument pDoc = createSimplePropertyDoc(e.getName(),e.getValue());
+	               OrientVertex pV = sessionGraph.getVertex(pDoc);
+	               vertex.addEdge(NdexClasses.E_ndexPresentationProps, pV);
 				}
 			}
+			return addedProperties;
+		}
+		
+		private OrientVertex createPropertyVertex(NdexPropertyValuePair e, Long baseTermId, ODocument btDoc) {
+			 ODocument pDoc = new ODocument(NdexClasses.NdexProperty)
+					.fields(NdexClasses.ndexProp_P_value, e.getValue(),
+							NdexClasses.ndexProp_P_datatype, e.getDataType())
+				   .save();
+	 		
+	 		 OrientVertex pV = sessionGraph.getVertex(pDoc);
+	 		 link(pDoc, NdexClasses.ndexProp_E_predicate, btDoc);
+	 		 if ( !isWorker)
+	 			 e.setPredicateId(baseTermId);
+	 		 return pV;
 		}
 	}
 	
-	
-	
 	private static NetworkSourceFormat removeNetworkSourceFormat(NetworkSummary nsummary) {
 		List<NdexPropertyValuePair> props = nsummary.getProperties(); 
 		
@@ -32,7 +32,6 @@ package org.ndexbio.common.persistence.orientdb;
 
 import java.util.Calendar;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -46,10 +45,12 @@ import org.ndexbio.common.models.dao.orientdb.Helper;
 import org.ndexbio.common.models.dao.orientdb.NetworkDocDAO;
 import org.ndexbio.common.models.dao.orientdb.OrientdbDAO;
 import org.ndexbio.common.models.object.network.RawCitation;
-import org.ndexbio.common.models.object.network.RawEdge;
 import org.ndexbio.common.models.object.network.RawNamespace;
 import org.ndexbio.common.models.object.network.RawSupport;
+import org.ndexbio.common.util.LongDictionary;
+import org.ndexbio.common.util.LongLongHashMap;
 import org.ndexbio.common.util.NdexUUIDFactory;
+import org.ndexbio.common.util.TripleLongDictionary;
 import org.ndexbio.model.exceptions.NdexException;
 import org.ndexbio.model.exceptions.ObjectNotFoundException;
 import org.ndexbio.model.object.NdexPropertyValuePair;
@@ -88,21 +89,22 @@ public class NdexPersistenceService extends PersistenceService {
 
 
 	// key is the element_id of a BaseTerm, value is the id of the node which this BaseTerm represents
-    private Map<Long, Long> baseTermNodeIdMap;
+    private LongLongHashMap baseTermNodeIdMap;
 	// Store the mapping in memory to have better performance.
 //	private NdexDatabase database;
  // key is the edge id which this term reified.
-    private Map<Long,Long>  edgeIdReifiedEdgeTermIdMap;
+    private LongLongHashMap  edgeIdReifiedEdgeTermIdMap;
 	// maps an external node id to new node id created in Ndex.
-    private Map<String, Long> externalIdNodeMap; 
+    private LongDictionary<String> externalIdNodeMap; 
 	//key is a function term Id, value is the node id which uses 
     // that function as represents term
-    private Map<Long,Long> functionTermIdNodeIdMap;
+    private LongLongHashMap functionTermIdNodeIdMap;
 
 	// maps a node name to Node Id.
-    private Map<String, Long> namedNodeMap;
+    private LongDictionary<String> namedNodeMap;
 
-    private Map<RawEdge, Long> edgeMap;
+    // key is the (subject, predicate, object) ids of an edge. value is the edge id. 
+    private TripleLongDictionary edgeMap;
     
     private String ownerAccount;
     
@@ -116,7 +118,7 @@ public class NdexPersistenceService extends PersistenceService {
     // key is a "rawFunctionTerm", which has element id as -1. This table
     // matches the key to a functionTerm that has been stored in the db.
     
-    private Map<Long, Long> reifiedEdgeTermIdNodeIdMap;
+    private LongLongHashMap reifiedEdgeTermIdNodeIdMap;
   //  private LoadingCache<Long, Node> reifiedEdgeTermNodeCache;
     
     //key is the name of the node. This cache is for loading simple SIF 
@@ -138,17 +140,17 @@ public class NdexPersistenceService extends PersistenceService {
 		this.ownerAccount = null;
 		
 		this.rawCitationMap  = new TreeMap <> ();
-        this.baseTermNodeIdMap = new TreeMap <> ();
-		this.namedNodeMap  = new TreeMap <> ();
-		this.reifiedEdgeTermIdNodeIdMap = new HashMap<>(100);
-		this.edgeIdReifiedEdgeTermIdMap = new HashMap<>(100);
+        this.baseTermNodeIdMap = new LongLongHashMap ();
+		this.namedNodeMap  = createStringDictionary();
+		this.reifiedEdgeTermIdNodeIdMap = new LongLongHashMap(100);
+		this.edgeIdReifiedEdgeTermIdMap = new LongLongHashMap(100);
 		this.rawFunctionTermFunctionTermIdMap = new TreeMap<> ();
 		this.rawSupportMap  = new TreeMap<> ();
-		this.edgeMap = new TreeMap<>();
-		this.functionTermIdNodeIdMap = new HashMap<>(100);
+		this.edgeMap = createTripleDictionary();
+		this.functionTermIdNodeIdMap = new LongLongHashMap(100);
 		// intialize caches.
 		
-		externalIdNodeMap = new TreeMap<>(); 
+		externalIdNodeMap = createStringDictionary(); 
 
 	    logger = Logger.getLogger(NdexPersistenceService.class.getName());
 
@@ -164,16 +166,17 @@ public class NdexPersistenceService extends PersistenceService {
 		
 		
 		this.rawCitationMap  = new TreeMap <> ();
-        this.baseTermNodeIdMap = new TreeMap <> ();
-		this.namedNodeMap  = new TreeMap <> ();
-		this.reifiedEdgeTermIdNodeIdMap = new HashMap<>(100);
-		this.edgeIdReifiedEdgeTermIdMap = new HashMap<>(100);
+        this.baseTermNodeIdMap = new LongLongHashMap ();
+		this.namedNodeMap  = createStringDictionary();
+		this.reifiedEdgeTermIdNodeIdMap = new LongLongHashMap(100);
+		this.edgeIdReifiedEdgeTermIdMap = new LongLongHashMap(100);
 		this.rawFunctionTermFunctionTermIdMap = new TreeMap<> ();
 		this.rawSupportMap  = new TreeMap<> ();
-		this.functionTermIdNodeIdMap = new HashMap<>(100);
+		this.edgeMap = createTripleDictionary();
+		this.functionTermIdNodeIdMap = new LongLongHashMap(100);
 		// intialize caches.
 		
-		externalIdNodeMap = new TreeMap<>(); 
+		externalIdNodeMap = createStringDictionary(); 
 
 	    logger = Logger.getLogger(NdexPersistenceService.class.getName());
 
@@ -186,6 +189,7 @@ public class NdexPersistenceService extends PersistenceService {
 
 		//localConnection.rollback();
 //		graph.rollback();
+		abortBulkLoad();
 		
 		// make sure everything relate to the network is deleted.
 		//localConnection.begin();
@@ -207,8 +211,8 @@ public class NdexPersistenceService extends PersistenceService {
 		
 		for (String alias : aliases) {
 			Long b= this.getBaseTermId(alias);
-		    Long repNodeId = this.baseTermNodeIdMap.get(b);
-			if ( repNodeId != null && repNodeId.equals(nodeId)) {
+		    long repNodeId = this.baseTermNodeIdMap.get(b);
+			if ( repNodeId == nodeId) {
 //		    	logger.warning("Alias '" + alias + "' is also the represented base term of node " + 
 //			    nodeId +". Alias ignored.");
 		    } else {
@@ -228,8 +232,8 @@ public class NdexPersistenceService extends PersistenceService {
 	public void addAliasToNode(long nodeId, long baseTermId) throws ExecutionException, NdexException {
 		ODocument nodeDoc = elementIdCache.get(nodeId);
 
-	    Long repNodeId = this.baseTermNodeIdMap.get(baseTermId);
-		if ( repNodeId != null && repNodeId.equals(nodeId)) {
+	    long repNodeId = this.baseTermNodeIdMap.get(baseTermId);
+		if ( repNodeId == nodeId) {
 	    	logger.info("Base term ID " + baseTermId  + " is also the represented base term of node " + 
 		    nodeId +". Alias ignored.");
 	    	return;
@@ -390,9 +394,8 @@ public class NdexPersistenceService extends PersistenceService {
 	 */
 	public Long getEdge(Long subjectNodeId, Long objectNodeId, Long predicateId, 
 			 Long supportId, Long citationId, Map<String,String> annotation ) throws NdexException, ExecutionException {
-		RawEdge rawEdge = new RawEdge(subjectNodeId, predicateId, objectNodeId );
-		Long edgeId = this.edgeMap.get(rawEdge);
-		if ( edgeId != null) return edgeId;
+		long edgeId = this.edgeMap.get(subjectNodeId, predicateId, objectNodeId);
+		if ( edgeId != TripleLongDictionary.NO_VALUE) return edgeId;
 		
 		return createEdge(subjectNodeId, objectNodeId, predicateId, supportId, citationId, annotation);
 	}	
@@ -470,7 +473,8 @@ public class NdexPersistenceService extends PersistenceService {
 		    elementIdCache.put(subjectNodeId, subjectV.getRecord() );
 		    elementIdCache.put(objectNodeId, objectV.getRecord());
 		    elementIdCache.put(predicateId, predicateV.getRecord());
-		    edgeMap.put(new RawEdge(subjectNodeId, predicateId, objectNodeId), edgeId);
+		    edgeMap.put(subjectNodeId, predicateId, objectNodeId, edgeId);
+		    bulkLoadCheckpoint();
 			return edgeId;
 		} 
 		throw new NdexException("Null value for one of the parameter when creating Edge.");
@@ -663,8 +667,8 @@ public class NdexPersistenceService extends PersistenceService {
 	 * @return
 	 */
 	public Long findOrCreateNodeIdByExternalId(String id, String name) {
-		Long nodeId = this.externalIdNodeMap.get(id);
-		if ( nodeId != null) return nodeId;
+		long nodeId = this.externalIdNodeMap.get(id);
+		if ( nodeId != LongDictionary.NO_VALUE) return nodeId;
 		
 		//create a node for this external id.
 		
@@ -674,7 +678,7 @@ public class NdexPersistenceService extends PersistenceService {
 
 		nodeDoc.field(NdexClasses.Element_ID, nodeId);
 		if ( name != null) 
-			nodeDoc.field(NdexClasses.Node_P_name, name);
+			setIndexedName(nodeDoc, NdexClasses.Node_P_name, name);
 		
 		nodeDoc = nodeDoc.save();
 		
@@ -687,14 +691,15 @@ public class NdexPersistenceService extends PersistenceService {
 		elementIdCache.put(nodeId, nodeV.getRecord());
 		
 		externalIdNodeMap.put(id, nodeId);
+		bulkLoadCheckpoint();
 		return nodeId;
 
 	}
 	
 	public Long getNodeIdByBaseTermId(Long bTermId) throws ExecutionException {
-		Long nodeId = this.baseTermNodeIdMap.get(bTermId);
+		long nodeId = this.baseTermNodeIdMap.get(bTermId);
 		
-		if (nodeId != null) 
+		if (nodeId != LongLongHashMap.NO_VALUE) 
 			return nodeId;
 		
 		// otherwise insert Node.
@@ -845,9 +850,9 @@ public class NdexPersistenceService extends PersistenceService {
 
 
 	public Long getNodeIdByFunctionTermId(Long funcTermId) throws ExecutionException {
-		Long nodeId = this.functionTermIdNodeIdMap.get(funcTermId) ;
+		long nodeId = this.functionTermIdNodeIdMap.get(funcTermId) ;
 		
-		if (nodeId != null) return nodeId;
+		if (nodeId != LongLongHashMap.NO_VALUE) return nodeId;
 		
 		// otherwise insert Node.
 		nodeId = createNodeFromFunctionTermId(funcTermId);
@@ -931,9 +936,9 @@ public class NdexPersistenceService extends PersistenceService {
 */	
 	
 	public Long getNodeIdByName(String key) {
-		Long nodeId = this.namedNodeMap.get(key);
+		long nodeId = this.namedNodeMap.get(key);
 		
-		if ( nodeId !=null ) {
+		if ( nodeId != LongDictionary.NO_VALUE ) {
 			return nodeId;
 		}
 		
@@ -941,9 +946,8 @@ public class NdexPersistenceService extends PersistenceService {
 		nodeId = database.getNextId();
 
 		ODocument nodeDoc = new ODocument(NdexClasses.Node)
-		        .fields(NdexClasses.Element_ID, nodeId,
-		        		NdexClasses.Node_P_name, key)
-				.save();
+		        .field(NdexClasses.Element_ID, nodeId);
+		nodeDoc = setIndexedName(nodeDoc, NdexClasses.Node_P_name, key).save();
 		
 		OrientVertex nodeV = graph.getVertex(nodeDoc);
 		
@@ -953,15 +957,16 @@ public class NdexPersistenceService extends PersistenceService {
 		
 		elementIdCache.put(nodeId, nodeV.getRecord());
 		this.namedNodeMap.put(key,nodeId);
+		bulkLoadCheckpoint();
 		return nodeId;
 		
 	}
 
 	
 	public Long getNodeIdByReifiedEdgeTermId(Long reifiedEdgeTermId) throws ExecutionException {
-		Long nodeId = this.reifiedEdgeTermIdNodeIdMap.get(reifiedEdgeTermId); 
+		long nodeId = this.reifiedEdgeTermIdNodeIdMap.get(reifiedEdgeTermId); 
 
-		if (nodeId != null) 
+		if (nodeId != LongLongHashMap.NO_VALUE) 
 			return nodeId;
 		
 		// otherwise insert Node.
@@ -990,9 +995,9 @@ public class NdexPersistenceService extends PersistenceService {
 	
 	
 	public Long getReifiedEdgeTermIdFromEdgeId(Long edgeId) throws ExecutionException {
-		Long reifiedEdgeTermId = this.edgeIdReifiedEdgeTermIdMap.get(edgeId);
+		long reifiedEdgeTermId = this.edgeIdReifiedEdgeTermIdMap.get(edgeId);
 				
-		if (reifiedEdgeTermId != null) 	return reifiedEdgeTermId;
+		if (reifiedEdgeTermId != LongLongHashMap.NO_VALUE) 	return reifiedEdgeTermId;
 		
 		// create new term
 		reifiedEdgeTermId = this.database.getNextId();
@@ -1034,6 +1039,8 @@ public class NdexPersistenceService extends PersistenceService {
 	public void persistNetwork() throws NdexException {
 		try {
 			
+			endBulkLoad();
+			
 			network.setIsComplete(true);
 			getNetworkDoc().fields(NdexClasses.Network_P_isComplete,true,
 					NdexClasses.Network_P_edgeCount, network.getEdgeCount(),
@@ -1079,10 +1086,18 @@ public class NdexPersistenceService extends PersistenceService {
 	
 	@Override
 	public void close () {
-		graph.shutdown();
+		super.close();
 		logger.info("Connection to orientdb database closed");
 	}
 	
+	@Override
+	protected void closeDictionaries() {
+		super.closeDictionaries();
+		namedNodeMap.close();
+		externalIdNodeMap.close();
+		edgeMap.close();
+	}
+	
 	public void setNetworkProperties(Collection<NdexPropertyValuePair> properties, 
 			Collection<SimplePropertyValuePair> presentationProperties) throws NdexException, ExecutionException {
 		addPropertiesToVertex ( networkVertex, properties, presentationProperties);
@@ -1118,7 +1133,7 @@ public class NdexPersistenceService extends PersistenceService {
 	public void setNodeName(long nodeId, String name) throws ExecutionException {
 		ODocument nodeDoc = elementIdCache.get(nodeId);
 		
-		nodeDoc = nodeDoc.field(NdexClasses.Node_P_name, name).save();
+		nodeDoc = setIndexedName(nodeDoc, NdexClasses.Node_P_name, name).save();
 		
 		elementIdCache.put(nodeId, nodeDoc);
 	}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.persistence.orientdb;
+
+import java.util.concurrent.ExecutionException;
+
+import org.ndexbio.model.exceptions.NdexException;
+import org.ndexbio.model.object.network.BaseTerm;
+import org.ndexbio.model.object.network.Citation;
+import org.ndexbio.model.object.network.Edge;
+import org.ndexbio.model.object.network.FunctionTerm;
+import org.ndexbio.model.object.network.Namespace;
+import org.ndexbio.model.object.network.NetworkSummary;
+import org.ndexbio.model.object.network.Node;
+import org.ndexbio.model.object.network.ReifiedEdgeTerm;
+import org.ndexbio.model.object.network.Support;
+
+/**
+ * Receives the elements of a network from a NetworkStreamReader as they are decoded. Elements are passed in 
+ * dependency order: an element is only passed after all the elements it can refer to. 
+ */
+public interface NetworkElementHandler {
+
+	void handleNamespace(Namespace namespace) throws NdexException, ExecutionException;
+	
+	void handleBaseTerm(BaseTerm baseTerm) throws NdexException, ExecutionException;
+	
+	void handleCitation(Citation citation) throws NdexException, ExecutionException;
+	
+	void handleSupport(Support support) throws NdexException, ExecutionException;
+	
+	void handleReifiedEdgeTerm(ReifiedEdgeTerm reifiedEdgeTerm) throws NdexException, ExecutionException;
+	
+	void handleFunctionTerm(FunctionTerm functionTerm) throws NdexException, ExecutionException;
+	
+	void handleNode(Node node) throws NdexException, ExecutionException;
+	
+	void handleEdge(Edge edge) throws NdexException, ExecutionException;
+	
+	/**
+	 * Called after all the elements are passed. 
+	 * @param summary the network attributes, including the network properties. 
+	 */
+	void handleNetworkSummary(NetworkSummary summary) throws NdexException, ExecutionException;
+}
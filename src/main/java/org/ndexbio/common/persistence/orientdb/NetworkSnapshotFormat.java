@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.persistence.orientdb;
+
+/**
+ * Constants of the binary network snapshot format, written by NetworkSnapshotWriter and read by 
+ * NetworkSnapshotReader. All numbers are big-endian.
+ * <pre>
+ * file    := header section* index trailer
+ * header  := int MAGIC, int VERSION
+ * section := int columnCount, int 0, (long offset, long length)[columnCount], column[columnCount]
+ * index   := int sectionCount, int 0, (int type, int elementCount, long offset, long length)[sectionCount]
+ * trailer := long indexOffset, int MAGIC
+ * </pre>
+ * Column offsets are relative to the start of their section, sections and columns start at 8 byte boundaries. 
+ * Strings are stored once in the STRINGS section and referenced by their index, -1 is a null string. 
+ * A null id is stored as -1. A collection is stored as two columns: the int size of the collection of 
+ * each element, followed by the values of all the elements.
+ * <p>
+ * Columns of the element sections, one value per element unless they are collections:
+ * <pre>
+ * NAMESPACES         id, prefix, uri, properties
+ * BASE_TERMS         id, name, namespaceId
+ * CITATIONS          id, title, idType, identifier, contributors(string), properties
+ * SUPPORTS           id, text, citationId, properties
+ * REIFIED_EDGE_TERMS id, edgeId
+ * FUNCTION_TERMS     id, functionTermId, parameterIds
+ * NODES              id, name, represents, representsTermType, aliases, relatedTerms, citationIds, supportIds, properties
+ * EDGES              id, subjectId, predicateId, objectId, citationIds, supportIds, properties
+ * </pre>
+ * properties is 9 columns: the number of properties of each element, then their predicateString, value, 
+ * dataType, predicateId and valueId, followed by the number of presentation properties and their names and values. 
+ * The STRINGS section has the int offsets of the strings (one more than the number of strings) and their UTF-8 bytes. 
+ * The SUMMARY section has the network summary as a JSON document.
+ * <p>
+ * Version 2: the element sections only hold the citations, supports and terms that nodes or edges refer to, 
+ * the same elements getNetworkById returns. 
+ */
+public final class NetworkSnapshotFormat {
+
+	public static final int MAGIC   = 0x4E445853;  // "NDXS"
+	public static final int VERSION = 2;
+	
+	// snapshot files are stored next to the JSON cache files, as <cacheId>.snap
+	public static final String FILE_EXTENSION = ".snap";
+	
+	// section types. The element sections are numbered in the order of NetworkElementHandler.
+	public static final int NAMESPACES         = 1;
+	public static final int BASE_TERMS         = 2;
+	public static final int CITATIONS          = 3;
+	public static final int SUPPORTS           = 4;
+	public static final int REIFIED_EDGE_TERMS = 5;
+	public static final int FUNCTION_TERMS     = 6;
+	public static final int NODES              = 7;
+	public static final int EDGES              = 8;
+	public static final int STRINGS            = 9;
+	public static final int SUMMARY            = 10;
+	
+	static final String[] sectionNames = {null, "namespaces", "baseTerms", "citations", "supports", 
+		"reifiedEdgeTerms", "functionTerms", "nodes", "edges", "strings", "summary"};
+	
+	// number of columns of each section type.
+	static final int[] columnCounts = {0, 3 + 9, 3, 6 + 9, 3 + 9, 2, 4, 12 + 9, 8 + 9, 2, 1};
+	
+	static final int  HEADER_SIZE      = 8;
+	static final int  INDEX_ENTRY_SIZE = 24;
+	static final int  TRAILER_SIZE     = 12;
+	static final int  ALIGNMENT        = 8;
+	
+	static final long NULL_ID     = -1;
+	static final int  NULL_STRING = -1;
+	
+	private NetworkSnapshotFormat() {}
+}
@@ -0,0 +1,474 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.persistence.orientdb;
+
+import static org.ndexbio.common.persistence.orientdb.NetworkSnapshotFormat.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.concurrent.ExecutionException;
+
+import org.ndexbio.model.exceptions.NdexException;
+import org.ndexbio.model.object.NdexPropertyValuePair;
+import org.ndexbio.model.object.SimplePropertyValuePair;
+import org.ndexbio.model.object.network.BaseTerm;
+import org.ndexbio.model.object.network.Citation;
+import org.ndexbio.model.object.network.Edge;
+import org.ndexbio.model.object.network.FunctionTerm;
+import org.ndexbio.model.object.network.Namespace;
+import org.ndexbio.model.object.network.Network;
+import org.ndexbio.model.object.network.NetworkSummary;
+import org.ndexbio.model.object.network.Node;
+import org.ndexbio.model.object.network.PropertiedNetworkElement;
+import org.ndexbio.model.object.network.ReifiedEdgeTerm;
+import org.ndexbio.model.object.network.Support;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads a binary network snapshot written by NetworkSnapshotWriter. Only the section index is read when the 
+ * reader is created, the sections are decoded when they are asked for, so a caller that only needs the summary 
+ * or the edges of a network doesn't pay for the rest of it.
+ */
+public class NetworkSnapshotReader {
+
+	private final ByteBuffer buffer;
+	
+	// offset, length and element count of each section type, offset -1 if the section is not in the snapshot.
+	private final long[] sectionOffsets;
+	private final long[] sectionLengths;
+	private final int[]  elementCounts;
+	
+	private IntBuffer  stringOffsets;
+	private ByteBuffer stringBytes;
+	private String[]   strings;
+	
+	public NetworkSnapshotReader(ByteBuffer buffer) throws NdexException {
+		this.buffer = buffer.duplicate();
+		int sectionTypes = sectionNames.length;
+		sectionOffsets = new long[sectionTypes];
+		sectionLengths = new long[sectionTypes];
+		elementCounts = new int[sectionTypes];
+		for ( int i = 0 ; i < sectionTypes; i++) 
+			sectionOffsets[i] = -1;
+		
+		int size = this.buffer.limit();
+		if ( size < HEADER_SIZE + TRAILER_SIZE || this.buffer.getInt(0) != MAGIC || 
+				this.buffer.getInt(size - 4) != MAGIC) 
+			throw new NdexException("Not a network snapshot.");
+		if ( this.buffer.getInt(4) != VERSION) 
+			throw new NdexException("Unsupported network snapshot version " + this.buffer.getInt(4) + ".");
+		
+		int indexOffset = checkedInt(this.buffer.getLong(size - TRAILER_SIZE));
+		int sectionCount = this.buffer.getInt(indexOffset);
+		for ( int i = 0; i < sectionCount; i++) {
+			int entry = indexOffset + 8 + i * INDEX_ENTRY_SIZE;
+			int type = this.buffer.getInt(entry);
+			if ( type <= 0 || type >= sectionTypes) 
+				continue;  // written by a newer version
+			elementCounts[type] = this.buffer.getInt(entry+4);
+			sectionOffsets[type] = this.buffer.getLong(entry+8);
+			sectionLengths[type] = this.buffer.getLong(entry+16);
+		}
+	}
+	
+	/**
+	 * Map a snapshot file into memory. The file is not read until its sections are used. 
+	 */
+	public static NetworkSnapshotReader open(String fileName) throws IOException, NdexException {
+		try (RandomAccessFile file = new RandomAccessFile(fileName, "r");
+			 FileChannel channel = file.getChannel()) {
+			return new NetworkSnapshotReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+	
+	public boolean hasSection(int sectionType) {
+		return sectionOffsets[sectionType] >= 0;
+	}
+	
+	/**
+	 * @return the number of elements in a section, 0 if the section is not in the snapshot.
+	 */
+	public int getElementCount(int sectionType) {
+		return elementCounts[sectionType];
+	}
+	
+	public NetworkSummary readSummary() throws NdexException {
+		return readSummary(NetworkSummary.class);
+	}
+	
+	public Network readNetwork() throws NdexException {
+		final Network network = readSummary(Network.class);
+		try {
+			read(new NetworkElementHandler() {
+				@Override public void handleNamespace(Namespace e) { network.getNamespaces().put(e.getId(), e); }
+				@Override public void handleBaseTerm(BaseTerm e) { network.getBaseTerms().put(e.getId(), e); }
+				@Override public void handleCitation(Citation e) { network.getCitations().put(e.getId(), e); }
+				@Override public void handleSupport(Support e) { network.getSupports().put(e.getId(), e); }
+				@Override public void handleReifiedEdgeTerm(ReifiedEdgeTerm e) { network.getReifiedEdgeTerms().put(e.getId(), e); }
+				@Override public void handleFunctionTerm(FunctionTerm e) { network.getFunctionTerms().put(e.getId(), e); }
+				@Override public void handleNode(Node e) { network.getNodes().put(e.getId(), e); }
+				@Override public void handleEdge(Edge e) { network.getEdges().put(e.getId(), e); }
+				@Override public void handleNetworkSummary(NetworkSummary summary) { }
+			});
+		} catch (ExecutionException e) {
+			throw new NdexException("Failed to read network snapshot: " + e.getMessage());
+		}
+		return network;
+	}
+	
+	/**
+	 * Pass all the elements of the snapshot to a handler, in the order of NetworkElementHandler. 
+	 */
+	public void read(NetworkElementHandler handler) throws NdexException, ExecutionException {
+		for ( int section = NAMESPACES; section <= EDGES; section++) 
+			readSection(section, handler);
+		handler.handleNetworkSummary(readSummary());
+	}
+	
+	/**
+	 * Pass the elements of one element section to a handler. 
+	 */
+	public void readSection(int sectionType, NetworkElementHandler handler) throws NdexException, ExecutionException {
+		if ( sectionType < NAMESPACES || sectionType > EDGES) 
+			throw new NdexException("Section " + sectionType + " is not an element section.");
+		if ( !hasSection(sectionType)) 
+			return;
+		
+		Section s = new Section(sectionType);
+		int count = elementCounts[sectionType];
+		LongBuffer ids = s.longs(0);
+		
+		switch (sectionType) {
+		case NAMESPACES: {
+			IntBuffer prefixes = s.ints(1);
+			IntBuffer uris = s.ints(2);
+			Properties props = new Properties(s, 3);
+			for ( int i = 0; i < count; i++) {
+				Namespace e = new Namespace();
+				e.setId(ids.get(i));
+				e.setPrefix(getString(prefixes.get(i)));
+				e.setUri(getString(uris.get(i)));
+				props.next(e);
+				handler.handleNamespace(e);
+			}
+			break;
+		}
+		case BASE_TERMS: {
+			IntBuffer names = s.ints(1);
+			LongBuffer namespaceIds = s.longs(2);
+			for ( int i = 0; i < count; i++) {
+				BaseTerm e = new BaseTerm();
+				e.setId(ids.get(i));
+				e.setName(getString(names.get(i)));
+				e.setNamespaceId(namespaceIds.get(i));
+				handler.handleBaseTerm(e);
+			}
+			break;
+		}
+		case CITATIONS: {
+			IntBuffer titles = s.ints(1);
+			IntBuffer idTypes = s.ints(2);
+			IntBuffer identifiers = s.ints(3);
+			IntBuffer contributorCounts = s.ints(4);
+			IntBuffer contributors = s.ints(5);
+			Properties props = new Properties(s, 6);
+			for ( int i = 0; i < count; i++) {
+				Citation e = new Citation();
+				e.setId(ids.get(i));
+				e.setTitle(getString(titles.get(i)));
+				e.setIdType(getString(idTypes.get(i)));
+				e.setIdentifier(getString(identifiers.get(i)));
+				for ( int j = contributorCounts.get(i); j > 0; j--) 
+					e.getContributors().add(getString(contributors.get()));
+				props.next(e);
+				handler.handleCitation(e);
+			}
+			break;
+		}
+		case SUPPORTS: {
+			IntBuffer texts = s.ints(1);
+			LongBuffer citationIds = s.longs(2);
+			Properties props = new Properties(s, 3);
+			for ( int i = 0; i < count; i++) {
+				Support e = new Support();
+				e.setId(ids.get(i));
+				e.setText(getString(texts.get(i)));
+				e.setCitationId(citationIds.get(i));
+				props.next(e);
+				handler.handleSupport(e);
+			}
+			break;
+		}
+		case REIFIED_EDGE_TERMS: {
+			LongBuffer edgeIds = s.longs(1);
+			for ( int i = 0; i < count; i++) {
+				ReifiedEdgeTerm e = new ReifiedEdgeTerm();
+				e.setId(ids.get(i));
+				e.setEdgeId(edgeIds.get(i));
+				handler.handleReifiedEdgeTerm(e);
+			}
+			break;
+		}
+		case FUNCTION_TERMS: {
+			LongBuffer functionIds = s.longs(1);
+			IdLists parameters = new IdLists(s, 2);
+			for ( int i = 0; i < count; i++) {
+				FunctionTerm e = new FunctionTerm();
+				e.setId(ids.get(i));
+				e.setFunctionTermId(functionIds.get(i));
+				parameters.next(e.getParameterIds());
+				handler.handleFunctionTerm(e);
+			}
+			break;
+		}
+		case NODES: {
+			IntBuffer names = s.ints(1);
+			LongBuffer represents = s.longs(2);
+			IntBuffer termTypes = s.ints(3);
+			IdLists aliases = new IdLists(s, 4);
+			IdLists relatedTerms = new IdLists(s, 6);
+			IdLists citations = new IdLists(s, 8);
+			IdLists supports = new IdLists(s, 10);
+			Properties props = new Properties(s, 12);
+			for ( int i = 0; i < count; i++) {
+				Node e = new Node();
+				e.setId(ids.get(i));
+				e.setName(getString(names.get(i)));
+				long r = represents.get(i);
+				if ( r != NULL_ID) 
+					e.setRepresents(Long.valueOf(r));
+				e.setRepresentsTermType(getString(termTypes.get(i)));
+				aliases.next(e.getAliases());
+				relatedTerms.next(e.getRelatedTerms());
+				citations.next(e.getCitationIds());
+				supports.next(e.getSupportIds());
+				props.next(e);
+				handler.handleNode(e);
+			}
+			break;
+		}
+		case EDGES: {
+			LongBuffer subjects = s.longs(1);
+			LongBuffer predicates = s.longs(2);
+			LongBuffer objects = s.longs(3);
+			IdLists citations = new IdLists(s, 4);
+			IdLists supports = new IdLists(s, 6);
+			Properties props = new Properties(s, 8);
+			for ( int i = 0; i < count; i++) {
+				Edge e = new Edge();
+				e.setId(ids.get(i));
+				e.setSubjectId(subjects.get(i));
+				long p = predicates.get(i);
+				if ( p != NULL_ID) 
+					e.setPredicateId(Long.valueOf(p));
+				e.setObjectId(objects.get(i));
+				citations.next(e.getCitationIds());
+				supports.next(e.getSupportIds());
+				props.next(e);
+				handler.handleEdge(e);
+			}
+			break;
+		}
+		default: 
+			break;
+		}
+	}
+	
+	/**
+	 * @return a view of a column of a section, positioned at the start of the column. 
+	 */
+	ByteBuffer getColumn(int sectionType, int column) throws NdexException {
+		return new Section(sectionType).column(column);
+	}
+	
+	/**
+	 * @return the offset of a section in the snapshot, -1 if the section is not in the snapshot.
+	 */
+	long getSectionOffset(int sectionType) {
+		return sectionOffsets[sectionType];
+	}
+	
+	long getSectionLength(int sectionType) {
+		return sectionLengths[sectionType];
+	}
+	
+	/**
+	 * @return the string with the given index in the string section, null for NULL_STRING. 
+	 */
+	public String getString(int stringId) throws NdexException {
+		if ( stringId == NULL_STRING) 
+			return null;
+		if ( strings == null) {
+			Section s = new Section(STRINGS);
+			stringOffsets = s.ints(0);
+			stringBytes = s.column(1);
+			strings = new String[elementCounts[STRINGS]];
+		}
+		String str = strings[stringId];
+		if ( str == null) {
+			int start = stringOffsets.get(stringId);
+			byte[] bytes = new byte[stringOffsets.get(stringId+1) - start];
+			ByteBuffer b = stringBytes.duplicate();
+			b.position(start);
+			b.get(bytes);
+			str = new String(bytes, StandardCharsets.UTF_8);
+			strings[stringId] = str;
+		}
+		return str;
+	}
+	
+	private <T extends NetworkSummary> T readSummary(Class<T> type) throws NdexException {
+		if ( !hasSection(SUMMARY)) 
+			throw new NdexException("Network snapshot has no summary.");
+		ByteBuffer json = new Section(SUMMARY).column(0);
+		byte[] bytes = new byte[json.remaining()];
+		json.get(bytes);
+		try {
+			ObjectMapper mapper = new ObjectMapper();
+			mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+			return mapper.readValue(bytes, type);
+		} catch (IOException e) {
+			throw new NdexException("Failed to read network summary from snapshot: " + e.getMessage());
+		}
+	}
+	
+	private static int checkedInt(long v) throws NdexException {
+		if ( v < 0 || v > Integer.MAX_VALUE) 
+			throw new NdexException("Invalid offset " + v + " in network snapshot.");
+		return (int) v;
+	}
+	
+	/**
+	 * The columns of a section.
+	 */
+	private class Section {
+		private final int start;
+		private final int columnCount;
+		
+		Section(int sectionType) throws NdexException {
+			if ( !hasSection(sectionType)) 
+				throw new NdexException("Network snapshot has no " + sectionNames[sectionType] + " section.");
+			start = checkedInt(sectionOffsets[sectionType]);
+			columnCount = buffer.getInt(start);
+			if ( columnCount < columnCounts[sectionType]) 
+				throw new NdexException("Section " + sectionNames[sectionType] + " of network snapshot has " + 
+						columnCount + " columns, " + columnCounts[sectionType] + " expected.");
+		}
+		
+		ByteBuffer column(int column) throws NdexException {
+			int entry = start + 8 + column * 16;
+			int offset = checkedInt(start + buffer.getLong(entry));
+			int length = checkedInt(buffer.getLong(entry + 8));
+			ByteBuffer b = buffer.duplicate();
+			b.limit(offset + length).position(offset);
+			return b.slice();
+		}
+		
+		IntBuffer ints(int column) throws NdexException {
+			return column(column).asIntBuffer();
+		}
+		
+		LongBuffer longs(int column) throws NdexException {
+			return column(column).asLongBuffer();
+		}
+	}
+	
+	/**
+	 * Reads the id collections of consecutive elements from a size column and a value column.
+	 */
+	private static class IdLists {
+		private final IntBuffer sizes;
+		private final LongBuffer values;
+		
+		IdLists(Section s, int column) throws NdexException {
+			sizes = s.ints(column);
+			values = s.longs(column+1);
+		}
+		
+		void next(Collection<Long> target) {
+			for ( int n = sizes.get(); n > 0; n--) 
+				target.add(Long.valueOf(values.get()));
+		}
+	}
+	
+	/**
+	 * Reads the properties of consecutive elements from the 9 property columns of a section.
+	 */
+	private class Properties {
+		private final IntBuffer counts;
+		private final IntBuffer predicates;
+		private final IntBuffer values;
+		private final IntBuffer dataTypes;
+		private final LongBuffer predicateIds;
+		private final LongBuffer valueIds;
+		private final IntBuffer presentationCounts;
+		private final IntBuffer names;
+		private final IntBuffer presentationValues;
+		
+		Properties(Section s, int column) throws NdexException {
+			counts = s.ints(column);
+			predicates = s.ints(column+1);
+			values = s.ints(column+2);
+			dataTypes = s.ints(column+3);
+			predicateIds = s.longs(column+4);
+			valueIds = s.longs(column+5);
+			presentationCounts = s.ints(column+6);
+			names = s.ints(column+7);
+			presentationValues = s.ints(column+8);
+		}
+		
+		void next(PropertiedNetworkElement element) throws NdexException {
+			for ( int n = counts.get(); n > 0; n--) {
+				NdexPropertyValuePair p = new NdexPropertyValuePair();
+				p.setPredicateString(getString(predicates.get()));
+				p.setValue(getString(values.get()));
+				p.setDataType(getString(dataTypes.get()));
+				p.setPredicateId(predicateIds.get());
+				p.setValueId(valueIds.get());
+				element.getProperties().add(p);
+			}
+			for ( int n = presentationCounts.get(); n > 0; n--) {
+				SimplePropertyValuePair p = new SimplePropertyValuePair();
+				p.setName(getString(names.get()));
+				p.setValue(getString(presentationValues.get()));
+				element.getPresentationProperties().add(p);
+			}
+		}
+	}
+}
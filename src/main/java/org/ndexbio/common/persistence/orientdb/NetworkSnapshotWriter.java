@@ -0,0 +1,467 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.persistence.orientdb;
+
+import static org.ndexbio.common.persistence.orientdb.NetworkSnapshotFormat.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ndexbio.model.exceptions.NdexException;
+import org.ndexbio.model.object.NdexPropertyValuePair;
+import org.ndexbio.model.object.SimplePropertyValuePair;
+import org.ndexbio.model.object.network.BaseTerm;
+import org.ndexbio.model.object.network.Citation;
+import org.ndexbio.model.object.network.Edge;
+import org.ndexbio.model.object.network.FunctionTerm;
+import org.ndexbio.model.object.network.Namespace;
+import org.ndexbio.model.object.network.NetworkSummary;
+import org.ndexbio.model.object.network.Node;
+import org.ndexbio.model.object.network.PropertiedNetworkElement;
+import org.ndexbio.model.object.network.ReifiedEdgeTerm;
+import org.ndexbio.model.object.network.Support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Writes the elements passed to it as a binary network snapshot, see NetworkSnapshotFormat. A section can only 
+ * be written when it is complete, and the strings only at the end, so each column keeps up to 
+ * maxColumnMemory bytes in memory and moves the rest to a temporary file. Strings are deduplicated among the 
+ * last maxDedupStrings distinct strings, an older string is stored again when it comes back. The snapshot 
+ * is finished when handleNetworkSummary is called. The channel is not closed.
+ * 
+ * The elements of a section have to be passed together, in the order of NetworkElementHandler. 
+ * NetworkSnapshotReader maps a snapshot into one buffer, so a network that needs more than 2GB fails with 
+ * an NdexException. close() removes the temporary files if the snapshot is not finished.
+ */
+public class NetworkSnapshotWriter implements NetworkElementHandler, AutoCloseable {
+
+	private static final int maxColumnMemory = 1 << 18;
+	private static final int maxDedupStrings = 100000;
+	private static final long maxSnapshotSize = Integer.MAX_VALUE;
+	
+	private final WritableByteChannel out;
+	
+	// directory of the temporary column files, null for the default temporary directory.
+	private final File spillDirectory;
+	
+	// number of bytes written to the channel. 
+	private long position;
+	
+	// type of the section being collected, 0 before the first element.
+	private int currentSection;
+	private int elementCount;
+	private ColumnBuffer[] columns;
+	
+	private final List<long[]> index;
+	
+	private final Map<String, Integer> stringIds;
+	private int stringCount;
+	private final ColumnBuffer stringOffsets;
+	private final ColumnBuffer stringBytes;
+	
+	public NetworkSnapshotWriter(WritableByteChannel out) throws IOException {
+		this(out, null);
+	}
+	
+	/**
+	 * @param spillDirectory directory for the temporary files of the columns, null for the default temporary directory.
+	 */
+	public NetworkSnapshotWriter(WritableByteChannel out, File spillDirectory) throws IOException {
+		this.out = out;
+		this.spillDirectory = spillDirectory;
+		this.position = 0;
+		this.currentSection = 0;
+		this.index = new ArrayList<>();
+		this.stringIds = new LinkedHashMap<String, Integer>(1024, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+				return size() > maxDedupStrings;
+			}
+		};
+		this.stringCount = 0;
+		this.stringOffsets = new ColumnBuffer();
+		this.stringBytes = new ColumnBuffer();
+		stringOffsets.buf.putInt(0);
+		
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(VERSION).flip();
+		write(header);
+	}
+	
+	@Override
+	public void handleNamespace(Namespace namespace) throws NdexException {
+		startElement(NAMESPACES, namespace.getId());
+		putString(1, namespace.getPrefix());
+		putString(2, namespace.getUri());
+		putProperties(3, namespace);
+	}
+
+	@Override
+	public void handleBaseTerm(BaseTerm baseTerm) throws NdexException {
+		startElement(BASE_TERMS, baseTerm.getId());
+		putString(1, baseTerm.getName());
+		columns[2].putLong(baseTerm.getNamespaceId());
+	}
+
+	@Override
+	public void handleCitation(Citation citation) throws NdexException {
+		startElement(CITATIONS, citation.getId());
+		putString(1, citation.getTitle());
+		putString(2, citation.getIdType());
+		putString(3, citation.getIdentifier());
+		List<String> contributors = citation.getContributors();
+		if ( contributors == null) {
+			columns[4].putInt(0);
+		} else {
+			columns[4].putInt(contributors.size());
+			for ( String c : contributors) 
+				putString(5, c);
+		}
+		putProperties(6, citation);
+	}
+
+	@Override
+	public void handleSupport(Support support) throws NdexException {
+		startElement(SUPPORTS, support.getId());
+		putString(1, support.getText());
+		columns[2].putLong(support.getCitationId());
+		putProperties(3, support);
+	}
+
+	@Override
+	public void handleReifiedEdgeTerm(ReifiedEdgeTerm reifiedEdgeTerm) throws NdexException {
+		startElement(REIFIED_EDGE_TERMS, reifiedEdgeTerm.getId());
+		columns[1].putLong(reifiedEdgeTerm.getEdgeId());
+	}
+
+	@Override
+	public void handleFunctionTerm(FunctionTerm functionTerm) throws NdexException {
+		startElement(FUNCTION_TERMS, functionTerm.getId());
+		columns[1].putLong(functionTerm.getFunctionTermId());
+		putIds(2, functionTerm.getParameterIds());
+	}
+
+	@Override
+	public void handleNode(Node node) throws NdexException {
+		startElement(NODES, node.getId());
+		putString(1, node.getName());
+		columns[2].putLong(node.getRepresents() == null ? NULL_ID : node.getRepresents().longValue());
+		putString(3, node.getRepresentsTermType());
+		putIds(4, node.getAliases());
+		putIds(6, node.getRelatedTerms());
+		putIds(8, node.getCitationIds());
+		putIds(10, node.getSupportIds());
+		putProperties(12, node);
+	}
+
+	@Override
+	public void handleEdge(Edge edge) throws NdexException {
+		startElement(EDGES, edge.getId());
+		columns[1].putLong(edge.getSubjectId());
+		columns[2].putLong(edge.getPredicateId() == null ? NULL_ID : edge.getPredicateId().longValue());
+		columns[3].putLong(edge.getObjectId());
+		putIds(4, edge.getCitationIds());
+		putIds(6, edge.getSupportIds());
+		putProperties(8, edge);
+	}
+
+	@Override
+	public void handleNetworkSummary(NetworkSummary summary) throws NdexException {
+		try {
+			writeSection();
+			
+			columns = new ColumnBuffer[] {stringOffsets, stringBytes};
+			currentSection = STRINGS;
+			elementCount = stringCount;
+			writeSection();
+			
+			// the summary may be a complete Network, only its own attributes are kept.
+			ObjectMapper mapper = new ObjectMapper();
+			ObjectNode summaryNode = mapper.valueToTree(summary);
+			for ( int i = NAMESPACES; i <= EDGES; i++)
+				summaryNode.remove(sectionNames[i]);
+			ColumnBuffer json = new ColumnBuffer();
+			json.put(mapper.writeValueAsBytes(summaryNode));
+			columns = new ColumnBuffer[] {json};
+			currentSection = SUMMARY;
+			elementCount = 1;
+			writeSection();
+			
+			long indexOffset = position;
+			ByteBuffer buf = ByteBuffer.allocate(8 + index.size() * INDEX_ENTRY_SIZE + TRAILER_SIZE);
+			buf.putInt(index.size()).putInt(0);
+			for ( long[] entry : index) 
+				buf.putInt((int)entry[0]).putInt((int)entry[1]).putLong(entry[2]).putLong(entry[3]);
+			buf.putLong(indexOffset).putInt(MAGIC).flip();
+			write(buf);
+		} catch (IOException e) {
+			throw new NdexException("Failed to write network snapshot: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Remove the temporary files of the columns that were not written.
+	 */
+	@Override
+	public void close() {
+		if ( columns != null) {
+			for ( ColumnBuffer c : columns) {
+				if ( c != null)
+					c.close();
+			}
+		}
+		stringOffsets.close();
+		stringBytes.close();
+	}
+	
+	private void startElement(int section, long id) throws NdexException {
+		if ( section < currentSection) 
+			throw new NdexException("Element " + id + " of section " + sectionNames[section] + 
+					" received after section " + sectionNames[currentSection] + ".");
+		if ( section > currentSection) {
+			try {
+				writeSection();
+			} catch (IOException e) {
+				throw new NdexException("Failed to write network snapshot: " + e.getMessage());
+			}
+			currentSection = section;
+			elementCount = 0;
+			columns = new ColumnBuffer[columnCounts[section]];
+			for ( int i = 0; i < columns.length; i++) 
+				columns[i] = new ColumnBuffer();
+		}
+		elementCount++;
+		columns[0].putLong(id);
+	}
+	
+	private void putString(int column, String str) throws NdexException {
+		if ( str == null) {
+			columns[column].putInt(NULL_STRING);
+			return;
+		}
+		Integer id = stringIds.get(str);
+		if ( id == null) {
+			stringBytes.put(str.getBytes(StandardCharsets.UTF_8));
+			if ( stringBytes.size() > maxSnapshotSize)
+				throw new NdexException("Network is too large for a snapshot, its strings take more than 2GB.");
+			id = Integer.valueOf(stringCount++);
+			stringIds.put(str, id);
+			stringOffsets.putInt((int)stringBytes.size());
+		}
+		columns[column].putInt(id.intValue());
+	}
+	
+	private void putIds(int column, Collection<Long> ids) throws NdexException {
+		if ( ids == null) {
+			columns[column].putInt(0);
+			return;
+		}
+		columns[column].putInt(ids.size());
+		for ( Long id : ids) 
+			columns[column+1].putLong(id.longValue());
+	}
+	
+	private void putProperties(int column, PropertiedNetworkElement element) throws NdexException {
+		List<NdexPropertyValuePair> properties = element.getProperties();
+		columns[column].putInt(properties == null ? 0 : properties.size());
+		if ( properties != null) {
+			for ( NdexPropertyValuePair p : properties) {
+				putString(column+1, p.getPredicateString());
+				putString(column+2, p.getValue());
+				putString(column+3, p.getDataType());
+				columns[column+4].putLong(p.getPredicateId());
+				columns[column+5].putLong(p.getValueId());
+			}
+		}
+		List<SimplePropertyValuePair> presentationProperties = element.getPresentationProperties();
+		columns[column+6].putInt(presentationProperties == null ? 0 : presentationProperties.size());
+		if ( presentationProperties != null) {
+			for ( SimplePropertyValuePair p : presentationProperties) {
+				putString(column+7, p.getName());
+				putString(column+8, p.getValue());
+			}
+		}
+	}
+	
+	/**
+	 * Write the columns of the current section and add it to the index. Nothing is written before the first element.
+	 */
+	private void writeSection() throws IOException, NdexException {
+		if ( currentSection == 0) 
+			return;
+		
+		long start = position;
+		int headerSize = 8 + 16 * columns.length;
+		ByteBuffer header = ByteBuffer.allocate(headerSize);
+		header.putInt(columns.length).putInt(0);
+		long offset = headerSize;
+		for ( ColumnBuffer c : columns) {
+			header.putLong(offset).putLong(c.size());
+			offset += padded(c.size());
+		}
+		// the index and the trailer follow the last section.
+		if ( start + offset + 1024 > maxSnapshotSize) 
+			throw new NdexException("Network is too large for a snapshot, the " + sectionNames[currentSection] + 
+					" section ends after 2GB.");
+		header.flip();
+		write(header);
+		
+		ByteBuffer padding = ByteBuffer.allocate(ALIGNMENT);
+		for ( ColumnBuffer c : columns) {
+			c.writeTo();
+			padding.clear().limit((int)(padded(c.size()) - c.size()));
+			write(padding);
+			c.close();
+		}
+		
+		index.add(new long[] {currentSection, elementCount, start, position - start});
+		columns = null;
+	}
+	
+	private void write(ByteBuffer buf) throws IOException {
+		while ( buf.hasRemaining()) 
+			position += out.write(buf);
+	}
+	
+	private static long padded(long size) {
+		return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+	}
+	
+	/**
+	 * Big-endian values of a column. The first maxColumnMemory bytes are kept in memory, when they are full 
+	 * they are appended to a temporary file. 
+	 */
+	private final class ColumnBuffer {
+		private ByteBuffer buf = ByteBuffer.allocate(64);
+		private File spillFile;
+		private FileChannel spillChannel;
+		private long spilled = 0;
+		
+		void putInt(int v) throws NdexException {
+			ensure(4);
+			buf.putInt(v);
+		}
+		
+		void putLong(long v) throws NdexException {
+			ensure(8);
+			buf.putLong(v);
+		}
+		
+		void put(byte[] bytes) throws NdexException {
+			if ( bytes.length > maxColumnMemory) {
+				spill();
+				spill(ByteBuffer.wrap(bytes));
+				return;
+			}
+			ensure(bytes.length);
+			buf.put(bytes);
+		}
+		
+		long size() { 
+			return spilled + buf.position(); 
+		}
+		
+		/**
+		 * Copy the values to the snapshot, the temporary file first.
+		 */
+		void writeTo() throws IOException {
+			if ( spillChannel != null) {
+				long copied = 0;
+				while ( copied < spilled) 
+					copied += spillChannel.transferTo(copied, spilled - copied, out);
+				position += spilled;
+			}
+			buf.flip();
+			write(buf);
+		}
+		
+		void close() {
+			if ( spillChannel == null) 
+				return;
+			try {
+				spillChannel.close();
+			} catch (IOException e) {
+				// the file is deleted anyway.
+			}
+			spillChannel = null;
+			if ( !spillFile.delete())
+				spillFile.deleteOnExit();
+		}
+		
+		private void ensure(int n) throws NdexException {
+			if ( buf.remaining() >= n) 
+				return;
+			if ( buf.capacity() < maxColumnMemory) {
+				ByteBuffer b = ByteBuffer.allocate(Math.min(maxColumnMemory, Math.max(buf.capacity() * 2, buf.position() + n)));
+				buf.flip();
+				b.put(buf);
+				buf = b;
+				if ( buf.remaining() >= n) 
+					return;
+			}
+			spill();
+		}
+		
+		private void spill() throws NdexException {
+			buf.flip();
+			spill(buf);
+			buf.clear();
+		}
+		
+		private void spill(ByteBuffer b) throws NdexException {
+			try {
+				if ( spillChannel == null) {
+					spillFile = File.createTempFile("ndex-snapshot", ".col", spillDirectory);
+					spillChannel = new RandomAccessFile(spillFile, "rw").getChannel();
+				}
+				spilled += b.remaining();
+				while ( b.hasRemaining()) 
+					spillChannel.write(b);
+			} catch (IOException e) {
+				throw new NdexException("Failed to write network snapshot column: " + e.getMessage());
+			}
+		}
+	}
+}
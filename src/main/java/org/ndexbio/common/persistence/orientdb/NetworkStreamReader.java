@@ -0,0 +1,238 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.persistence.orientdb;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import org.ndexbio.model.exceptions.NdexException;
+import org.ndexbio.model.object.network.BaseTerm;
+import org.ndexbio.model.object.network.Citation;
+import org.ndexbio.model.object.network.Edge;
+import org.ndexbio.model.object.network.FunctionTerm;
+import org.ndexbio.model.object.network.Namespace;
+import org.ndexbio.model.object.network.NetworkSummary;
+import org.ndexbio.model.object.network.Node;
+import org.ndexbio.model.object.network.ReifiedEdgeTerm;
+import org.ndexbio.model.object.network.Support;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Reads a network in the NDEx JSON format from a stream and passes its elements to a NetworkElementHandler one 
+ * at a time, so the whole network never has to be on the heap. 
+ * 
+ * Element sections are passed in the order of their dependencies. A section that comes before a section it 
+ * depends on is kept in a token buffer until that section is read, so the memory used by the reader stays small 
+ * when the sections are written in the order of the Section enum, and all of them are present.
+ */
+public class NetworkStreamReader {
+
+	private enum Section {
+		NAMESPACES ("namespaces"),
+		BASE_TERMS ("baseTerms"),
+		CITATIONS ("citations"),
+		SUPPORTS ("supports"),
+		REIFIED_EDGE_TERMS ("reifiedEdgeTerms"),
+		FUNCTION_TERMS ("functionTerms"),
+		NODES ("nodes"),
+		EDGES ("edges");
+		
+		private final String fieldName;
+		
+		Section(String fieldName) {
+			this.fieldName = fieldName;
+		}
+		
+		static Section fromFieldName(String name) {
+			for ( Section s : values())
+				if ( s.fieldName.equals(name)) 
+					return s;
+			return null;
+		}
+	}
+	
+	// sections whose elements can be referred to by the elements of a section.
+	private static final Map<Section, EnumSet<Section>> dependencies = new EnumMap<>(Section.class);
+	static {
+		dependencies.put(Section.NAMESPACES, EnumSet.noneOf(Section.class));
+		dependencies.put(Section.BASE_TERMS, EnumSet.of(Section.NAMESPACES));
+		dependencies.put(Section.CITATIONS,  EnumSet.noneOf(Section.class));
+		dependencies.put(Section.SUPPORTS,   EnumSet.of(Section.CITATIONS));
+		// only the term itself is passed, the handler links reified edge terms and function terms to their 
+		// edges and arguments after all the elements are read.
+		dependencies.put(Section.REIFIED_EDGE_TERMS, EnumSet.noneOf(Section.class));
+		dependencies.put(Section.FUNCTION_TERMS, EnumSet.noneOf(Section.class));
+		dependencies.put(Section.NODES, EnumSet.of(Section.BASE_TERMS, Section.CITATIONS, Section.SUPPORTS, 
+				Section.REIFIED_EDGE_TERMS, Section.FUNCTION_TERMS));
+		dependencies.put(Section.EDGES, EnumSet.of(Section.NODES, Section.BASE_TERMS, Section.CITATIONS, 
+				Section.SUPPORTS));
+	}
+	
+	private final ObjectMapper mapper;
+	private final JsonParser parser;
+	private final NetworkElementHandler handler;
+	
+	private final EnumSet<Section> doneSections;
+	private final Map<Section, TokenBuffer> bufferedSections;
+	
+	// everything that is not an element section is collected here and converted to a NetworkSummary at the end.
+	private final ObjectNode summaryNode;
+	
+	public NetworkStreamReader(InputStream in, NetworkElementHandler handler) throws IOException {
+		this.mapper = new ObjectMapper();
+		this.parser = mapper.getFactory().createParser(in);
+		this.handler = handler;
+		this.doneSections = EnumSet.noneOf(Section.class);
+		this.bufferedSections = new EnumMap<>(Section.class);
+		this.summaryNode = mapper.createObjectNode();
+	}
+	
+	/**
+	 * Read the whole stream. The stream is not closed.
+	 * @return the network attributes that were passed to handleNetworkSummary.
+	 */
+	public NetworkSummary read() throws IOException, NdexException, ExecutionException {
+		if ( parser.nextToken() != JsonToken.START_OBJECT)
+			throw new NdexException ("Network JSON has to be an object.");
+		
+		while ( parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			parser.nextToken();
+			Section section = Section.fromFieldName(fieldName);
+			if ( section == null) {
+				JsonNode value = mapper.readTree(parser);
+				if ( value != null)
+					summaryNode.set(fieldName, value);
+			} else if ( doneSections.containsAll(dependencies.get(section))) {
+				readSection(section, parser);
+				readBufferedSections();
+			} else {
+				TokenBuffer buffer = new TokenBuffer(parser);
+				buffer.copyCurrentStructure(parser);
+				bufferedSections.put(section, buffer);
+			}
+		}
+		
+		// the sections a buffered section is waiting for are not in the stream.
+		for ( Section section : Section.values()) {
+			TokenBuffer buffer = bufferedSections.remove(section);
+			if ( buffer != null)
+				readBufferedSection(section, buffer);
+		}
+		
+		NetworkSummary summary = mapper.reader(NetworkSummary.class)
+				.without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+				.readValue(summaryNode);
+		handler.handleNetworkSummary(summary);
+		return summary;
+	}
+	
+	private void readBufferedSections() throws IOException, NdexException, ExecutionException {
+		boolean progress = true;
+		while ( progress) {
+			progress = false;
+			for ( Section section : Section.values()) {
+				if ( bufferedSections.containsKey(section) && 
+						doneSections.containsAll(dependencies.get(section))) {
+					readBufferedSection(section, bufferedSections.remove(section));
+					progress = true;
+				}
+			}
+		}
+	}
+	
+	private void readBufferedSection(Section section, TokenBuffer buffer) throws IOException, NdexException, ExecutionException {
+		try (JsonParser p = buffer.asParser()) {
+			p.nextToken();
+			readSection(section, p);
+		}
+	}
+	
+	/**
+	 * Read a section, the parser is on the first token of its value. Sections are maps from element id to 
+	 * element, arrays of elements are accepted too. 
+	 */
+	private void readSection(Section section, JsonParser p) throws IOException, NdexException, ExecutionException {
+		JsonToken t = p.getCurrentToken();
+		if ( t == JsonToken.START_OBJECT) {
+			while ( p.nextToken() == JsonToken.FIELD_NAME) {
+				p.nextToken();
+				readElement(section, p);
+			}
+		} else if ( t == JsonToken.START_ARRAY) {
+			while ( p.nextToken() != JsonToken.END_ARRAY) 
+				readElement(section, p);
+		} else if ( t != JsonToken.VALUE_NULL) 
+			throw new NdexException ("Invalid value for " + section.fieldName + " in network JSON.");
+		
+		doneSections.add(section);
+	}
+	
+	private void readElement(Section section, JsonParser p) throws IOException, NdexException, ExecutionException {
+		switch (section) {
+		case NAMESPACES:
+			handler.handleNamespace(mapper.readValue(p, Namespace.class));
+			break;
+		case BASE_TERMS:
+			handler.handleBaseTerm(mapper.readValue(p, BaseTerm.class));
+			break;
+		case CITATIONS:
+			handler.handleCitation(mapper.readValue(p, Citation.class));
+			break;
+		case SUPPORTS:
+			handler.handleSupport(mapper.readValue(p, Support.class));
+			break;
+		case REIFIED_EDGE_TERMS:
+			handler.handleReifiedEdgeTerm(mapper.readValue(p, ReifiedEdgeTerm.class));
+			break;
+		case FUNCTION_TERMS:
+			handler.handleFunctionTerm(mapper.readValue(p, FunctionTerm.class));
+			break;
+		case NODES:
+			handler.handleNode(mapper.readValue(p, Node.class));
+			break;
+		case EDGES:
+			handler.handleEdge(mapper.readValue(p, Edge.class));
+			break;
+		}
+	}
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.persistence.orientdb;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.ndexbio.model.exceptions.NdexException;
+import org.ndexbio.model.object.network.BaseTerm;
+import org.ndexbio.model.object.network.Citation;
+import org.ndexbio.model.object.network.Edge;
+import org.ndexbio.model.object.network.FunctionTerm;
+import org.ndexbio.model.object.network.Namespace;
+import org.ndexbio.model.object.network.NetworkElement;
+import org.ndexbio.model.object.network.NetworkSummary;
+import org.ndexbio.model.object.network.Node;
+import org.ndexbio.model.object.network.ReifiedEdgeTerm;
+import org.ndexbio.model.object.network.Support;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Writes the elements passed to it as a network in the NDEx JSON format, the same document an ObjectMapper 
+ * writes for a Network object. Each element is written when it is received, so a network read with 
+ * NetworkDocDAO.readNetworkById can be written out without holding it in memory. 
+ * 
+ * The elements of a section have to be passed together, in the order of NetworkElementHandler. The network 
+ * attributes are written after the element sections when handleNetworkSummary is called. The stream is not 
+ * closed.
+ */
+public class NetworkStreamWriter implements NetworkElementHandler {
+
+	// element sections in the order they are written.
+	private static final String[] sections = {"namespaces", "baseTerms", "citations", "supports", 
+		"reifiedEdgeTerms", "functionTerms", "nodes", "edges"};
+	
+	private final ObjectMapper mapper;
+	private final JsonGenerator generator;
+	
+	// index of the section that is being written, -1 before the first element. 
+	private int currentSection;
+	
+	public NetworkStreamWriter(OutputStream out) throws IOException {
+		this.mapper = new ObjectMapper();
+		this.mapper.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		this.generator = mapper.getFactory().createGenerator(out);
+		this.currentSection = -1;
+		generator.writeStartObject();
+	}
+	
+	@Override
+	public void handleNamespace(Namespace namespace) throws NdexException {
+		writeElement(0, namespace);
+	}
+
+	@Override
+	public void handleBaseTerm(BaseTerm baseTerm) throws NdexException {
+		writeElement(1, baseTerm);
+	}
+
+	@Override
+	public void handleCitation(Citation citation) throws NdexException {
+		writeElement(2, citation);
+	}
+
+	@Override
+	public void handleSupport(Support support) throws NdexException {
+		writeElement(3, support);
+	}
+
+	@Override
+	public void handleReifiedEdgeTerm(ReifiedEdgeTerm reifiedEdgeTerm) throws NdexException {
+		writeElement(4, reifiedEdgeTerm);
+	}
+
+	@Override
+	public void handleFunctionTerm(FunctionTerm functionTerm) throws NdexException {
+		writeElement(5, functionTerm);
+	}
+
+	@Override
+	public void handleNode(Node node) throws NdexException {
+		writeElement(6, node);
+	}
+
+	@Override
+	public void handleEdge(Edge edge) throws NdexException {
+		writeElement(7, edge);
+	}
+
+	@Override
+	public void handleNetworkSummary(NetworkSummary summary) throws NdexException {
+		try {
+			// sections without elements are written as empty maps.
+			moveToSection(sections.length);
+			
+			ObjectNode summaryNode = mapper.valueToTree(summary);
+			Iterator<Map.Entry<String, JsonNode>> it = summaryNode.fields();
+			while ( it.hasNext()) {
+				Map.Entry<String, JsonNode> field = it.next();
+				generator.writeFieldName(field.getKey());
+				mapper.writeTree(generator, field.getValue());
+			}
+			generator.writeEndObject();
+			generator.flush();
+		} catch (IOException e) {
+			throw new NdexException("Failed to write network: " + e.getMessage());
+		}
+	}
+	
+	private void writeElement(int section, NetworkElement element) throws NdexException {
+		if ( section < currentSection) 
+			throw new NdexException("Element " + element.getId() + " of section " + sections[section] + 
+					" received after section " + sections[currentSection] + ".");
+		try {
+			moveToSection(section);
+			generator.writeFieldName(Long.toString(element.getId()));
+			mapper.writeValue(generator, element);
+		} catch (IOException e) {
+			throw new NdexException("Failed to write network element " + element.getId() + ": " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Close the section being written and open the sections up to the given one.
+	 */
+	private void moveToSection(int section) throws IOException {
+		while ( currentSection < section) {
+			if ( currentSection >= 0 )
+				generator.writeEndObject();
+			currentSection++;
+			if ( currentSection < sections.length) {
+				generator.writeFieldName(sections[currentSection]);
+				generator.writeStartObject();
+			}
+		}
+	}
+}
@@ -30,12 +30,12 @@
  */
 package org.ndexbio.common.persistence.orientdb;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -45,19 +45,27 @@ import org.ndexbio.common.NetworkSourceFormat;
 import org.ndexbio.common.access.NdexDatabase;
 import org.ndexbio.common.models.dao.orientdb.NetworkDAO;
 import org.ndexbio.common.models.object.network.RawNamespace;
+import org.ndexbio.common.util.LongDictionary;
+import org.ndexbio.common.util.LongTripleHashMap;
+import org.ndexbio.common.util.ObjectLongHashMap;
+import org.ndexbio.common.util.SpillingStringDictionary;
+import org.ndexbio.common.util.SpillingTripleDictionary;
 import org.ndexbio.common.util.TermUtilities;
+import org.ndexbio.common.util.TripleLongDictionary;
 import org.ndexbio.model.exceptions.NdexException;
 import org.ndexbio.model.object.NdexPropertyValuePair;
 import org.ndexbio.model.object.ProvenanceEntity;
 import org.ndexbio.model.object.SimplePropertyValuePair;
 import org.ndexbio.model.object.network.Namespace;
 import org.ndexbio.model.object.network.NetworkSummary;
+import org.ndexbio.task.Configuration;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.ORecordOperation;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
 import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.tinkerpop.blueprints.impls.orient.OrientGraph;
 import com.tinkerpop.blueprints.impls.orient.OrientVertex;
@@ -67,16 +75,19 @@ public abstract class PersistenceService implements AutoCloseable {
 	//TODO: turn this into configuration property
 	private static final long CACHE_SIZE = 200000L;
 
+	public static final int  defaultBulkBatchRecords = 20000;
+	public static final long defaultBulkBatchBytes   = 32L * 1024 * 1024;
+
 	protected NdexDatabase database;
 
-	protected LoadingCache<Long, ODocument>  elementIdCache;
+	protected ElementIdCache  elementIdCache;
     
 	// prefix to namespace mapping
 	private Map<String, Namespace> prefixMap;
 	private Map<RawNamespace, Namespace> namespaceMap;
     private Map<String, Namespace> URINamespaceMap;
 
-	private Map<String, Long> baseTermStrMap;
+	private LongDictionary<String> baseTermStrMap;
 
 	protected OrientVertex networkVertex;
 
@@ -90,6 +101,14 @@ public abstract class PersistenceService implements AutoCloseable {
 
     protected OrientGraph graph;
 	protected ODatabaseDocumentTx  localConnection;  //all DML will be in this connection, in one transaction.
+
+	// bulk load mode. Records are committed in batches and the names that go into the full text  
+	// indexes are written in one pass when the load is finished.
+	private boolean bulkLoad;
+	private int     bulkBatchRecords;
+	private long    bulkBatchBytes;
+	private long    avgRecordBytes = 256;
+	private DeferredNameLog deferredNames;
 	
 	 // prefix to URI mapping
 	 private static final Map<String, String> defaultNSMap;
@@ -267,24 +286,12 @@ public abstract class PersistenceService implements AutoCloseable {
 		
 		this.networkDAO = new NetworkDAO(localConnection);
 
-		this.baseTermStrMap = new TreeMap <>();
+		this.baseTermStrMap = createStringDictionary();
 		prefixMap = new HashMap<>();
 		this.namespaceMap   = new TreeMap <>();
 		URINamespaceMap = new HashMap<>();
 
-		this.elementIdCache = CacheBuilder
-				.newBuilder().maximumSize(CACHE_SIZE*5)
-				.expireAfterAccess(240L, TimeUnit.MINUTES)
-				.build(new CacheLoader<Long, ODocument>() {
-				   @Override
-				   public ODocument load(Long key) throws NdexException, ExecutionException {
-//					   logger.info("Element Id loading cache loading element " + key + " from db .");
-					   ODocument o = networkDAO.getDocumentByElementId(key);
-                    if ( o == null )
-                    	throw new NdexException ("Document is not found for element id: " + key);
-					return o;
-				   }
-			    });
+		this.elementIdCache = new ElementIdCache(localConnection, networkDAO, (int)(CACHE_SIZE*5));
 
     }
     
@@ -357,7 +364,12 @@ public abstract class PersistenceService implements AutoCloseable {
 
 	 public void commit () {
 			//graph.commit();
+			if ( bulkLoad) {
+				bulkLoadCheckpoint();
+				return;
+			}
 			this.localConnection.commit();
+			elementIdCache.promotePending();
 	//		this.networkDoc.reload();
 	//		this.networkVertex = graph.getVertex(networkDoc);
 		//	logger.info("elementIdCachSize:" + elementIdCache.size());
@@ -438,9 +450,8 @@ public abstract class PersistenceService implements AutoCloseable {
 			Long termId = database.getNextId();
 			
 			ODocument btDoc = new ODocument(NdexClasses.BaseTerm)
-			  .fields(NdexClasses.BTerm_P_name, localTerm,
-					  NdexClasses.Element_ID, termId)
-			  .save();
+			  .field(NdexClasses.Element_ID, termId);
+			btDoc = setIndexedName(btDoc, NdexClasses.BTerm_P_name, localTerm).save();
 
 			OrientVertex basetermV = graph.getVertex(btDoc);
 			
@@ -456,6 +467,7 @@ public abstract class PersistenceService implements AutoCloseable {
 			networkVertex.getRecord().reload();
 	        networkVertex.addEdge(NdexClasses.Network_E_BaseTerms, basetermV);
 	        elementIdCache.put(termId, basetermV.getRecord());
+	        bulkLoadCheckpoint();
 			return termId;
 	 }
 
@@ -522,8 +534,9 @@ public abstract class PersistenceService implements AutoCloseable {
 	        ODocument bTermDoc = elementIdCache.get(baseTermId); 
 	        fTermV.addEdge(NdexClasses.FunctionTerm_E_baseTerm, graph.getVertex(bTermDoc));
 	        
+	        Map<Long, ODocument> argDocs = elementIdCache.getAll(termList);
 	        for (Long id : termList) {
-	        	ODocument o = elementIdCache.get(id);
+	        	ODocument o = argDocs.get(id);
 	        	fTermV.addEdge(NdexClasses.FunctionTerm_E_paramter, graph.getVertex(o));
 	        }
 		    
@@ -579,8 +592,8 @@ public abstract class PersistenceService implements AutoCloseable {
 				  }
 			}		
 			
-			Long termId = this.baseTermStrMap.get(termString);
-			if ( termId != null) {
+			long termId = this.baseTermStrMap.get(termString);
+			if ( termId != LongDictionary.NO_VALUE) {
 				return termId;
 			}
 			
@@ -618,8 +631,8 @@ public abstract class PersistenceService implements AutoCloseable {
 		}
 		
 		public Long getBaseTermId (  String prefix, String localTerm) throws ExecutionException {
-			Long termId = this.baseTermStrMap.get(prefix+":"+localTerm);
-			if ( termId != null) {
+			long termId = this.baseTermStrMap.get(prefix+":"+localTerm);
+			if ( termId != LongDictionary.NO_VALUE) {
 				return termId;
 			}
 		    return this.createBaseTerm(prefix,localTerm);	
@@ -785,8 +798,172 @@ public abstract class PersistenceService implements AutoCloseable {
     }
 
 		
+	/**
+	 * Switch this service to bulk load mode. It should only be used when loading a new network.
+	 * In this mode the connection declares the massive insert intent, records are committed in 
+	 * batches of at most maxBatchRecords records or about maxBatchBytes bytes, and the name fields 
+	 * of nodes and base terms, which feed the Lucene indexes, are only written when endBulkLoad() is
+	 * called. The Lucene indexes are shared by all the networks, so they can't be dropped for one load; the 
+	 * deferred names are moved to a temporary file when there are too many of them to keep in memory.
+	 */
+	public void beginBulkLoad(int maxBatchRecords, long maxBatchBytes) {
+		if ( bulkLoad) return;
+		
+		this.bulkBatchRecords = maxBatchRecords;
+		this.bulkBatchBytes = maxBatchBytes;
+		this.deferredNames = createDeferredNameLog();
+		
+		localConnection.commit();
+		localConnection.declareIntent(new OIntentMassiveInsert());
+		localConnection.begin();
+		bulkLoad = true;
+	}
+	
+	public void beginBulkLoad() {
+		beginBulkLoad(defaultBulkBatchRecords, defaultBulkBatchBytes);
+	}
+	
+	public boolean isBulkLoad() {
+		return bulkLoad;
+	}
+	
+	/**
+	 * Commit the last batch, populate the deferred name fields in one pass and switch 
+	 * this service back to normal mode. 
+	 */
+	protected void endBulkLoad() {
+		if ( !bulkLoad) return;
+		
+		commitBatch();
+		
+		// the names are not added to the log any more, and the batches below don't have to move it to disk.
+		DeferredNameLog names = deferredNames;
+		deferredNames = null;
+		logger.info("Populating " + names.size() + " deferred name fields.");
+		try {
+			names.replay(new DeferredNameLog.Handler() {
+				@Override
+				public void handle(ORID rid, String field, String name) {
+					ODocument doc = localConnection.load(rid);
+					doc.field(field, name).save();
+					if ( localConnection.getTransaction().getEntryCount() >= bulkBatchRecords)
+						commitBatch();
+				}
+			});
+		} finally {
+			names.close();
+		}
+		localConnection.commit();
+		
+		localConnection.declareIntent(null);
+		bulkLoad = false;
+	}
+
+	/**
+	 * Drop the batch that hasn't been committed yet and leave the bulk load mode.
+	 */
+	protected void abortBulkLoad() {
+		if ( !bulkLoad) return;
+		
+		localConnection.rollback();
+		deferredNames.close();
+		deferredNames = null;
+		localConnection.declareIntent(null);
+		bulkLoad = false;
+	}
+	
+	/**
+	 * Commit the current batch if it has reached the record count or size limit. 
+	 * Does nothing when the service is not in bulk load mode.
+	 */
+	protected void bulkLoadCheckpoint() {
+		if ( !bulkLoad) return;
+		
+		int count = localConnection.getTransaction().getEntryCount();
+		if ( count >= bulkBatchRecords || count * avgRecordBytes >= bulkBatchBytes)
+			commitBatch();
+	}
+	
+	private void commitBatch() {
+		List<ORecord> records = new ArrayList<>(localConnection.getTransaction().getEntryCount());
+		for ( ORecordOperation op : localConnection.getTransaction().getCurrentRecordEntries()) 
+			records.add(op.getRecord());
+		
+		localConnection.commit();
+		
+		// records are serialized during commit, so we can use them to estimate the size of the next batch.
+		long total = 0;
+		for ( ORecord r : records) 
+			total += r.getSize();
+		if ( !records.isEmpty() && total > 0)
+			avgRecordBytes = Math.max(1, total / records.size());
+		
+		elementIdCache.promotePending();
+		if ( deferredNames != null)
+			deferredNames.committed();
+		localConnection.begin();
+	}
+	
+	/**
+	 * Set the name field of a node or base term document. In bulk load mode the name 
+	 * is written when the load finishes so that the full text index is populated in one pass.
+	 * @param field name field of the document class, e.g. NdexClasses.Node_P_name or NdexClasses.BTerm_P_name.
+	 */
+	protected ODocument setIndexedName(ODocument doc, String field, String name) {
+		if ( bulkLoad && name != null) {
+			// the identity object is updated in place when the record is saved and committed.
+			deferredNames.add(doc.getIdentity(), field, name);
+			return doc;
+		}
+		return doc.field(field, name);
+	}
+	
+	/**
+	 * Create a dedup dictionary for string keys. The dictionary moves to a temporary file under the 
+	 * NDEx root directory when it grows past the configured threshold. If the server configuration 
+	 * is not available, the dictionary stays in memory. 
+	 */
+	protected LongDictionary<String> createStringDictionary() {
+		try {
+			Configuration config = Configuration.getInstance();
+			return new SpillingStringDictionary(new File(config.getNdexTempPath()), config.getDictionarySpillThreshold());
+		} catch (NdexException e) {
+			Logger.getLogger(PersistenceService.class.getName()).warning(
+					"Configuration is not available, dictionary is kept in memory: " + e.getMessage());
+			return new ObjectLongHashMap<>();
+		}
+	}
+
+	private static DeferredNameLog createDeferredNameLog() {
+		try {
+			Configuration config = Configuration.getInstance();
+			return new DeferredNameLog(new File(config.getNdexTempPath()), config.getDictionarySpillThreshold());
+		} catch (NdexException e) {
+			Logger.getLogger(PersistenceService.class.getName()).warning(
+					"Configuration is not available, deferred names are kept in memory: " + e.getMessage());
+			return new DeferredNameLog(null, 0);
+		}
+	}
+
+	protected TripleLongDictionary createTripleDictionary() {
+		try {
+			Configuration config = Configuration.getInstance();
+			return new SpillingTripleDictionary(new File(config.getNdexTempPath()), config.getDictionarySpillThreshold());
+		} catch (NdexException e) {
+			Logger.getLogger(PersistenceService.class.getName()).warning(
+					"Configuration is not available, dictionary is kept in memory: " + e.getMessage());
+			return new LongTripleHashMap();
+		}
+	}
+	
+	protected void closeDictionaries() {
+		baseTermStrMap.close();
+	}
+	
 	  @Override
 	public void close () {
+          logger.info(elementIdCache.toString());
+          closeDictionaries();
           this.graph.shutdown();
 //		  this.localConnection.close();
 //		  this.database.close();
@@ -31,10 +31,13 @@
 package org.ndexbio.common.persistence.orientdb;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 
@@ -56,8 +59,13 @@ import org.ndexbio.model.object.network.PropertyGraphNode;
 import org.ndexbio.model.object.network.Support;
 
 import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 
 public class PropertyGraphLoader {
@@ -83,7 +91,6 @@ public class PropertyGraphLoader {
 			persistenceService.setNetworkSourceFormat(NetworkSourceFormat.PROPERTYGRAPH);
 			persistenceService.persistNetwork();
 			NetworkSummary result = persistenceService.getCurrentNetwork();
-			persistenceService = null;
 			return result;
 		} finally {
 			if ( persistenceService !=null) persistenceService.close();
@@ -115,7 +122,6 @@ public class PropertyGraphLoader {
 
 			persistenceService.persistNetwork();
 			NetworkSummary result = persistenceService.getCurrentNetwork();
-			persistenceService = null;
 			return result;
 		} finally {
 			if ( persistenceService !=null) persistenceService.close();
@@ -123,8 +129,123 @@ public class PropertyGraphLoader {
 	}
 	
 	
+	/**
+	 * Create a new network from a property graph network in JSON. Nodes and edges are saved as they are read from the 
+	 * stream, so the network doesn't have to fit in memory. The network properties are needed to create the network, 
+	 * nodes and edges that come before them in the stream are buffered until they are read. A missing properties or 
+	 * presentationProperties section is treated as empty, presentation properties that come after the network is 
+	 * created are added to it when they are read.
+	 */
+	public NetworkSummary insertNetwork(InputStream in, User loggedInUser) throws Exception {
+
+		NdexPersistenceService persistenceService = null;
+		try {
+		
+			persistenceService = new NdexPersistenceService(db);
+			
+			JsonParser parser = mapper.getFactory().createParser(in);
+			if ( parser.nextToken() != JsonToken.START_OBJECT)
+				throw new NdexException ("Property graph JSON has to be an object.");
+			
+			List<SimplePropertyValuePair> presentationProperties = null;
+			boolean networkCreated = false;
+			Map<String, TokenBuffer> bufferedSections = new LinkedHashMap<>();
+			
+			while ( parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				parser.nextToken();
+				if ( fieldName.equals("properties") && !networkCreated) {
+					List<NdexPropertyValuePair> properties = 
+							mapper.readValue(parser, new TypeReference<List<NdexPropertyValuePair>>() {});
+					createNetwork(properties, presentationProperties, bufferedSections, persistenceService, loggedInUser);
+					networkCreated = true;
+				} else if ( fieldName.equals("presentationProperties")) {
+					presentationProperties = mapper.readValue(parser, new TypeReference<List<SimplePropertyValuePair>>() {});
+					if ( networkCreated)
+						persistenceService.setNetworkProperties(null, presentationProperties);
+				} else if ( fieldName.equals("nodes") || fieldName.equals("edges")) {
+					if ( networkCreated) {
+						insertElementSection(fieldName, parser, persistenceService);
+					} else {
+						TokenBuffer buffer = new TokenBuffer(parser);
+						buffer.copyCurrentStructure(parser);
+						bufferedSections.put(fieldName, buffer);
+					}
+				} else 
+					parser.skipChildren();
+			}
+			
+			if ( !networkCreated) 
+				createNetwork(null, presentationProperties, bufferedSections, persistenceService, loggedInUser);
+			
+			setUploadProvenance(persistenceService, loggedInUser);
+
+			persistenceService.setNetworkSourceFormat(NetworkSourceFormat.PROPERTYGRAPH);
+			persistenceService.persistNetwork();
+			NetworkSummary result = persistenceService.getCurrentNetwork();
+			return result;
+		} finally {
+			if ( persistenceService !=null) persistenceService.close();
+		}
+	}
+	
+	/**
+	 * Create the network of a streamed property graph and insert the sections that were buffered before its 
+	 * properties were read.
+	 * @param properties null if the stream has no properties section.
+	 */
+	private void createNetwork(List<NdexPropertyValuePair> properties, List<SimplePropertyValuePair> presentationProperties, 
+			Map<String, TokenBuffer> bufferedSections, NdexPersistenceService persistenceService, User loggedInUser) 
+					throws Exception {
+		if ( properties == null) 
+			properties = new ArrayList<>();
+		createNetworkHead(properties, presentationProperties, persistenceService, loggedInUser);
+		insertNamespaces(properties, persistenceService);
+		
+		for ( Map.Entry<String, TokenBuffer> section : bufferedSections.entrySet()) {
+			try (JsonParser p = section.getValue().asParser()) {
+				p.nextToken();
+				insertElementSection(section.getKey(), p, persistenceService);
+			}
+		}
+		bufferedSections.clear();
+	}
+	
+	/**
+	 * Insert the nodes or edges of a property graph, the parser is on the first token of the section. 
+	 */
+	private void insertElementSection(String sectionName, JsonParser parser, NdexPersistenceService persistenceService) 
+			throws NdexException, IOException, ExecutionException {
+		boolean isNodes = sectionName.equals("nodes");
+		JsonToken t = parser.getCurrentToken();
+		if ( t == JsonToken.VALUE_NULL) 
+			return;
+		if ( t != JsonToken.START_OBJECT && t != JsonToken.START_ARRAY)
+			throw new NdexException ("Invalid value for " + sectionName + " in property graph JSON.");
+		
+		// sections are maps from element id to element, arrays of elements are accepted too.
+		JsonToken end = t == JsonToken.START_OBJECT ? JsonToken.END_OBJECT : JsonToken.END_ARRAY; 
+		while ( parser.nextToken() != end) {
+			if ( parser.getCurrentToken() == JsonToken.FIELD_NAME)
+				parser.nextToken();
+			if ( isNodes)
+				insertNode(mapper.readValue(parser, PropertyGraphNode.class), persistenceService);
+			else
+				insertEdge(mapper.readValue(parser, PropertyGraphEdge.class), persistenceService);
+		}
+	}
+	
 	private void insertNewNetwork(PropertyGraphNetwork network,
                                   NdexPersistenceService persistenceService, User loggedInUser) throws Exception {
+		createNetworkHead(network.getProperties(), network.getPresentationProperties(), persistenceService, loggedInUser);
+		
+		insertNetworkElements(network,persistenceService);
+
+		setUploadProvenance(persistenceService, loggedInUser);
+	}
+	
+	private static void createNetworkHead(List<NdexPropertyValuePair> properties, List<SimplePropertyValuePair> presentationProperties,
+			NdexPersistenceService persistenceService, User loggedInUser) throws Exception {
 
 		String title = null;
         String description = null;
@@ -132,7 +253,7 @@ public class PropertyGraphLoader {
         List<NdexPropertyValuePair> otherAttributes = new ArrayList<>();
         
 		//        Namespace[] namespaces = null;
-        for ( NdexPropertyValuePair p : network.getProperties()) {
+        for ( NdexPropertyValuePair p : properties) {
 			if ( p.getPredicateString().equals(PropertyGraphNetwork.name) ) {
 				title = p.getValue();
 			} else if ( p.getPredicateString().equals(PropertyGraphNetwork.version) ) {
@@ -152,10 +273,11 @@ public class PropertyGraphLoader {
 		persistenceService.createNewNetwork(loggedInUser.getAccountName(), title, version);
 		persistenceService.setNetworkTitleAndDescription(title, description);
 
-		persistenceService.setNetworkProperties(otherAttributes, network.getPresentationProperties());
-		
-		insertNetworkElements(network,persistenceService);
-
+		persistenceService.setNetworkProperties(otherAttributes, presentationProperties);
+	}
+	
+	private static void setUploadProvenance(NdexPersistenceService persistenceService, User loggedInUser) 
+			throws NdexException, JsonProcessingException {
         //DW: Provenance
         NetworkSummary summary = persistenceService.getCurrentNetwork();
 
@@ -179,9 +301,22 @@ public class PropertyGraphLoader {
 	private void insertNetworkElements(PropertyGraphNetwork network, NdexPersistenceService persistenceService) throws NdexException, 
 		JsonParseException, JsonMappingException, IOException, ExecutionException {
 
+		insertNamespaces(network.getProperties(), persistenceService);
+		
+		for ( PropertyGraphNode n : network.getNodes().values()) 
+			insertNode(n, persistenceService);
+		
+		// persist edges
+		for ( PropertyGraphEdge e : network.getEdges().values()) 
+			insertEdge(e, persistenceService);
+		
+	}
+	
+	private void insertNamespaces(List<NdexPropertyValuePair> networkProperties, NdexPersistenceService persistenceService) 
+			throws NdexException, JsonParseException, JsonMappingException, IOException, ExecutionException {
 		
         Namespace[] namespaces = null;
-        for ( NdexPropertyValuePair p : network.getProperties()) {
+        for ( NdexPropertyValuePair p : networkProperties) {
 			if (p.getPredicateString().equals(PropertyGraphNetwork.namspaces)) {
 				namespaces = mapper.readValue(p.getValue(), Namespace[].class);
 			} 
@@ -198,9 +333,10 @@ public class PropertyGraphLoader {
 				persistenceService.getNamespace(new RawNamespace(ns.getPrefix(), ns.getUri()));
 			}
 		}
+	}
 
-		
-		for ( PropertyGraphNode n : network.getNodes().values()) {
+	private static void insertNode(PropertyGraphNode n, NdexPersistenceService persistenceService) 
+			throws NdexException, ExecutionException {
 			
 			String nodeName = null;
 			String baseTerm = null;
@@ -225,10 +361,10 @@ public class PropertyGraphLoader {
 				persistenceService.setNodeName(nodeId, nodeName);
 
 			persistenceService.setNodeProperties(nodeId, otherProperties, n.getPresentationProperties());
-		}
+	}
 		
-		// persist edges
-		for ( PropertyGraphEdge e : network.getEdges().values()) {
+	private void insertEdge(PropertyGraphEdge e, NdexPersistenceService persistenceService) 
+			throws NdexException, JsonParseException, JsonMappingException, IOException, ExecutionException {
 			Long termId = persistenceService.getBaseTermId(e.getPredicate());
 			Long subjectNodeId = persistenceService.findOrCreateNodeIdByExternalId(
 					Long.toString(e.getSubjectId()), null);
@@ -252,8 +388,6 @@ public class PropertyGraphLoader {
 			persistenceService.createEdge(subjectNodeId, objectNodeId, termId, 
 					support, citation, otherProperties, e.getPresentationProperties());
 			
-		}
-		
 	}
 	
 	private void updateNetwork (UUID uuid, PropertyGraphNetwork network,  NdexPersistenceService persistenceService) throws Exception {
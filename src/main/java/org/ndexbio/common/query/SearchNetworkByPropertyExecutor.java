@@ -37,10 +37,12 @@ import java.util.TreeSet;
 
 import org.ndexbio.common.NdexClasses;
 import org.ndexbio.common.models.dao.orientdb.Helper;
+import org.ndexbio.common.models.dao.orientdb.NetworkCatalog;
 import org.ndexbio.common.models.dao.orientdb.NetworkDAO;
-import org.ndexbio.common.models.dao.orientdb.NetworkDocDAO;
+import org.ndexbio.common.models.dao.orientdb.NetworkPropertyIndex;
 import org.ndexbio.common.models.dao.orientdb.NetworkSearchDAO;
 import org.ndexbio.common.models.dao.orientdb.NetworkSearchDAO.NetworkResultComparator;
+import org.ndexbio.common.models.dao.orientdb.NetworkSummaryCache;
 import org.ndexbio.common.models.dao.orientdb.UserDocDAO;
 import org.ndexbio.model.exceptions.NdexException;
 import org.ndexbio.model.network.query.NetworkPropertyFilter;
@@ -55,6 +57,7 @@ import org.ndexbio.model.object.network.VisibilityType;
 
 import com.google.common.base.Strings;
 import com.orientechnologies.orient.core.command.traverse.OTraverse;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.index.OIndex;
@@ -94,13 +97,22 @@ public class SearchNetworkByPropertyExecutor {
 		
 		try (NetworkDAO dao = new NetworkDAO() ) {
 
-			for (final ODocument networkDoc : dao.getDBConnection().browseClass(NdexClasses.Network)) {
-				Boolean isComplete = networkDoc.field(NdexClasses.Network_P_isComplete);
-				Boolean isDeleted = networkDoc.field(NdexClasses.ExternalObj_isDeleted);
-				if ( isComplete !=null && isComplete.booleanValue() && !isDeleted.booleanValue()) {
-					if ( NetworkSearchDAO.isSearchable(networkDoc, userRID, adminUserRID, false, true, Permissions.READ) )	{	
+			ODatabaseDocumentTx db = dao.getDBConnection();
+			
+			// networks that match any of the filters, in record order (oldest first) like the
+			// class scan this search used before.
+			TreeSet<ORID> candidates = new TreeSet<>();
+			for ( PropertySpecification spec : filters) 
+				candidates.addAll(NetworkPropertyIndex.getInstance().getNetworks(db, spec.getName(), spec.getValue()));
+			
+			for (ORID rid : candidates) {
+				NetworkCatalog.Entry entry = NetworkCatalog.getInstance().getNetwork(db, rid);
+				if ( entry != null && entry.isListed()) {
+					ODocument networkDoc = db.load(rid);
+					if ( networkDoc != null && 
+						 NetworkSearchDAO.isSearchable(networkDoc, userRID, adminUserRID, false, true, Permissions.READ) )	{	
 						   if ( networkSatisfyFilter(networkDoc))
-							result.add(NetworkDocDAO.getNetworkSummary(networkDoc));
+							result.add(NetworkSummaryCache.getInstance().getNetworkSummary(networkDoc));
 					}
 				}
 			} 
@@ -116,9 +128,14 @@ public class SearchNetworkByPropertyExecutor {
 		
 		for ( ODocument propDoc : Helper.getDocumentLinks(networkDoc, "out_", NdexClasses.E_ndexProperties)) {
 			NdexPropertyValuePair prop = Helper.getNdexPropertyFromDoc(propDoc);
+			if ( prop.getPredicateString() == null || prop.getValue() == null)
+				continue;
+			// compared the same way as in NetworkPropertyIndex, which found the candidates.
+			String name = NetworkPropertyIndex.normalize(prop.getPredicateString());
+			String value = NetworkPropertyIndex.normalize(prop.getValue());
 			for ( PropertySpecification spec : filters) {
-				if ( spec.getName().equalsIgnoreCase(prop.getPredicateString()) &&
-						spec.getValue().equalsIgnoreCase((prop.getValue())) ) 
+				if ( NetworkPropertyIndex.normalize(spec.getName()).equals(name) &&
+						NetworkPropertyIndex.normalize(spec.getValue()).equals(value) ) 
 						return true;
 			}
 			
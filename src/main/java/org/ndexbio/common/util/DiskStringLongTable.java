@@ -0,0 +1,219 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * An open addressing hash table from strings to longs, stored in temporary files. The key strings are appended 
+ * to a key file. The hash table is a memory mapped file, each slot takes 3 longs: the 64 bit hash of the key, 
+ * the offset of the key in the key file plus 1, and the value. The full key is only read from disk when the hashes
+ * match.
+ */
+class DiskStringLongTable implements LongDictionary<String> {
+	
+	private static final Logger logger = Logger.getLogger(DiskStringLongTable.class.getName());
+
+	private static final float LOAD_FACTOR = 0.6f;
+	
+	private final File directory;
+	private final File keyFile;
+	private final RandomAccessFile keyRaf;
+	private final FileChannel keyChannel;
+	private long keyFileLength;
+	
+	private MappedLongArray slots;
+	private long capacity;
+	private long mask;
+	private int size;
+
+	DiskStringLongTable(File directory, int expectedSize) throws IOException {
+		this.directory = directory;
+		this.keyFile = File.createTempFile("ndex-keys", ".tmp", directory);
+		keyFile.deleteOnExit();
+		this.keyRaf = new RandomAccessFile(keyFile, "rw");
+		this.keyChannel = keyRaf.getChannel();
+		this.keyFileLength = 0;
+		allocate(HashUtils.tableSize(expectedSize, LOAD_FACTOR));
+	}
+	
+	@Override
+	public long get(String key) {
+		long h = hash64(key);
+		byte[] keyBytes = null;
+		long i = HashUtils.mix(h) & mask;
+		while ( true) {
+			long p = i * 3;
+			long offset = slots.get(p+1);
+			if ( offset == 0)
+				return NO_VALUE;
+			if ( slots.get(p) == h) {
+				if ( keyBytes == null)
+					keyBytes = key.getBytes(StandardCharsets.UTF_8);
+				if ( keyEquals(offset - 1, keyBytes))
+					return slots.get(p+2);
+			}
+			i = (i+1) & mask;
+		}
+	}
+
+	@Override
+	public long put(String key, long value) {
+		if ( value == NO_VALUE)
+			throw new IllegalArgumentException("NO_VALUE can't be stored in the dictionary.");
+		long h = hash64(key);
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		long i = HashUtils.mix(h) & mask;
+		while ( true) {
+			long p = i * 3;
+			long offset = slots.get(p+1);
+			if ( offset == 0) {
+				slots.set(p, h);
+				slots.set(p+1, appendKey(keyBytes) + 1);
+				slots.set(p+2, value);
+				if ( ++size >= capacity * LOAD_FACTOR)
+					rehash();
+				return NO_VALUE;
+			}
+			if ( slots.get(p) == h && keyEquals(offset - 1, keyBytes)) {
+				long old = slots.get(p+2);
+				slots.set(p+2, value);
+				return old;
+			}
+			i = (i+1) & mask;
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void close() {
+		slots.close();
+		try {
+			keyRaf.close();
+		} catch (IOException e) {
+			logger.warning("Failed to close " + keyFile.getAbsolutePath() + ": " + e.getMessage());
+		}
+		if ( !keyFile.delete())
+			logger.warning("Failed to delete temporary file " + keyFile.getAbsolutePath());
+	}
+	
+	// 64 bit FNV-1a hash over the chars of the key.
+	static long hash64(String key) {
+		long h = 0xcbf29ce484222325L;
+		for ( int i = 0 ; i < key.length(); i++) {
+			h ^= key.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+	
+	private long appendKey(byte[] keyBytes) {
+		ByteBuffer buf = ByteBuffer.allocate(4 + keyBytes.length);
+		buf.putInt(keyBytes.length).put(keyBytes).flip();
+		long offset = keyFileLength;
+		try {
+			long pos = offset;
+			while ( buf.hasRemaining())
+				pos += keyChannel.write(buf, pos);
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to write to dictionary file: " + e.getMessage(), e);
+		}
+		keyFileLength += 4 + keyBytes.length;
+		return offset;
+	}
+	
+	private boolean keyEquals(long offset, byte[] keyBytes) {
+		try {
+			ByteBuffer lenBuf = ByteBuffer.allocate(4);
+			readFully(lenBuf, offset);
+			if ( lenBuf.getInt(0) != keyBytes.length)
+				return false;
+			ByteBuffer buf = ByteBuffer.allocate(keyBytes.length);
+			readFully(buf, offset + 4);
+			return Arrays.equals(buf.array(), keyBytes);
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to read dictionary file: " + e.getMessage(), e);
+		}
+	}
+	
+	private void readFully(ByteBuffer buf, long position) throws IOException {
+		long pos = position;
+		while ( buf.hasRemaining()) {
+			int n = keyChannel.read(buf, pos);
+			if ( n < 0) 
+				throw new IOException("Unexpected end of file " + keyFile.getAbsolutePath());
+			pos += n;
+		}
+	}
+	
+	private void allocate(long newCapacity) throws IOException {
+		slots = new MappedLongArray(directory, newCapacity * 3);
+		capacity = newCapacity;
+		mask = newCapacity - 1;
+	}
+	
+	private void rehash() {
+		MappedLongArray old = slots;
+		long oldCapacity = capacity;
+		try {
+			allocate(oldCapacity * 2);
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to grow dictionary file: " + e.getMessage(), e);
+		}
+		// the key hashes are stored in the table, so the keys don't need to be read back. 
+		for ( long j = 0 ; j < oldCapacity; j++) {
+			long p = j * 3;
+			long offset = old.get(p+1);
+			if ( offset != 0) {
+				long h = old.get(p);
+				long i = HashUtils.mix(h) & mask;
+				while ( slots.get(i*3+1) != 0)
+					i = (i+1) & mask;
+				long n = i * 3;
+				slots.set(n, h);
+				slots.set(n+1, offset);
+				slots.set(n+2, old.get(p+2));
+			}
+		}
+		old.close();
+	}
+}
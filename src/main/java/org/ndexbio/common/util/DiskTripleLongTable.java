@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.util;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * An open addressing hash table from triples of longs to longs, stored in a memory mapped temporary file.
+ * Each slot takes 4 longs: the 3 key parts and the value. Values are stored xor'ed with NO_VALUE so that 
+ * a slot of zeros is free.
+ */
+class DiskTripleLongTable implements TripleLongDictionary {
+
+	private static final float LOAD_FACTOR = 0.6f;
+	
+	private final File directory;
+	private MappedLongArray slots;
+	private long capacity;
+	private long mask;
+	private int size;
+	
+	DiskTripleLongTable(File directory, int expectedSize) throws IOException {
+		this.directory = directory;
+		allocate(HashUtils.tableSize(expectedSize, LOAD_FACTOR));
+	}
+	
+	@Override
+	public long get(long a, long b, long c) {
+		long i = HashUtils.mix(a, b, c) & mask;
+		while ( true) {
+			long p = i * 4;
+			long v = slots.get(p+3);
+			if ( v == 0)
+				return NO_VALUE;
+			if ( slots.get(p) == a && slots.get(p+1) == b && slots.get(p+2) == c)
+				return v ^ NO_VALUE;
+			i = (i+1) & mask;
+		}
+	}
+
+	@Override
+	public long put(long a, long b, long c, long value) {
+		if ( value == NO_VALUE)
+			throw new IllegalArgumentException("NO_VALUE can't be stored in the dictionary.");
+		long i = HashUtils.mix(a, b, c) & mask;
+		while ( true) {
+			long p = i * 4;
+			long v = slots.get(p+3);
+			if ( v == 0) {
+				slots.set(p, a);
+				slots.set(p+1, b);
+				slots.set(p+2, c);
+				slots.set(p+3, value ^ NO_VALUE);
+				if ( ++size >= capacity * LOAD_FACTOR)
+					rehash();
+				return NO_VALUE;
+			}
+			if ( slots.get(p) == a && slots.get(p+1) == b && slots.get(p+2) == c) {
+				slots.set(p+3, value ^ NO_VALUE);
+				return v ^ NO_VALUE;
+			}
+			i = (i+1) & mask;
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void close() {
+		slots.close();
+	}
+	
+	private void allocate(long newCapacity) throws IOException {
+		slots = new MappedLongArray(directory, newCapacity * 4);
+		capacity = newCapacity;
+		mask = newCapacity - 1;
+	}
+	
+	private void rehash() {
+		MappedLongArray old = slots;
+		long oldCapacity = capacity;
+		try {
+			allocate(oldCapacity * 2);
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to grow dictionary file: " + e.getMessage(), e);
+		}
+		for ( long j = 0 ; j < oldCapacity; j++) {
+			long p = j * 4;
+			long v = old.get(p+3);
+			if ( v != 0) {
+				long a = old.get(p), b = old.get(p+1), c = old.get(p+2);
+				long i = HashUtils.mix(a, b, c) & mask;
+				while ( slots.get(i*4+3) != 0)
+					i = (i+1) & mask;
+				long n = i * 4;
+				slots.set(n, a);
+				slots.set(n+1, b);
+				slots.set(n+2, c);
+				slots.set(n+3, v);
+			}
+		}
+		old.close();
+	}
+}
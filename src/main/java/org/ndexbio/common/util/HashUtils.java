@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.util;
+
+/**
+ * Helper functions shared by the primitive hash maps in this package.
+ */
+class HashUtils {
+
+	private static final int MAX_CAPACITY = 1 << 30;
+	
+	private HashUtils() {}
+	
+	/**
+	 * Spread the bits of a long key. Element ids are allocated in consecutive blocks, so the
+	 * low bits alone would cluster badly in a linear probing table.
+	 */
+	static int mix(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		h ^= (h >>> 32);
+		return (int) (h ^ (h >>> 16));
+	}
+	
+	static int mix(long a, long b, long c) {
+		long h = a * 0x9E3779B97F4A7C15L;
+		h = (h ^ (h >>> 29) ^ b) * 0xBF58476D1CE4E5B9L;
+		h = (h ^ (h >>> 32) ^ c) * 0x94D049BB133111EBL;
+		h ^= (h >>> 31);
+		return (int) (h ^ (h >>> 32));
+	}
+	
+	static int grow(int capacity) {
+		if ( capacity >= MAX_CAPACITY)
+			throw new IllegalStateException("Map is too large.");
+		return capacity << 1;
+	}
+	
+	/**
+	 * @return a power of 2 table size that holds expectedSize entries under the load factor. 
+	 */
+	static int tableSize(int expectedSize, float loadFactor) {
+		long required = (long) Math.ceil(Math.max(expectedSize, 2) / loadFactor) + 1;
+		if ( required > MAX_CAPACITY)
+			throw new IllegalArgumentException("Map is too large: " + expectedSize);
+		int size = 2;
+		while ( size < required) 
+			size <<= 1;
+		return size;
+	}
+}
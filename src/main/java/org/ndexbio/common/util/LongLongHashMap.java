@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.util;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash map from long to long. Keys and values are stored in primitive arrays, so
+ * no objects are created per entry. Entries can't be removed. 
+ */
+public class LongLongHashMap {
+
+	/** Returned by get() when the key is not in the map. */
+	public static final long NO_VALUE = Long.MIN_VALUE;
+	
+	private static final long FREE = 0;
+	private static final float LOAD_FACTOR = 0.6f;
+	
+	private long[] keys;
+	private long[] values;
+	private int mask;
+	private int size;
+	private int resizeAt;
+
+	// the key 0 is used to mark free slots, so it is stored outside of the arrays.
+	private boolean hasZeroKey;
+	private long zeroValue;
+	
+	public LongLongHashMap() {
+		this(1024);
+	}
+	
+	public LongLongHashMap(int expectedSize) {
+		allocate(HashUtils.tableSize(expectedSize, LOAD_FACTOR));
+	}
+	
+	public long get(long key) {
+		if ( key == FREE) 
+			return hasZeroKey ? zeroValue : NO_VALUE;
+		
+		int i = HashUtils.mix(key) & mask;
+		while ( true) {
+			long k = keys[i];
+			if ( k == key) 
+				return values[i];
+			if ( k == FREE)
+				return NO_VALUE;
+			i = (i+1) & mask;
+		}
+	}
+	
+	public boolean containsKey(long key) {
+		return get(key) != NO_VALUE;
+	}
+	
+	/**
+	 * @return the previous value of the key, or NO_VALUE if the key was not in the map.
+	 */
+	public long put(long key, long value) {
+		if ( key == FREE) {
+			long old = hasZeroKey ? zeroValue : NO_VALUE;
+			if ( !hasZeroKey) {
+				hasZeroKey = true;
+				size++;
+			}
+			zeroValue = value;
+			return old;
+		}
+		
+		int i = HashUtils.mix(key) & mask;
+		while ( true) {
+			long k = keys[i];
+			if ( k == key) {
+				long old = values[i];
+				values[i] = value;
+				return old;
+			}
+			if ( k == FREE) {
+				keys[i] = key;
+				values[i] = value;
+				if ( ++size >= resizeAt)
+					rehash(HashUtils.grow(keys.length));
+				return NO_VALUE;
+			}
+			i = (i+1) & mask;
+		}
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @return the number of slots in the table.
+	 */
+	public int capacity() {
+		return keys.length;
+	}
+	
+	public void clear() {
+		Arrays.fill(keys, FREE);
+		hasZeroKey = false;
+		size = 0;
+	}
+	
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new long[capacity];
+		mask = capacity - 1;
+		resizeAt = (int) (capacity * LOAD_FACTOR);
+	}
+	
+	private void rehash(int newCapacity) {
+		long[] oldKeys = keys;
+		long[] oldValues = values;
+		allocate(newCapacity);
+		for ( int j = 0 ; j < oldKeys.length; j++) {
+			long key = oldKeys[j];
+			if ( key != FREE) {
+				int i = HashUtils.mix(key) & mask;
+				while ( keys[i] != FREE)
+					i = (i+1) & mask;
+				keys[i] = key;
+				values[i] = oldValues[j];
+			}
+		}
+	}
+}
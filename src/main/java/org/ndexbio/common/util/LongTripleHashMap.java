@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.util;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash map from a triple of longs to a long. It is used to dedup edges by their 
+ * (subject, predicate, object) ids. The 3 key parts are packed next to each other in one long array,
+ * so the map doesn't create any object per entry. Entries can't be removed.
+ */
+public class LongTripleHashMap implements TripleLongDictionary {
+	
+	private static final float LOAD_FACTOR = 0.6f;
+	
+	private long[] keys;     // 3 slots per entry.
+	private long[] values;   // NO_VALUE marks a free entry.
+	private int mask;
+	private int size;
+	private int resizeAt;
+	
+	public LongTripleHashMap() {
+		this(1024);
+	}
+	
+	public LongTripleHashMap(int expectedSize) {
+		allocate(HashUtils.tableSize(expectedSize, LOAD_FACTOR));
+	}
+
+	@Override
+	public long get(long a, long b, long c) {
+		int i = HashUtils.mix(a, b, c) & mask;
+		while ( true) {
+			long v = values[i];
+			if ( v == NO_VALUE)
+				return NO_VALUE;
+			int k = i * 3;
+			if ( keys[k] == a && keys[k+1] == b && keys[k+2] == c)
+				return v;
+			i = (i+1) & mask;
+		}
+	}
+	
+	public boolean containsKey(long a, long b, long c) {
+		return get(a,b,c) != NO_VALUE;
+	}
+	
+	/**
+	 * @return the previous value of the key, or NO_VALUE if the key was not in the map.
+	 */
+	@Override
+	public long put(long a, long b, long c, long value) {
+		if ( value == NO_VALUE)
+			throw new IllegalArgumentException("NO_VALUE can't be stored in the map.");
+		
+		int i = HashUtils.mix(a, b, c) & mask;
+		while ( true) {
+			long v = values[i];
+			int k = i * 3;
+			if ( v == NO_VALUE) {
+				keys[k]   = a;
+				keys[k+1] = b;
+				keys[k+2] = c;
+				values[i] = value;
+				if ( ++size >= resizeAt)
+					rehash(HashUtils.grow(values.length));
+				return NO_VALUE;
+			}
+			if ( keys[k] == a && keys[k+1] == b && keys[k+2] == c) {
+				values[i] = value;
+				return v;
+			}
+			i = (i+1) & mask;
+		}
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	public void clear() {
+		Arrays.fill(values, NO_VALUE);
+		size = 0;
+	}
+	
+	@Override
+	public void close() {
+		// nothing to release.
+	}
+	
+	void copyTo(TripleLongDictionary target) {
+		for ( int i = 0 ; i < values.length; i++) {
+			if ( values[i] != NO_VALUE) {
+				int k = i * 3;
+				target.put(keys[k], keys[k+1], keys[k+2], values[i]);
+			}
+		}
+	}
+	
+	private void allocate(int capacity) {
+		if ( capacity > Integer.MAX_VALUE / 3)
+			throw new IllegalStateException("Map is too large.");
+		keys = new long[capacity * 3];
+		values = new long[capacity];
+		Arrays.fill(values, NO_VALUE);
+		mask = capacity - 1;
+		resizeAt = (int) (capacity * LOAD_FACTOR);
+	}
+	
+	private void rehash(int newCapacity) {
+		long[] oldKeys = keys;
+		long[] oldValues = values;
+		allocate(newCapacity);
+		for ( int j = 0 ; j < oldValues.length; j++) {
+			if ( oldValues[j] != NO_VALUE) {
+				int k = j * 3;
+				long a = oldKeys[k], b = oldKeys[k+1], c = oldKeys[k+2];
+				int i = HashUtils.mix(a, b, c) & mask;
+				while ( values[i] != NO_VALUE)
+					i = (i+1) & mask;
+				int n = i * 3;
+				keys[n]   = a;
+				keys[n+1] = b;
+				keys[n+2] = c;
+				values[i] = oldValues[j];
+			}
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.logging.Logger;
+
+/**
+ * A fixed size long array stored in a memory mapped temporary file. A file can be larger than 2GB, so it is 
+ * mapped in segments. All elements are 0 when the array is created. The mapped segments are released and the 
+ * file is deleted when the array is closed, so the array must not be used after that.
+ */
+class MappedLongArray implements AutoCloseable {
+
+	private static final Logger logger = Logger.getLogger(MappedLongArray.class.getName());
+	
+	private static final int  SEGMENT_SHIFT = 27;            // 2^27 longs = 1GB per segment
+	private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+	
+	private final File file;
+	private final RandomAccessFile raf;
+	private final MappedByteBuffer[] mappings;
+	private final LongBuffer[] segments;
+	private final long length;
+	
+	MappedLongArray(File directory, long length) throws IOException {
+		this.length = length;
+		this.file = File.createTempFile("ndex-dict", ".tmp", directory);
+		file.deleteOnExit();
+		this.raf = new RandomAccessFile(file, "rw");
+		
+		try {
+			raf.setLength(length * 8);
+			FileChannel channel = raf.getChannel();
+			int segmentCount = (int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+			mappings = new MappedByteBuffer[segmentCount];
+			segments = new LongBuffer[segmentCount];
+			for ( int i = 0 ; i < segmentCount; i++) {
+				long start = (long) i << SEGMENT_SHIFT;
+				long size = Math.min(SEGMENT_MASK + 1, length - start);
+				mappings[i] = channel.map(FileChannel.MapMode.READ_WRITE, start * 8, size * 8);
+				segments[i] = mappings[i].asLongBuffer();
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+	
+	long get(long index) {
+		return segments[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & SEGMENT_MASK));
+	}
+	
+	void set(long index, long value) {
+		segments[(int) (index >>> SEGMENT_SHIFT)].put((int) (index & SEGMENT_MASK), value);
+	}
+	
+	long length() {
+		return length;
+	}
+	
+	@Override
+	public void close() {
+		if ( mappings != null) {
+			for ( int i = 0 ; i < mappings.length; i++) {
+				if ( mappings[i] != null) {
+					unmap(mappings[i]);
+					mappings[i] = null;
+					segments[i] = null;
+				}
+			}
+		}
+		try {
+			raf.close();
+		} catch (IOException e) {
+			logger.warning("Failed to close " + file.getAbsolutePath() + ": " + e.getMessage());
+		}
+		if ( !file.delete()) 
+			logger.warning("Failed to delete temporary file " + file.getAbsolutePath());
+	}
+	
+	/**
+	 * Release a mapped buffer now instead of waiting for the garbage collector, so the disk space of a 
+	 * deleted file is freed right away. There is no public API for this, so it uses the JDK internal 
+	 * cleaner. If that is not available the buffer is left to the garbage collector.
+	 */
+	private static void unmap(MappedByteBuffer buffer) {
+		try {
+			// Java 7 and 8
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			if ( cleaner != null)
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+			return;
+		} catch (Exception e) {
+			// not available in this JVM, try the next one.
+		}
+		try {
+			// Java 9 and later
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			unsafeClass.getMethod("invokeCleaner", java.nio.ByteBuffer.class).invoke(theUnsafe.get(null), buffer);
+		} catch (Exception e) {
+			logger.fine("Mapped buffer will be released by the garbage collector: " + e.getMessage());
+		}
+	}
+}
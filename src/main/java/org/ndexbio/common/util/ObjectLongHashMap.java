@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.util;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash map from objects to primitive longs. Compared to a HashMap<K,Long> or 
+ * a TreeMap<K,Long>, it doesn't create an entry object and a Long for each mapping. Null keys are 
+ * not allowed and entries can't be removed.
+ */
+public class ObjectLongHashMap<K> implements LongDictionary<K> {
+
+	private static final float LOAD_FACTOR = 0.6f;
+
+	private Object[] keys;
+	private long[] values;
+	private int mask;
+	private int size;
+	private int resizeAt;
+	
+	public ObjectLongHashMap() {
+		this(1024);
+	}
+	
+	public ObjectLongHashMap(int expectedSize) {
+		allocate(HashUtils.tableSize(expectedSize, LOAD_FACTOR));
+	}
+	
+	@Override
+	public long get(K key) {
+		int i = HashUtils.mix(key.hashCode()) & mask;
+		while ( true) {
+			Object k = keys[i];
+			if ( k == null)
+				return NO_VALUE;
+			if ( k.equals(key))
+				return values[i];
+			i = (i+1) & mask;
+		}
+	}
+	
+	public boolean containsKey(K key) {
+		return get(key) != NO_VALUE;
+	}
+	
+	/**
+	 * @return the previous value of the key, or NO_VALUE if the key was not in the map.
+	 */
+	@Override
+	public long put(K key, long value) {
+		if ( key == null)
+			throw new NullPointerException("Null key is not allowed.");
+		if ( value == NO_VALUE)
+			throw new IllegalArgumentException("NO_VALUE can't be stored in the map.");
+		
+		int i = HashUtils.mix(key.hashCode()) & mask;
+		while ( true) {
+			Object k = keys[i];
+			if ( k == null) {
+				keys[i] = key;
+				values[i] = value;
+				if ( ++size >= resizeAt)
+					rehash(HashUtils.grow(keys.length));
+				return NO_VALUE;
+			}
+			if ( k.equals(key)) {
+				long old = values[i];
+				values[i] = value;
+				return old;
+			}
+			i = (i+1) & mask;
+		}
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	public void clear() {
+		Arrays.fill(keys, null);
+		size = 0;
+	}
+	
+	@Override
+	public void close() {
+		// nothing to release.
+	}
+	
+	@SuppressWarnings("unchecked")
+	void copyTo(LongDictionary<K> target) {
+		for ( int i = 0 ; i < keys.length; i++) {
+			if ( keys[i] != null)
+				target.put((K)keys[i], values[i]);
+		}
+	}
+	
+	private void allocate(int capacity) {
+		keys = new Object[capacity];
+		values = new long[capacity];
+		mask = capacity - 1;
+		resizeAt = (int) (capacity * LOAD_FACTOR);
+	}
+	
+	private void rehash(int newCapacity) {
+		Object[] oldKeys = keys;
+		long[] oldValues = values;
+		allocate(newCapacity);
+		for ( int j = 0 ; j < oldKeys.length; j++) {
+			Object key = oldKeys[j];
+			if ( key != null) {
+				int i = HashUtils.mix(key.hashCode()) & mask;
+				while ( keys[i] != null)
+					i = (i+1) & mask;
+				keys[i] = key;
+				values[i] = oldValues[j];
+			}
+		}
+	}
+}
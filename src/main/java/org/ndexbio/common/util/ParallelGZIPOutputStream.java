@@ -0,0 +1,236 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+import org.ndexbio.model.exceptions.NdexException;
+import org.ndexbio.task.Configuration;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * An OutputStream that gzips its data on several threads. The data is cut into blocks, each block is compressed 
+ * as a separate gzip member and the members are written in order. Concatenated members are a valid gzip file, 
+ * GZIPInputStream and gunzip read them as a single stream. 
+ * 
+ * All streams share one pool with the number of threads from the Compression-Threads configuration, so 
+ * concurrent exports don't add threads. Each stream holds at most two blocks per thread of its parallelism in 
+ * memory. The underlying stream is closed when this stream is closed.
+ */
+public class ParallelGZIPOutputStream extends OutputStream {
+
+	private static final Logger logger = Logger.getLogger(ParallelGZIPOutputStream.class.getName());
+	
+	public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+	public static final String GZIP_EXTENSION = ".gz";
+	
+	private final OutputStream out;
+	private final int blockSize;
+	private final int maxPendingBlocks;
+	
+	// compressed blocks in the order they have to be written.
+	private final Deque<Future<byte[]>> pending;
+	
+	private byte[] block;
+	private int count;
+	private boolean memberWritten;
+	private boolean closed;
+	
+	/**
+	 * Create a stream that uses all the threads of the shared pool.
+	 */
+	public ParallelGZIPOutputStream(OutputStream out) {
+		this(out, SharedExecutor.threadCount, DEFAULT_BLOCK_SIZE);
+	}
+	
+	/**
+	 * @param threadCount the number of blocks of this stream compressed at the same time. The threads come from 
+	 * the shared pool, so a larger number than the pool size only holds more blocks in memory.
+	 */
+	public ParallelGZIPOutputStream(OutputStream out, int threadCount, int blockSize) {
+		if ( threadCount < 1 || blockSize < 1) 
+			throw new IllegalArgumentException("Thread count and block size must be positive.");
+		this.out = out;
+		this.blockSize = blockSize;
+		this.maxPendingBlocks = threadCount * 2;
+		this.pending = new ArrayDeque<>();
+		this.block = new byte[blockSize];
+		this.count = 0;
+		this.memberWritten = false;
+		this.closed = false;
+	}
+	
+	/**
+	 * Open a file for writing. The file is gzipped with a ParallelGZIPOutputStream if its name ends with .gz. 
+	 */
+	public static OutputStream openFile(String fileName) throws FileNotFoundException {
+		OutputStream out = new FileOutputStream(fileName);
+		if ( fileName.endsWith(GZIP_EXTENSION)) 
+			return new ParallelGZIPOutputStream(out);
+		return out;
+	}
+	
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		block[count++] = (byte) b;
+		if ( count == blockSize) 
+			submitBlock();
+	}
+	
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		while ( len > 0) {
+			int n = Math.min(len, blockSize - count);
+			System.arraycopy(b, off, block, count, n);
+			count += n;
+			off += n;
+			len -= n;
+			if ( count == blockSize) 
+				submitBlock();
+		}
+	}
+	
+	/**
+	 * Compress and write all the data received so far. The partial block is written as a member of its own.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		if ( count > 0) 
+			submitBlock();
+		while ( !pending.isEmpty()) 
+			writeFirstBlock();
+		out.flush();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if ( closed) 
+			return;
+		try {
+			// an empty stream still has to be a valid gzip file.
+			if ( count > 0 || !memberWritten) 
+				submitBlock();
+			while ( !pending.isEmpty()) 
+				writeFirstBlock();
+			out.flush();
+		} finally {
+			closed = true;
+			// blocks left after a failure are not needed any more, don't keep the shared threads busy with them.
+			for ( Future<byte[]> f : pending) 
+				f.cancel(false);
+			pending.clear();
+			out.close();
+		}
+	}
+	
+	private void submitBlock() throws IOException {
+		final byte[] data = block;
+		final int length = count;
+		pending.addLast(SharedExecutor.executor.submit(new Callable<byte[]>() {
+			@Override
+			public byte[] call() throws IOException {
+				ByteArrayOutputStream member = new ByteArrayOutputStream(length / 4 + 64);
+				try (GZIPOutputStream gz = new GZIPOutputStream(member, 64 * 1024)) {
+					gz.write(data, 0, length);
+				}
+				return member.toByteArray();
+			}
+		}));
+		memberWritten = true;
+		block = new byte[blockSize];
+		count = 0;
+		
+		if ( pending.size() >= maxPendingBlocks) 
+			writeFirstBlock();
+	}
+	
+	private void writeFirstBlock() throws IOException {
+		try {
+			out.write(pending.removeFirst().get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while compressing data.", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Failed to compress data: " + e.getCause().getMessage(), e.getCause());
+		}
+	}
+	
+	private void ensureOpen() throws IOException {
+		if ( closed) 
+			throw new IOException("Stream closed.");
+	}
+	
+	/**
+	 * The pool shared by all the streams, created when the first stream is written. Its threads are daemons 
+	 * and time out when no stream is compressing.
+	 */
+	private static class SharedExecutor {
+		static final int threadCount = getConfiguredThreadCount();
+		static final ExecutorService executor;
+		
+		static {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(threadCount, threadCount, 60L, TimeUnit.SECONDS, 
+					new LinkedBlockingQueue<Runnable>(), 
+					new ThreadFactoryBuilder().setNameFormat("gzip-%d").setDaemon(true).build());
+			pool.allowCoreThreadTimeOut(true);
+			executor = pool;
+		}
+	}
+	
+	private static int getConfiguredThreadCount() {
+		try {
+			return Configuration.getInstance().getCompressionThreadCount();
+		} catch (NdexException e) {
+			int n = Runtime.getRuntime().availableProcessors();
+			logger.warning("Failed to read configuration, using " + n + " compression threads: " + e.getMessage());
+			return n;
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Logger;
+
+/**
+ * A triple key dictionary that is kept in memory until it holds spillThreshold entries. After that all 
+ * entries are moved to a memory mapped hash table in the given directory.
+ */
+public class SpillingTripleDictionary implements TripleLongDictionary {
+
+	private static final Logger logger = Logger.getLogger(SpillingTripleDictionary.class.getName());
+
+	private final File spillDirectory;
+	private final int spillThreshold;
+	
+	private LongTripleHashMap memoryMap;
+	private DiskTripleLongTable diskTable;
+	
+	/**
+	 * @param spillDirectory  directory for the temporary files. 
+	 * @param spillThreshold  number of entries that are kept in memory before the dictionary spills to disk.
+	 */
+	public SpillingTripleDictionary(File spillDirectory, int spillThreshold) {
+		this.spillDirectory = spillDirectory;
+		this.spillThreshold = spillThreshold;
+		this.memoryMap = new LongTripleHashMap();
+	}
+	
+	@Override
+	public long get(long a, long b, long c) {
+		return diskTable == null ? memoryMap.get(a, b, c) : diskTable.get(a, b, c);
+	}
+
+	@Override
+	public long put(long a, long b, long c, long value) {
+		if ( diskTable != null)
+			return diskTable.put(a, b, c, value);
+		
+		long old = memoryMap.put(a, b, c, value);
+		if ( memoryMap.size() > spillThreshold)
+			spill();
+		return old;
+	}
+
+	@Override
+	public int size() {
+		return diskTable == null ? memoryMap.size() : diskTable.size();
+	}
+
+	public boolean isSpilled() {
+		return diskTable != null;
+	}
+
+	@Override
+	public void close() {
+		if ( diskTable != null) {
+			diskTable.close();
+			diskTable = null;
+		}
+		memoryMap = null;
+	}
+	
+	private void spill() {
+		logger.info("Dictionary has " + memoryMap.size() + " entries, moving it to disk.");
+		try {
+			if ( !spillDirectory.exists() && !spillDirectory.mkdirs())
+				throw new IOException("Failed to create directory " + spillDirectory.getAbsolutePath());
+			diskTable = new DiskTripleLongTable(spillDirectory, memoryMap.size() * 2);
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to create dictionary file: " + e.getMessage(), e);
+		}
+		memoryMap.copyTo(diskTable);
+		memoryMap = null;
+	}
+}
@@ -202,7 +202,7 @@ public class NdexSchemaManager
             nsClass.createProperty(NdexClasses.ns_P_prefix, OType.STRING);
             nsClass.createProperty(NdexClasses.ns_P_uri, OType.STRING);
             
-            nsClass.createIndex("index-namespace-id", OClass.INDEX_TYPE.UNIQUE, NdexClasses.Element_ID);
+            nsClass.createIndex(NdexClasses.Index_namespace_id, OClass.INDEX_TYPE.UNIQUE, NdexClasses.Element_ID);
         }
 
         OClass bTermClass = orientDb.getMetadata().getSchema().getClass(NdexClasses.BaseTerm);  
@@ -217,7 +217,7 @@ public class NdexSchemaManager
             
             bTermClass.createIndex(NdexClasses.Index_BTerm_name, "FULLTEXT", null, null, "LUCENE", new String[] { NdexClasses.BTerm_P_name});
 //            bTermClass.createIndex("index-term-name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
-            bTermClass.createIndex("index-baseterm-id", OClass.INDEX_TYPE.UNIQUE, NdexClasses.Element_ID);
+            bTermClass.createIndex(NdexClasses.Index_BTerm_id, OClass.INDEX_TYPE.UNIQUE, NdexClasses.Element_ID);
             
         }
 
@@ -232,7 +232,7 @@ public class NdexSchemaManager
             citationClass.createProperty("presentationProperties", OType.EMBEDDEDLIST);
             citationClass.createProperty("title", OType.STRING);
             
-            citationClass.createIndex("index-citation-id", OClass.INDEX_TYPE.NOTUNIQUE, NdexClasses.Element_ID);
+            citationClass.createIndex(NdexClasses.Index_citation_id, OClass.INDEX_TYPE.NOTUNIQUE, NdexClasses.Element_ID);
         }
 
         OClass supportClass = orientDbGraph.getVertexType(NdexClasses.Support);
@@ -242,7 +242,7 @@ public class NdexSchemaManager
             supportClass.createProperty(NdexClasses.Element_ID, OType.LONG);
             supportClass.createProperty("text", OType.STRING);
             
-            supportClass.createIndex("index-support-id", OClass.INDEX_TYPE.NOTUNIQUE, NdexClasses.Element_ID);
+            supportClass.createIndex(NdexClasses.Index_support_id, OClass.INDEX_TYPE.NOTUNIQUE, NdexClasses.Element_ID);
             
         }
 
@@ -257,7 +257,7 @@ public class NdexSchemaManager
 
             edgeClass.createProperty(NdexClasses.Edge_E_citations, OType.LINKSET, citationClass);
 
-            edgeClass.createIndex("index-edge-id", OClass.INDEX_TYPE.UNIQUE, NdexClasses.Element_ID);
+            edgeClass.createIndex(NdexClasses.Index_edge_id, OClass.INDEX_TYPE.UNIQUE, NdexClasses.Element_ID);
         }
 
         cls = orientDb.getMetadata().getSchema().getClass(NdexClasses.FunctionTerm);  
@@ -269,7 +269,7 @@ public class NdexSchemaManager
             //functionTermClass.createProperty("textParameters", OType.EMBEDDEDSET);
             //functionTermClass.createIndex("functionTermLinkParametersIndex", OClass.INDEX_TYPE.NOTUNIQUE, "termParameters by value");
             
-            functionTermClass.createIndex("index-function-id", OClass.INDEX_TYPE.UNIQUE, NdexClasses.Element_ID);
+            functionTermClass.createIndex(NdexClasses.Index_function_id, OClass.INDEX_TYPE.UNIQUE, NdexClasses.Element_ID);
             
         }
 
@@ -279,7 +279,7 @@ public class NdexSchemaManager
             OClass reifiedEdgeTermClass = orientDbGraph.createVertexType(NdexClasses.ReifiedEdgeTerm);
             reifiedEdgeTermClass.createProperty(NdexClasses.Element_ID, OType.LONG);
 
-            reifiedEdgeTermClass.createIndex("index-reifiedEdge-id", OClass.INDEX_TYPE.UNIQUE, NdexClasses.Element_ID);
+            reifiedEdgeTermClass.createIndex(NdexClasses.Index_reifiedEdge_id, OClass.INDEX_TYPE.UNIQUE, NdexClasses.Element_ID);
 
         }
         
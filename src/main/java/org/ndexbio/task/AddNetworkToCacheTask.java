@@ -30,25 +30,30 @@
  */
 package org.ndexbio.task;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.util.UUID;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.ExecutionException;
 
 import org.ndexbio.common.NdexClasses;
 import org.ndexbio.common.access.NdexDatabase;
 import org.ndexbio.common.models.dao.orientdb.NetworkDAO;
+import org.ndexbio.common.persistence.orientdb.NetworkSnapshotFormat;
+import org.ndexbio.common.persistence.orientdb.NetworkSnapshotWriter;
+import org.ndexbio.common.persistence.orientdb.NetworkStreamWriter;
+import org.ndexbio.common.persistence.orientdb.TeeNetworkElementHandler;
+import org.ndexbio.common.util.ParallelGZIPOutputStream;
 import org.ndexbio.model.exceptions.NdexException;
 import org.ndexbio.model.object.Task;
 import org.ndexbio.model.object.TaskAttribute;
-import org.ndexbio.model.object.network.Network;
 
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 
 public class AddNetworkToCacheTask extends NdexTask {
@@ -75,6 +80,8 @@ public class AddNetworkToCacheTask extends NdexTask {
 			Long taskCommitId = (Long)getTask().getAttribute(TaskAttribute.readOnlyCommitId);
 
 			String fullpath = Configuration.getInstance().getNdexNetworkCachePath() + taskCommitId+".gz";
+			String snapshotPath = Configuration.getInstance().getNdexNetworkCachePath() + taskCommitId + 
+					NetworkSnapshotFormat.FILE_EXTENSION;
 
 			ODocument d = dao.getNetworkDocByUUIDString(networkIdStr);
 			d.reload();
@@ -87,18 +94,21 @@ public class AddNetworkToCacheTask extends NdexTask {
 				return;
 			}
 			
-			// create cache.
+			// create cache. The elements are written as they are read from the database, to the JSON file 
+			// and to the binary snapshot.
 			
-			Network n = dao.getNetworkById(UUID.fromString(networkIdStr));
-			
-			try (GZIPOutputStream w = new GZIPOutputStream( new FileOutputStream(fullpath), 16384)) {
-					//  String s = mapper.writeValueAsString( original);
-					ObjectMapper mapper = new ObjectMapper();
-					mapper.writeValue(w, n);
+			try (ParallelGZIPOutputStream w = new ParallelGZIPOutputStream( new FileOutputStream(fullpath));
+				 FileChannel snapshot = new FileOutputStream(snapshotPath).getChannel();
+				 NetworkSnapshotWriter snapshotWriter = new NetworkSnapshotWriter(snapshot, 
+						 new File(Configuration.getInstance().getNdexNetworkCachePath()))) {
+					dao.readNetworkById(UUID.fromString(networkIdStr), 
+							new TeeNetworkElementHandler(new NetworkStreamWriter(w), snapshotWriter));
 			} catch (FileNotFoundException e) {
 				throw new NdexException ("Can't create network cache file in server: " + fullpath);
 			} catch (IOException e) {
 				throw new NdexException ("IO Error when writing cache file: " + fullpath + ". Cause: " + e.getMessage());
+			} catch (ExecutionException e) {
+				throw new NdexException ("Error when writing cache file: " + fullpath + ". Cause: " + e.getMessage());
 			}
 			 
 			//check again.	
@@ -34,6 +34,7 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.logging.Logger;
 
+import org.ndexbio.common.access.ConnectionPoolGate;
 import org.ndexbio.common.access.NdexDatabase;
 import org.ndexbio.common.models.dao.orientdb.TaskDocDAO;
 import org.ndexbio.model.exceptions.NdexException;
@@ -53,6 +54,7 @@ public class ClientTaskProcessor extends NdexTaskProcessor {
 	
 	@Override
 	public void run() {
+		NdexDatabase.setConnectionLane(ConnectionPoolGate.Lane.BACKGROUND);
 		while ( !shutdown) {
 			Task task = null;
 			try {
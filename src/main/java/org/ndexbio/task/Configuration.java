@@ -49,6 +49,39 @@ public class Configuration
     
     private static final String PROP_USE_AD_AUTHENTICATION = "USE_AD_AUTHENTICATION";
     
+    // uploaded files at least this big (in MB) are loaded in bulk load mode. 
+    private static final String PROP_BULK_LOAD_THRESHOLD = "Bulk-Load-Threshold-MB";
+    
+    // number of entries a dedup dictionary of a loader keeps in memory before it is moved to disk.
+    private static final String PROP_DICTIONARY_SPILL_THRESHOLD = "Dictionary-Spill-Threshold";
+    private static final int    defaultDictionarySpillThreshold = 2000000;
+    
+    // number of threads that write the nodes and edges of a network when it is saved from a Network object.
+    private static final String PROP_CLONE_WORKER_THREADS = "Clone-Worker-Threads";
+    
+    // number of threads that delete the vertices of a deleted network, and how many vertices they may delete per second.
+    private static final String PROP_CLEANUP_WORKER_THREADS = "Cleanup-Worker-Threads";
+    private static final int    defaultCleanupWorkerCount = 2;
+    private static final String PROP_CLEANUP_VERTICES_PER_SECOND = "Cleanup-Vertices-Per-Second";
+    private static final double defaultCleanupVerticesPerSecond = 5000;
+    
+    // number of threads that compress network cache and export files, and whether export files are gzipped.
+    private static final String PROP_COMPRESSION_THREADS = "Compression-Threads";
+    private static final String PROP_COMPRESS_EXPORTED_FILES = "Compress-Exported-Files";
+    
+    // total number of network elements the in-memory cache of read-only networks may hold. 0 disables the cache.
+    private static final String PROP_NETWORK_CACHE_MAX_ELEMENTS = "Network-Cache-Max-Elements";
+    private static final long   defaultNetworkCacheMaxElements = 2000000;
+    
+    // number of the most accessed read-only networks loaded into the network cache at startup, and the total 
+    // number of elements they may have.
+    private static final String PROP_CACHE_WARMUP_NETWORKS = "Cache-Warmup-Networks";
+    private static final int    defaultCacheWarmupNetworks = 20;
+    private static final String PROP_CACHE_WARMUP_MAX_ELEMENTS = "Cache-Warmup-Max-Elements";
+    private static final long   defaultCacheWarmupMaxElements = 1000000;
+    private static final String PROP_NETWORK_SUMMARY_CACHE_SIZE = "Network-Summary-Cache-Size";
+    private static final int    defaultNetworkSummaryCacheSize = 10000;
+    
     private static Configuration INSTANCE = null;
     private static final Logger _logger = LoggerFactory.getLogger(Configuration.class);
     private Properties _configurationProperties;
@@ -277,5 +310,180 @@ public class Configuration
 	public String getNdexNetworkCachePath() {
 		return ndexNetworkCachePath;
 	}
+	
+	/**
+	 * Size in bytes from which uploaded files are loaded in bulk load mode. Returns -1 if 
+	 * bulk loading is not configured.
+	 */
+	public long getBulkLoadThreshold() {
+		String v = getProperty(PROP_BULK_LOAD_THRESHOLD);
+		if ( v == null) 
+			return -1;
+		try {
+			return Long.parseLong(v.trim()) * 1024 * 1024;
+		} catch (NumberFormatException e) {
+			_logger.error("Invalid value for " + PROP_BULK_LOAD_THRESHOLD + ": " + v + ". Bulk load disabled.");
+			return -1;
+		}
+	}
+	
+	public int getDictionarySpillThreshold() {
+		String v = getProperty(PROP_DICTIONARY_SPILL_THRESHOLD);
+		if ( v == null) 
+			return defaultDictionarySpillThreshold;
+		try {
+			return Integer.parseInt(v.trim());
+		} catch (NumberFormatException e) {
+			_logger.error("Invalid value for " + PROP_DICTIONARY_SPILL_THRESHOLD + ": " + v + ". Using default " 
+					+ defaultDictionarySpillThreshold + ".");
+			return defaultDictionarySpillThreshold;
+		}
+	}
+	
+	/**
+	 * Number of threads used to clone a large network. Defaults to the number of processors, up to 4; 1 clones 
+	 * networks in the calling thread.
+	 */
+	public int getCloneWorkerCount() {
+		int defaultCount = Math.min(4, Runtime.getRuntime().availableProcessors());
+		String v = getProperty(PROP_CLONE_WORKER_THREADS);
+		if ( v == null) 
+			return defaultCount;
+		try {
+			return Math.max(1, Integer.parseInt(v.trim()));
+		} catch (NumberFormatException e) {
+			_logger.error("Invalid value for " + PROP_CLONE_WORKER_THREADS + ": " + v + ". Using default " 
+					+ defaultCount + ".");
+			return defaultCount;
+		}
+	}
+	
+	/**
+	 * Number of workers used to cleanup a deleted network.
+	 */
+	public int getCleanupWorkerCount() {
+		String v = getProperty(PROP_CLEANUP_WORKER_THREADS);
+		if ( v == null) 
+			return defaultCleanupWorkerCount;
+		try {
+			return Math.max(1, Integer.parseInt(v.trim()));
+		} catch (NumberFormatException e) {
+			_logger.error("Invalid value for " + PROP_CLEANUP_WORKER_THREADS + ": " + v + ". Using default " 
+					+ defaultCleanupWorkerCount + ".");
+			return defaultCleanupWorkerCount;
+		}
+	}
+	
+	/**
+	 * Maximum number of vertices deleted per second when a deleted network is cleaned up. 0 means no limit.
+	 */
+	public double getCleanupVerticesPerSecond() {
+		String v = getProperty(PROP_CLEANUP_VERTICES_PER_SECOND);
+		if ( v == null) 
+			return defaultCleanupVerticesPerSecond;
+		try {
+			return Math.max(0, Double.parseDouble(v.trim()));
+		} catch (NumberFormatException e) {
+			_logger.error("Invalid value for " + PROP_CLEANUP_VERTICES_PER_SECOND + ": " + v + ". Using default " 
+					+ defaultCleanupVerticesPerSecond + ".");
+			return defaultCleanupVerticesPerSecond;
+		}
+	}
+	
+	/**
+	 * Number of threads used to gzip a network cache or export file. Defaults to the number of processors.
+	 */
+	public int getCompressionThreadCount() {
+		int defaultCount = Runtime.getRuntime().availableProcessors();
+		String v = getProperty(PROP_COMPRESSION_THREADS);
+		if ( v == null) 
+			return defaultCount;
+		try {
+			return Math.max(1, Integer.parseInt(v.trim()));
+		} catch (NumberFormatException e) {
+			_logger.error("Invalid value for " + PROP_COMPRESSION_THREADS + ": " + v + ". Using default " 
+					+ defaultCount + ".");
+			return defaultCount;
+		}
+	}
+	
+	/**
+	 * If true, the SIF, XGMML and XBEL export tasks write gzipped files with a .gz extension. 
+	 */
+	public boolean getCompressExportedFiles() {
+		String v = getProperty(PROP_COMPRESS_EXPORTED_FILES);
+		return v != null && Boolean.parseBoolean(v.trim());
+	}
+	
+	/**
+	 * Maximum total number of nodes, edges and terms of the networks held in the in-memory network cache.
+	 */
+	public long getNetworkCacheMaxElements() {
+		String v = getProperty(PROP_NETWORK_CACHE_MAX_ELEMENTS);
+		if ( v == null) 
+			return defaultNetworkCacheMaxElements;
+		try {
+			return Math.max(0, Long.parseLong(v.trim()));
+		} catch (NumberFormatException e) {
+			_logger.error("Invalid value for " + PROP_NETWORK_CACHE_MAX_ELEMENTS + ": " + v + ". Using default " 
+					+ defaultNetworkCacheMaxElements + ".");
+			return defaultNetworkCacheMaxElements;
+		}
+	}
+	
+	/**
+	 * Number of read-only networks loaded into the network cache at startup. 0 disables the warm-up.
+	 */
+	public int getCacheWarmupNetworkCount() {
+		String v = getProperty(PROP_CACHE_WARMUP_NETWORKS);
+		if ( v == null) 
+			return defaultCacheWarmupNetworks;
+		try {
+			return Math.max(0, Integer.parseInt(v.trim()));
+		} catch (NumberFormatException e) {
+			_logger.error("Invalid value for " + PROP_CACHE_WARMUP_NETWORKS + ": " + v + ". Using default " 
+					+ defaultCacheWarmupNetworks + ".");
+			return defaultCacheWarmupNetworks;
+		}
+	}
+	
+	/**
+	 * Memory budget of the startup warm-up, as the total number of nodes, edges and terms of the networks it loads.
+	 */
+	public long getCacheWarmupMaxElements() {
+		String v = getProperty(PROP_CACHE_WARMUP_MAX_ELEMENTS);
+		if ( v == null) 
+			return defaultCacheWarmupMaxElements;
+		try {
+			return Math.max(0, Long.parseLong(v.trim()));
+		} catch (NumberFormatException e) {
+			_logger.error("Invalid value for " + PROP_CACHE_WARMUP_MAX_ELEMENTS + ": " + v + ". Using default " 
+					+ defaultCacheWarmupMaxElements + ".");
+			return defaultCacheWarmupMaxElements;
+		}
+	}
+	
+	/**
+	 * Maximum number of network summaries kept in memory. 0 disables the summary cache.
+	 */
+	public int getNetworkSummaryCacheSize() {
+		String v = getProperty(PROP_NETWORK_SUMMARY_CACHE_SIZE);
+		if ( v == null) 
+			return defaultNetworkSummaryCacheSize;
+		try {
+			return Math.max(0, Integer.parseInt(v.trim()));
+		} catch (NumberFormatException e) {
+			_logger.error("Invalid value for " + PROP_NETWORK_SUMMARY_CACHE_SIZE + ": " + v + ". Using default " 
+					+ defaultNetworkSummaryCacheSize + ".");
+			return defaultNetworkSummaryCacheSize;
+		}
+	}
+	
+	/**
+	 * Directory for temporary files, such as the dictionaries of loaders that spilled to disk.
+	 */
+	public String getNdexTempPath() {
+		return ndexRoot + "/tmp";
+	}
     
 }
@@ -99,11 +99,17 @@ public class FileUploadTask extends NdexTask {
 		logger.info("File extension = " + fileExtension);
 		String networkName = Files.getNameWithoutExtension(this.getTask().getDescription());
 		IParsingEngine parser = null;
+		
+		long bulkLoadThreshold = Configuration.getInstance().getBulkLoadThreshold();
+		boolean bulkLoad = bulkLoadThreshold >= 0 && file.length() >= bulkLoadThreshold;
+		if ( bulkLoad)
+			logger.info("Loading " + file.getName() + " in bulk load mode.");
 
 		switch (fileExtension) {
 		case ("SIF"):
 			parser = new SifParser(
 						file.getAbsolutePath(), this.getTaskOwnerAccount(),db, networkName, getTask().getDescription());
+			((SifParser)parser).setBulkLoad(bulkLoad);
 			break;
 		case ("XGMML"):
 			parser = new XgmmlParser(
@@ -112,6 +118,7 @@ public class FileUploadTask extends NdexTask {
 		case ("OWL"):
 			parser = new BioPAXParser(
 						file.getAbsolutePath(), this.getTaskOwnerAccount(),db, networkName, getTask().getDescription());
+			((BioPAXParser)parser).setBulkLoad(bulkLoad);
 			break;
 		case ("XBEL"):
 			parser = new XbelParser(
@@ -123,6 +130,7 @@ public class FileUploadTask extends NdexTask {
 					throw new NdexException(
 							"XBEL file fails XML schema validation - one or more elements do not meet XBEL specification.");
 			}
+			((XbelParser)parser).setBulkLoad(bulkLoad);
 			break;
 		case ("XLSX"):
 		case ("XLS"):
@@ -37,6 +37,7 @@ import org.ndexbio.model.exceptions.ObjectNotFoundException;
 import org.ndexbio.model.object.Task;
 import org.ndexbio.model.object.Status;
 import org.ndexbio.common.persistence.orientdb.NdexTaskService;
+import org.ndexbio.common.util.ParallelGZIPOutputStream;
 
 
 public abstract class NdexTask implements Callable<Task> {
@@ -76,6 +77,15 @@ public abstract class NdexTask implements Callable<Task> {
 	}
 	
 
+	/**
+	 * @return the name to write an export file to, with a .gz extension if exported files are compressed.
+	 */
+	protected static String getExportFileName(String fileName) throws NdexException {
+		if ( Configuration.getInstance().getCompressExportedFiles()) 
+			return fileName + ParallelGZIPOutputStream.GZIP_EXTENSION;
+		return fileName;
+	}
+
 	@Override
 	public abstract Task call() throws Exception;
 	
@@ -32,6 +32,7 @@ package org.ndexbio.task;
 
 import java.io.File;
 
+import org.ndexbio.common.persistence.orientdb.NetworkSnapshotFormat;
 import org.ndexbio.model.exceptions.NdexException;
 import org.ndexbio.model.object.Task;
 import org.ndexbio.model.object.TaskAttribute;
@@ -63,6 +64,9 @@ public class RemoveNetworkFromCacheTask extends NdexTask {
 
 			file.delete();
 			
+			new File(Configuration.getInstance().getNdexNetworkCachePath() + commitId + 
+					NetworkSnapshotFormat.FILE_EXTENSION).delete();
+			
 /*			ODocument d = dao.getNetworkDocByUUIDString(networkIdStr);
 			
 			Long cacheId = d.field(NdexClasses.Network_P_cacheId);
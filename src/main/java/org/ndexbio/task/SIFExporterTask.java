@@ -31,16 +31,15 @@
 package org.ndexbio.task;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.OutputStreamWriter;
 import java.util.UUID;
 
 import org.ndexbio.common.exporter.SIFNetworkExporter;
 import org.ndexbio.common.models.dao.orientdb.NetworkDocDAO;
+import org.ndexbio.common.util.ParallelGZIPOutputStream;
 import org.ndexbio.model.exceptions.NdexException;
 import org.ndexbio.model.object.Status;
 import org.ndexbio.model.object.Task;
-import org.ndexbio.model.object.network.Network;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -75,25 +74,18 @@ public class SIFExporterTask extends NdexTask {
 
 			this.taskStatus = Status.PROCESSING;
 			this.startTask();
-			String exportFilename = this.resolveFilename(NETWORK_EXPORT_PATH, XGMML_FILE_EXTENSION);
+			String exportFilename = getExportFileName(this.resolveFilename(NETWORK_EXPORT_PATH, XGMML_FILE_EXTENSION));
 
-			Network network = null;
-			try (NetworkDocDAO dao = new NetworkDocDAO()) {
-				network = dao.getNetworkById(UUID.fromString(getTask().getResource()));
-			
-			}
-		
-			if ( network == null) throw new NdexException("Failed to get network from db.");
-		
-			try (FileOutputStream out = new FileOutputStream (exportFilename)) {
-
-				OutputStreamWriter writer = new OutputStreamWriter(out);
-				SIFNetworkExporter exporter = new SIFNetworkExporter (network);	
-				exporter.exportNetwork( writer );
-				this.taskStatus = Status.COMPLETED;
-				this.updateTaskStatus(this.taskStatus);
-				writer.close();
+			// the file is only complete when the last gzip block is written, the writer is closed before the 
+			// task is marked as completed.
+			try (OutputStreamWriter writer = new OutputStreamWriter(ParallelGZIPOutputStream.openFile(exportFilename))) {
+				// edges are written as they are read, the network is not loaded in memory.
+				try (NetworkDocDAO dao = new NetworkDocDAO()) {
+					dao.readNetworkById(UUID.fromString(getTask().getResource()), new SIFNetworkExporter (writer));
+				}
 			} 
+			this.taskStatus = Status.COMPLETED;
+			this.updateTaskStatus(this.taskStatus);
 	}
 	
 	private String resolveFilename(String path, String extension) {
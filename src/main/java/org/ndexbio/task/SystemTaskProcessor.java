@@ -35,7 +35,9 @@ import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.logging.Logger;
 
+import org.ndexbio.common.access.ConnectionPoolGate;
 import org.ndexbio.common.access.NdexDatabase;
+import org.ndexbio.common.models.dao.orientdb.NetworkCleanupEngine;
 import org.ndexbio.common.models.dao.orientdb.NetworkDAO;
 import org.ndexbio.common.models.dao.orientdb.TaskDAO;
 import org.ndexbio.common.util.NdexUUIDFactory;
@@ -58,6 +60,7 @@ public class SystemTaskProcessor extends NdexTaskProcessor {
 	
 	@Override
 	public void run() {
+		NdexDatabase.setConnectionLane(ConnectionPoolGate.Lane.BACKGROUND);
 		while ( !shutdown) {
 			Task task = null;
 			try {
@@ -101,9 +104,10 @@ public class SystemTaskProcessor extends NdexTaskProcessor {
 		logger.info( "Cleanup deleted network " + task.getResource());
 
 		task.setStartTime(new Timestamp(Calendar.getInstance().getTimeInMillis()));
-		try (NetworkDAO networkDao = new NetworkDAO(NdexDatabase.getInstance().getAConnection()); ) {
-			int cnt = networkDao.cleanupDeleteNetwork(task.getResource());
-			networkDao.commit();
+		Configuration config = Configuration.getInstance();
+		try (NetworkCleanupEngine engine = new NetworkCleanupEngine(NdexDatabase.getInstance(), 
+				config.getCleanupWorkerCount(), config.getCleanupVerticesPerSecond()); ) {
+			int cnt = engine.cleanupDeleteNetwork(task.getResource(), NetworkDAO.CLEANUP_BATCH_SIZE);
 			task.setFinishTime(new Timestamp(Calendar.getInstance().getTimeInMillis()));
 			task.setStatus(Status.COMPLETED);
 			if ( cnt >=0 ) {
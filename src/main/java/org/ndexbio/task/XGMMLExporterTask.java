@@ -31,11 +31,12 @@
 package org.ndexbio.task;
 
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.util.UUID;
 
 import org.ndexbio.common.access.NdexDatabase;
 import org.ndexbio.common.exporter.XGMMLNetworkExporter;
+import org.ndexbio.common.util.ParallelGZIPOutputStream;
 import org.ndexbio.model.exceptions.NdexException;
 import org.ndexbio.model.object.Task;
 import org.ndexbio.model.object.Status;
@@ -99,20 +100,21 @@ public class XGMMLExporterTask extends NdexTask {
 	private void exportNetwork() throws Exception{
 		this.taskStatus = Status.PROCESSING;
 		this.startTask();
-		String exportFilename = this.resolveFilename(NETWORK_EXPORT_PATH, XGMML_FILE_EXTENSION);
+		String exportFilename = getExportFileName(this.resolveFilename(NETWORK_EXPORT_PATH, XGMML_FILE_EXTENSION));
 
-		FileOutputStream out = new FileOutputStream (exportFilename);
+		OutputStream out = ParallelGZIPOutputStream.openFile(exportFilename);
 		ODatabaseDocumentTx db = null; 
 		try {
 			db = NdexDatabase.getInstance().getAConnection();
 			XGMMLNetworkExporter exporter = new XGMMLNetworkExporter(db);
 			exporter.exportNetwork( UUID.fromString(getTask().getResource()), out );
-			this.taskStatus = Status.COMPLETED;
-			this.updateTaskStatus(this.taskStatus);
 		} finally { 
 			if ( db !=null ) db.close();
 		    out.close();
 		}
+		// the file is only complete after the stream is closed.
+		this.taskStatus = Status.COMPLETED;
+		this.updateTaskStatus(this.taskStatus);
 	}
 	
 	/*
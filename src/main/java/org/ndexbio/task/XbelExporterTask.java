@@ -103,9 +103,9 @@ public class XbelExporterTask extends NdexTask {
 	private void exportNetwork() throws Exception{
 		this.taskStatus = Status.PROCESSING;
 		this.startTask();
-		String exportFilename = this.resolveFilename(
+		String exportFilename = getExportFileName(this.resolveFilename(
 				Configuration.getInstance().getNdexRoot() + "/exported-networks/", 
-				this.XBEL_FILE_EXTENSION);
+				this.XBEL_FILE_EXTENSION));
 	
 		ODatabaseDocumentTx db = null; 
 		try {
@@ -101,6 +101,7 @@ public class BioPAXParser implements IParsingEngine {
 
     private String description;
     private User loggedInUser;
+    private boolean bulkLoad = false;
     
     private String bioPaxPrefix;  // prefix for namespace http://www.biopax.org/release/biopax-level3.owl#
 
@@ -136,6 +137,10 @@ public class BioPAXParser implements IParsingEngine {
 		return this.msgBuffer;
 	}
 
+	public void setBulkLoad(boolean bulkLoad) {
+		this.bulkLoad = bulkLoad;
+	}
+
 	public String getBioPAXURI() {
 		return bioPAXURI;
 	}
@@ -157,6 +162,9 @@ public class BioPAXParser implements IParsingEngine {
 
 			this.getMsgBuffer()
 					.add("Parsing lines from " + this.getBioPAXURI());
+			
+			if ( bulkLoad)
+				this.persistenceService.beginBulkLoad();
 
 			this.processBioPAX(this.getBioPAXFile());
 
@@ -88,6 +88,7 @@ public class SifParser implements IParsingEngine {
 
     private String taskDescription;
     private User loggedInUser;
+    private boolean bulkLoad = false;
 	
 //	private TreeSet<String> pubmedIdSet;
 
@@ -123,6 +124,10 @@ public class SifParser implements IParsingEngine {
 		return this.msgBuffer;
 	}
 
+	public void setBulkLoad(boolean bulkLoad) {
+		this.bulkLoad = bulkLoad;
+	}
+
 	public String getSIFURI() {
 		return sifURI;
 	}
@@ -149,6 +154,9 @@ public class SifParser implements IParsingEngine {
 				new BufferedReader(new FileReader(this.getSifFile()))){
 
 			this.getMsgBuffer().add("Parsing lines from " + this.getSIFURI());
+			
+			if ( bulkLoad)
+				this.persistenceService.beginBulkLoad();
 
 			boolean extendedBinarySIF = checkForExtendedFormat();
 			if (extendedBinarySIF) {
@@ -109,6 +109,7 @@ public class XbelParser implements IParsingEngine
 
     private String description;
     private User loggedInUser;
+    private boolean bulkLoad = false;
     
     public XbelParser(String fn, String ownerName, NdexDatabase db, String description) throws JAXBException, NdexException
     {
@@ -211,6 +212,8 @@ public class XbelParser implements IParsingEngine
         		this.headerSplitter.getHeader().getVersion());
         this.networkService.setNetworkTitleAndDescription(null, header.getDescription());
         this.networkService.setNetworkSourceFormat(NetworkSourceFormat.BEL);
+        if ( bulkLoad)
+        	this.networkService.beginBulkLoad();
 		try {
 				// create a few default name spaces. 
 				// BEL namespace
@@ -318,6 +321,10 @@ public class XbelParser implements IParsingEngine
         }
     }
 
+    public void setBulkLoad(boolean bulkLoad) {
+    	this.bulkLoad = bulkLoad;
+    }
+
     public ValidationState getValidationState()
     {
         return this.validationState;
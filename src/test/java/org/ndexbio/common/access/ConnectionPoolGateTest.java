@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.access;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.ndexbio.common.access.ConnectionPoolGate.Lane;
+
+public class ConnectionPoolGateTest {
+
+	@Test
+	public void testTimeout() throws InterruptedException {
+		ConnectionPoolGate gate = new ConnectionPoolGate(1, 1);
+		assertTrue(gate.acquire(Lane.INTERACTIVE, 10, TimeUnit.MILLISECONDS));
+		assertFalse(gate.acquire(Lane.INTERACTIVE, 20, TimeUnit.MILLISECONDS));
+		assertEquals(1L, gate.getMetrics().get("timeoutCount"));
+		gate.release(Lane.INTERACTIVE);
+		assertTrue(gate.acquire(Lane.INTERACTIVE, 10, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testBackgroundCapacity() throws InterruptedException {
+		ConnectionPoolGate gate = new ConnectionPoolGate(2, 1);
+		assertTrue(gate.acquire(Lane.BACKGROUND, 10, TimeUnit.MILLISECONDS));
+		assertFalse(gate.acquire(Lane.BACKGROUND, 10, TimeUnit.MILLISECONDS));
+		assertTrue(gate.acquire(Lane.INTERACTIVE, 10, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testInteractiveServedBeforeBackground() throws InterruptedException {
+		final ConnectionPoolGate gate = new ConnectionPoolGate(1, 1);
+		assertTrue(gate.acquire(Lane.INTERACTIVE, 10, TimeUnit.MILLISECONDS));
+
+		final AtomicBoolean backgroundGranted = new AtomicBoolean(false);
+		final CountDownLatch interactiveDone = new CountDownLatch(1);
+		Thread background = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					if ( gate.acquire(Lane.BACKGROUND, 5, TimeUnit.SECONDS)) {
+						// the interactive waiter must have been served first.
+						backgroundGranted.set(interactiveDone.getCount() == 0);
+						gate.release(Lane.BACKGROUND);
+					}
+				} catch (InterruptedException e) {
+					// fall through, the assertion below fails.
+				}
+			}
+		});
+		background.start();
+		waitForWaiters(gate, "backgroundWaiting", 1);
+
+		Thread interactive = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					if ( gate.acquire(Lane.INTERACTIVE, 5, TimeUnit.SECONDS)) {
+						interactiveDone.countDown();
+						gate.release(Lane.INTERACTIVE);
+					}
+				} catch (InterruptedException e) {
+					// fall through, the assertion below fails.
+				}
+			}
+		});
+		interactive.start();
+		waitForWaiters(gate, "interactiveWaiting", 1);
+
+		gate.release(Lane.INTERACTIVE);
+		interactive.join();
+		background.join();
+		assertTrue(backgroundGranted.get());
+		assertEquals(0, gate.getMetrics().get("inUse"));
+	}
+
+	private static void waitForWaiters(ConnectionPoolGate gate, String metric, int count) throws InterruptedException {
+		for ( int i = 0 ; i < 500 && gate.getMetrics().get(metric).intValue() < count; i++)
+			Thread.sleep(10);
+		assertEquals(count, gate.getMetrics().get(metric).intValue());
+	}
+}
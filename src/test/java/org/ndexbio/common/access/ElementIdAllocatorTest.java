@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.access;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class ElementIdAllocatorTest {
+
+	// in memory replacement of the sequence record in the database. 
+	private static class TestIdSource implements ElementIdAllocator.IdBlockSource {
+		final AtomicLong counter = new AtomicLong(1);
+		@Override
+		public long reserveBlock(int blockSize) throws Exception {
+			Thread.sleep(1);  // simulate the db round trip.
+			return counter.getAndAdd(blockSize);
+		}
+	}
+	
+	@Test
+	public void testSingleThreadIdsAreConsecutive() {
+		ElementIdAllocator allocator = new ElementIdAllocator(new TestIdSource(), 100);
+		long id0 = allocator.nextId();
+		for ( int i = 1 ; i < 10000; i ++ ) {
+			assertEquals (id0 + i, allocator.nextId());
+		}
+		allocator.shutdown();
+	}
+
+	@Test
+	public void testNoDuplicateIdsUnderContention() throws InterruptedException {
+		final int threadCount = 32;
+		final int idsPerThread = 50000;
+		
+		TestIdSource source = new TestIdSource();
+		final ElementIdAllocator allocator = new ElementIdAllocator(source, 500);
+		final ConcurrentHashMap<Long, Boolean> issued = new ConcurrentHashMap<>(threadCount * idsPerThread);
+		final AtomicReference<String> error = new AtomicReference<>();
+		final CountDownLatch start = new CountDownLatch(1);
+		
+		Thread[] threads = new Thread[threadCount];
+		for ( int i = 0 ; i < threadCount; i++) {
+			threads[i] = new Thread(new Runnable () {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for ( int j = 0 ; j < idsPerThread; j++) {
+							long id = allocator.nextId();
+							if ( issued.putIfAbsent(id, Boolean.TRUE) != null) {
+								error.compareAndSet(null, "Id " + id + " was issued twice.");
+								return;
+							}
+						}
+					} catch (InterruptedException e) {
+						error.compareAndSet(null, "Interrupted.");
+					}
+				}
+			});
+			threads[i].start();
+		}
+		start.countDown();
+		for ( Thread t : threads) 
+			t.join();
+		allocator.shutdown();
+
+		assertNull(error.get(), error.get());
+		assertEquals(threadCount * idsPerThread, issued.size());
+		for ( Long id : issued.keySet()) {
+			assertTrue(id.longValue() > 0 && id.longValue() < source.counter.get());
+		}
+	}
+}
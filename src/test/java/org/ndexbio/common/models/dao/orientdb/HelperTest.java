@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.models.dao.orientdb;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.ridbag.ORidBag;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+public class HelperTest {
+
+	private ODatabaseDocumentTx db;
+	private int threshold;
+	
+	@Before
+	public void setUp() {
+		threshold = OGlobalConfiguration.RID_BAG_EMBEDDED_TO_SBTREEBONSAI_THRESHOLD.getValueAsInteger();
+		db = new ODatabaseDocumentTx("memory:helperTest");
+		db.create();
+	}
+	
+	@After
+	public void tearDown() {
+		db.drop();
+		OGlobalConfiguration.RID_BAG_EMBEDDED_TO_SBTREEBONSAI_THRESHOLD.setValue(threshold);
+	}
+	
+	// saves a document with a ridbag of links to count new documents, and returns the record ids of the links.
+	private ODocument createLinks(int count, List<ORID> rids) {
+		ORidBag bag = new ORidBag();
+		for ( int i = 0; i < count; i++) {
+			ODocument doc = new ODocument().field("n", i).save();
+			bag.add(doc);
+			rids.add(doc.getIdentity());
+		}
+		ODocument owner = new ODocument().field("links", bag).save();
+		Collections.sort(rids);
+		return db.load(owner.getIdentity(), null, true);
+	}
+	
+	private static void checkPages(ODocument owner, List<ORID> rids, int pageSize) {
+		List<ORID> read = new ArrayList<>();
+		ORID last = null;
+		for (;;) {
+			List<ORID> page = Helper.getRIDsAfter(owner.rawField("links"), last, pageSize);
+			assertTrue(page.size() <= pageSize);
+			if ( page.isEmpty())
+				break;
+			read.addAll(page);
+			last = page.get(page.size() - 1);
+		}
+		assertEquals(rids, read);
+	}
+	
+	@Test
+	public void testRIDsAfterInTreeRidBag() {
+		OGlobalConfiguration.RID_BAG_EMBEDDED_TO_SBTREEBONSAI_THRESHOLD.setValue(-1);
+		List<ORID> rids = new ArrayList<>();
+		ODocument owner = createLinks(1000, rids);
+		assertFalse(((ORidBag)owner.rawField("links")).isEmbedded());
+		
+		checkPages(owner, rids, 7);
+		assertEquals(rids.subList(500, 510), Helper.getRIDsAfter(owner.rawField("links"), rids.get(499), 10));
+	}
+	
+	@Test
+	public void testRIDsAfterInEmbeddedRidBag() {
+		List<ORID> rids = new ArrayList<>();
+		ODocument owner = createLinks(20, rids);
+		assertTrue(((ORidBag)owner.rawField("links")).isEmbedded());
+		
+		checkPages(owner, rids, 3);
+		assertTrue(Helper.getRIDsAfter(null, null, 3).isEmpty());
+	}
+}
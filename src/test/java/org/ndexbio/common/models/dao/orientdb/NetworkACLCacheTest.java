@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.models.dao.orientdb;
+
+import static org.junit.Assert.*;
+
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ndexbio.common.NdexClasses;
+import org.ndexbio.model.object.Permissions;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.ridbag.ORidBag;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+public class NetworkACLCacheTest {
+
+	private ODatabaseDocumentTx db;
+	private ORID userRID;
+	private ORID networkRID;
+	
+	@Before
+	public void setUp() {
+		db = new ODatabaseDocumentTx("memory:networkACLCacheTest");
+		db.create();
+		NetworkACLCache.getInstance().invalidateAll();
+		NetworkCatalog.getInstance().clear();
+		
+		networkRID = new ODocument(NdexClasses.Network)
+				.field(NdexClasses.Network_P_UUID, UUID.randomUUID().toString()).save().getIdentity();
+		userRID = new ODocument(NdexClasses.User).field(NdexClasses.account_P_accountName, "aclTester")
+				.save().getIdentity();
+	}
+	
+	@After
+	public void tearDown() {
+		db.drop();
+		NetworkACLCache.getInstance().invalidateAll();
+		NetworkCatalog.getInstance().clear();
+	}
+	
+	private void grantAdmin() {
+		ORidBag bag = new ORidBag();
+		bag.add(networkRID);
+		db.<ODocument>load(userRID).field("out_" + NdexClasses.E_admin, bag).save();
+	}
+	
+	private boolean isAdmin() {
+		return NetworkACLCache.getInstance().hasPermission(db, userRID, networkRID, Permissions.ADMIN);
+	}
+
+	@Test
+	public void testCommittedGrant() {
+		assertFalse(isAdmin());
+		grantAdmin();
+		assertTrue(isAdmin());
+		assertTrue(isAdmin());
+	}
+	
+	@Test
+	public void testRolledBackGrantIsNotCached() {
+		assertFalse(isAdmin());
+		
+		db.begin();
+		grantAdmin();
+		assertTrue(isAdmin());
+		db.rollback();
+		
+		assertFalse(isAdmin());
+	}
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.models.dao.orientdb;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ndexbio.common.NdexClasses;
+import org.ndexbio.model.object.network.VisibilityType;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+public class NetworkCatalogTest {
+
+	private ODatabaseDocumentTx db;
+	
+	@Before
+	public void setUp() {
+		db = new ODatabaseDocumentTx("memory:networkCatalogTest");
+		db.create();
+		db.getMetadata().getSchema().createClass(NdexClasses.Network);
+		NetworkCatalog.getInstance().clear();
+	}
+	
+	@After
+	public void tearDown() {
+		db.drop();
+		NetworkCatalog.getInstance().clear();
+	}
+	
+	private ODocument createNetwork(VisibilityType visibility) {
+		return new ODocument(NdexClasses.Network)
+				.fields(NdexClasses.Network_P_UUID, UUID.randomUUID().toString(),
+						NdexClasses.Network_P_visibility, visibility.toString(),
+						NdexClasses.Network_P_isComplete, true,
+						NdexClasses.ExternalObj_isDeleted, false)
+				.save();
+	}
+	
+	@Test
+	public void testLoadAndHook() {
+		ODocument first = createNetwork(VisibilityType.PUBLIC);
+		
+		// loaded from the class on first use, before the hook is registered.
+		List<NetworkCatalog.Entry> entries = new ArrayList<>(NetworkCatalog.getInstance().getNetworks(db));
+		assertEquals(1, entries.size());
+		assertEquals(first.getIdentity(), entries.get(0).getRID());
+		
+		db.registerHook(NetworkCatalog.getInstance().getHook());
+		
+		ODocument second = createNetwork(VisibilityType.PRIVATE);
+		entries = new ArrayList<>(NetworkCatalog.getInstance().getNetworks(db));
+		assertEquals(2, entries.size());
+		assertEquals(second.getIdentity(), entries.get(0).getRID());   // newest first
+		assertEquals(VisibilityType.PRIVATE, entries.get(0).getVisibility());
+		assertTrue(entries.get(0).isListed());
+		
+		second.field(NdexClasses.ExternalObj_isDeleted, true).save();
+		assertFalse(NetworkCatalog.getInstance().getNetwork(db, second.getIdentity()).isListed());
+		
+		first.delete();
+		assertNull(NetworkCatalog.getInstance().getNetwork(db, first.getIdentity()));
+		assertEquals(1, NetworkCatalog.getInstance().getNetworks(db).size());
+	}
+	
+	@Test
+	public void testTransaction() {
+		db.registerHook(NetworkCatalog.getInstance().getHook());
+		assertTrue(NetworkCatalog.getInstance().getNetworks(db).isEmpty());
+		
+		db.begin();
+		ODocument doc = createNetwork(VisibilityType.PUBLIC);
+		db.commit();
+		
+		NetworkCatalog.Entry e = NetworkCatalog.getInstance().getNetwork(db, doc.getIdentity());
+		assertNotNull(e);
+		assertEquals(UUID.fromString((String)doc.field(NdexClasses.Network_P_UUID)), e.getExternalId());
+		assertEquals(1, NetworkCatalog.getInstance().getNetworks(db).size());
+	}
+	
+	@Test
+	public void testRollback() {
+		db.registerHook(NetworkCatalog.getInstance().getHook());
+		ODocument listed = createNetwork(VisibilityType.PUBLIC);
+		assertEquals(1, NetworkCatalog.getInstance().getNetworks(db).size());
+		
+		db.begin();
+		createNetwork(VisibilityType.PUBLIC);
+		listed.field(NdexClasses.Network_P_visibility, VisibilityType.PRIVATE.toString())
+			  .field(NdexClasses.ExternalObj_isDeleted, true).save();
+		// nothing is visible before the commit.
+		assertEquals(1, NetworkCatalog.getInstance().getNetworks(db).size());
+		assertTrue(NetworkCatalog.getInstance().getNetwork(db, listed.getIdentity()).isListed());
+		db.rollback();
+		
+		List<NetworkCatalog.Entry> entries = new ArrayList<>(NetworkCatalog.getInstance().getNetworks(db));
+		assertEquals(1, entries.size());
+		assertEquals(listed.getIdentity(), entries.get(0).getRID());
+		assertEquals(VisibilityType.PUBLIC, entries.get(0).getVisibility());
+		assertTrue(entries.get(0).isListed());
+		
+		// a later transaction on the same connection doesn't apply the changes that were rolled back.
+		db.begin();
+		ODocument doc = createNetwork(VisibilityType.PRIVATE);
+		db.commit();
+		assertEquals(2, NetworkCatalog.getInstance().getNetworks(db).size());
+		assertEquals(VisibilityType.PRIVATE, NetworkCatalog.getInstance().getNetwork(db, doc.getIdentity()).getVisibility());
+		assertTrue(NetworkCatalog.getInstance().getNetwork(db, listed.getIdentity()).isListed());
+	}
+	
+	@Test
+	public void testOrdinals() {
+		NetworkCatalog catalog = NetworkCatalog.getInstance();
+		int a = catalog.getOrdinal(new ORecordId(9, 1));
+		int b = catalog.getOrdinal(new ORecordId(9, 2));
+		assertNotEquals(a, b);
+		assertEquals(a, catalog.getOrdinal(new ORecordId(9, 1)));
+		
+		ODocument doc = createNetwork(VisibilityType.PUBLIC);
+		NetworkCatalog.Entry e = catalog.getNetwork(db, doc.getIdentity());
+		assertEquals(catalog.getOrdinal(doc.getIdentity()), e.getOrdinal());
+	}
+}
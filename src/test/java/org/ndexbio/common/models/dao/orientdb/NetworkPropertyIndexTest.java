@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.models.dao.orientdb;
+
+import static org.junit.Assert.*;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ndexbio.common.NdexClasses;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+public class NetworkPropertyIndexTest {
+
+	private static final String dbURL = "memory:networkPropertyIndexTest";
+	
+	private ODatabaseDocumentTx db;
+	
+	// lookups run in another thread on their own connection, like a search that runs while a network is saved.
+	private ExecutorService searcher;
+	
+	@Before
+	public void setUp() {
+		db = new ODatabaseDocumentTx(dbURL);
+		db.create();
+		db.getMetadata().getSchema().createClass(NdexClasses.Network);
+		db.registerHook(NetworkCatalog.getInstance().getHook());
+		NetworkCatalog.getInstance().clear();
+		searcher = Executors.newSingleThreadExecutor();
+	}
+	
+	@After
+	public void tearDown() {
+		searcher.shutdownNow();
+		db.drop();
+		NetworkCatalog.getInstance().clear();
+	}
+	
+	private Set<ORID> lookup(final String name, final String value) throws Exception {
+		return searcher.submit(new Callable<Set<ORID>>() {
+			@Override
+			public Set<ORID> call() {
+				try (ODatabaseDocumentTx conn = new ODatabaseDocumentTx(dbURL).open("admin", "admin")) {
+					return NetworkPropertyIndex.getInstance().getNetworks(conn, name, value);
+				}
+			}
+		}).get();
+	}
+	
+	@Test
+	public void testLookupIsCaseInsensitive() throws Exception {
+		ODocument network = new ODocument(NdexClasses.Network)
+				.field("out_" + NdexClasses.E_ndexProperties, new ODocument()
+						.fields(NdexClasses.ndexProp_P_predicateStr, "Source",
+								NdexClasses.ndexProp_P_value, "NCI-PID").save())
+				.save();
+		
+		assertTrue(lookup("source", "nci-pid").contains(network.getIdentity()));
+		assertTrue(lookup("SOURCE", "Nci-Pid").contains(network.getIdentity()));
+		assertTrue(lookup("source", "nci").isEmpty());
+	}
+	
+	@Test
+	public void testChangeIsIndexedAfterCommit() throws Exception {
+		ODocument prop = new ODocument()
+				.fields(NdexClasses.ndexProp_P_predicateStr, "source",
+						NdexClasses.ndexProp_P_value, "old").save();
+		ODocument network = new ODocument(NdexClasses.Network)
+				.field("out_" + NdexClasses.E_ndexProperties, prop).save();
+		ORID rid = network.getIdentity();
+		assertTrue(lookup("source", "old").contains(rid));
+		
+		db.begin();
+		prop.field(NdexClasses.ndexProp_P_value, "new").save();
+		network.field(NdexClasses.ExternalObj_mTime, new java.util.Date()).save();
+		
+		// a lookup between the save and the commit only sees the committed properties.
+		assertTrue(lookup("source", "old").contains(rid));
+		assertTrue(lookup("source", "new").isEmpty());
+		
+		db.commit();
+		
+		assertTrue(lookup("source", "new").contains(rid));
+		assertTrue(lookup("source", "old").isEmpty());
+	}
+	
+	@Test
+	public void testRolledBackChangeIsNotIndexed() throws Exception {
+		ODocument prop = new ODocument()
+				.fields(NdexClasses.ndexProp_P_predicateStr, "source",
+						NdexClasses.ndexProp_P_value, "old").save();
+		ODocument network = new ODocument(NdexClasses.Network)
+				.field("out_" + NdexClasses.E_ndexProperties, prop).save();
+		ORID rid = network.getIdentity();
+		assertTrue(lookup("source", "old").contains(rid));
+		
+		db.begin();
+		prop.field(NdexClasses.ndexProp_P_value, "new").save();
+		network.field(NdexClasses.ExternalObj_mTime, new java.util.Date()).save();
+		db.rollback();
+		
+		assertTrue(lookup("source", "old").contains(rid));
+		assertTrue(lookup("source", "new").isEmpty());
+	}
+}
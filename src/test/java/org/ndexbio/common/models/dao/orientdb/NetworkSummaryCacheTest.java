@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.models.dao.orientdb;
+
+import static org.junit.Assert.*;
+
+import java.util.Date;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ndexbio.common.NdexClasses;
+import org.ndexbio.model.object.NdexPropertyValuePair;
+import org.ndexbio.model.object.network.NetworkSummary;
+import org.ndexbio.model.object.network.VisibilityType;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+public class NetworkSummaryCacheTest {
+
+	private ODatabaseDocumentTx db;
+	private ODocument networkDoc;
+	
+	@Before
+	public void setUp() {
+		db = new ODatabaseDocumentTx("memory:networkSummaryCacheTest");
+		db.create();
+		NetworkSummaryCache.getInstance().invalidateAll();
+		
+		Date now = new Date();
+		networkDoc = new ODocument(NdexClasses.Network)
+				.field(NdexClasses.Network_P_UUID, UUID.randomUUID().toString())
+				.field(NdexClasses.ExternalObj_cTime, now)
+				.field(NdexClasses.ExternalObj_mTime, now)
+				.field(NdexClasses.Network_P_name, "summary test")
+				.field(NdexClasses.Network_P_desc, "")
+				.field(NdexClasses.Network_P_nodeCount, 2)
+				.field(NdexClasses.Network_P_edgeCount, 1)
+				.field(NdexClasses.Network_P_visibility, VisibilityType.PUBLIC.toString())
+				.field(NdexClasses.Network_P_isLocked, false)
+				.save();
+	}
+	
+	@After
+	public void tearDown() {
+		db.drop();
+		NetworkSummaryCache.getInstance().invalidateAll();
+	}
+	
+	@Test
+	public void testCallersGetTheirOwnCopy() {
+		NetworkSummaryCache cache = NetworkSummaryCache.getInstance();
+		
+		NetworkSummary first = cache.getNetworkSummary(networkDoc);
+		first.setName("changed by the caller");
+		first.getProperties().add(new NdexPropertyValuePair("added", "by the caller"));
+		
+		NetworkSummary second = cache.getNetworkSummary(networkDoc);
+		assertEquals(1, cache.getStats().hitCount());
+		assertNotSame(first, second);
+		assertEquals("summary test", second.getName());
+		assertEquals(2, second.getNodeCount());
+		assertEquals(VisibilityType.PUBLIC, second.getVisibility());
+		assertTrue(second.getProperties().isEmpty());
+		
+		second.setNodeCount(10);
+		assertEquals(2, cache.getNetworkSummary(networkDoc).getNodeCount());
+	}
+}
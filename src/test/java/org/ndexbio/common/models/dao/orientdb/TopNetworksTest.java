@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.models.dao.orientdb;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+public class TopNetworksTest {
+
+	@Test
+	public void testTopK() {
+		Random random = new Random(7);
+		long[] keys = new long[1000];
+		TopNetworks top = new TopNetworks(10);
+		for ( int i = 0 ; i < keys.length; i++) {
+			keys[i] = random.nextInt(100000);
+			top.offer(new ORecordId(9, i), keys[i]);
+		}
+		assertEquals(10, top.size());
+		
+		List<Long> sorted = new ArrayList<>();
+		for ( long k : keys)
+			sorted.add(k);
+		Collections.sort(sorted, Collections.reverseOrder());
+		
+		List<ORID> page = top.getPage(4);
+		assertEquals(6, page.size());
+		for ( int i = 0 ; i < page.size(); i++) 
+			assertEquals(sorted.get(i + 4).longValue(), keys[(int)page.get(i).getClusterPosition()]);
+	}
+	
+	@Test
+	public void testTies() {
+		TopNetworks top = new TopNetworks(2);
+		assertTrue(top.offer(new ORecordId(9, 1), 5));
+		assertTrue(top.offer(new ORecordId(9, 2), 5));
+		assertTrue(top.offer(new ORecordId(9, 3), 5));   // newer record wins a tie
+		assertFalse(top.offer(new ORecordId(9, 0), 5));
+		assertFalse(top.offer(new ORecordId(9, 4), 4));
+		
+		List<ORID> page = top.getPage(0);
+		assertEquals(new ORecordId(9, 3), page.get(0));
+		assertEquals(new ORecordId(9, 2), page.get(1));
+	}
+	
+	@Test
+	public void testEmpty() {
+		TopNetworks top = new TopNetworks(0);
+		assertFalse(top.offer(new ORecordId(9, 1), 5));
+		assertTrue(top.getPage(0).isEmpty());
+		
+		top = new TopNetworks(5);
+		top.offer(new ORecordId(9, 1), 5);
+		assertTrue(top.getPage(3).isEmpty());
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.persistence.orientdb;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+public class DeferredNameLogTest {
+
+	private File dir;
+	
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("ndex-names-test").toFile();
+	}
+	
+	@After
+	public void tearDown() {
+		for ( File f : dir.listFiles())
+			f.delete();
+		dir.delete();
+	}
+	
+	private static List<String> replay(DeferredNameLog log) {
+		final List<String> result = new ArrayList<>();
+		log.replay(new DeferredNameLog.Handler() {
+			@Override
+			public void handle(ORID rid, String field, String name) {
+				result.add(rid + " " + field + " " + name);
+			}
+		});
+		return result;
+	}
+	
+	@Test
+	public void testSpillsAfterCommit() {
+		DeferredNameLog log = new DeferredNameLog(dir, 10);
+		List<String> expected = new ArrayList<>();
+		for ( int i = 0; i < 100; i++) {
+			ORID rid = new ORecordId(9, i);
+			// names can be longer than DataOutput.writeUTF allows.
+			String name = i == 50 ? new String(new char[70000]).replace('\0', 'x') : "näme " + i;
+			log.add(rid, i % 2 == 0 ? "name" : "bterm", name);
+			expected.add(rid + " " + (i % 2 == 0 ? "name" : "bterm") + " " + name);
+			if ( i % 7 == 6)
+				log.committed();
+		}
+		assertEquals(100, log.size());
+		assertEquals(1, dir.listFiles().length);
+		
+		assertEquals(expected, replay(log));
+		log.close();
+		assertEquals(0, dir.listFiles().length);
+	}
+	
+	@Test
+	public void testStaysInMemoryWithoutDirectory() {
+		DeferredNameLog log = new DeferredNameLog(null, 0);
+		for ( int i = 0; i < 20; i++) {
+			log.add(new ORecordId(9, i), "name", "n" + i);
+			log.committed();
+		}
+		assertEquals(20, replay(log).size());
+		log.close();
+	}
+}
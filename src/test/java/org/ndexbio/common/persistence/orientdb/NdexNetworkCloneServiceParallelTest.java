@@ -0,0 +1,231 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.persistence.orientdb;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.ndexbio.common.NdexClasses;
+import org.ndexbio.common.access.NdexDatabase;
+import org.ndexbio.model.object.NdexPropertyValuePair;
+import org.ndexbio.model.object.network.BaseTerm;
+import org.ndexbio.model.object.network.Citation;
+import org.ndexbio.model.object.network.Edge;
+import org.ndexbio.model.object.network.Network;
+import org.ndexbio.model.object.network.NetworkSummary;
+import org.ndexbio.model.object.network.Node;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientGraph;
+
+/**
+ * Clones a network that is big enough for the parallel path, with terms, a citation and hub nodes that are 
+ * shared by the elements of different worker batches.
+ */
+public class NdexNetworkCloneServiceParallelTest {
+
+	private static final String owner = "cloneTester";
+	private static final int termCount = 5;
+	private static final int nodeCount = 3000;
+	private static final int hubCount = 10;
+	private static final int edgeCount = 5000;
+	
+	private static NdexDatabase database;
+	
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		database = NdexDatabase.createNdexDatabase("http://localhost", "memory:cloneServiceTest", "admin", "admin", 10);
+		ODatabaseDocumentTx conn = database.getAConnection();
+		try {
+			new ODocument(NdexClasses.User).field(NdexClasses.account_P_accountName, owner).save();
+			conn.commit();
+		} finally {
+			conn.close();
+		}
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		NdexDatabase.close();
+	}
+	
+	private static BaseTerm term(long id, String name) {
+		BaseTerm term = new BaseTerm();
+		term.setId(id);
+		term.setName(name);
+		term.setNamespaceId(-1);
+		return term;
+	}
+	
+	private static NdexPropertyValuePair score(int value) {
+		NdexPropertyValuePair p = new NdexPropertyValuePair("score", Integer.toString(value));
+		p.setPredicateId(101);
+		return p;
+	}
+	
+	// ids of the source network: base terms 0 to termCount-1, 100 for the edge predicate and 101 for the 
+	// property name, citation 200, nodes from 1000 and edges from 10000.
+	private static Network createNetwork() {
+		Network network = new Network();
+		network.setName("shared terms");
+		for ( int i = 0; i < termCount; i++) 
+			network.getBaseTerms().put((long)i, term(i, "gene" + i));
+		network.getBaseTerms().put(100L, term(100, "interacts"));
+		network.getBaseTerms().put(101L, term(101, "score"));
+		
+		Citation citation = new Citation();
+		citation.setId(200);
+		citation.setTitle("shared citation");
+		network.getCitations().put(200L, citation);
+		
+		for ( int i = 0; i < nodeCount; i++) {
+			Node node = new Node();
+			node.setId(1000 + i);
+			node.setName("n" + i);
+			node.setRepresents((long)(i % termCount));
+			node.setRepresentsTermType(NdexClasses.BaseTerm);
+			node.getAliases().add((long)((i + 1) % termCount));
+			node.getCitationIds().add(200L);
+			node.getProperties().add(score(i));
+			network.getNodes().put(node.getId(), node);
+		}
+		
+		for ( int i = 0; i < edgeCount; i++) {
+			Edge edge = new Edge();
+			edge.setId(10000 + i);
+			edge.setSubjectId(1000 + i % hubCount);
+			edge.setObjectId(1000 + i % nodeCount);
+			edge.setPredicateId(100L);
+			edge.getCitationIds().add(200L);
+			edge.getProperties().add(score(i));
+			network.getEdges().put(edge.getId(), edge);
+		}
+		return network;
+	}
+	
+	private static int count(Iterable<Vertex> vertices) {
+		int n = 0;
+		for ( @SuppressWarnings("unused") Vertex v : vertices) 
+			n++;
+		return n;
+	}
+	
+	private static String score(Vertex element) {
+		return element.getVertices(Direction.OUT, NdexClasses.E_ndexProperties).iterator().next()
+				.getProperty(NdexClasses.ndexProp_P_value);
+	}
+	
+	private static Vertex single(Iterable<Vertex> vertices) {
+		Vertex result = null;
+		for ( Vertex v : vertices) {
+			assertNull("more than one linked vertex", result);
+			result = v;
+		}
+		assertNotNull(result);
+		return result;
+	}
+
+	@Test
+	public void testCloneWithSharedTerms() throws Exception {
+		NdexNetworkCloneService service = new NdexNetworkCloneService(database, createNetwork(), owner, 4);
+		NetworkSummary summary;
+		try {
+			summary = service.cloneNetwork();
+		} finally {
+			service.close();
+		}
+		
+		ODatabaseDocumentTx conn = database.getAConnection();
+		OrientGraph graph = new OrientGraph(conn, false);
+		try {
+			List<ODocument> networkDocs = conn.query(new OSQLSynchQuery<ODocument>(
+					"select from " + NdexClasses.Network + " where " + NdexClasses.Network_P_UUID + " = ?"), 
+					summary.getExternalId().toString());
+			Vertex networkV = graph.getVertex(networkDocs.get(0));
+			
+			Map<String, Vertex> nodes = new HashMap<>();
+			for ( Vertex v : networkV.getVertices(Direction.OUT, NdexClasses.Network_E_Nodes)) 
+				nodes.put((String)v.getProperty(NdexClasses.Node_P_name), v);
+			assertEquals(nodeCount, nodes.size());
+			
+			// every link to a shared term or citation is there exactly once.
+			Map<String, Vertex> terms = new HashMap<>();
+			for ( int i = 0; i < nodeCount; i++) {
+				Vertex node = nodes.get("n" + i);
+				assertEquals(Integer.toString(i), score(node));
+				Vertex term = single(node.getVertices(Direction.OUT, NdexClasses.Node_E_represents));
+				assertEquals("gene" + (i % termCount), term.getProperty(NdexClasses.BTerm_P_name));
+				terms.put("gene" + (i % termCount), term);
+				assertEquals("gene" + ((i + 1) % termCount), 
+						single(node.getVertices(Direction.OUT, NdexClasses.Node_E_alias)).getProperty(NdexClasses.BTerm_P_name));
+			}
+			for ( Vertex term : terms.values()) {
+				assertEquals(nodeCount / termCount, count(term.getVertices(Direction.IN, NdexClasses.Node_E_represents)));
+				assertEquals(nodeCount / termCount, count(term.getVertices(Direction.IN, NdexClasses.Node_E_alias)));
+			}
+			
+			int edges = 0;
+			Vertex predicate = null;
+			Vertex citation = null;
+			for ( Vertex edge : networkV.getVertices(Direction.OUT, NdexClasses.Network_E_Edges)) {
+				int i = Integer.parseInt(score(edge));
+				assertEquals(nodes.get("n" + (i % hubCount)), single(edge.getVertices(Direction.IN, NdexClasses.Edge_E_subject)));
+				assertEquals(nodes.get("n" + (i % nodeCount)), single(edge.getVertices(Direction.OUT, NdexClasses.Edge_E_object)));
+				predicate = single(edge.getVertices(Direction.OUT, NdexClasses.Edge_E_predicate));
+				citation = single(edge.getVertices(Direction.OUT, NdexClasses.Edge_E_citations));
+				edges++;
+			}
+			assertEquals(edgeCount, edges);
+			assertEquals(edgeCount, count(predicate.getVertices(Direction.IN, NdexClasses.Edge_E_predicate)));
+			assertEquals(edgeCount, count(citation.getVertices(Direction.IN, NdexClasses.Edge_E_citations)));
+			assertEquals(nodeCount, count(citation.getVertices(Direction.IN, NdexClasses.Node_E_citations)));
+			for ( int i = 0; i < hubCount; i++) 
+				assertEquals(edgeCount / hubCount, 
+						count(nodes.get("n" + i).getVertices(Direction.OUT, NdexClasses.Edge_E_subject)));
+			
+			Vertex scoreTerm = single(nodes.get("n0").getVertices(Direction.OUT, NdexClasses.E_ndexProperties)
+					.iterator().next().getVertices(Direction.OUT, NdexClasses.ndexProp_E_predicate));
+			assertEquals(nodeCount + edgeCount, count(scoreTerm.getVertices(Direction.IN, NdexClasses.ndexProp_E_predicate)));
+		} finally {
+			graph.shutdown();
+		}
+	}
+}
@@ -0,0 +1,211 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.persistence.orientdb;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+
+import org.junit.Test;
+import org.ndexbio.model.exceptions.NdexException;
+import org.ndexbio.model.object.NdexPropertyValuePair;
+import org.ndexbio.model.object.network.BaseTerm;
+import org.ndexbio.model.object.network.Citation;
+import org.ndexbio.model.object.network.Edge;
+import org.ndexbio.model.object.network.FunctionTerm;
+import org.ndexbio.model.object.network.Namespace;
+import org.ndexbio.model.object.network.Network;
+import org.ndexbio.model.object.network.NetworkSummary;
+import org.ndexbio.model.object.network.Node;
+
+public class NetworkSnapshotTest {
+
+	private static byte[] writeTestNetwork() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		NetworkSnapshotWriter writer = new NetworkSnapshotWriter(Channels.newChannel(out));
+		
+		Namespace ns = new Namespace();
+		ns.setId(1);
+		ns.setPrefix("HGNC");
+		ns.setUri("http://identifiers.org/hgnc/");
+		writer.handleNamespace(ns);
+		for ( long id = 2 ; id <= 3; id++) {
+			BaseTerm t = new BaseTerm();
+			t.setId(id);
+			t.setName("term" + id);
+			t.setNamespaceId(1);
+			writer.handleBaseTerm(t);
+		}
+		Citation c = new Citation();
+		c.setId(4);
+		c.setTitle("title");
+		c.getContributors().add("author 1");
+		c.getContributors().add("author 2");
+		writer.handleCitation(c);
+		FunctionTerm f = new FunctionTerm();
+		f.setId(5);
+		f.setFunctionTermId(2);
+		f.getParameterIds().add(Long.valueOf(3));
+		writer.handleFunctionTerm(f);
+		for ( long id = 6 ; id <= 7; id++) {
+			Node n = new Node();
+			n.setId(id);
+			n.setName("term" + (id-4));
+			n.setRepresents(Long.valueOf(id-4));
+			n.getAliases().add(Long.valueOf(5));
+			writer.handleNode(n);
+		}
+		Edge e = new Edge();
+		e.setId(8);
+		e.setSubjectId(6);
+		e.setPredicateId(Long.valueOf(2));
+		e.setObjectId(7);
+		e.getCitationIds().add(Long.valueOf(4));
+		NdexPropertyValuePair p = new NdexPropertyValuePair("score", "0.5");
+		p.setDataType("double");
+		e.getProperties().add(p);
+		writer.handleEdge(e);
+		NetworkSummary summary = new NetworkSummary();
+		summary.setName("test");
+		summary.setEdgeCount(1);
+		writer.handleNetworkSummary(summary);
+		return out.toByteArray();
+	}
+	
+	@Test
+	public void testSnapshotCanBeReadBack() throws Exception {
+		NetworkSnapshotReader reader = new NetworkSnapshotReader(ByteBuffer.wrap(writeTestNetwork()));
+		
+		assertFalse(reader.hasSection(NetworkSnapshotFormat.SUPPORTS));
+		assertEquals(2, reader.getElementCount(NetworkSnapshotFormat.NODES));
+		
+		Network network = reader.readNetwork();
+		assertEquals("test", network.getName());
+		assertEquals(1, network.getEdgeCount());
+		assertEquals("http://identifiers.org/hgnc/", network.getNamespaces().get(1L).getUri());
+		assertEquals("term3", network.getBaseTerms().get(3L).getName());
+		assertEquals("[author 1, author 2]", network.getCitations().get(4L).getContributors().toString());
+		assertEquals(Long.valueOf(3), network.getFunctionTerms().get(5L).getParameterIds().get(0));
+		
+		Node n = network.getNodes().get(7L);
+		assertEquals("term3", n.getName());
+		assertEquals(Long.valueOf(3), n.getRepresents());
+		assertTrue(n.getAliases().contains(5L));
+		assertNull(n.getRepresentsTermType());
+		
+		Edge e = network.getEdges().get(8L);
+		assertEquals(6, e.getSubjectId());
+		assertEquals(Long.valueOf(2), e.getPredicateId());
+		assertTrue(e.getCitationIds().contains(4L));
+		assertEquals("score", e.getProperties().get(0).getPredicateString());
+		assertEquals("double", e.getProperties().get(0).getDataType());
+	}
+	
+	@Test
+	public void testMappedSnapshotViews() throws Exception {
+		byte[] snapshot = writeTestNetwork();
+		File f = File.createTempFile("network", NetworkSnapshotFormat.FILE_EXTENSION);
+		f.deleteOnExit();
+		Files.write(f.toPath(), snapshot);
+		
+		try (MappedNetworkSnapshot mapped = new MappedNetworkSnapshot(f.getPath())) {
+			MappedNetworkSnapshot.NodeView nodes = mapped.nodes();
+			assertEquals(2, nodes.size());
+			assertTrue(nodes.next());
+			assertEquals(6, nodes.getId());
+			assertEquals("term2", nodes.getName());
+			assertEquals(1, nodes.getAliasCount());
+			assertEquals(5, nodes.getAlias(0));
+			assertTrue(nodes.next());
+			assertFalse(nodes.next());
+			
+			MappedNetworkSnapshot.EdgeView edges = mapped.edges();
+			edges.moveTo(0);
+			assertEquals(7, edges.getObjectId());
+			assertEquals(4, edges.getCitationId(0));
+			assertEquals(0, edges.getSupportCount());
+			
+			assertEquals(0, mapped.reifiedEdgeTerms().size());
+			
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			assertEquals(snapshot.length, mapped.transferTo(Channels.newChannel(out)));
+			assertArrayEquals(snapshot, out.toByteArray());
+		}
+	}
+	
+	@Test
+	public void testLargeSectionsAreSpilled() throws Exception {
+		File dir = Files.createTempDirectory("snapshot").toFile();
+		dir.deleteOnExit();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		// 8 bytes per node id and more than 100000 names, past the memory of a column and the string dedup.
+		int count = 150000;
+		try (NetworkSnapshotWriter writer = new NetworkSnapshotWriter(Channels.newChannel(out), dir)) {
+			for ( long id = 1 ; id <= count; id++) {
+				Node n = new Node();
+				n.setId(id);
+				n.setName("node" + (id % 120000));
+				writer.handleNode(n);
+			}
+			assertTrue(dir.list().length > 0);
+			writer.handleNetworkSummary(new NetworkSummary());
+		}
+		assertEquals(0, dir.list().length);
+		
+		Network network = new NetworkSnapshotReader(ByteBuffer.wrap(out.toByteArray())).readNetwork();
+		assertEquals(count, network.getNodes().size());
+		assertEquals("node1", network.getNodes().get(1L).getName());
+		assertEquals("node1", network.getNodes().get(120001L).getName());
+		assertEquals("node30000", network.getNodes().get(150000L).getName());
+	}
+	
+	@Test(expected = NdexException.class)
+	public void testInvalidSnapshotIsRejected() throws Exception {
+		byte[] snapshot = writeTestNetwork();
+		snapshot[7] = 99;  // version
+		new NetworkSnapshotReader(ByteBuffer.wrap(snapshot));
+	}
+	
+	@Test(expected = NdexException.class)
+	public void testElementAfterItsSectionIsRejected() throws Exception {
+		NetworkSnapshotWriter writer = new NetworkSnapshotWriter(Channels.newChannel(new ByteArrayOutputStream()));
+		Node n = new Node();
+		n.setId(3);
+		writer.handleNode(n);
+		BaseTerm t = new BaseTerm();
+		t.setId(2);
+		writer.handleBaseTerm(t);
+	}
+}
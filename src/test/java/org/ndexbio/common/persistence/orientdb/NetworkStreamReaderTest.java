@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.persistence.orientdb;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.ndexbio.model.object.network.BaseTerm;
+import org.ndexbio.model.object.network.Citation;
+import org.ndexbio.model.object.network.Edge;
+import org.ndexbio.model.object.network.FunctionTerm;
+import org.ndexbio.model.object.network.Namespace;
+import org.ndexbio.model.object.network.NetworkSummary;
+import org.ndexbio.model.object.network.Node;
+import org.ndexbio.model.object.network.ReifiedEdgeTerm;
+import org.ndexbio.model.object.network.Support;
+
+public class NetworkStreamReaderTest {
+
+	// records the order in which elements are passed.
+	private static class RecordingHandler implements NetworkElementHandler {
+		List<String> events = new ArrayList<>();
+		NetworkSummary summary;
+		
+		@Override public void handleNamespace(Namespace ns) { events.add("namespace " + ns.getId()); }
+		@Override public void handleBaseTerm(BaseTerm t) { events.add("baseTerm " + t.getId()); }
+		@Override public void handleCitation(Citation c) { events.add("citation " + c.getId()); }
+		@Override public void handleSupport(Support s) { events.add("support " + s.getId()); }
+		@Override public void handleReifiedEdgeTerm(ReifiedEdgeTerm t) { events.add("reifiedEdgeTerm " + t.getId()); }
+		@Override public void handleFunctionTerm(FunctionTerm t) { events.add("functionTerm " + t.getId()); }
+		@Override public void handleNode(Node n) { events.add("node " + n.getId()); }
+		@Override public void handleEdge(Edge e) { events.add("edge " + e.getId()); }
+		@Override public void handleNetworkSummary(NetworkSummary s) { summary = s; }
+	}
+	
+	private static RecordingHandler read(String json) throws Exception {
+		RecordingHandler handler = new RecordingHandler();
+		new NetworkStreamReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), handler).read();
+		return handler;
+	}
+	
+	@Test
+	public void testSectionsInOrderAreStreamed() throws Exception {
+		RecordingHandler h = read("{\"name\":\"test\"," +
+				"\"namespaces\":{\"1\":{\"id\":1}},\"baseTerms\":{\"2\":{\"id\":2}},\"citations\":{},\"supports\":{}," +
+				"\"reifiedEdgeTerms\":{},\"functionTerms\":{},\"nodes\":{\"3\":{\"id\":3},\"4\":{\"id\":4}}," +
+				"\"edges\":{\"5\":{\"id\":5}}}");
+		
+		assertEquals("[namespace 1, baseTerm 2, node 3, node 4, edge 5]", h.events.toString());
+		assertEquals("test", h.summary.getName());
+	}
+	
+	@Test
+	public void testSectionsAreReorderedByDependency() throws Exception {
+		RecordingHandler h = read("{\"edges\":[{\"id\":5}],\"nodes\":{\"3\":{\"id\":3}}," +
+				"\"baseTerms\":{\"2\":{\"id\":2}},\"description\":\"d\",\"namespaces\":{\"1\":{\"id\":1}}," +
+				"\"supports\":{\"7\":{\"id\":7}},\"citations\":{\"6\":{\"id\":6}}}");
+		
+		// reified edge terms and function terms are not in the stream, nodes and edges wait until the end.
+		assertEquals("[namespace 1, baseTerm 2, citation 6, support 7, node 3, edge 5]", h.events.toString());
+		assertEquals("d", h.summary.getDescription());
+	}
+	
+	@Test
+	public void testNullSections() throws Exception {
+		RecordingHandler h = read("{\"namespaces\":null,\"baseTerms\":null,\"citations\":null,\"supports\":null," +
+				"\"reifiedEdgeTerms\":null,\"functionTerms\":null,\"nodes\":{\"3\":{\"id\":3}},\"edges\":null}");
+		
+		assertEquals("[node 3]", h.events.toString());
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.persistence.orientdb;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.ndexbio.model.exceptions.NdexException;
+import org.ndexbio.model.object.network.BaseTerm;
+import org.ndexbio.model.object.network.Citation;
+import org.ndexbio.model.object.network.Edge;
+import org.ndexbio.model.object.network.FunctionTerm;
+import org.ndexbio.model.object.network.Namespace;
+import org.ndexbio.model.object.network.NetworkSummary;
+import org.ndexbio.model.object.network.Node;
+import org.ndexbio.model.object.network.ReifiedEdgeTerm;
+import org.ndexbio.model.object.network.Support;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class NetworkStreamWriterTest {
+
+	private static class RecordingHandler implements NetworkElementHandler {
+		List<String> events = new ArrayList<>();
+		NetworkSummary summary;
+		
+		@Override public void handleNamespace(Namespace ns) { events.add("namespace " + ns.getId()); }
+		@Override public void handleBaseTerm(BaseTerm t) { events.add("baseTerm " + t.getId()); }
+		@Override public void handleCitation(Citation c) { events.add("citation " + c.getId()); }
+		@Override public void handleSupport(Support s) { events.add("support " + s.getId()); }
+		@Override public void handleReifiedEdgeTerm(ReifiedEdgeTerm t) { events.add("reifiedEdgeTerm " + t.getId()); }
+		@Override public void handleFunctionTerm(FunctionTerm t) { events.add("functionTerm " + t.getId()); }
+		@Override public void handleNode(Node n) { events.add("node " + n.getId()); }
+		@Override public void handleEdge(Edge e) { events.add("edge " + e.getId()); }
+		@Override public void handleNetworkSummary(NetworkSummary s) { summary = s; }
+	}
+	
+	@Test
+	public void testWrittenNetworkCanBeReadBack() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		NetworkStreamWriter writer = new NetworkStreamWriter(out);
+		
+		Namespace ns = new Namespace();
+		ns.setId(1);
+		writer.handleNamespace(ns);
+		BaseTerm t = new BaseTerm();
+		t.setId(2);
+		writer.handleBaseTerm(t);
+		for ( long id = 3 ; id <= 4; id++) {
+			Node n = new Node();
+			n.setId(id);
+			writer.handleNode(n);
+		}
+		Edge e = new Edge();
+		e.setId(5);
+		writer.handleEdge(e);
+		NetworkSummary summary = new NetworkSummary();
+		summary.setName("test");
+		writer.handleNetworkSummary(summary);
+		
+		// all the sections are in the document, the empty ones as empty maps.
+		JsonNode doc = new ObjectMapper().readTree(out.toByteArray());
+		assertEquals(0, doc.get("citations").size());
+		assertEquals(2, doc.get("nodes").size());
+		assertTrue(doc.get("nodes").has("4"));
+		
+		RecordingHandler h = new RecordingHandler();
+		new NetworkStreamReader(new ByteArrayInputStream(out.toByteArray()), h).read();
+		assertEquals("[namespace 1, baseTerm 2, node 3, node 4, edge 5]", h.events.toString());
+		assertEquals("test", h.summary.getName());
+	}
+	
+	@Test(expected = NdexException.class)
+	public void testElementAfterItsSectionIsRejected() throws Exception {
+		NetworkStreamWriter writer = new NetworkStreamWriter(new ByteArrayOutputStream());
+		Node n = new Node();
+		n.setId(3);
+		writer.handleNode(n);
+		BaseTerm t = new BaseTerm();
+		t.setId(2);
+		writer.handleBaseTerm(t);
+	}
+}
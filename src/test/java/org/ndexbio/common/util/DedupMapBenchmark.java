@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.util;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.ndexbio.common.models.object.network.RawEdge;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the boxed TreeMaps NdexPersistenceService used to dedup nodes and edges with the 
+ * primitive maps that replaced them. Each invocation loads a SIF-like stream of edges: the 
+ * (subject, predicate, object) triple is looked up first and inserted if it is new.
+ * 
+ * Run it with the main method. The GC profiler reports the bytes allocated per operation, which 
+ * shows the memory difference between the two approaches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class DedupMapBenchmark {
+
+	@Param({"100000", "1000000"})
+	public int edgeCount;
+	
+	private long[] subjects;
+	private long[] predicates;
+	private long[] objects;
+	
+	@Setup
+	public void setup() {
+		Random r = new Random(7);
+		int nodeCount = Math.max(10, edgeCount / 5);
+		subjects = new long[edgeCount];
+		predicates = new long[edgeCount];
+		objects = new long[edgeCount];
+		for ( int i = 0 ; i < edgeCount; i++) {
+			subjects[i] = r.nextInt(nodeCount) + 1;
+			predicates[i] = r.nextInt(20) + nodeCount + 1;
+			objects[i] = r.nextInt(nodeCount) + 1;
+		}
+	}
+	
+	@Benchmark
+	public int boxedEdgeMap() {
+		Map<RawEdge, Long> edgeMap = new TreeMap<>();
+		long nextId = 1;
+		for ( int i = 0 ; i < edgeCount; i++) {
+			RawEdge e = new RawEdge(subjects[i], predicates[i], objects[i]);
+			if ( edgeMap.get(e) == null)
+				edgeMap.put(e, nextId++);
+		}
+		return edgeMap.size();
+	}
+	
+	@Benchmark
+	public int primitiveEdgeMap() {
+		LongTripleHashMap edgeMap = new LongTripleHashMap();
+		long nextId = 1;
+		for ( int i = 0 ; i < edgeCount; i++) {
+			if ( edgeMap.get(subjects[i], predicates[i], objects[i]) == LongTripleHashMap.NO_VALUE)
+				edgeMap.put(subjects[i], predicates[i], objects[i], nextId++);
+		}
+		return edgeMap.size();
+	}
+	
+	@Benchmark
+	public int boxedNodeMap() {
+		Map<Long, Long> nodeMap = new TreeMap<>();
+		for ( int i = 0 ; i < edgeCount; i++) {
+			if ( nodeMap.get(subjects[i]) == null)
+				nodeMap.put(subjects[i], subjects[i] + edgeCount);
+		}
+		return nodeMap.size();
+	}
+	
+	@Benchmark
+	public int primitiveNodeMap() {
+		LongLongHashMap nodeMap = new LongLongHashMap();
+		for ( int i = 0 ; i < edgeCount; i++) {
+			if ( nodeMap.get(subjects[i]) == LongLongHashMap.NO_VALUE)
+				nodeMap.put(subjects[i], subjects[i] + edgeCount);
+		}
+		return nodeMap.size();
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(DedupMapBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.util;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+public class ParallelGZIPOutputStreamTest {
+
+	private static byte[] gunzip(byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+			byte[] buf = new byte[4096];
+			int n;
+			while ( (n = in.read(buf)) > 0) 
+				out.write(buf, 0, n);
+		}
+		return out.toByteArray();
+	}
+	
+	@Test
+	public void testBlocksAreReadBackAsOneStream() throws IOException {
+		// text like data over many small blocks, so that several members are compressed at the same time.
+		byte[] data = new byte[100000];
+		Random r = new Random(42);
+		for ( int i = 0; i < data.length; i++) 
+			data[i] = (byte)('a' + r.nextInt(8));
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ParallelGZIPOutputStream gz = new ParallelGZIPOutputStream(out, 3, 4096)) {
+			gz.write(data, 0, 10);
+			gz.write(data[10]);
+			gz.write(data, 11, data.length - 11);
+		}
+		
+		assertTrue(out.size() < data.length);
+		assertArrayEquals(data, gunzip(out.toByteArray()));
+	}
+	
+	@Test
+	public void testEmptyStreamIsValidGzip() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new ParallelGZIPOutputStream(out, 2, 4096).close();
+		assertEquals(0, gunzip(out.toByteArray()).length);
+	}
+	
+	@Test(expected = IOException.class)
+	public void testWriteAfterCloseFails() throws IOException {
+		ParallelGZIPOutputStream gz = new ParallelGZIPOutputStream(new ByteArrayOutputStream(), 1, 16);
+		gz.close();
+		gz.write(1);
+	}
+}
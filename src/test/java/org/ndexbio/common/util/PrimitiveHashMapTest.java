@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.util;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PrimitiveHashMapTest {
+
+	@Test
+	public void testLongLongMapMatchesHashMap() {
+		LongLongHashMap map = new LongLongHashMap(4);
+		Map<Long,Long> expected = new HashMap<>();
+		Random r = new Random(42);
+		for ( int i = 0 ; i < 100000; i++) {
+			long key = r.nextInt(50000) - 100;   // includes 0 and negative keys.
+			long value = r.nextLong();
+			Long old = expected.put(key, value);
+			assertEquals(old == null ? LongLongHashMap.NO_VALUE : old.longValue(), map.put(key, value));
+		}
+		assertEquals(expected.size(), map.size());
+		for ( Map.Entry<Long,Long> e : expected.entrySet()) 
+			assertEquals(e.getValue().longValue(), map.get(e.getKey()));
+		assertEquals(LongLongHashMap.NO_VALUE, map.get(60000L));
+		
+		map.clear();
+		assertEquals(0, map.size());
+		assertFalse(map.containsKey(0));
+	}
+
+	@Test
+	public void testTripleMap() {
+		LongTripleHashMap map = new LongTripleHashMap(4);
+		for ( long s = 0 ; s < 100; s++) 
+			for ( long o = 0 ; o < 100; o++) 
+				assertEquals(LongTripleHashMap.NO_VALUE, map.put(s, 7, o, s * 1000 + o));
+
+		assertEquals(10000, map.size());
+		assertEquals(5 * 1000 + 9, map.get(5, 7, 9));
+		// the order of the key parts matters.
+		assertEquals(LongTripleHashMap.NO_VALUE, map.get(5, 9, 7));
+		assertEquals(LongTripleHashMap.NO_VALUE, map.get(5, 8, 9));
+		assertEquals(5009, map.put(5, 7, 9, 1));
+		assertEquals(1, map.get(5, 7, 9));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTripleMapRejectsNoValue() {
+		new LongTripleHashMap().put(1, 2, 3, LongTripleHashMap.NO_VALUE);
+	}
+
+	@Test
+	public void testObjectLongMap() {
+		ObjectLongHashMap<String> map = new ObjectLongHashMap<>(4);
+		for ( int i = 0 ; i < 20000; i++) 
+			map.put("node" + i, i);
+		assertEquals(20000, map.size());
+		for ( int i = 0 ; i < 20000; i++) 
+			assertEquals(i, map.get("node" + i));
+		assertEquals(ObjectLongHashMap.NO_VALUE, map.get("node20000"));
+		assertEquals(17, map.put("node17", 3));
+		assertEquals(20000, map.size());
+	}
+}
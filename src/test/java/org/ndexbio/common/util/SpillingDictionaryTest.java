@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2013, 2015, The Regents of the University of California, The Cytoscape Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package org.ndexbio.common.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SpillingDictionaryTest {
+
+	private File dir;
+	
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("ndex-dict-test").toFile();
+	}
+	
+	@After
+	public void tearDown() {
+		for ( File f : dir.listFiles())
+			f.delete();
+		dir.delete();
+	}
+	
+	@Test
+	public void testStringDictionarySpills() {
+		try (SpillingStringDictionary dict = new SpillingStringDictionary(dir, 1000)) {
+			for ( int i = 0 ; i < 50000; i++) 
+				assertEquals(LongDictionary.NO_VALUE, dict.put("term:" + i + "\u00e9", i));
+			
+			assertTrue(dict.isSpilled());
+			assertEquals(50000, dict.size());
+			for ( int i = 0 ; i < 50000; i++) 
+				assertEquals(i, dict.get("term:" + i + "\u00e9"));
+			assertEquals(LongDictionary.NO_VALUE, dict.get("term:50000\u00e9"));
+			assertEquals(LongDictionary.NO_VALUE, dict.get("term:1"));
+			
+			assertEquals(7, dict.put("term:7\u00e9", 70));
+			assertEquals(70, dict.get("term:7\u00e9"));
+			assertEquals(50000, dict.size());
+		}
+		assertEquals(0, dir.listFiles().length);
+	}
+
+	@Test
+	public void testStringDictionaryBelowThreshold() {
+		try (SpillingStringDictionary dict = new SpillingStringDictionary(dir, 1000)) {
+			for ( int i = 0 ; i < 1000; i++) 
+				dict.put("n" + i, i);
+			assertFalse(dict.isSpilled());
+			assertEquals(0, dir.listFiles().length);
+			assertEquals(999, dict.get("n999"));
+		}
+	}
+	
+	@Test
+	public void testTripleDictionarySpills() {
+		try (SpillingTripleDictionary dict = new SpillingTripleDictionary(dir, 500)) {
+			for ( long s = 1 ; s <= 200; s++) 
+				for ( long o = 1 ; o <= 200; o++) 
+					dict.put(s, -1, o, s * 1000 + o);
+			
+			assertTrue(dict.isSpilled());
+			assertEquals(40000, dict.size());
+			for ( long s = 1 ; s <= 200; s++) 
+				for ( long o = 1 ; o <= 200; o++) 
+					assertEquals(s * 1000 + o, dict.get(s, -1, o));
+			assertEquals(TripleLongDictionary.NO_VALUE, dict.get(1, -1, 201));
+			assertEquals(TripleLongDictionary.NO_VALUE, dict.get(1, 0, 1));
+		}
+		assertEquals(0, dir.listFiles().length);
+	}
+}